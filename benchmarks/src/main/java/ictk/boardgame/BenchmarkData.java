@@ -0,0 +1,91 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/* BenchmarkData **********************************************************/
+/** loads the recorded input the benchmarks run over.  The files live
+ *  next to this class: games.pgn (master games) and fics.data (server
+ *  output in the same format as the FICS parser test data).
+ */
+public final class BenchmarkData {
+
+   private BenchmarkData () {
+   }
+
+   /* read ****************************************************************/
+   /** @return the whole resource as a String
+    *  @throws IOException if the resource can't be found
+    */
+   public static String read (String name) throws IOException {
+      InputStream in = BenchmarkData.class.getResourceAsStream(name);
+      StringBuilder sb = new StringBuilder(4096);
+      char[] buff = new char[4096];
+      int n = 0;
+
+         if (in == null)
+            throw new IOException("no such benchmark resource: " + name);
+
+         try (BufferedReader reader = 
+                 new BufferedReader(new InputStreamReader(in, "UTF-8"))) {
+            while ((n = reader.read(buff)) != -1)
+               sb.append(buff, 0, n);
+         }
+      return sb.toString();
+   }
+
+   /* chunk ***************************************************************/
+   /** splits server output into messages the way the server chunks them
+    *  by prompt.  Lines starting with '#' separate messages and are
+    *  otherwise ignored.
+    */
+   public static String[] chunk (String data) {
+      List<String> list = new ArrayList<>();
+      StringBuilder sb = new StringBuilder(80);
+      String[] lines = data.split("\r?\n");
+
+         for (int i=0; i < lines.length; i++) {
+            if (lines[i].startsWith("#")) {
+               if (sb.length() != 0) {
+                  list.add(sb.toString());
+                  sb.setLength(0);
+               }
+            }
+            else
+               sb.append(lines[i]);
+         }
+         if (sb.length() != 0)
+            list.add(sb.toString());
+
+      return list.toArray(new String[list.size()]);
+   }
+}
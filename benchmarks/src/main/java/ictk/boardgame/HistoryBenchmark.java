@@ -0,0 +1,107 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame;
+
+import ictk.boardgame.chess.ChessGame;
+import ictk.boardgame.chess.io.PGNBenchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/* HistoryBenchmark *******************************************************/
+/** History.goTo() on the longest game in games.pgn: from the start to
+ *  the end, between two moves in the middle of the game, and back and 
+ *  forth between the middle and the end.  Each is run with and without
+ *  a SnapshotCache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+   @Param({"false", "true"})
+   public boolean snapshots;
+
+   History history;
+   Move last,
+        middle,
+        nextToMiddle;
+
+   @Setup
+   public void setup () throws Exception {
+      List<ChessGame> games = 
+         PGNBenchmark.readGames(BenchmarkData.read("games.pgn"));
+      int plies = 0,
+          longest = 0;
+      Move move = null;
+
+         for (int i=0; i < games.size(); i++) {
+            plies = 0;
+            for (move = games.get(i).getHistory().getFirst(); move != null;
+                 move = move.getNext())
+               plies++;
+            if (plies > longest) {
+               longest = plies;
+               history = games.get(i).getHistory();
+            }
+         }
+
+         last = history.getFirst();
+         for (int i=1; i < longest; i++) {
+            if (i == longest / 2)
+               middle = last;
+            last = last.getNext();
+         }
+         nextToMiddle = middle.getNext();
+
+         if (snapshots) {
+            history.setSnapshotCache(new SnapshotCache());
+            history.goTo(last);
+         }
+   }
+
+   @Benchmark
+   public Move goToEnd () {
+      history.rewind();
+      return history.goTo(last);
+   }
+
+   @Benchmark
+   public Move goToNeighbor () {
+      history.goTo(middle);
+      return history.goTo(nextToMiddle);
+   }
+
+   @Benchmark
+   public Move goToMiddleAndEnd () {
+      history.goTo(middle);
+      return history.goTo(last);
+   }
+}
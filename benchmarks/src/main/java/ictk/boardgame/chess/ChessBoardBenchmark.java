@@ -0,0 +1,85 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess;
+
+import ictk.boardgame.Move;
+import ictk.boardgame.chess.io.FEN;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/* ChessBoardBenchmark ****************************************************/
+/** legal move generation.  getLegalMoves() and getLegalMovesBuffer()
+ *  are timed from scratch each time (the board is marked stale first) 
+ *  and perft times generation together with ChessMove.execute() and
+ *  unexecute().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBoardBenchmark {
+   @Param({
+      "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+      "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+      "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+   })
+   String position;
+
+   @Param({"3"})
+   int depth;
+
+   ChessBoard board;
+   Perft perft;
+   int[] moves = new int[BitBoard.MAX_MOVES];
+
+   @Setup
+   public void setup () throws Exception {
+      board = (ChessBoard) new FEN().stringToBoard(position);
+      perft = new Perft(board);
+   }
+
+   @Benchmark
+   public List<Move> getLegalMoves () {
+      board.staleLegalDests = board.staleMoves = true;
+      return board.getLegalMoves();
+   }
+
+   @Benchmark
+   public int getLegalMovesBuffer () {
+      board.staleLegalDests = board.staleMoves = true;
+      return board.getLegalMoves(moves);
+   }
+
+   @Benchmark
+   public long perft () {
+      return perft.perft(depth);
+   }
+}
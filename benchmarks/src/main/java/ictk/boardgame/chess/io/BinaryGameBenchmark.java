@@ -0,0 +1,90 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package ictk.boardgame.chess.io;
+
+import ictk.boardgame.BenchmarkData;
+import ictk.boardgame.chess.ChessGame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/* BinaryGameBenchmark ****************************************************/
+/** the master games in games.pgn read and written in the binary format,
+ *  for comparison with PGNBenchmark.  Each operation is the whole file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryGameBenchmark {
+   byte[] binary;
+   List<ChessGame> games;
+
+   @Setup
+   public void setup () throws Exception {
+      games = PGNBenchmark.readGames(BenchmarkData.read("games.pgn"));
+      binary = writeGame();
+   }
+
+   @Benchmark
+   public int readGame () throws Exception {
+      BinaryGameReader reader = 
+         new BinaryGameReader(new ByteArrayInputStream(binary));
+      int count = 0;
+
+         while (reader.readGame() != null)
+            count++;
+      return count;
+   }
+
+   @Benchmark
+   public int readGameTrusted () throws Exception {
+      BinaryGameReader reader = 
+         new BinaryGameReader(new ByteArrayInputStream(binary));
+      int count = 0;
+
+         reader.setTrusted(true);
+         while (reader.readGame() != null)
+            count++;
+      return count;
+   }
+
+   @Benchmark
+   public byte[] writeGame () throws Exception {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryGameWriter writer = new BinaryGameWriter(out);
+
+         for (int i=0; i < games.size(); i++)
+            writer.writeGame(games.get(i));
+         writer.close();
+      return out.toByteArray();
+   }
+}
@@ -0,0 +1,116 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import ictk.boardgame.BenchmarkData;
+import ictk.boardgame.History;
+import ictk.boardgame.Move;
+import ictk.boardgame.chess.ChessBoard;
+import ictk.boardgame.chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/* FENBenchmark ***********************************************************/
+/** reading and writing every position of the games in games.pgn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FENBenchmark {
+   FEN fen = new FEN();
+   List<String> fens = new ArrayList<>();
+   List<ChessBoard> boards = new ArrayList<>();
+   ChessBoard board = new ChessBoard();
+   StringBuilder sb = new StringBuilder(FEN.MAX_LENGTH);
+   char[] chars = new char[FEN.MAX_LENGTH];
+
+   @Setup
+   public void setup () throws Exception {
+      List<ChessGame> games = 
+         PGNBenchmark.readGames(BenchmarkData.read("games.pgn"));
+      History history = null;
+      Move move = null;
+      String str = null;
+
+         for (int i=0; i < games.size(); i++) {
+            history = games.get(i).getHistory();
+            history.rewind();
+            for (move = history.getFirst(); move != null; 
+                 move = move.getNext()) {
+               history.next();
+               str = fen.boardToString(games.get(i).getBoard());
+               fens.add(str);
+               boards.add((ChessBoard) fen.stringToBoard(str));
+            }
+         }
+   }
+
+   @Benchmark
+   public void stringToBoard (Blackhole bh) throws Exception {
+      for (int i=0; i < fens.size(); i++)
+         bh.consume(fen.stringToBoard(fens.get(i)));
+   }
+
+   @Benchmark
+   public void boardToString (Blackhole bh) {
+      for (int i=0; i < boards.size(); i++)
+         bh.consume(fen.boardToString(boards.get(i)));
+   }
+
+   @Benchmark
+   public void stringToBoardInPlace (Blackhole bh) throws Exception {
+      for (int i=0; i < fens.size(); i++)
+         bh.consume(fen.stringToBoard(fens.get(i), board));
+   }
+
+   @Benchmark
+   public void appendBoard (Blackhole bh) {
+      for (int i=0; i < boards.size(); i++) {
+         sb.setLength(0);
+         bh.consume(fen.appendBoard(sb, boards.get(i)));
+      }
+   }
+
+   @Benchmark
+   public void boardToChars (Blackhole bh) {
+      for (int i=0; i < boards.size(); i++)
+         bh.consume(fen.boardToChars(boards.get(i), chars, 0));
+   }
+
+   @Benchmark
+   public void placementToChars (Blackhole bh) {
+      for (int i=0; i < boards.size(); i++)
+         bh.consume(fen.placementToChars(boards.get(i), chars, 0));
+   }
+}
@@ -0,0 +1,149 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import ictk.boardgame.BenchmarkData;
+import ictk.boardgame.Game;
+import ictk.boardgame.chess.ChessGame;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/* PGNBenchmark ***********************************************************/
+/** reading and writing the master games in games.pgn.  Each operation
+ *  is the whole file, so the score is in files per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PGNBenchmark {
+   String pgn;
+   List<ChessGame> games;
+
+   @Setup
+   public void setup () throws Exception {
+      pgn = BenchmarkData.read("games.pgn");
+      games = readGames(pgn);
+   }
+
+   @Benchmark
+   public int readGame () throws Exception {
+      PGNReader reader = new PGNReader(new StringReader(pgn));
+      int count = 0;
+
+         while (reader.readGame() != null)
+            count++;
+      return count;
+   }
+
+   @Benchmark
+   public int readGameRecycled () throws Exception {
+      PGNReader reader = new PGNReader(new StringReader(pgn));
+      int count = 0;
+
+         reader.setRecycleGames(true);
+         while (reader.readGame() != null)
+            count++;
+      return count;
+   }
+
+   @Benchmark
+   public int readGameTrusted () throws Exception {
+      PGNReader reader = new PGNReader(new StringReader(pgn));
+      int count = 0;
+
+         reader.setTrusted(true);
+         while (reader.readGame() != null)
+            count++;
+      return count;
+   }
+
+   @Benchmark
+   public int readHeaders () throws Exception {
+      PGNReader reader = new PGNReader(new StringReader(pgn));
+      int count = 0;
+
+         while (reader.readGameInfo() != null) {
+            reader.skipHistory();
+            count++;
+         }
+      return count;
+   }
+
+   @Benchmark
+   public int readGamesParallel () throws Exception {
+      ParallelPGNReader reader = 
+         new ParallelPGNReader(new StringReader(pgn));
+
+         //small chunks so the sample file is spread over the workers
+         reader.setChunkSize(pgn.length() / 32 + 1);
+      return reader.readGames().size();
+   }
+
+   @Benchmark
+   public int writeGame () throws Exception {
+      StringWriter out = new StringWriter(pgn.length());
+      PGNWriter writer = new PGNWriter(out);
+
+         for (int i=0; i < games.size(); i++)
+            writer.writeGame(games.get(i));
+         writer.flush();
+      return out.getBuffer().length();
+   }
+
+   @Benchmark
+   public int writeGamesParallel () throws Exception {
+      StringWriter out = new StringWriter(pgn.length());
+      ParallelPGNWriter writer = new ParallelPGNWriter(out);
+
+         //small batches so the sample file is spread over the workers
+         writer.setBatchSize(1);
+         writer.writeGames(games);
+      return out.getBuffer().length();
+   }
+
+   /* readGames ***********************************************************/
+   /** all the games in the PGN, for the benchmarks that need some
+    *  positions or moves to work on.
+    */
+   public static List<ChessGame> readGames (String pgn) throws Exception {
+      PGNReader reader = new PGNReader(new StringReader(pgn));
+      List<ChessGame> list = new ArrayList<>();
+      Game game = null;
+
+         while ((game = reader.readGame()) != null)
+            list.add((ChessGame) game);
+      return list;
+   }
+}
@@ -0,0 +1,90 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import ictk.boardgame.BenchmarkData;
+import ictk.boardgame.History;
+import ictk.boardgame.Move;
+import ictk.boardgame.chess.ChessBoard;
+import ictk.boardgame.chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/* SANBenchmark ***********************************************************/
+/** reading and writing every move of the games in games.pgn.  Each
+ *  move is parsed against a board set up on the position before it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SANBenchmark {
+   SAN san = new SAN();
+   List<ChessBoard> boards = new ArrayList<>();
+   List<String> sans = new ArrayList<>();
+   List<Move> moves = new ArrayList<>();
+
+   @Setup
+   public void setup () throws Exception {
+      FEN fen = new FEN();
+      List<ChessGame> games = 
+         PGNBenchmark.readGames(BenchmarkData.read("games.pgn"));
+      History history = null;
+      Move move = null;
+
+         for (int i=0; i < games.size(); i++) {
+            history = games.get(i).getHistory();
+            history.rewind();
+            for (move = history.getFirst(); move != null; 
+                 move = move.getNext()) {
+               boards.add((ChessBoard) fen.stringToBoard(
+                  fen.boardToString(games.get(i).getBoard())));
+               sans.add(san.moveToString(move));
+               moves.add(move);
+               history.next();
+            }
+         }
+   }
+
+   @Benchmark
+   public void stringToMove (Blackhole bh) throws Exception {
+      for (int i=0; i < sans.size(); i++)
+         bh.consume(san.stringToMove(boards.get(i), sans.get(i)));
+   }
+
+   @Benchmark
+   public void moveToString (Blackhole bh) {
+      for (int i=0; i < moves.size(); i++)
+         bh.consume(san.moveToString(moves.get(i)));
+   }
+}
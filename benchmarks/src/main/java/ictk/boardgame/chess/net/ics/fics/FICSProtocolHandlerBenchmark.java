@@ -0,0 +1,68 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.net.ics.fics;
+
+import ictk.boardgame.BenchmarkData;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/* FICSProtocolHandlerBenchmark *******************************************/
+/** parsing recorded server output (fics.data) into events.  Nothing
+ *  is listening to the router, so this is the cost of matching and
+ *  building the events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FICSProtocolHandlerBenchmark {
+   FICSProtocolHandler handler;
+   String[] messages;
+
+   @Setup
+   public void setup () throws Exception {
+      messages = BenchmarkData.chunk(BenchmarkData.read("fics.data"));
+      handler = new FICSProtocolHandler();
+      //unmatched output would otherwise go to the console
+      handler.stdout = new PrintStream(new OutputStream() {
+         public void write (int b) { }
+         public void write (byte[] b, int off, int len) { }
+      });
+   }
+
+   @Benchmark
+   public int parse () {
+      for (int i=0; i < messages.length; i++)
+         handler.parse(messages[i]);
+      return messages.length;
+   }
+}
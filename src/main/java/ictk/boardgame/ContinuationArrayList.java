@@ -345,6 +345,8 @@ public class ContinuationArrayList implements ContinuationList {
       if (branches != null)
 
       for (int i = 0; i < branches.length; i++) {
+         if (branches[i] == null)
+	    continue;
 
          //must rewind first to not but board in bad state
          if (branches[i].isExecuted())
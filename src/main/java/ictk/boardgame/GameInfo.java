@@ -210,7 +210,7 @@ public abstract class GameInfo {
       GameInfo gi = (GameInfo) o;
       boolean t = true;
 
-         if (Log.debug) Log.debug(DEBUG, "checking for equality");
+         if (Log.debug && Log.isDebug(DEBUG)) Log.debug(DEBUG, "checking for equality");
 
          if (t && players == gi.players)
 	    t = true;
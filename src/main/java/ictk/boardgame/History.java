@@ -30,8 +30,6 @@ import ictk.util.Log;
 import java.util.NoSuchElementException;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.ListIterator;
 
 
 /* History ******************************************************************/
@@ -104,6 +102,9 @@ public class History {
       /**the current move number as known by History */
                  currMoveNumber    = 0;
 
+      /** snapshots of positions for quicker goTo() (null if not used) */
+   protected SnapshotCache snapshots;
+
 
    //Constructors//////////////////////////////////////////////////////////
    public History (Game game) {
@@ -122,12 +123,30 @@ public class History {
    //Accessors/////////////////////////////////////////////////////////////
    public int  getInitialMoveNumber () { return initialMoveNumber; }
 
+   /* getSnapshotCache *****************************************************/
+   /** @return null if no snapshots are being kept.
+    */
+   public SnapshotCache getSnapshotCache () { return snapshots; }
+
    //Mutators//////////////////////////////////////////////////////////////
    public void setInitialMoveNumber (int i) { 
       currMoveNumber += i - initialMoveNumber;
       initialMoveNumber = i; 
    }
 
+   /* setSnapshotCache *****************************************************/
+   /** keeps snapshots of the board in this cache so that goTo(), 
+    *  fastforward() and goToEnd() can restore the nearest one instead of
+    *  executing every move on the way.  Snapshots are only taken if the
+    *  Board is a SnapshotBoard, and only from here on: positions already
+    *  played get a snapshot the next time they are reached.
+    *
+    *  @param cache null to stop keeping snapshots.
+    */
+   public void setSnapshotCache (SnapshotCache cache) {
+      snapshots = cache;
+   }
+
    /* getCurrentMoveNumber **************************************************/
    /** gets the move number of the last move executed on the board.
     *  @return 0 if no moves executed on the board.
@@ -171,6 +190,9 @@ public class History {
         
       cont.add(_move, asMainLine);
 
+      if (cont.hasVariations())
+         takeSnapshot(currMove, -1);
+
       try {
          _next(_move);  //executes next move (we just added)
       }
@@ -315,6 +337,7 @@ public class History {
       m.execute();
       currMoveNumber++;
       currMove = m;
+      takeSnapshot(m, -1);
       return currMove;
    }
       
@@ -340,7 +363,9 @@ public class History {
 	       "variation [" + i + "] does not exist for " + currMove);
 	 
 	 m.execute();
+	 currMoveNumber++;
 	 currMove = m;
+	 takeSnapshot(m, -1);
 
       return currMove;
    }
@@ -406,9 +431,9 @@ public class History {
     * @param m if null a rewind() will be executed
     */
    public Move goTo (Move m) {
-   /* tracks backward through the history list to the root node.
-    * Then it rewinds the history and moves back down to this move
-    * using the tracked moves.
+   /* finds the last move the current line and m's line have in common.
+    * Only the moves after it are unexecuted, then m's line is executed
+    * down from there.
     */
       if (m == null) {
          rewind();
@@ -419,24 +444,50 @@ public class History {
          throw new IllegalArgumentException (
 	     "Can't goTo() a move that doesn't belong to this history list.");
 
-      LinkedList<Move> tracks = new LinkedList<>();
-      ListIterator<Move> li;
-      Move walker = m;
+      if (m == currMove)
+         return m;
+
+      Move ancestor = commonAncestor(currMove, m),
+           start = ancestor,
+           walker = m;
+      int depth = depth(m),
+          steps = depth(currMove) + depth - 2 * depth(ancestor);
+      BoardSnapshot snapshot = null;
+
+      //a snapshot is worth it if it leaves fewer moves to play
+      if (snapshots != null) 
+         for (int d = depth; walker != null && depth - d + 1 < steps; 
+	      d--, walker = walker.prev)
+	    if ((snapshot = snapshots.get(walker)) != null) {
+	       start = walker;
+	       break;
+	    }
+
+      Move[] tracks = new Move[depth - depth(start)];
 
-      do {
-         tracks.addFirst(walker);
-      } while ((walker = walker.prev) != null);
+      walker = m;
+      for (int i = tracks.length - 1; i >= 0; i--, walker = walker.prev)
+         tracks[i] = walker;
 
       notifyBoardsOfTraversal(true);
 
-      _rewind();  //go back to the beginning
+      if (snapshot != null) 
+         restoreSnapshot(start, snapshot);
+      else
+         //back up to the fork
+         while (currMove != ancestor) {
+            currMove.unexecute();
+	    currMove = currMove.prev;
+	    currMoveNumber--;
+         }
 
-      li = tracks.listIterator(0);
-      while (li.hasNext()) {
-	 walker = li.next();
+      depth -= tracks.length;
+      for (int i=0; i < tracks.length; i++) {
+	 walker = tracks[i];
 	 try {
 	    walker.execute();
 	    currMoveNumber++;
+	    takeSnapshot(walker, ++depth);
 	 }
 	 catch (OutOfTurnException e) {
 	    assert false
@@ -458,6 +509,75 @@ public class History {
       return m;
    }
 
+   /* restoreSnapshot **************************************************/
+   /** puts the board back to the position after m using its snapshot
+    *  instead of unexecuting and executing the moves in between.  The 
+    *  moves that are no longer on the board, and the ones now on it,
+    *  are marked so.
+    */
+   protected void restoreSnapshot (Move m, BoardSnapshot snapshot) {
+      Move fork = commonAncestor(currMove, m);
+
+      currMoveNumber += depth(m) - depth(currMove);
+      for (Move walker = currMove; walker != fork; walker = walker.prev)
+         walker.executed = false;
+      for (Move walker = m; walker != fork; walker = walker.prev)
+         walker.executed = true;
+
+      ((SnapshotBoard) m.getBoard()).restoreSnapshot(snapshot);
+      currMove = m;
+   }
+
+   /* takeSnapshot *******************************************************/
+   /** keeps a snapshot of the board if m was just played and it's at a
+    *  fork or on the snapshot interval.
+    *
+    *  @param depth the depth() of m, or -1 if it's not known.
+    */
+   protected void takeSnapshot (Move m, int depth) {
+      if (snapshots == null 
+          || m == null
+	  || !(m.getBoard() instanceof SnapshotBoard)
+	  || snapshots.contains(m))
+	 return;
+
+      if (m.getContinuationList().hasVariations()
+          || (depth < 0 ? depth(m) : depth) % snapshots.getInterval() == 0)
+	 snapshots.put(m, ((SnapshotBoard) m.getBoard()).createSnapshot());
+   }
+
+   /* commonAncestor ******************************************************/
+   /** the last move on the line to both moves (a move is on its own 
+    *  line).
+    *
+    * @return null if the lines part before the first move
+    */
+   protected static Move commonAncestor (Move a, Move b) {
+      int da = depth(a),
+          db = depth(b);
+
+      for (; da > db; da--)
+         a = a.prev;
+      for (; db > da; db--)
+         b = b.prev;
+      while (a != b) {
+         a = a.prev;
+	 b = b.prev;
+      }
+      return a;
+   }
+
+   /* depth ***************************************************************/
+   /** how many moves lead up to and include this one.
+    */
+   protected static int depth (Move m) {
+      int depth = 0;
+
+      for (; m != null; m = m.prev)
+         depth++;
+      return depth;
+   }
+
    /* _rewind *************************************************************/
    /** the protected version of rewind() that does not notify the board
     *  of the traversal.
@@ -491,6 +611,22 @@ public class History {
     *          (in the case of early termination of the line).
     */
    public int fastforward (int n) {
+      if (snapshots != null) {
+         Move target = currMove;
+	 int count = 0;
+
+	 for (; count < n; count++) {
+	    ContinuationList cont = (target == null) 
+	       ? head : target.getContinuationList();
+	    if (!cont.hasMainLine())
+	       break;
+	    target = cont.getMainLine();
+	 }
+	 if (count > 0)
+	    goTo(target);
+	 return count;
+      }
+
       notifyBoardsOfTraversal(true);
 
       int count = 0;
@@ -509,6 +645,11 @@ public class History {
     *  performing all moves on the branch's main line as it goes.
     */
    public void goToEnd () {
+      if (snapshots != null) {
+         fastforward(Integer.MAX_VALUE);
+	 return;
+      }
+
       notifyBoardsOfTraversal(true);
 
       while (hasNext()) {
@@ -611,6 +752,7 @@ public class History {
       Move gonner = null;
          //unexecute
          gonner = prev();
+	 dropSnapshots(gonner);
 
          if (currMove != null)
 	    currMove.getContinuationList().remove(gonner);
@@ -628,17 +770,18 @@ public class History {
     *  @return Move - the current move (same as getLastMove)
     */
    public Move truncate (int i) {
+      ContinuationList cont = (currMove != null) 
+         ? currMove.getContinuationList() : head;
+
+      if (snapshots != null)
+         for (int j=0; j < cont.size(); j++)
+	    if (i == -1 || i == j)
+	       dropSnapshots(cont.get(j));
 
       if (i == -1)
-         if (currMove != null)
-	    currMove.getContinuationList().removeAll();
-	 else
-	    head.removeAll();
+         cont.removeAll();
       else
-         if (currMove != null)
-	    currMove.getContinuationList().remove(i);
-	 else
-	    head.remove(i);
+         cont.remove(i);
 
       return currMove;
    }
@@ -648,6 +791,42 @@ public class History {
       return truncate(-1);
    }
 
+   /* dropSnapshots ******************************************************/
+   /** takes the snapshots of the move and of every move after it out of
+    *  the cache, before they are removed from the tree.
+    */
+   protected void dropSnapshots (Move m) {
+      List<Move> stack = null;
+      ContinuationList cont = null;
+
+         if (snapshots == null || m == null)
+	    return;
+
+	 stack = new ArrayList<>();
+	 stack.add(m);
+	 while (!stack.isEmpty()) {
+	    m = stack.remove(stack.size() - 1);
+	    snapshots.remove(m);
+	    if ((cont = m.getContinuationList()) != null)
+	       for (int i=0; i < cont.size(); i++)
+	          if (cont.get(i) != null)
+		     stack.add(cont.get(i));
+	 }
+   }
+
+   /* clear ***************************************************************/
+   /** drops every move so the History can be used for another game.
+    *  Unlike truncate() nothing is unexecuted or disposed, so the board
+    *  is left as it is; the caller is expected to reset it.
+    */
+   public void clear () {
+      if (snapshots != null)
+         snapshots.clear();
+      head = new ContinuationArrayList(null);
+      currMove = null;
+      currMoveNumber = initialMoveNumber;
+   }
+
    /* _delBadAdd **********************************************************/
    /** deletes a IllegalMove that was added to the history list in an
     *  add() attempt.
@@ -743,13 +922,13 @@ public class History {
    public boolean deepEquals (History hist, boolean checkAnno) {
       boolean t = false;
 
-      if (Log.debug)
+      if (Log.debug && Log.isDebug(DEBUG))
          Log.debug(DEBUG, "beginning probe:" 
 	    + ((checkAnno) ? "" : " not") + " checking Annotations");
 
       t = probeDeepEquals(head, hist.head, checkAnno);
 
-      if (Log.debug)
+      if (Log.debug && Log.isDebug(DEBUG))
          Log.debug(DEBUG, "histories: " 
 	    + ((t) ? "same" : "different"));
 
@@ -772,7 +951,7 @@ public class History {
 
          //are they both terminal?
          if (cont.isTerminal() && cont2.isTerminal()) {
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "+ both histories terminate");
 	    return t;
          }
@@ -789,7 +968,7 @@ public class History {
 
 	       //stop if move from game1 isn't found in the continuation list
 	       else if ((possibleMatches = cont2.find(move1)) == null) {
-	          if (Log.debug) 
+	          if (Log.debug && Log.isDebug(DEBUG)) 
 		     Log.debug(DEBUG, "- move (" + move1 
 		        + ") not found in continuation list of game 2");
 	          t = false;
@@ -800,7 +979,7 @@ public class History {
 	       else {
 	          found = false;
 
-		  if (Log.debug)
+		  if (Log.debug && Log.isDebug(DEBUG))
 		     Log.debug(DEBUG,
 		        "+ (" + possibleMatches.length 
 			+ ") possible matches of (" + move1 
@@ -825,7 +1004,7 @@ public class History {
 				             .equals(move2.getAnnotation())
 			             );
 
-			if (Log.debug)
+			if (Log.debug && Log.isDebug(DEBUG))
 			   Log.debug(DEBUG, 
 			      ((isMatch) ? "+" : "-")
 			      + " [" + (j+1) + "/" + possibleMatches.length 
@@ -844,7 +1023,7 @@ public class History {
 				             .equals(move2.getPrenotation())
 			 	     );
 
-			if (Log.debug)
+			if (Log.debug && Log.isDebug(DEBUG))
 			   Log.debug(DEBUG, 
 			      ((isMatch) ? "+" : "-")
 			      + " [" + (j+1) + "/" + possibleMatches.length 
@@ -867,7 +1046,7 @@ public class History {
 					        .equals(move2.getResult())
 				     );
 
-			if (Log.debug)
+			if (Log.debug && Log.isDebug(DEBUG))
 			   if (move1.getResult() != null 
 			       || move2.getResult() != null)
 			      Log.debug(DEBUG,
@@ -893,7 +1072,7 @@ public class History {
 		     found = isMatch;
 	       }
 
-	       if (Log.debug)
+	       if (Log.debug && Log.isDebug(DEBUG))
 	          Log.debug(DEBUG, "("
 		     + move1 + ") continuation: "
 		     + ((found) ? "[" + j 
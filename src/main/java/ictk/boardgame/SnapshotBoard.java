@@ -0,0 +1,50 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame;
+
+/* SnapshotBoard ************************************************************/
+/** a Board that can copy its state into a BoardSnapshot and restore it
+ *  later.  History uses this (with a SnapshotCache) to jump around a long
+ *  move tree without executing every move in between.
+ */
+public interface SnapshotBoard extends Board {
+
+   /* createSnapshot *****************************************************/
+   /** copies the current position and state of the board, including the
+    *  last move played.
+    */
+   public BoardSnapshot createSnapshot ();
+
+   /* restoreSnapshot ****************************************************/
+   /** puts the board back to the state it was in when the snapshot was 
+    *  taken and fires a BoardEvent.POSITION.  The moves that were played 
+    *  to reach that state must not have been changed or disposed of since.
+    *
+    *  @throws IllegalArgumentException if the snapshot was not taken by
+    *          this board.
+    */
+   public void restoreSnapshot (BoardSnapshot snapshot);
+}
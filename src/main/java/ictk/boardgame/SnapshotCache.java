@@ -0,0 +1,171 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* SnapshotCache ************************************************************/
+/** holds BoardSnapshots of positions in a History so that goTo() and
+ *  fastforward() can restore the nearest one and only replay the moves
+ *  after it.  A snapshot is kept every <i>interval</i> plies and at every
+ *  variation fork.  When the snapshots use more than the memory budget the
+ *  least recently used ones are dropped.
+ *  <p>
+ *  Snapshots are keyed by the Move that leads to the position (by 
+ *  identity, not by Move.equals()).  The cache is not thread safe, the
+ *  same as History.
+ *  <p>
+ *  For example:
+ *  <pre>
+ *  history.setSnapshotCache(new SnapshotCache(16, 1 &lt;&lt; 20));
+ *  </pre>
+ */
+public class SnapshotCache {
+      /** the default number of plies between snapshots */
+   public static final int  DEFAULT_INTERVAL = 16;
+      /** the default memory budget in bytes */
+   public static final long DEFAULT_BUDGET   = 1L << 20;
+
+      /** plies between snapshots */
+   protected int  interval;
+      /** bytes the snapshots may use */
+   protected long budget,
+      /** bytes the snapshots are using */
+                  footprint;
+      /** the snapshots in least recently used order */
+   protected LinkedHashMap<Key,BoardSnapshot> snapshots;
+      /** reused for lookups so they don't allocate */
+   private Key probe = new Key(null);
+
+   //Constructors//////////////////////////////////////////////////////////
+   public SnapshotCache () {
+      this(DEFAULT_INTERVAL, DEFAULT_BUDGET);
+   }
+
+   /** @param interval the number of plies between snapshots.
+    *  @param budget   about how many bytes the snapshots may use.
+    *
+    *  @throws IllegalArgumentException if either is not positive.
+    */
+   public SnapshotCache (int interval, long budget) {
+      if (interval < 1)
+         throw new IllegalArgumentException(
+	    "interval must be positive: " + interval);
+      if (budget < 1)
+         throw new IllegalArgumentException(
+	    "budget must be positive: " + budget);
+
+      this.interval = interval;
+      this.budget = budget;
+      snapshots = new LinkedHashMap<Key,BoardSnapshot>(16, 0.75f, true);
+   }
+
+   //Accessors/////////////////////////////////////////////////////////////
+   public int  getInterval  () { return interval; }
+   public long getBudget    () { return budget; }
+   public long getFootprint () { return footprint; }
+   public int  size         () { return snapshots.size(); }
+
+   /* get ****************************************************************/
+   /** the snapshot of the position after this move was played.
+    *  This counts as a use of the snapshot.
+    *
+    *  @return null if there is no snapshot for the move.
+    */
+   public BoardSnapshot get (Move m) {
+      probe.move = m;
+      BoardSnapshot s = snapshots.get(probe);
+      probe.move = null;
+      return s;
+   }
+
+   /* contains ***********************************************************/
+   /** is there a snapshot for this move.  This does not count as a use.
+    */
+   public boolean contains (Move m) {
+      probe.move = m;
+      boolean found = snapshots.containsKey(probe);
+      probe.move = null;
+      return found;
+   }
+
+   //Mutators//////////////////////////////////////////////////////////////
+   /* put ****************************************************************/
+   /** keeps the snapshot of the position after this move was played, 
+    *  dropping the least recently used snapshots if over budget.
+    */
+   public void put (Move m, BoardSnapshot s) {
+      BoardSnapshot old = snapshots.put(new Key(m), s);
+
+      if (old != null)
+         footprint -= old.getFootprint();
+      footprint += s.getFootprint();
+
+      Iterator<Map.Entry<Key,BoardSnapshot>> it = 
+         snapshots.entrySet().iterator();
+      while (footprint > budget && it.hasNext()) {
+         footprint -= it.next().getValue().getFootprint();
+	 it.remove();
+      }
+   }
+
+   /* remove *************************************************************/
+   /** drops the snapshot for this move if there is one.
+    */
+   public void remove (Move m) {
+      probe.move = m;
+      BoardSnapshot old = snapshots.remove(probe);
+      probe.move = null;
+      if (old != null)
+         footprint -= old.getFootprint();
+   }
+
+   /* clear **************************************************************/
+   /** drops all the snapshots.
+    */
+   public void clear () {
+      snapshots.clear();
+      footprint = 0;
+   }
+
+   /* Key ****************************************************************/
+   /** Moves are compared by identity; Move.equals() would match the same
+    *  move played in different lines.
+    */
+   private static class Key {
+      Move move;
+
+      Key (Move m) { move = m; }
+
+      public int hashCode () { return System.identityHashCode(move); }
+
+      public boolean equals (Object o) {
+         return o instanceof Key && ((Key) o).move == move;
+      }
+   }
+}
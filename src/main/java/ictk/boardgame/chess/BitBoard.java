@@ -0,0 +1,852 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess;
+
+/* BitBoard ****************************************************************/
+/** a set of 64-bit masks that mirrors the pieces standing on a ChessBoard.
+ *  Each bit stands for one square, counting from a1 (bit 0) along the
+ *  first rank to h1 (bit 7) and then up the board to h8 (bit 63).  There
+ *  is one mask for every kind of piece of each color (indexed by the
+ *  piece's INDEX), one for each side and one for all occupied squares.
+ *  <br>
+ *  The ChessBoard owns its BitBoard and keeps it in step with its Squares
+ *  as moves are executed and unexecuted.  Attack questions and legal move
+ *  generation are answered with a handful of mask operations instead of
+ *  walking every piece's destination list.
+ *  <br>
+ *  A 64-bit Zobrist key of the position (pieces, side to move, castling
+ *  rights and enpassant file) is kept up to date with every change.
+ *  <br>
+ *  Moves produced by generateLegalMoves() are packed into an int:
+ *  bits 0-5 origin square, bits 6-11 destination square, bits 12-14
+ *  the INDEX of the promotion piece (0 if none) and the MOVE_* flags
+ *  above that.
+ */
+public final class BitBoard {
+      /** color index of the white masks */
+   public static final int WHITE = 0,
+      /** color index of the black masks */
+                           BLACK = 1;
+      /** number of piece kinds per side (King.INDEX through Pawn.INDEX) */
+   public static final int PIECE_TYPES = 6;
+      /** returned when a square cannot be found */
+   public static final int NO_SQUARE = -1;
+      /** no legal chess position has more than 218 moves */
+   public static final int MAX_MOVES = 256;
+
+      /** where the promotion piece INDEX is stored in a packed move */
+   public static final int MOVE_PROMOTION_SHIFT = 12,
+      /** the move is a Queen-side castle */
+                           MOVE_CASTLE_QUEENSIDE = 1 << 15,
+      /** the move is a King-side castle */
+                           MOVE_CASTLE_KINGSIDE  = 1 << 16,
+      /** the move is an enpassant capture */
+                           MOVE_ENPASSANT        = 1 << 17;
+
+   //directions: N, S, E, W, NE, NW, SE, SW
+   private static final int[] DIR_FILE = { 0,  0, 1, -1, 1, -1,  1, -1},
+                              DIR_RANK = { 1, -1, 0,  0, 1,  1, -1, -1};
+      /** directions in which the square index grows */
+   private static final boolean[] DIR_UP = 
+                              {true, false, true, false, true, true, false, false};
+   private static final int N = 0, S = 1, E = 2, W = 3, 
+                            NE = 4, NW = 5, SE = 6, SW = 7;
+
+   static final long[]   KNIGHT_ATTACKS = new long[64],
+                         KING_ATTACKS   = new long[64];
+   static final long[][] PAWN_ATTACKS   = new long[2][64],
+                         RAYS           = new long[8][64],
+      /** squares strictly between two aligned squares */
+                         BETWEEN        = new long[64][64],
+      /** the whole line (edge to edge) through two aligned squares */
+                         LINE           = new long[64][64];
+
+      /** Zobrist keys: [color * PIECE_TYPES + INDEX][square] */
+   static final long[][] ZOBRIST_PIECES    = new long[2 * PIECE_TYPES][64];
+      /** Zobrist keys for the castleRook slots */
+   static final long[]   ZOBRIST_CASTLE    = new long[4],
+      /** Zobrist keys for the enpassant file (0 is no file) */
+                         ZOBRIST_ENPASSANT = new long[ChessBoard.MAX_FILE + 1];
+   static final long     ZOBRIST_BLACK_MOVE;
+
+   static {
+      int[][] knightSteps = {{1,2},{2,1},{2,-1},{1,-2},
+                             {-1,-2},{-2,-1},{-2,1},{-1,2}};
+
+      for (int sq = 0; sq < 64; sq++) {
+         int f = sq & 7, 
+             r = sq >>> 3;
+
+         for (int i = 0; i < knightSteps.length; i++)
+            KNIGHT_ATTACKS[sq] |= bit(f + knightSteps[i][0], 
+                                      r + knightSteps[i][1]);
+
+         for (int d = 0; d < 8; d++) {
+            KING_ATTACKS[sq] |= bit(f + DIR_FILE[d], r + DIR_RANK[d]);
+
+            for (int tf = f + DIR_FILE[d], tr = r + DIR_RANK[d];
+                 tf >= 0 && tf < 8 && tr >= 0 && tr < 8;
+                 tf += DIR_FILE[d], tr += DIR_RANK[d])
+               RAYS[d][sq] |= 1L << (tr * 8 + tf);
+         }
+
+         PAWN_ATTACKS[WHITE][sq] = bit(f - 1, r + 1) | bit(f + 1, r + 1);
+         PAWN_ATTACKS[BLACK][sq] = bit(f - 1, r - 1) | bit(f + 1, r - 1);
+      }
+
+      //fixed seed so keys are the same from run to run
+      long seed = 0x1CE7C4E55L;
+      for (int i = 0; i < ZOBRIST_PIECES.length; i++)
+         for (int sq = 0; sq < 64; sq++)
+            ZOBRIST_PIECES[i][sq] = seed = nextRandom(seed);
+      for (int i = 0; i < ZOBRIST_CASTLE.length; i++)
+         ZOBRIST_CASTLE[i] = seed = nextRandom(seed);
+      for (int i = 1; i < ZOBRIST_ENPASSANT.length; i++)
+         ZOBRIST_ENPASSANT[i] = seed = nextRandom(seed);
+      ZOBRIST_BLACK_MOVE = nextRandom(seed);
+
+      for (int a = 0; a < 64; a++) 
+         for (int d = 0; d < 8; d++) {
+            long ray = RAYS[d][a];
+            while (ray != 0) {
+               int b = Long.numberOfTrailingZeros(ray);
+               ray &= ray - 1;
+               BETWEEN[a][b] = RAYS[d][a] & RAYS[opposite(d)][b];
+               LINE[a][b] = RAYS[d][a] | RAYS[opposite(d)][a] | (1L << a);
+            }
+         }
+   }
+
+      /** one mask per color and piece kind: [color * PIECE_TYPES + INDEX] */
+   final long[] pieces = new long[2 * PIECE_TYPES];
+      /** all the pieces of each color */
+   final long[] colors = new long[2];
+      /** every occupied square */
+   long occupied;
+      /** square by square copy of the masks, ChessPiece index or NULL_PIECE*/
+   private final byte[] mailbox = new byte[64];
+
+   boolean isBlackMove;
+      /** 1-8 or ChessBoard.NO_ENPASSANT */
+   int enpassantFile;
+      /** square of the rook each side may still castle with:
+       *  [color * 2 + (kingside ? 1 : 0)] */
+   final int[] castleRook = {NO_SQUARE, NO_SQUARE, NO_SQUARE, NO_SQUARE};
+      /** Zobrist key of everything above */
+   long key;
+
+      /** pieces giving check found by the last generateLegalMoves() */
+   long checkers,
+      /** pinned pieces found by the last generateLegalMoves() */
+        pinned;
+      /** square of the piece pinning the piece on the index square */
+   final int[] pinners = new int[64];
+
+   public BitBoard () {
+      clear();
+   }
+
+   //Squares///////////////////////////////////////////////////////////////
+
+   /* square **************************************************************/
+   /** the bit index of a square.
+    *  @param file 1-8
+    *  @param rank 1-8
+    */
+   public static int square (int file, int rank) {
+      return (rank - 1) * 8 + file - 1;
+   }
+
+   /* square **************************************************************/
+   /** the bit index of a Square.
+    */
+   public static int square (Square sq) {
+      return (sq.rank - 1) * 8 + sq.file - 1;
+   }
+
+   /* fileOf **************************************************************/
+   /** @return 1-8 */
+   public static int fileOf (int sq) { return (sq & 7) + 1; }
+
+   /* rankOf **************************************************************/
+   /** @return 1-8 */
+   public static int rankOf (int sq) { return (sq >>> 3) + 1; }
+
+   /* fileMask ************************************************************/
+   /** the mask of every square on the file.
+    *  @param file 1-8
+    */
+   public static long fileMask (int file) { 
+      return 0x0101010101010101L << (file - 1); 
+   }
+
+   /* rankMask ************************************************************/
+   /** the mask of every square on the rank.
+    *  @param rank 1-8
+    */
+   public static long rankMask (int rank) { 
+      return 0xFFL << ((rank - 1) * 8); 
+   }
+
+   //Mutators//////////////////////////////////////////////////////////////
+
+   /* clear ***************************************************************/
+   /** removes all pieces and resets the state.
+    */
+   public void clear () {
+      for (int i = 0; i < pieces.length; i++)
+         pieces[i] = 0L;
+      colors[WHITE] = colors[BLACK] = occupied = 0L;
+      for (int i = 0; i < 64; i++)
+         mailbox[i] = ChessPiece.NULL_PIECE;
+      for (int i = 0; i < castleRook.length; i++)
+         castleRook[i] = NO_SQUARE;
+      isBlackMove = false;
+      enpassantFile = ChessBoard.NO_ENPASSANT;
+      checkers = pinned = 0L;
+      key = 0L;
+   }
+
+   /* put *****************************************************************/
+   /** places a piece on the square, replacing whatever stood there.
+    *  @param type the INDEX of the piece (King.INDEX - Pawn.INDEX)
+    */
+   public void put (int sq, int type, boolean black) {
+      if (type < 0 || type >= PIECE_TYPES)
+         throw new IllegalArgumentException("unknown piece type: " + type);
+      remove(sq);
+      int color = (black) ? BLACK : WHITE;
+      long b = 1L << sq;
+      pieces[color * PIECE_TYPES + type] |= b;
+      colors[color] |= b;
+      occupied |= b;
+      key ^= ZOBRIST_PIECES[color * PIECE_TYPES + type][sq];
+      mailbox[sq] = (byte) (type + ((black) ? ChessPiece.BLACK_OFFSET : 0));
+   }
+
+   /* put *****************************************************************/
+   /** places the ChessPiece on its square.
+    */
+   void put (ChessPiece p) {
+      put(square(p.orig), p.index, p.isBlack);
+   }
+
+   /* remove **************************************************************/
+   /** takes whatever piece is on the square off the board.
+    */
+   public void remove (int sq) {
+      int p = mailbox[sq];
+      if (p == ChessPiece.NULL_PIECE)
+         return;
+      long b = ~(1L << sq);
+      boolean black = p >= ChessPiece.BLACK_OFFSET;
+      int color = (black) ? BLACK : WHITE;
+      pieces[color * PIECE_TYPES + p % ChessPiece.BLACK_OFFSET] &= b;
+      colors[color] &= b;
+      occupied &= b;
+      key ^= ZOBRIST_PIECES[color * PIECE_TYPES + p % ChessPiece.BLACK_OFFSET][sq];
+      mailbox[sq] = ChessPiece.NULL_PIECE;
+   }
+
+   /* move ****************************************************************/
+   /** moves the piece on one square to another, replacing whatever
+    *  stood on the destination.
+    */
+   public void move (int orig, int dest) {
+      int p = mailbox[orig];
+      if (p == ChessPiece.NULL_PIECE || orig == dest)
+         return;
+      remove(orig);
+      put(dest, p % ChessPiece.BLACK_OFFSET, p >= ChessPiece.BLACK_OFFSET);
+   }
+
+   /* setCastleRook *******************************************************/
+   /** sets the square of the rook that side may still castle with.
+    *  @param sq NO_SQUARE if the side may not castle that way
+    */
+   public void setCastleRook (boolean black, boolean kingside, int sq) {
+      int i = ((black) ? BLACK : WHITE) * 2 + ((kingside) ? 1 : 0);
+      if ((castleRook[i] == NO_SQUARE) != (sq == NO_SQUARE))
+         key ^= ZOBRIST_CASTLE[i];
+      castleRook[i] = sq;
+   }
+
+   /* setBlackMove ********************************************************/
+   public void setBlackMove (boolean t) {
+      if (isBlackMove != t)
+         key ^= ZOBRIST_BLACK_MOVE;
+      isBlackMove = t;
+   }
+
+   /* setEnPassantFile ****************************************************/
+   /** @param f 1-8 or ChessBoard.NO_ENPASSANT */
+   public void setEnPassantFile (int f) {
+      key ^= ZOBRIST_ENPASSANT[enpassantFile] ^ ZOBRIST_ENPASSANT[f];
+      enpassantFile = f;
+   }
+
+   //Accessors/////////////////////////////////////////////////////////////
+
+   /* getPiece ************************************************************/
+   /** @return the ChessPiece index (INDEX plus BLACK_OFFSET for Black)
+    *          of the piece on the square, or ChessPiece.NULL_PIECE
+    */
+   public int getPiece (int sq) {
+      return mailbox[sq];
+   }
+
+   /* getPieces ***********************************************************/
+   /** the mask of a kind of piece.
+    *  @param type the INDEX of the piece (King.INDEX - Pawn.INDEX)
+    */
+   public long getPieces (int type, boolean black) {
+      return pieces[((black) ? BLACK : WHITE) * PIECE_TYPES + type];
+   }
+
+   /* getOccupied *********************************************************/
+   /** the mask of all squares holding a piece of this color.
+    */
+   public long getOccupied (boolean black) {
+      return colors[(black) ? BLACK : WHITE];
+   }
+
+   /* getOccupied *********************************************************/
+   /** the mask of all occupied squares.
+    */
+   public long getOccupied () {
+      return occupied;
+   }
+
+   /* isBlackMove *********************************************************/
+   public boolean isBlackMove () {
+      return isBlackMove;
+   }
+
+   /* getEnPassantFile ****************************************************/
+   /** @return 1-8 or ChessBoard.NO_ENPASSANT */
+   public int getEnPassantFile () {
+      return enpassantFile;
+   }
+
+   /* getKey ************************************************************/
+   /** the Zobrist key of the position.  Equal positions have equal keys;
+    *  different positions almost never do.
+    */
+   public long getKey () {
+      return key;
+   }
+
+   /* getCheckers *********************************************************/
+   /** the pieces checking the side to move, as of the last call to
+    *  generateLegalMoves().
+    */
+   public long getCheckers () {
+      return checkers;
+   }
+
+   /* getPinned ***********************************************************/
+   /** the pieces of the side to move that are pinned to their King,
+    *  as of the last call to generateLegalMoves().
+    */
+   public long getPinned () {
+      return pinned;
+   }
+
+   /* getPinner ***********************************************************/
+   /** the square of the piece pinning the piece on sq.
+    *  @return NO_SQUARE if the piece is not pinned
+    */
+   public int getPinner (int sq) {
+      return ((pinned & (1L << sq)) != 0) ? pinners[sq] : NO_SQUARE;
+   }
+
+   /* getKingSquare *******************************************************/
+   /** @return NO_SQUARE if that side has no King on the board
+    */
+   public int getKingSquare (boolean black) {
+      long k = getPieces(King.INDEX, black);
+      return (k == 0) ? NO_SQUARE : Long.numberOfTrailingZeros(k);
+   }
+
+   //Attacks///////////////////////////////////////////////////////////////
+
+   public static long knightAttacks (int sq) { return KNIGHT_ATTACKS[sq]; }
+
+   public static long kingAttacks (int sq) { return KING_ATTACKS[sq]; }
+
+   /* pawnAttacks *********************************************************/
+   /** the squares a pawn of this color on sq attacks.
+    */
+   public static long pawnAttacks (int sq, boolean black) {
+      return PAWN_ATTACKS[(black) ? BLACK : WHITE][sq];
+   }
+
+   /* bishopAttacks *******************************************************/
+   /** the diagonals from sq up to and including the first occupied square.
+    */
+   public static long bishopAttacks (int sq, long occ) {
+      return ray(NE, sq, occ) | ray(NW, sq, occ) 
+           | ray(SE, sq, occ) | ray(SW, sq, occ);
+   }
+
+   /* rookAttacks *********************************************************/
+   /** the files and ranks from sq up to and including the first occupied
+    *  square.
+    */
+   public static long rookAttacks (int sq, long occ) {
+      return ray(N, sq, occ) | ray(S, sq, occ) 
+           | ray(E, sq, occ) | ray(W, sq, occ);
+   }
+
+   public static long queenAttacks (int sq, long occ) {
+      return bishopAttacks(sq, occ) | rookAttacks(sq, occ);
+   }
+
+   /* attacksFrom *********************************************************/
+   /** all squares the piece on sq attacks (or defends) on this board.
+    */
+   public long attacksFrom (int sq) {
+      int p = mailbox[sq];
+      if (p == ChessPiece.NULL_PIECE)
+         return 0L;
+      switch (p % ChessPiece.BLACK_OFFSET) {
+         case King.INDEX:   return KING_ATTACKS[sq];
+         case Queen.INDEX:  return queenAttacks(sq, occupied);
+         case Rook.INDEX:   return rookAttacks(sq, occupied);
+         case Bishop.INDEX: return bishopAttacks(sq, occupied);
+         case Knight.INDEX: return KNIGHT_ATTACKS[sq];
+         default:           
+            return pawnAttacks(sq, p >= ChessPiece.BLACK_OFFSET);
+      }
+   }
+
+   /* attackersTo *********************************************************/
+   /** the pieces of one side that attack the square, given the occupancy
+    *  mask used to block sliding pieces.
+    */
+   public long attackersTo (int sq, boolean byBlack, long occ) {
+      int base = ((byBlack) ? BLACK : WHITE) * PIECE_TYPES;
+      long queens = pieces[base + Queen.INDEX];
+
+      return ((KNIGHT_ATTACKS[sq] & pieces[base + Knight.INDEX])
+             | (KING_ATTACKS[sq] & pieces[base + King.INDEX])
+             | (pawnAttacks(sq, !byBlack) & pieces[base + Pawn.INDEX])
+             | (bishopAttacks(sq, occ) 
+                & (pieces[base + Bishop.INDEX] | queens))
+             | (rookAttacks(sq, occ) 
+                & (pieces[base + Rook.INDEX] | queens)))
+             & occ;
+   }
+
+   /* isAttacked **********************************************************/
+   /** is any piece of that side attacking the square on this board?
+    */
+   public boolean isAttacked (int sq, boolean byBlack) {
+      return attackersTo(sq, byBlack, occupied) != 0L;
+   }
+
+   /* moversTo ************************************************************/
+   /** the pieces of one kind and side that could move to the square if
+    *  pins and checks are ignored.  Pawns count for pushes to an empty
+    *  square and for captures, enpassant included.  Kings don't count
+    *  castling.
+    *
+    *  @param type the INDEX of the piece (King.INDEX - Pawn.INDEX)
+    */
+   public long moversTo (int type, boolean black, int sq) {
+      long own  = getPieces(type, black),
+           to   = 1L << sq,
+           movers = 0L;
+      int  from = 0,
+           epRank = 0;
+
+         if ((colors[(black) ? BLACK : WHITE] & to) != 0L)
+	    return 0L;
+
+         switch (type) {
+	    case King.INDEX:   return KING_ATTACKS[sq] & own;
+	    case Queen.INDEX:  return queenAttacks(sq, occupied) & own;
+	    case Rook.INDEX:   return rookAttacks(sq, occupied) & own;
+	    case Bishop.INDEX: return bishopAttacks(sq, occupied) & own;
+	    case Knight.INDEX: return KNIGHT_ATTACKS[sq] & own;
+	 }
+
+	 //pawn captures
+	 epRank = (black) ? 3 : 6;
+	 if ((colors[(black) ? WHITE : BLACK] & to) != 0L
+	     || (enpassantFile == fileOf(sq) && rankOf(sq) == epRank))
+	    movers = pawnAttacks(sq, !black) & own;
+
+	 //pawn pushes
+	 if ((occupied & to) == 0L) {
+	    from = (black) ? sq + 8 : sq - 8;
+	    if (from >= 0 && from < 64) {
+	       if ((own & (1L << from)) != 0L)
+	          movers |= 1L << from;
+	       else if ((occupied & (1L << from)) == 0L
+	                && rankOf(sq) == ((black) ? 5 : 4)) {
+	          from = (black) ? sq + 16 : sq - 16;
+		  movers |= own & (1L << from);
+	       }
+	    }
+	 }
+      return movers;
+   }
+
+   //Legal Moves///////////////////////////////////////////////////////////
+
+   /* generateLegalMoves **************************************************/
+   /** fills the array with every legal move for the side to move.
+    *  Promotions are given once for each promotion piece.  The checkers
+    *  and pinned masks are left describing the position.
+    *
+    *  @param moves at least MAX_MOVES long
+    *  @return the number of moves written
+    */
+   public int generateLegalMoves (int[] moves) {
+      boolean black = isBlackMove;
+      int us = (black) ? BLACK : WHITE,
+          base = us * PIECE_TYPES,
+          tbase = (us ^ 1) * PIECE_TYPES,
+          ksq = getKingSquare(black),
+          n = 0;
+      long own = colors[us],
+           enemy = colors[us ^ 1],
+           target = ~own,
+           b, t;
+
+         checkers = pinned = 0L;
+
+         if (ksq != NO_SQUARE) {
+            checkers = attackersTo(ksq, !black, occupied);
+
+            //the King can't hide behind itself from a slider
+            long occ = occupied ^ (1L << ksq);
+            t = KING_ATTACKS[ksq] & ~own;
+            while (t != 0) {
+               int to = Long.numberOfTrailingZeros(t);
+               t &= t - 1;
+               if (attackersTo(to, !black, occ) == 0L)
+                  moves[n++] = ksq | (to << 6);
+            }
+
+            //double check: only the King may move
+            if (Long.bitCount(checkers) > 1)
+               return n;
+
+            if (checkers != 0L)
+               target = checkers 
+                  | BETWEEN[ksq][Long.numberOfTrailingZeros(checkers)];
+
+            //pins: enemy sliders that see the King through one of ours
+            long snipers = (rookAttacks(ksq, enemy) 
+                  & (pieces[tbase + Rook.INDEX] | pieces[tbase + Queen.INDEX]))
+               | (bishopAttacks(ksq, enemy) 
+                  & (pieces[tbase + Bishop.INDEX] | pieces[tbase + Queen.INDEX]));
+            while (snipers != 0) {
+               int s = Long.numberOfTrailingZeros(snipers);
+               snipers &= snipers - 1;
+               b = BETWEEN[ksq][s] & occupied;
+               if (b != 0 && (b & (b - 1)) == 0 && (b & own) != 0) {
+                  pinned |= b;
+                  pinners[Long.numberOfTrailingZeros(b)] = s;
+               }
+            }
+         }
+
+         //knights: a pinned knight can never move
+         b = pieces[base + Knight.INDEX] & ~pinned;
+         while (b != 0) {
+            int from = Long.numberOfTrailingZeros(b);
+            b &= b - 1;
+            n = addMoves(moves, n, from, KNIGHT_ATTACKS[from] & target);
+         }
+
+         //sliders
+         for (int type = Queen.INDEX; type <= Bishop.INDEX; type++) {
+            b = pieces[base + type];
+            while (b != 0) {
+               int from = Long.numberOfTrailingZeros(b);
+               b &= b - 1;
+               switch (type) {
+                  case Queen.INDEX: t = queenAttacks(from, occupied); break;
+                  case Rook.INDEX:  t = rookAttacks(from, occupied);  break;
+                  default:          t = bishopAttacks(from, occupied);
+               }
+               t &= target;
+               if ((pinned & (1L << from)) != 0)
+                  t &= LINE[ksq][from];
+               n = addMoves(moves, n, from, t);
+            }
+         }
+
+         n = genPawnMoves(moves, n, ksq, target);
+
+         if (ksq != NO_SQUARE && checkers == 0L) {
+            int to = getCastleDest(black, false);
+            if (to != NO_SQUARE)
+               moves[n++] = ksq | (to << 6) | MOVE_CASTLE_QUEENSIDE;
+            to = getCastleDest(black, true);
+            if (to != NO_SQUARE)
+               moves[n++] = ksq | (to << 6) | MOVE_CASTLE_KINGSIDE;
+         }
+
+      return n;
+   }
+
+   /* addMoves ************************************************************/
+   private static int addMoves (int[] moves, int n, int from, long dests) {
+      while (dests != 0) {
+         moves[n++] = from | (Long.numberOfTrailingZeros(dests) << 6);
+         dests &= dests - 1;
+      }
+      return n;
+   }
+
+   /* addPawnMove *********************************************************/
+   /** adds the move, or all four promotions if it reaches the last rank.
+    */
+   private static int addPawnMove (int[] moves, int n, int from, int to) {
+      int move = from | (to << 6);
+      if (to < 8 || to >= 56) {
+         moves[n++] = move | (Queen.INDEX  << MOVE_PROMOTION_SHIFT);
+         moves[n++] = move | (Rook.INDEX   << MOVE_PROMOTION_SHIFT);
+         moves[n++] = move | (Bishop.INDEX << MOVE_PROMOTION_SHIFT);
+         moves[n++] = move | (Knight.INDEX << MOVE_PROMOTION_SHIFT);
+      }
+      else
+         moves[n++] = move;
+      return n;
+   }
+
+   /* genPawnMoves ********************************************************/
+   private int genPawnMoves (int[] moves, int n, int ksq, long target) {
+      boolean black = isBlackMove;
+      int us = (black) ? BLACK : WHITE,
+          step = (black) ? -8 : 8,
+          startRank = (black) ? 6 : 1;
+      long b = pieces[us * PIECE_TYPES + Pawn.INDEX],
+           enemy = colors[us ^ 1];
+
+         while (b != 0) {
+            int from = Long.numberOfTrailingZeros(b);
+            b &= b - 1;
+            long line = ((pinned & (1L << from)) != 0) ? LINE[ksq][from] : -1L;
+
+            //pushes
+            int to = from + step;
+            if ((occupied & (1L << to)) == 0) {
+               if ((target & line & (1L << to)) != 0)
+                  n = addPawnMove(moves, n, from, to);
+               int to2 = to + step;
+               if ((from >>> 3) == startRank 
+                   && (occupied & (1L << to2)) == 0
+                   && (target & line & (1L << to2)) != 0)
+                  moves[n++] = from | (to2 << 6);
+            }
+
+            //captures
+            long t = PAWN_ATTACKS[us][from] & enemy & target & line;
+            while (t != 0) {
+               n = addPawnMove(moves, n, from, Long.numberOfTrailingZeros(t));
+               t &= t - 1;
+            }
+         }
+
+         //enpassant is checked by playing it out on the masks since it
+         //clears two squares on the same rank as the capturing pawn
+         if (enpassantFile != ChessBoard.NO_ENPASSANT) {
+            int epSq  = square(enpassantFile, (black) ? 3 : 6),
+                capSq = epSq - step;
+            if (mailbox[capSq] == (byte) (Pawn.INDEX 
+                   + ((black) ? 0 : ChessPiece.BLACK_OFFSET))
+                && (occupied & (1L << epSq)) == 0) {
+               long t = PAWN_ATTACKS[us ^ 1][epSq] 
+                  & pieces[us * PIECE_TYPES + Pawn.INDEX];
+               while (t != 0) {
+                  int from = Long.numberOfTrailingZeros(t);
+                  t &= t - 1;
+                  long occ = (occupied ^ (1L << from) ^ (1L << capSq)) 
+                           | (1L << epSq);
+                  if (ksq == NO_SQUARE 
+                      || (attackersTo(ksq, !black, occ) & ~(1L << capSq)) == 0)
+                     moves[n++] = from | (epSq << 6) | MOVE_ENPASSANT;
+               }
+            }
+         }
+      return n;
+   }
+
+   /* getCastleDest ****************************************************/
+   /** where that side's King would land castling this way, if it may
+    *  castle right now.  Castling is as in Chess960: the King ends on the
+    *  c or g file and the Rook next to it on the d or f file.  Every
+    *  square either piece crosses must be empty except for the two 
+    *  castling pieces, and the King may not be in check, cross an 
+    *  attacked square or land in check.
+    *  @return NO_SQUARE if the castle is not possible
+    */
+   public int getCastleDest (boolean black, boolean kingside) {
+      int ksq = getKingSquare(black),
+          rsq = castleRook[((black) ? BLACK : WHITE) * 2 + ((kingside) ? 1 : 0)];
+
+         if (ksq == NO_SQUARE || rsq == NO_SQUARE 
+             || mailbox[rsq] != (byte) (Rook.INDEX 
+                + ((black) ? ChessPiece.BLACK_OFFSET : 0)))
+            return NO_SQUARE;
+
+         int rank  = ksq & ~7,
+             kdest = rank + ((kingside) ? 6 : 2),
+             rdest = rank + ((kingside) ? 5 : 3);
+         long castlers = (1L << ksq) | (1L << rsq),
+              kpath = BETWEEN[ksq][kdest] | (1L << kdest) | (1L << ksq),
+              path = (kpath | BETWEEN[rsq][rdest] | (1L << rdest)) & ~castlers;
+
+         if ((path & occupied) != 0)
+            return NO_SQUARE;
+
+         while (kpath != 0) {
+            int sq = Long.numberOfTrailingZeros(kpath);
+            kpath &= kpath - 1;
+            if (attackersTo(sq, !black, occupied) != 0)
+               return NO_SQUARE;
+         }
+
+         //the Rook may have been shielding the King's new square
+         long occ = (occupied ^ castlers) | (1L << kdest) | (1L << rdest);
+         if (attackersTo(kdest, !black, occ) != 0)
+            return NO_SQUARE;
+
+      return kdest;
+   }
+
+   /* getReach ************************************************************/
+   /** every square the piece on sq could move to or defend if it were
+    *  its side's turn, ignoring pins and checks: its attacks, with sliders
+    *  looking through the enemy King, plus a pawn's pushes.  Squares
+    *  holding friendly pieces are the ones it guards.  Castling is not
+    *  included.
+    */
+   public long getReach (int sq) {
+      int p = mailbox[sq];
+      if (p == ChessPiece.NULL_PIECE)
+         return 0L;
+
+      boolean black = p >= ChessPiece.BLACK_OFFSET;
+      long occ = occupied & ~getPieces(King.INDEX, !black);
+
+      switch (p % ChessPiece.BLACK_OFFSET) {
+         case King.INDEX:   return KING_ATTACKS[sq];
+         case Queen.INDEX:  return queenAttacks(sq, occ);
+         case Rook.INDEX:   return rookAttacks(sq, occ);
+         case Bishop.INDEX: return bishopAttacks(sq, occ);
+         case Knight.INDEX: return KNIGHT_ATTACKS[sq];
+         default:
+      }
+
+      int step = (black) ? -8 : 8,
+          to = sq + step;
+      long reach = pawnAttacks(sq, black);
+      if (to >= 0 && to < 64 && (occupied & (1L << to)) == 0) {
+         reach |= 1L << to;
+         to += step;
+         if ((sq >>> 3) == ((black) ? 6 : 1) && (occupied & (1L << to)) == 0)
+            reach |= 1L << to;
+      }
+      return reach;
+   }
+
+   //Packed Moves//////////////////////////////////////////////////////////
+
+   public static int getOrigin (int move) { return move & 63; }
+
+   public static int getDestination (int move) { return (move >>> 6) & 63; }
+
+   /* getPromotion ********************************************************/
+   /** @return the INDEX of the promotion piece or 0 if none */
+   public static int getPromotion (int move) { 
+      return (move >>> MOVE_PROMOTION_SHIFT) & 7; 
+   }
+
+   //Utilities/////////////////////////////////////////////////////////////
+
+   /* ray *****************************************************************/
+   /** the squares along one direction up to and including the first
+    *  occupied square.
+    */
+   private static long ray (int dir, int sq, long occ) {
+      long attacks = RAYS[dir][sq],
+           blockers = attacks & occ;
+      if (blockers != 0) {
+         int blocker = (DIR_UP[dir]) 
+            ? Long.numberOfTrailingZeros(blockers)
+            : 63 - Long.numberOfLeadingZeros(blockers);
+         attacks ^= RAYS[dir][blocker];
+      }
+      return attacks;
+   }
+
+   /* nextRandom ********************************************************/
+   /** a SplitMix64 step, used to fill the Zobrist tables.
+    */
+   private static long nextRandom (long seed) {
+      long z = seed + 0x9E3779B97F4A7C15L;
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+   }
+
+   private static int opposite (int dir) {
+      switch (dir) {
+         case N:  return S;
+         case S:  return N;
+         case E:  return W;
+         case W:  return E;
+         case NE: return SW;
+         case SW: return NE;
+         case NW: return SE;
+         default: return NW;
+      }
+   }
+
+   /** the mask of the 0-based file and rank, or 0 if off the board */
+   private static long bit (int f, int r) {
+      return (f >= 0 && f < 8 && r >= 0 && r < 8) ? 1L << (r * 8 + f) : 0L;
+   }
+
+   /* toString ************************************************************/
+   /** a diagnostic dump of a mask laid out as a board (a8 top left).
+    */
+   public static String toString (long mask) {
+      StringBuffer sb = new StringBuffer();
+      for (int r = 7; r >= 0; r--) {
+         for (int f = 0; f < 8; f++)
+            sb.append(((mask >>> (r * 8 + f)) & 1) != 0 ? "1 " : ". ");
+         sb.append('\n');
+      }
+      return sb.toString();
+   }
+}
@@ -27,21 +27,21 @@ package ictk.boardgame.chess;
 import ictk.util.Log;
 import ictk.boardgame.*;
 import ictk.boardgame.chess.io.SAN;
-import ictk.boardgame.chess.io.FEN;
 
 import java.util.List;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Iterator;
+import java.util.ConcurrentModificationException;
 
 /* ChessBoard **************************************************************/
 /** This is the playing board.  It is a matrix of Squares with Pieces
- *  on those Squares.  The Pieces themselves determine their legal moves.
- *  ChessBoard facilitates this but does not assess move legality by itself.
+ *  on those Squares.  A BitBoard mirroring the Squares is used to work
+ *  out attacks and legal moves, which are then handed to the Pieces.
  *  Whenever specifying coordinates on a ChessBoard it should be done
  *  by using the range 1-MAX_FILE, or 1-8 for normal chess.
  */
-public class ChessBoard implements Board {
+public class ChessBoard implements SnapshotBoard {
       /** used as a mask for Log.debug() */
    public final static long DEBUG = Log.Board;
       /** the file that indicates no file is specified */
@@ -65,10 +65,8 @@ public class ChessBoard implements Board {
    public static final byte MAX_FILE = 8;
       /** the max number of ranks on a traditional chess board*/
    public static final byte MAX_RANK = 8;
-      /** only really used to help display debugging output */
+      /** translates files, ranks and pieces to and from characters */
    protected static final SAN san = new SAN();
-      /** only used for hashCode */
-   protected static final FEN fen = new FEN();
 
       /** objects listening for updates to the board */
    protected BoardListener[] listeners;
@@ -106,6 +104,25 @@ public class ChessBoard implements Board {
          should be set stale everytime an verified move is done*/
    protected boolean staleLegalDests = true;
 
+      /** the same position kept as bit masks, used for attack tests
+       *  and legal move generation */
+   protected BitBoard bits = new BitBoard();
+
+      /** the legal moves of the side to move, packed by the BitBoard */
+   protected int[] moveBuffer = new int[BitBoard.MAX_MOVES];
+      /** how many moves are in the moveBuffer */
+   protected int movesGenerated;
+      /** the legal destinations of the side to move by origin square */
+   protected long[] legalMasks = new long[64];
+      /** the number of legal destinations (promotions counted once) */
+   protected int legalMoveCount;
+      /** the moveBuffer and legalMasks need regenerating */
+   protected boolean staleMoves = true;
+      /** don't fill in the pieces' legal destinations after every move */
+   protected boolean lazyLegalDests = false;
+      /** moves are taken as legal and only played; see setTrustedMoves() */
+   protected boolean trustedMoves = false;
+
    /** calls ChessBoard(true)
     */
    public ChessBoard () {
@@ -164,16 +181,9 @@ public class ChessBoard implements Board {
 		 int plyCount,
 		 int moveNum
 		 ) {
-      this();
-      setPosition(matrix);
-      this.isBlackMove = isBlackMove;
-      setWhiteCastleableKingside(castleWK);
-      setWhiteCastleableQueenside(castleWQ);
-      setBlackCastleableKingside(castleBK);
-      setBlackCastleableQueenside(castleBQ);
-      setEnPassantFile(enpassantFile);
-      plyCount50 = plyCount;
-      moveNumber = moveNum;
+      this(false);
+      reset(matrix, isBlackMove, castleWK, castleWQ, castleBK, castleBQ,
+            san.fileToNum(enpassantFile), plyCount, moveNum);
    }
 
    //board dimensions/////////////////////////////////////////////////////
@@ -219,114 +229,330 @@ public class ChessBoard implements Board {
       return (isBlackMove) ? 1 : 0;
    }
 
+   /* genMoves ********************************************************/
+   /** generates the legal moves of the side to move on the BitBoard and
+    *  marks the last move as check, checkmate or stalemate.  This does
+    *  not touch the pieces' legalDests; see genLegalDests().
+    */
+   protected void genMoves () {
+      int move = 0;
+      long dest = 0L;
+
+         if (Log.debug && Log.isDebug(DEBUG))
+	    Log.debug(DEBUG, "generating moves");
+
+         staleMoves = false;
+	 syncBitBoardState();
+
+	 for (int i=0; i < legalMasks.length; i++)
+	    legalMasks[i] = 0L;
+	 legalMoveCount = 0;
+
+	 movesGenerated = bits.generateLegalMoves(moveBuffer);
+	 for (int i=0; i < movesGenerated; i++) {
+	    move = moveBuffer[i];
+	    dest = 1L << BitBoard.getDestination(move);
+	    //promotions and Chess960 castles can share a destination
+	    if ((legalMasks[BitBoard.getOrigin(move)] & dest) == 0L) {
+	       legalMasks[BitBoard.getOrigin(move)] |= dest;
+	       legalMoveCount++;
+	    }
+	 }
+
+	 if (bits.getCheckers() != 0L) {
+	    if (Log.debug && Log.isDebug(DEBUG))
+	       Log.debug(DEBUG, "THREATS TO MOVING KING! (" 
+	          + Long.bitCount(bits.getCheckers()) + ")");
+	    if (lastMove != null) {
+	       lastMove.setCheck(true);
+	       if (Long.bitCount(bits.getCheckers()) > 1)
+	          lastMove.setDoubleCheck(true);
+	    }
+	 }
+
+	 //if king has no moves and is being threatened
+	 //then should throw Checkmate exception.
+	 //if no moves and no threats then stalemate.
+	 if (movesGenerated == 0 && lastMove != null) 
+	    if (bits.getCheckers() != 0L)
+	       lastMove.setCheckmate(true);
+	    else
+	       lastMove.setStalemate(true);
+   }
+
    /* genLegalDests *****************************************************/
-   /** generates all legal moves for the side that needs to move.
+   /** fills in the legal destinations and guards of every piece.
     *  Steps:<br>
-    *     all possible moves are generated.<br>
-    *     king moves are limited so king doesn't move into check<br>
-    *     all pins are assessed and pinned pieces moves are restricted<br>
-    *     check is determine on moving king<br>
-    *        if one check then find a king move, block or counter-attack<br>
-    *        if two checks then only a king move will do<br>
-    *     check if there are any moves<br>
-    *        if no moves and check then Checkmate<br>
-    *        if no moves and no check then Stalemate<br>
+    *     the legal moves are generated if they are stale.<br>
+    *     the side to move gets its legal moves, which already account
+    *        for pins, checks and castling through attacked squares.<br>
+    *     the side not to move gets all the squares it reaches,
+    *        these are used to answer threat questions.<br>
+    *  Only pieces whose destinations or guards changed since they were
+    *  last filled in have their lists rebuilt, which after a move are
+    *  those whose lines run through the squares the move touched.
     */
    protected void genLegalDests () {
-      ChessPiece[] threats = null;
-      King movingKing = null,
-           otherKing  = null;
-      List<ChessPiece> movingTeam = null,
-           otherTeam = null;
+      List<ChessPiece> movingTeam = (isBlackMove) ? blackTeam : whiteTeam,
+                       otherTeam  = (isBlackMove) ? whiteTeam : blackTeam;
+      ChessPiece piece = null;
+      long own = 0L,
+           reach = 0L;
+      int sq = 0;
 
-         if (Log.debug)
-	    Log.debug(DEBUG, "generating legal moves");
+         if (Log.debug && Log.isDebug(DEBUG))
+	    Log.debug(DEBUG, "generating legal dests");
 
+	 if (staleMoves)
+	    genMoves();
          staleLegalDests = false;
-//FIXME: maybe should be array not List
 
-         for (byte f=0, r=0; f < MAX_FILE; f++) {
-            for (r=0;r < MAX_RANK; r++) {
-                if (squares[f][r].piece != null)
-                   squares[f][r].piece.genLegalDests();
-            }
+	 own = bits.getOccupied(!isBlackMove);
+	 for (int i=0; i < otherTeam.size(); i++) {
+	    piece = otherTeam.get(i);
+	    piece.pinnedBy = null;
+	    if (piece.captured) 
+	       continue;
+	    sq = BitBoard.square(piece.orig);
+	    reach = bits.getReach(sq);
+	    if (piece.isKing())
+	       fillLegalDests(piece, getKingDests(sq, !isBlackMove), reach & own);
+	    else
+	       fillLegalDests(piece, reach & ~own, reach & own);
+	 }
+
+	 own = bits.getOccupied(isBlackMove);
+	 for (int i=0; i < movingTeam.size(); i++) {
+	    piece = movingTeam.get(i);
+	    piece.pinnedBy = null;
+	    if (piece.captured) 
+	       continue;
+	    sq = BitBoard.square(piece.orig);
+	    fillLegalDests(piece, legalMasks[sq], bits.attacksFrom(sq) & own);
+	 }
+
+	 long pinned = bits.getPinned();
+	 while (pinned != 0) {
+	    sq = Long.numberOfTrailingZeros(pinned);
+	    pinned &= pinned - 1;
+	    toSquare(sq).piece.pinnedBy = toSquare(bits.getPinner(sq)).piece;
+	 }
+   }
+
+   /* fillLegalDests ****************************************************/
+   /** sets the piece's lists, unless they already hold these squares.
+    */
+   private void fillLegalDests (ChessPiece p, long dests, long guards) {
+      if (dests == p.destMask && guards == p.guardMask
+          && p.legalDests.size() == Long.bitCount(dests)
+          && p.guardSquares.size() == Long.bitCount(guards))
+         return;
+
+      p.legalDests.clear();
+      p.guardSquares.clear();
+      addSquares(p.legalDests, dests);
+      addSquares(p.guardSquares, guards);
+      p.destMask = dests;
+      p.guardMask = guards;
+   }
+
+   /* getKingDests ******************************************************/
+   /** the squares the King of the side not to move could go to if it
+    *  were its turn: those not attacked, and its castles.
+    */
+   private long getKingDests (int ksq, boolean isBlack) {
+      long occ = bits.getOccupied() & ~(1L << ksq),
+           t = BitBoard.kingAttacks(ksq) & ~bits.getOccupied(isBlack),
+           dests = 0L;
+      int to = 0;
+
+         while (t != 0) {
+            to = Long.numberOfTrailingZeros(t);
+            t &= t - 1;
+            if (bits.attackersTo(to, !isBlack, occ) == 0L)
+               dests |= 1L << to;
          }
+         if ((to = bits.getCastleDest(isBlack, false)) != BitBoard.NO_SQUARE)
+            dests |= 1L << to;
+         if ((to = bits.getCastleDest(isBlack, true)) != BitBoard.NO_SQUARE)
+            dests |= 1L << to;
+      return dests;
+   }
 
-	 movingKing = (isBlackMove) ? blackKing : whiteKing; 
-	 movingTeam = (isBlackMove) ? blackTeam : whiteTeam;
-	 otherKing  = (isBlackMove) ? whiteKing : blackKing;
-	 otherTeam  = (isBlackMove) ? whiteTeam : blackTeam;
-	 
-         movingKing.genLegalDestsFinal();
-         otherKing.genLegalDestsFinal();
-
-	 //now have to check to see if any of the present moves are
-	 //illegal because the move puts the king in check (a pin)
-	 //check queens, bishops and rooks
-	 for (byte i=0; i < otherTeam.size(); i++) 
-	     otherTeam.get(i).adjustPinsLegalDests(movingKing, movingTeam);
-	 
+   /* isLegalDest *******************************************************/
+   /** can the piece (of the side to move) go to dest.
+    */
+   boolean isLegalDest (ChessPiece p, Square dest) {
+      if (staleMoves)
+         genMoves();
+      return (legalMasks[BitBoard.square(p.orig)] 
+              & (1L << BitBoard.square(dest))) != 0L;
+   }
 
-         //if King is in check then need to modify
-	 //legalMove lists to deal with the check
-	 if (movingKing.isInCheck()) {
-	    if (lastMove != null)
-	       lastMove.setCheck(true);
-	    threats = getThreats(movingKing);
+   /* removeLegalDests **************************************************/
+   /** takes the piece's moves out of consideration until the next
+    *  generation, as ChessPiece.removeLegalDests() does for its list.
+    */
+   void removeLegalDests (ChessPiece p) {
+      if (p.isBlack == isBlackMove && !staleMoves) {
+         int sq = BitBoard.square(p.orig);
+         legalMoveCount -= Long.bitCount(legalMasks[sq]);
+         legalMasks[sq] = 0L;
+      }
+   }
 
-	    if (Log.debug) {
-	       Log.debug(DEBUG, "THREATS TO MOVING KING! (" 
-	          + threats.length + ")");
-	       Log.debug2(DEBUG, "Threat: " + threats[0]);
-	    }
+   /* setLazyLegalDests *************************************************/
+   /** when lazy, executing a move only works out whether it gives check, 
+    *  checkmate or stalemate.  The pieces' legal destinations and guards
+    *  are not filled in until something asks for them.  This saves a 
+    *  good deal when replaying games whose moves are already known.
+    */
+   public void setLazyLegalDests (boolean t) {
+      lazyLegalDests = t;
+   }
 
-	    switch (threats.length) {
-	       case 1:
-	          //only valid moves are king moves, block and counter-attack
-		  for (byte i=0; i < movingTeam.size(); i++) {
-		      movingTeam.get(i)
-			      .genLegalDestsSaveKing(movingKing, threats[0]);
-		  }
-		  break;
-
-	       case 2:
-	          //only valid moves are king moves
-		  for (byte i=0; i < movingTeam.size(); i++) {
-		      ChessPiece p = movingTeam.get(i);
-		      if (p != movingKing)
-		         p.removeLegalDests();
-		  }
-		  if (lastMove != null)
-		     lastMove.setDoubleCheck(true);
-		  break;
+   /* isLazyLegalDests **************************************************/
+   public boolean isLazyLegalDests () {
+      return lazyLegalDests;
+   }
 
-	       default:
-	          //can't have more that 2 checks on a king
-	          assert false 
-		      : "King reports in check with " + threats.length 
-		        + " threats.";
-	    }
-	 }
+   /* setTrustedMoves ***************************************************/
+   /** when trusted, moves made for this board are not checked for 
+    *  legality.  The origin of a move is found from the pieces that can
+    *  reach the destination, and the legal moves are only generated when 
+    *  that isn't enough (two pieces could go there and one may be 
+    *  pinned), or when a move gives check so mate can be found.
+    *  Stalemate is only noticed once something asks for the legal moves.
+    *  <br>
+    *  This is meant for replaying games that are known to be legal, such
+    *  as a database that has been read before.  An illegal move will
+    *  leave the board in a nonsense position, so turn this off before 
+    *  handing the board to anything else.
+    */
+   public void setTrustedMoves (boolean t) {
+      trustedMoves = t;
+   }
 
-	 //if king has no moves and is being threatened
-	 //then should throw Checkmate exception.
-	 //if no moves and no threats then stalemate.
-	 if (getLegalMoveCount() == 0) 
-	    if (movingKing.isInCheck()) {
-	       if (lastMove != null)
-		  lastMove.setCheckmate(true);
-	    }
-	    else {
-	       if (lastMove != null)
-		  lastMove.setStalemate(true);
-	    }
+   /* isTrustedMoves ****************************************************/
+   public boolean isTrustedMoves () {
+      return trustedMoves;
+   }
 
-//FIXME: not removing moves to keep threats available
-	 //can now remove non-to-move teams' legalDests
-	 //for (byte i=0; i < otherTeam.size(); i++) 
-	 //   ((ChessPiece) otherTeam.get(i))
-	 //      .removeLegalDests();
+   /* genChecks *********************************************************/
+   /** used instead of generating the moves after a trusted move.  Only
+    *  if the side to move is in check are the moves generated, which
+    *  marks the last move as check, double check or checkmate.
+    */
+   protected void genChecks () {
+      int king = bits.getKingSquare(isBlackMove);
+
+         if (king != BitBoard.NO_SQUARE 
+	     && bits.attackersTo(king, !isBlackMove, bits.getOccupied()) != 0L)
+	    genMoves();
+   }
+
+   /* syncBitBoardState ***************************************************/
+   /** copies the side to move, enpassant file and castling rights onto
+    *  the BitBoard.  The pieces themselves are kept in step as they move.
+    */
+   protected void syncBitBoardState () {
+      bits.setBlackMove(isBlackMove);
+      bits.setEnPassantFile(enpassantFile);
+      syncCastleRooks();
+   }
+
+   /* syncCastleRooks ****************************************************/
+   /** copies the castling rights onto the BitBoard.  Only needed after
+    *  a King or Rook has moved or been captured.
+    */
+   protected void syncCastleRooks () {
+      syncCastleRooks(whiteKing, false);
+      syncCastleRooks(blackKing, true);
+   }
+
+   private void syncCastleRooks (King king, boolean isBlack) {
+      Rook qrook = null,
+           krook = null;
+
+         if (king != null && !king.captured && king.moveCount == 0) {
+            qrook = king.findMyRook(true);
+            krook = king.findMyRook(false);
+         }
+         bits.setCastleRook(isBlack, false, 
+            (qrook == null || qrook.moveCount != 0)
+               ? BitBoard.NO_SQUARE : BitBoard.square(qrook.orig));
+         bits.setCastleRook(isBlack, true, 
+            (krook == null || krook.moveCount != 0)
+               ? BitBoard.NO_SQUARE : BitBoard.square(krook.orig));
+   }
+
+   /* syncBitBoard *******************************************************/
+   /** rebuilds the BitBoard from the Squares.
+    */
+   protected void syncBitBoard () {
+      bits.clear();
+      for (byte f=0, r=0; f < MAX_FILE; f++) 
+         for (r=0; r < MAX_RANK; r++) 
+	    if (squares[f][r].piece != null)
+	       bits.put(squares[f][r].piece);
+      syncBitBoardState();
+   }
+
+   /* getBitBoard ********************************************************/
+   /** the bit masks that mirror this board.  These should be treated as
+    *  read only; the board keeps them in step with its Squares.
+    */
+   public BitBoard getBitBoard () {
+      return bits;
+   }
+
+   /* toSquare ***********************************************************/
+   /** the Square for a BitBoard square index.
+    */
+   protected Square toSquare (int sq) {
+      return squares[sq & 7][sq >>> 3];
+   }
+
+   /* addSquares *********************************************************/
+   private void addSquares (List<Square> list, long mask) {
+      while (mask != 0) {
+         list.add(toSquare(Long.numberOfTrailingZeros(mask)));
+         mask &= mask - 1;
+      }
+   }
+
+   /* toPieces ***********************************************************/
+   /** the pieces standing on the squares of the mask.
+    *  @return null if the mask is empty
+    */
+   private ChessPiece[] toPieces (long mask) {
+      if (mask == 0L)
+         return null;
+
+      ChessPiece[] pieces = new ChessPiece[Long.bitCount(mask)];
+      for (int i=0; mask != 0; i++) {
+         pieces[i] = toSquare(Long.numberOfTrailingZeros(mask)).piece;
+         mask &= mask - 1;
+      }
+      return pieces;
+   }
+
+   /* getAttackers *******************************************************/
+   /** the attackers of the side not to move, whose sliders see through
+    *  the moving King as they would once it steps out of the way.
+    */
+   private long getAttackers (Square sq, boolean isBlack) {
+      return bits.attackersTo(BitBoard.square(sq), isBlack,
+         bits.getOccupied() & ~bits.getPieces(King.INDEX, !isBlack));
+   }
 
+   /* isAttacked *********************************************************/
+   /** is the square attacked by that side, ignoring whose turn it is and
+    *  looking through the other side's King.  This is what a King needs
+    *  to know before it steps onto a square.
+    */
+   boolean isAttacked (Square sq, boolean isBlack) {
+      return getAttackers(sq, isBlack) != 0L;
    }
 
 
@@ -388,13 +614,17 @@ public class ChessBoard implements Board {
             throw new NullPointerException(
 	       "cannot assess threats to null square");
 
-	 if (staleLegalDests)
-	    genLegalDests();
+	 //the side not to move can't threaten a square it stands on 
+	 if (isBlack != isBlackMove) {
+	    if (sq.piece != null && sq.piece.isBlack == isBlack)
+	       return null;
+	    return toPieces(getAttackers(sq, isBlack));
+	 }
 
          attackers = new LinkedList<>();
          team = (isBlack) ? blackTeam.iterator() : whiteTeam.iterator();
 	 
-	 if (Log.debug) 
+	 if (Log.debug && Log.isDebug(DEBUG)) 
 	    Log.debug(DEBUG, "Finding "
 	       + ((isBlack) ? "Black" : "White")
 	       + " attackers on " + sq);
@@ -403,7 +633,7 @@ public class ChessBoard implements Board {
             piece = team.next();
             if (piece.isLegalAttack(sq)) {
                attackers.add(piece);
-	       if (Log.debug)
+	       if (Log.debug && Log.isDebug(DEBUG))
 	          Log.debug2(DEBUG, 
 		     "attacker: " + piece + "(" + piece.getSquare() + ")");
 	    }
@@ -415,7 +645,7 @@ public class ChessBoard implements Board {
             return threats;
          }
 	 else {
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "no attackers found.");
 	 }
 
@@ -483,8 +713,11 @@ public class ChessBoard implements Board {
             throw new NullPointerException(
 	       "cannot assess guards of null square");
 
-	 if (staleLegalDests)
-	    genLegalDests();
+	 if (isBlack != isBlackMove) {
+	    if (sq.piece == null || sq.piece.isBlack != isBlack)
+	       return null;
+	    return toPieces(getAttackers(sq, isBlack));
+	 }
 
          attackers = new LinkedList<>();
          team = (isBlack) ? blackTeam.iterator() : whiteTeam.iterator();
@@ -547,16 +780,9 @@ public class ChessBoard implements Board {
    /** how many legal moves on the current board.
     */
    public int getLegalMoveCount () {
-      int count = 0;
-      List<ChessPiece> movingTeam = (isBlackMove) ? blackTeam : whiteTeam;
-
-	 if (staleLegalDests)
-	    genLegalDests();
-
-	 for (int i=0; i < movingTeam.size(); i++) 
-	     count += movingTeam.get(i).getLegalDests().size();
-      
-      return count;
+      if (staleMoves)
+         genMoves();
+      return legalMoveCount;
    }
 
    /* getLegalMoves *********************************************************/
@@ -591,6 +817,63 @@ public class ChessBoard implements Board {
       
    }
 
+   /* getLegalMoves *********************************************************/
+   /** fills the array with the legal moves of the current board packed
+    *  as PackedMove ints.  Unlike getLegalMoves() nothing is allocated,
+    *  and the pieces' legal destinations are not filled in.  Promotions
+    *  are given once for each promotion piece and castles as the King's 
+    *  move.
+    *
+    *  @param moves at least BitBoard.MAX_MOVES long is always enough.
+    *  @return the number of moves written.
+    *  @throws IllegalArgumentException if the moves don't fit.
+    */
+   public int getLegalMoves (int[] moves) {
+      if (staleMoves)
+         genMoves();
+      if (moves.length < movesGenerated)
+         throw new IllegalArgumentException("room for " + moves.length 
+	    + " moves but there are " + movesGenerated);
+
+      for (int i=0; i < movesGenerated; i++)
+         moves[i] = PackedMove.pack(this, moveBuffer[i]);
+      return movesGenerated;
+   }
+
+   /* visitLegalMoves *******************************************************/
+   /** hands each legal move of the current board, packed as in 
+    *  getLegalMoves(int[]), to the visitor until it returns false.
+    *  The visitor may play moves on the board, and visit their legal 
+    *  moves in turn, so long as it takes them back before returning.
+    *
+    *  @return the number of moves visited.
+    *  @throws ConcurrentModificationException if the visitor left the
+    *          board in another position.
+    */
+   public int visitLegalMoves (LegalMoveVisitor visitor) {
+      long key = 0L;
+      int count = 0;
+
+         if (staleMoves)
+	    genMoves();
+	 key = bits.getKey();
+
+	 while (count < movesGenerated) {
+	    if (!visitor.visit(this, 
+	                       PackedMove.pack(this, moveBuffer[count++])))
+	       break;
+
+	    syncBitBoardState();
+	    if (bits.getKey() != key)
+	       throw new ConcurrentModificationException(
+		  "the board was left in another position");
+	    //the moveBuffer is shared with anything the visitor generated
+	    if (staleMoves)
+	       genMoves();
+	 }
+      return count;
+   }
+
    /* isDestUniqueForClass ************************************************/
    /** determines how unique this move is for the Type of piece it is.
     *  this is used for Algebraic notation short-form.  If there is only
@@ -601,20 +884,25 @@ public class ChessBoard implements Board {
    protected boolean[] isDestUniqueForClass (Square dest, ChessPiece p) {
       boolean[] unique = {true, true}; //file, rank
       List<ChessPiece> movingTeam = (isBlackMove) ? blackTeam : whiteTeam;
-      List<Square> dests = null;
       ChessPiece   piece = null;
 
       if (p.isKing()) return unique;
 
+      //with no other piece in reach there's no need for the legal moves
+      if (trustedMoves && staleMoves
+          && (bits.moversTo(p.getIndex() % ChessPiece.BLACK_OFFSET, 
+	                    p.isBlack(), BitBoard.square(dest))
+	      & ~(1L << BitBoard.square(p.orig))) == 0L)
+	 return unique;
+
       for (int i=0; i < movingTeam.size(); i++) {
          piece = movingTeam.get(i);
 
 	 if (piece != p 
 	     && !piece.isCaptured() 
 	     && piece.getIndex() == p.getIndex()) {
-	    dests = piece.getLegalDests();
 
-	    if (dests.contains(dest)) {
+	    if (piece.isLegalDest(dest)) {
 	       if (p.orig.file == piece.orig.file)
 	          unique[0] = false;  //file is not unique
 	       if (p.orig.rank == piece.orig.rank) 
@@ -644,6 +932,13 @@ public class ChessBoard implements Board {
    /* getOrigin **********************************************************/
    /** determines where the origin of the move that goes to this destination
     *  is.  This is the recipercal method for what  isDestUniqueForClass allows
+    *  <br>
+    *  The pieces of the kind asked for are taken from the BitBoard and
+    *  checked against the legal moves of the side to move, so the
+    *  pieces' own legal destination lists needn't be filled in.
+    *
+    *  @param file the file of the origin if known (1-8), otherwise &lt; 1
+    *  @param rank the rank of the origin if known (1-8), otherwise &lt; 1
     */
    public Square getOrigin (byte piece_index, int file, int rank, 
                             Square dest) 
@@ -655,36 +950,59 @@ public class ChessBoard implements Board {
       byte orig_f = (byte) file,
            orig_r = (byte) rank;
 
-      List<ChessPiece> movingTeam = (isBlackMove) ? blackTeam : whiteTeam;
-      List<ChessPiece> dupes = new ArrayList<>(1);
-      ChessPiece   piece = null;
-      ChessPiece   mover = null;  //piece to move
-      boolean found = false;
-      int     count = 0;   //how many pieces with this dest?
-
-      for (int i=0; i < movingTeam.size(); i++) {
-         piece = movingTeam.get(i);
-
-	 if (((piece.getIndex() % ChessPiece.BLACK_OFFSET) == piece_index) 
-	     && piece.isLegalDest(dest))
+      List<ChessPiece> dupes = null;
+      long candidates = 0L,
+           destMask   = 0L;
+      int  sq     = 0,
+           mover  = -1,
+           count  = 0;   //how many pieces with this dest?
+
+      if (piece_index >= King.INDEX && piece_index <= Pawn.INDEX
+          && trustedMoves && staleMoves) {
+	 //if only one piece can reach the square it must be the one
+         candidates = bits.moversTo(piece_index, isBlackMove, 
+	                            BitBoard.square(dest));
+	 if (orig_f >= 1)
+	    candidates &= BitBoard.fileMask(orig_f);
+	 if (orig_r >= 1)
+	    candidates &= BitBoard.rankMask(orig_r);
+	 if (Long.bitCount(candidates) == 1) {
+	    sq = Long.numberOfTrailingZeros(candidates);
+	    return getSquare(BitBoard.fileOf(sq), BitBoard.rankOf(sq));
+	 }
+      }
 
-	    if ((orig_f < 1 && orig_r < 1)
-	        || (orig_r < 1 && piece.orig.file == orig_f)
-	        || (orig_f < 1 && piece.orig.rank == orig_r)) {
-	       found = true;
+      if (staleMoves)
+         genMoves();
+
+      if (piece_index >= King.INDEX && piece_index <= Pawn.INDEX) {
+         destMask = 1L << BitBoard.square(dest);
+         candidates = bits.getPieces(piece_index, isBlackMove);
+	 if (orig_f >= 1)
+	    candidates &= BitBoard.fileMask(orig_f);
+	 if (orig_r >= 1)
+	    candidates &= BitBoard.rankMask(orig_r);
+
+	 while (candidates != 0L) {
+	    sq = Long.numberOfTrailingZeros(candidates);
+	    candidates &= candidates - 1;
+	    if ((legalMasks[sq] & destMask) != 0L) {
 	       if (++count > 1) {
 	          if (dupes == null) {
 		     dupes = new ArrayList<>(2);
-		     dupes.add(mover);
+		     dupes.add(getSquare(BitBoard.fileOf(mover),
+		                         BitBoard.rankOf(mover)).piece);
 		  }
-	          dupes.add(piece);
+		  dupes.add(getSquare(BitBoard.fileOf(sq),
+		                      BitBoard.rankOf(sq)).piece);
 	       }
-	       mover = piece;
+	       mover = sq;
 	    }
+	 }
       }
 
-      if (!found) {
-         if (Log.debug) {
+      if (count == 0) {
+         if (Log.debug && Log.isDebug(DEBUG)) {
 	    Log.debug(DEBUG, 
 	       "Illegal Move " 
                + "piece: " + piece_index + " file: " + orig_f 
@@ -696,8 +1014,8 @@ public class ChessBoard implements Board {
 	 throw new IllegalMoveException("Illegal Move");
       }
 
-      if (found && count > 1) {
-         if (Log.debug) {
+      if (count > 1) {
+         if (Log.debug && Log.isDebug(DEBUG)) {
 	    Log.debug(DEBUG,
                       "AMBIGUOUSMOVE!!!! to " + dest);
 	    Log.debug2(DEBUG, this);
@@ -713,7 +1031,7 @@ public class ChessBoard implements Board {
 	    dupes);
       }
 
-      return mover.orig;
+      return getSquare(BitBoard.fileOf(mover), BitBoard.rankOf(mover));
    }
 
    //promotion//////////////////////////////////////////////////////////////
@@ -727,6 +1045,7 @@ public class ChessBoard implements Board {
       promo.orig.piece = promo;
       promo.board = this;
       promo.isBlack = pawn.isBlack;
+      bits.put(promo);
 
       if (pawn.isBlack) {
 	 blackTeam.set(blackTeam.indexOf(pawn), promo);
@@ -745,10 +1064,10 @@ public class ChessBoard implements Board {
       if (lastMove != null)
          return lastMove.isCheckmate();
 
-      if (staleLegalDests)
-	 genLegalDests();
+      if (staleMoves)
+	 genMoves();
 
-      if (getLegalMoveCount() == 0 && isCheck())
+      if (legalMoveCount == 0 && bits.getCheckers() != 0L)
 	 return true;
       else 
 	 return false;
@@ -764,13 +1083,12 @@ public class ChessBoard implements Board {
       if (lastMove != null)
          return lastMove.isCheck();
 
-      if (staleLegalDests)
-         genLegalDests();
+      if (staleMoves)
+         genMoves();
 
+      check = bits.getCheckers() != 0L;
 
-      check = (isBlackMove) ? blackKing.isInCheck() : whiteKing.isInCheck();
-
-      if (Log.debug)
+      if (Log.debug && Log.isDebug(ChessBoard.DEBUG))
          Log.debug(ChessBoard.DEBUG, "the King in check: " + check);
 
       return check;
@@ -786,10 +1104,10 @@ public class ChessBoard implements Board {
       if (lastMove != null)
          return lastMove.isDoubleCheck();
 
-      if (staleLegalDests)
-         genLegalDests();
+      if (staleMoves)
+         genMoves();
 
-      dcheck = getThreats( ((isBlackMove) ? blackKing : whiteKing)).length == 2;
+      dcheck = Long.bitCount(bits.getCheckers()) == 2;
 
       return dcheck;
    }
@@ -801,10 +1119,10 @@ public class ChessBoard implements Board {
       if (lastMove != null)
          return lastMove.isStalemate();
 
-      if (staleLegalDests)
-	 genLegalDests();
+      if (staleMoves)
+	 genMoves();
 
-      if (getLegalMoveCount() == 0 && !isCheck())
+      if (legalMoveCount == 0 && bits.getCheckers() == 0L)
 	 return true;
       else 
 	 return false;
@@ -928,6 +1246,8 @@ public class ChessBoard implements Board {
          throw new IllegalStateException(
 	    "can't set the move color for a game in progress.");
       isBlackMove = t;
+      bits.setBlackMove(t);
+      staleLegalDests = staleMoves = true;
    }
 
    /* isBlackMove ***********************************************************/
@@ -1016,6 +1336,58 @@ public class ChessBoard implements Board {
       isInitialPositionDefault = true;
    }
 
+   /* reset *************************************************************/
+   /** forgets the moves played on the board and sets the default 
+    *  position, so the board can be used for another game.  The old
+    *  moves (and any History holding them) must not be used with this
+    *  board afterward.
+    */
+   public void reset () {
+      lastMove = null;
+      isBlackMove = false;
+      setPositionDefault();
+   }
+
+   /* reset *************************************************************/
+   /** forgets the moves played on the board and sets the position and
+    *  the rest of the board state, so the board can be reused for 
+    *  another position without building a new one.  The old moves 
+    *  (and any History holding them) must not be used with this board
+    *  afterward.
+    *
+    * @param matrix the position as taken by setPosition(char[][])
+    * @param isBlackMove who's move is it?
+    * @param castleWK can white castle Kingside?
+    * @param castleWQ can white castle Queenside?
+    * @param castleBK can black castle Kingside?
+    * @param castleBQ can black castle Queenside?
+    * @param enpassantFile the file (1-8) that is vulnerable to enpassant
+    *                      or NO_ENPASSANT
+    * @param plyCount the ply count for the 50 move rule.
+    * @param moveNum which move number are we on?
+    */
+   public void reset (char[][] matrix,
+                      boolean isBlackMove,
+                      boolean castleWK,
+                      boolean castleWQ,
+                      boolean castleBK,
+                      boolean castleBQ,
+                      int enpassantFile,
+                      int plyCount,
+                      int moveNum) {
+      lastMove = null;
+      setPosition(matrix);
+      this.isBlackMove = isBlackMove;
+      setWhiteCastleableKingside(castleWK);
+      setWhiteCastleableQueenside(castleWQ);
+      setBlackCastleableKingside(castleBK);
+      setBlackCastleableQueenside(castleBQ);
+      setEnPassantFile(enpassantFile);
+      plyCount50 = plyCount;
+      moveNumber = moveNum;
+      syncBitBoardState();
+   }
+
    /* setPositionClear ******************************************************/
    /** removes all pieces from the board
     *
@@ -1030,6 +1402,7 @@ public class ChessBoard implements Board {
       for (byte r=0; r < MAX_RANK; r++)
          for (byte f=0; f < MAX_FILE; f++)
 	    squares[f][r].piece = null;
+      bits.clear();
       blackTeam.clear();
       whiteTeam.clear();
       blackKing = null;
@@ -1038,6 +1411,8 @@ public class ChessBoard implements Board {
       plyCount50 = 0;
       enpassantFile = NO_ENPASSANT;
       moveNumber = 0;
+      syncBitBoardState();
+      staleLegalDests = staleMoves = true;
    }
 
    /* setPosition () *********************************************************/
@@ -1108,18 +1483,18 @@ public class ChessBoard implements Board {
       if (wking)
 	 if (matrix[4][0] == 'K') {
 	    if (matrix[0][0] != 'R') {
-	       if (Log.debug)
+	       if (Log.debug && Log.isDebug(DEBUG))
 	          Log.debug(DEBUG, "setting white q-side castle: false");
 	       setWhiteCastleableQueenside(false);
 	    }
 	    if (matrix[7][0] != 'R') {
-	       if (Log.debug)
+	       if (Log.debug && Log.isDebug(DEBUG))
 	          Log.debug(DEBUG, "setting white k-side castle: false");
 	       setWhiteCastleableKingside(false);
 	    }
 	 }
 	 else {
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "setting white castleable: false");
 	    whiteKing.moveCount = 1;
 	 }
@@ -1127,21 +1502,22 @@ public class ChessBoard implements Board {
       if (bking)
 	 if (matrix[4][7] == 'k') {
 	    if (matrix[0][7] != 'r') {
-	       if (Log.debug)
+	       if (Log.debug && Log.isDebug(DEBUG))
 	          Log.debug(DEBUG, "setting black q-side castle: false");
 	       setBlackCastleableQueenside(false);
 	    }
 	    if (matrix[7][7] != 'r') {
-	       if (Log.debug)
+	       if (Log.debug && Log.isDebug(DEBUG))
 	          Log.debug(DEBUG, "setting black k-side castle: false");
 	       setBlackCastleableKingside(false);
 	    }
 	 }
 	 else {
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "setting black castleable: false");
 	    blackKing.moveCount = 1;
 	 }
+      syncBitBoardState();
    }
 
    /* addPawn **************************************************************/
@@ -1158,6 +1534,7 @@ public class ChessBoard implements Board {
       ChessPiece p;
       Square orig = getSquare(file, rank);
          orig.setOccupant(p = new Pawn (isBlack, orig, this)); 
+         bits.put(p);
          if (isBlack) blackTeam.add(p);
          else         whiteTeam.add(p);
    }
@@ -1176,6 +1553,7 @@ public class ChessBoard implements Board {
       ChessPiece p;
       Square orig = getSquare(file, rank);
          orig.setOccupant(p = new Knight (isBlack, orig, this)); 
+         bits.put(p);
          if (isBlack) blackTeam.add(p);
          else         whiteTeam.add(p);
    }
@@ -1194,6 +1572,7 @@ public class ChessBoard implements Board {
       ChessPiece p;
       Square orig = getSquare(file, rank);
          orig.setOccupant(p = new Bishop (isBlack, orig, this)); 
+         bits.put(p);
          if (isBlack) blackTeam.add(p);
          else         whiteTeam.add(p);
    }
@@ -1212,6 +1591,7 @@ public class ChessBoard implements Board {
       ChessPiece p;
       Square orig = getSquare(file, rank);
          orig.setOccupant(p = new Rook (isBlack, orig, this)); 
+         bits.put(p);
          if (isBlack) blackTeam.add(p);
          else         whiteTeam.add(p);
    }
@@ -1230,6 +1610,7 @@ public class ChessBoard implements Board {
       ChessPiece p;
       Square orig = getSquare(file, rank);
          orig.setOccupant(p = new Queen (isBlack, orig, this)); 
+         bits.put(p);
          if (isBlack) blackTeam.add(p);
          else         whiteTeam.add(p);
    }
@@ -1249,6 +1630,7 @@ public class ChessBoard implements Board {
       ChessPiece p;
       Square orig = getSquare(file, rank);
          orig.setOccupant(p = new King (isBlack, orig, this)); 
+         bits.put(p);
          if (isBlack) {
 	    if (blackKing != null)
 	       blackTeam.remove(blackKing);
@@ -1312,6 +1694,8 @@ public class ChessBoard implements Board {
          throw new IllegalArgumentException(
 	    "EnPassant file cannot be larget than MAX_FILE");
       enpassantFile = (byte) f;
+      bits.setEnPassantFile(f);
+      staleLegalDests = staleMoves = true;
    }
 
    /* setEnPassantFile *****************************************************/
@@ -1320,6 +1704,8 @@ public class ChessBoard implements Board {
     */
    public void setEnPassantFile (char f) {
       enpassantFile = san.fileToNum(f);
+      bits.setEnPassantFile(enpassantFile);
+      staleLegalDests = staleMoves = true;
    }
 
    /* isEnPassantFile ******************************************************/
@@ -1375,6 +1761,151 @@ public class ChessBoard implements Board {
       return isInitialPositionDefault;
    }
 
+   //Snapshots//////////////////////////////////////////////////////////////
+
+   /* createSnapshot *******************************************************/
+   /** copies where every piece is, its move count and whether it has been
+    *  captured, along with who's move it is, the enpassant file, 50 move 
+    *  rule count, move number and last move.  Pawns that have been 
+    *  promoted on the way to this position are kept as well, since the
+    *  promoting moves need them to be unexecuted.
+    */
+   public BoardSnapshot createSnapshot () {
+      List<ChessPiece> promoted = null;
+
+      for (ChessMove m = lastMove; m != null; m = (ChessMove) m.getPrev())
+         if (m.promotion != null) {
+	    if (promoted == null)
+	       promoted = new ArrayList<>(2);
+	    promoted.add(m.piece);
+	 }
+
+      return new PositionSnapshot(this, promoted);
+   }
+
+   /* restoreSnapshot ******************************************************/
+   /** puts the pieces and the board state back as they were in the 
+    *  snapshot.  The same piece objects are used so the moves played from
+    *  here can still be unexecuted.  Pieces on the board that are not in
+    *  the snapshot (promoted to since) are reset to how a promotion 
+    *  leaves them.
+    *
+    *  @throws IllegalArgumentException if the snapshot was not taken by
+    *          this board.
+    */
+   public void restoreSnapshot (BoardSnapshot snapshot) {
+      PositionSnapshot s = null;
+
+      if (!(snapshot instanceof PositionSnapshot)
+          || ((PositionSnapshot) snapshot).board != this)
+         throw new IllegalArgumentException(
+	    "snapshot was not taken by this board");
+
+      s = (PositionSnapshot) snapshot;
+
+      for (byte f=0, r=0; f < MAX_FILE; f++) 
+         for (r=0; r < MAX_RANK; r++) 
+	    squares[f][r].piece = null;
+
+      //pieces promoted to on the way here may not be in the snapshot; 
+      //unexecuting would have left them as they were when first promoted
+      for (ChessPiece p : whiteTeam) {
+         p.setCaptured(false);
+	 p.moveCount = 0;
+      }
+      for (ChessPiece p : blackTeam) {
+         p.setCaptured(false);
+	 p.moveCount = 0;
+      }
+
+      whiteTeam.clear();
+      blackTeam.clear();
+      for (int i=0; i < s.pieces.length; i++) {
+         ChessPiece p = s.pieces[i];
+
+	 p.orig = toSquare(s.squares[i] & PositionSnapshot.SQUARE);
+	 p.moveCount = s.moveCounts[i];
+	 p.setCaptured((s.squares[i] & PositionSnapshot.CAPTURED) != 0);
+
+	 if (i < s.teamSize) {
+	    if (p.isBlack)
+	       blackTeam.add(p);
+	    else
+	       whiteTeam.add(p);
+	    if (!p.captured)
+	       p.orig.piece = p;
+	 }
+      }
+
+      isBlackMove = s.isBlackMove;
+      enpassantFile = s.enpassantFile;
+      plyCount50 = s.plyCount50;
+      moveNumber = s.moveNumber;
+      lastMove = s.lastMove;
+
+      syncBitBoard();
+      staleLegalDests = staleMoves = true;
+
+      fireBoardEvent(BoardEvent.POSITION);
+   }
+
+   /* PositionSnapshot *****************************************************/
+   /** the pieces and their state are kept in parallel arrays; the teams
+    *  first, then any pawns that were promoted.
+    */
+   protected static class PositionSnapshot implements BoardSnapshot {
+         /** the square index mask and the captured flag in squares[] */
+      static final byte SQUARE = 0x3F,
+                        CAPTURED = 0x40;
+
+      final ChessBoard   board;
+      final ChessPiece[] pieces;
+      final byte[]       squares;
+      final short[]      moveCounts;
+      final int          teamSize;
+      final boolean      isBlackMove;
+      final byte         enpassantFile;
+      final int          plyCount50,
+                         moveNumber;
+      final ChessMove    lastMove;
+
+      PositionSnapshot (ChessBoard b, List<ChessPiece> promoted) {
+         int i = 0;
+
+	 board = b;
+	 teamSize = b.whiteTeam.size() + b.blackTeam.size();
+	 pieces = new ChessPiece[teamSize 
+	    + ((promoted == null) ? 0 : promoted.size())];
+	 squares = new byte[pieces.length];
+	 moveCounts = new short[pieces.length];
+
+	 for (ChessPiece p : b.whiteTeam)
+	    pieces[i++] = p;
+	 for (ChessPiece p : b.blackTeam)
+	    pieces[i++] = p;
+	 if (promoted != null)
+	    for (ChessPiece p : promoted)
+	       pieces[i++] = p;
+
+	 for (i=0; i < pieces.length; i++) {
+	    squares[i] = (byte) (BitBoard.square(pieces[i].orig)
+	       | ((pieces[i].captured) ? CAPTURED : 0));
+	    moveCounts[i] = pieces[i].moveCount;
+	 }
+
+	 isBlackMove = b.isBlackMove;
+	 enpassantFile = b.enpassantFile;
+	 plyCount50 = b.plyCount50;
+	 moveNumber = b.moveNumber;
+	 lastMove = b.lastMove;
+      }
+
+      /** object headers and the three arrays, plus 7 bytes a piece */
+      public int getFootprint () {
+         return 96 + 7 * pieces.length;
+      }
+   }
+
    //Events///////////////////////////////////////////////////////////////////
 
    /* addBoardListerner *****************************************************/
@@ -1471,58 +2002,58 @@ public class ChessBoard implements Board {
       boolean equal = true;
       ChessBoard b = (ChessBoard) o;
 
-         if (Log.debug) {
+         if (Log.debug && Log.isDebug(DEBUG)) {
 	    Log.debug(DEBUG, "comparing boards");
 	 }
 
          equal = this.isBlackMove == b.isBlackMove;
-	 if (Log.debug && !equal)
+	 if (Log.debug && !equal && Log.isDebug(DEBUG))
 	    Log.debug2(DEBUG, "move parity failed");
 	    
 	 if (equal) 
 	    equal = this.squares.length == b.squares.length;
 
-	 if (Log.debug && !equal)
+	 if (Log.debug && !equal && Log.isDebug(DEBUG))
 	    Log.debug2(DEBUG, "board dimension(f) failed");
 	    
 	 if (equal) 
 	    equal = this.squares[0].length == b.squares[0].length;
 
-	 if (Log.debug && !equal)
+	 if (Log.debug && !equal && Log.isDebug(DEBUG))
 	    Log.debug2(DEBUG, "board dimension(r) failed");
 	    
 	 if (equal)
 	    equal = this.isWhiteCastleableQueenside()
 	            == b.isWhiteCastleableQueenside();
 
-	 if (Log.debug && !equal)
+	 if (Log.debug && !equal && Log.isDebug(DEBUG))
 	    Log.debug2(DEBUG, "castling QW failed");
 	    
 	 if (equal)
 	    equal = this.isBlackCastleableQueenside()
 	            == b.isBlackCastleableQueenside();
 
-	 if (Log.debug && !equal)
+	 if (Log.debug && !equal && Log.isDebug(DEBUG))
 	    Log.debug2(DEBUG, "castling QB failed");
 	    
 	 if (equal)
 	    equal = this.isWhiteCastleableKingside()
 	            == b.isWhiteCastleableKingside();
 
-	 if (Log.debug && !equal)
+	 if (Log.debug && !equal && Log.isDebug(DEBUG))
 	    Log.debug2(DEBUG, "castling KW failed");
 	    
 	 if (equal)
 	    equal = this.isBlackCastleableKingside()
 	            == b.isBlackCastleableKingside();
 
-	 if (Log.debug && !equal)
+	 if (Log.debug && !equal && Log.isDebug(DEBUG))
 	    Log.debug2(DEBUG, "castling KB failed");
 	    
 	 if (equal)
 	    equal = this.enpassantFile == b.enpassantFile;
 
-	 if (Log.debug && !equal) 
+	 if (Log.debug && !equal && Log.isDebug(DEBUG))
 	    Log.debug2(DEBUG, "enpassant failed");
 	    
 	 if (equal) {
@@ -1533,7 +2064,7 @@ public class ChessBoard implements Board {
 		  else {
 		     equal = b.squares[i][j].getOccupant() != null;
 
-		     if (Log.debug && !equal)
+		     if (Log.debug && !equal && Log.isDebug(DEBUG))
 			Log.debug2(DEBUG, "squares[" + i + "]["
 					 + j + "] nulls failed");
 
@@ -1541,7 +2072,7 @@ public class ChessBoard implements Board {
 			equal = this.squares[i][j].getOccupant().getIndex()
 				== b.squares[i][j].getOccupant().getIndex();
 
-			if (Log.debug && !equal)
+			if (Log.debug && !equal && Log.isDebug(DEBUG))
 			   Log.debug2(DEBUG, "squares[" + i + "]["
 					    + j + "].Occupant failed");
 		     }
@@ -1551,19 +2082,27 @@ public class ChessBoard implements Board {
 	    }
 	 }
 
-	 if (Log.debug && equal)
+	 if (Log.debug && equal && Log.isDebug(DEBUG))
 	    Log.debug2(DEBUG, "boards are the same");
 
 	 return equal;
    }
 
+   /* getPositionKey ***************************************************/
+   /** a 64-bit Zobrist key of the position: the pieces, side to move,
+    *  castling rights and enpassant file.  Boards that are equal() have
+    *  the same key.  The key is kept up to date as moves are executed
+    *  and unexecuted, so this costs nothing to call.
+    */
+   public long getPositionKey () {
+      return bits.getKey();
+   }
+
    /* hashCode ***********************************************************/
    public int hashCode () {
+      long key = getPositionKey();
 
-      int hash = 7;
-      hash = 31 * hash + fen.boardToString(this).hashCode();
-
-      return hash;
+      return (int) (key ^ (key >>> 32));
    }
 
    //Diagnostics//////////////////////////////////////////////////////////
@@ -113,7 +113,7 @@ public class ChessGameInfo extends GameInfo {
 
       ChessGameInfo gi = (ChessGameInfo) obj;
       boolean t = true;
-         if (Log.debug) Log.debug(DEBUG, "checking for equality");
+         if (Log.debug && Log.isDebug(DEBUG)) Log.debug(DEBUG, "checking for equality");
 	 t = t && super.equals(obj);
 
 	 if (t) {
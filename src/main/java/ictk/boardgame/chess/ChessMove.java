@@ -131,8 +131,10 @@ public class ChessMove extends Move {
       /** is the move a castle on the king's side */
 	   castleKingside;
 
-      /** how unique the move is {file, rank} */
-   protected boolean[] unique = {false, false};
+      /** is the move's origin file unique (see getUniqueness()) */
+   protected boolean fileUnique,
+      /** is the move's origin rank unique */
+                     rankUnique;
 
    //Constructors/////////////////////////////////////////////////////////////
    /** only used for castle moves.  
@@ -152,7 +154,7 @@ public class ChessMove extends Move {
 	       "illegal parameter sent to ChessMove Castle Constructor;"
 	       + " check docs");
       }
-      board.verifyIsLegalMove(this);
+      verify();
    }
 
    /** international coordinate based constructor
@@ -188,7 +190,7 @@ public class ChessMove extends Move {
              && (promotion.isKing() || promotion.isPawn()))
          throw new IllegalMoveException("Can't promote a pawn to King or Pawn");
 
-      board.verifyIsLegalMove(this);
+      verify();
    }
 
    /** This constructor take Square objects.  The Square objects
@@ -226,7 +228,7 @@ public class ChessMove extends Move {
              && (promotion.isKing() || promotion.isPawn()))
          throw new IllegalMoveException("Can't promote a pawn to King or Pawn");
 
-      board.verifyIsLegalMove(this);
+      verify();
    }
 
 
@@ -268,6 +270,18 @@ public class ChessMove extends Move {
 
    //Mutators////////////////////////////////////////////////////////////
 
+   /* verify ***********************************************************/
+   /** checks the move is legal on the board, unless the board trusts
+    *  its moves, in which case the move is simply taken as verified.
+    */
+   private void verify () 
+          throws IllegalMoveException {
+      if (board.trustedMoves)
+         verified = true;
+      else
+         board.verifyIsLegalMove(this);
+   }
+
    /* dispose () *********************************************************/
    /** reclaims all resources and recursively deletes all branch moves.
     */
@@ -324,7 +338,7 @@ public class ChessMove extends Move {
       if (piece == null)
          throw new IllegalMoveException("No piece to move.", this);
 
-      if (Log.debug) {
+      if (Log.debug && Log.isDebug(DEBUG)) {
          Log.debug(DEBUG, "executing move: " + this);
          Log.debug2(DEBUG, piece.dump());
          Log.debug2(DEBUG, board);
@@ -334,7 +348,7 @@ public class ChessMove extends Move {
          throw new OutOfTurnException("It is " + ((board.isBlackMove) ? "Black" : "White") + "'s move");
 
       if (!verified && !piece.isLegalDest(dest)) {
-         if (Log.debug) {
+         if (Log.debug && Log.isDebug(DEBUG)) {
             Log.debug(DEBUG, "tried to execute move with illegal destination");
             Log.debug2(DEBUG, "piece is: " + piece.dump());
             Log.debug2(DEBUG, "dest is: " + dest);
@@ -353,14 +367,14 @@ public class ChessMove extends Move {
 	     && casualty == null
 	     && orig.file != dest.file) {
 	    casualty = board.getSquare(dest.file, orig.rank).piece;
-	    if (Log.debug) {
+	    if (Log.debug && Log.isDebug(DEBUG)) {
 	       Log.debug(DEBUG, "enpassant encounterd: " 
 	           + this + "orig: " + orig 
 	           + " dest:" + dest + " casualty: " + casualty);
 	    }
 	 }
 	 else {
-	    board.enpassantFile = ChessBoard.NO_ENPASSANT;
+	    board.setEnPassantFile(ChessBoard.NO_ENPASSANT);
 	 }
 
          //50MoveRule
@@ -378,6 +392,7 @@ public class ChessMove extends Move {
          if (casualty != null) { 
 	    casualty.setCaptured(true); 
 	    casualty.orig.piece = null; //take piece off board
+	    board.bits.remove(BitBoard.square(casualty.orig));
 	    //casualty.orig = null;  //don't do or hard to undo enpassant
 	 }
 
@@ -386,7 +401,9 @@ public class ChessMove extends Move {
          board.setEnPassantFile(orig.file);
 
       // check how unique this move is (for short form Algebraic)
-      unique = board.isDestUniqueForClass(dest, piece);
+      boolean[] unique = board.isDestUniqueForClass(dest, piece);
+      fileUnique = unique[0];
+      rankUnique = unique[1];
 
          //actually move piece
       dest.piece = piece;
@@ -394,6 +411,8 @@ public class ChessMove extends Move {
       if (!orig.equals(dest)) // Can happen in chess960 castling.
          orig.piece = null;
       piece.moveCount++;
+      if (!castling)
+         board.bits.move(BitBoard.square(orig), BitBoard.square(dest));
 
       // Move the rook if we're castling.
       if (castling) {
@@ -408,6 +427,11 @@ public class ChessMove extends Move {
          }
          rookForCastling.orig = rookDest;
          rookForCastling.moveCount++;
+
+         board.bits.remove(BitBoard.square(orig));
+         board.bits.remove(BitBoard.square(rookCastleOrig));
+         board.bits.put(piece);
+         board.bits.put(rookForCastling);
       }
 
 	 //pawn promotion
@@ -421,6 +445,10 @@ public class ChessMove extends Move {
 
          //set board to alternate who moves flag
 	 board.isBlackMove =  !piece.isBlack;
+	 board.bits.setBlackMove(board.isBlackMove);
+	 if (castling || piece.isKing() || piece.isRook() 
+	     || (casualty != null && casualty.isRook()))
+	    board.syncCastleRooks();
 	 prev = board.lastMove;
 	 board.lastMove = this;
          //incr move counter
@@ -431,18 +459,23 @@ public class ChessMove extends Move {
          executed = true;
 
 
-	 board.staleLegalDests = true;
+	 board.staleLegalDests = board.staleMoves = true;
 
          //gen legal moves only if we don't know the next move
-         if (!verified || continuation.isTerminal() && !isEndOfGame())
-	    board.genLegalDests();
+	 if (board.trustedMoves)
+	    board.genChecks();
+         else if (!verified || continuation.isTerminal() && !isEndOfGame())
+	    if (board.lazyLegalDests)
+	       board.genMoves();
+	    else
+	       board.genLegalDests();
 
 	 verified = true;
 
          //broadcast changes in the model
          board.fireBoardEvent(BoardEvent.MOVE);
 
-	 if (Log.debug) {
+	 if (Log.debug && Log.isDebug(DEBUG)) {
 	    Log.debug(DEBUG, "execute successful");
 	    Log.debug2(DEBUG, board);
 	 }
@@ -457,7 +490,7 @@ public class ChessMove extends Move {
    /** undo the this move
     */
    protected void unexecute () {
-         if (Log.debug) {
+         if (Log.debug && Log.isDebug(DEBUG)) {
 	    Log.debug(DEBUG, "unexecuting move: " + this);
 	    Log.debug2(DEBUG, board);
 	 }
@@ -475,6 +508,7 @@ public class ChessMove extends Move {
          orig.piece = dest.piece;
          piece.orig = orig;
          dest.piece = null;
+         board.bits.move(BitBoard.square(dest), BitBoard.square(orig));
       } else 
       {
          King kingPiece = (King) dest.piece;
@@ -497,11 +531,17 @@ public class ChessMove extends Move {
          if (rookMoved && !rook_dest.equals(orig)) {
             rook_dest.piece = null;
          }
+
+         board.bits.remove(BitBoard.square(dest));
+         board.bits.remove(BitBoard.square(rook_dest));
+         board.bits.put(kingPiece);
+         board.bits.put(rookPiece);
       }
 
          if (casualty != null) {
             casualty.setCaptured(false);
 	    casualty.orig.piece = casualty;  //put piece on board
+	    board.bits.put(casualty);
          }
 
          //50MoveRule
@@ -513,6 +553,10 @@ public class ChessMove extends Move {
 
          //set board to alternate who moves flag
 	 board.isBlackMove =  piece.isBlack;
+	 board.bits.setBlackMove(board.isBlackMove);
+	 if (castling || piece.isKing() || piece.isRook() 
+	     || (casualty != null && casualty.isRook()))
+	    board.syncCastleRooks();
 	 board.lastMove = (ChessMove) prev; 
          //move number
 	 if (!piece.isBlack)
@@ -520,12 +564,12 @@ public class ChessMove extends Move {
 
          executed = false;
 
-         board.staleLegalDests = true;
+         board.staleLegalDests = board.staleMoves = true;
 
          //broadcast changes in the model
          board.fireBoardEvent(BoardEvent.UNMOVE);
 
-	 if (Log.debug) {
+	 if (Log.debug && Log.isDebug(DEBUG)) {
 	    Log.debug(DEBUG, "unexecute successful");
 	    Log.debug2(DEBUG, board);
 	 }
@@ -554,21 +598,21 @@ public class ChessMove extends Move {
     *  @return [true][true] if both file and rank are unique
     */
    public boolean[] getUniqueness () {
-      return unique;
+      return new boolean[] {fileUnique, rankUnique};
    }
 
    /* isFileUnique ******************************************************/
    /** is the file unique?
     */
    public boolean isFileUnique () {
-      return unique[0];
+      return fileUnique;
    }
 
    /* isRankUnique ******************************************************/
    /** is the rank unique?
     */
    public boolean isRankUnique () {
-      return unique[1];
+      return rankUnique;
    }
 
    /* isCheck ************************************************************/
@@ -928,8 +972,8 @@ public class ChessMove extends Move {
 	   .append("   origin: " + orig + "\n")
 	   .append("   destination: " + dest + "\n")
 
-	   .append("   isFileUnique: " + unique[0] + "\n")
-	   .append("   isRankUnique: " + unique[1] + "\n")
+	   .append("   isFileUnique: " + fileUnique + "\n")
+	   .append("   isRankUnique: " + rankUnique + "\n")
 
 	   .append("   piece: " + piece + "\n");
 	 if (piece != null)
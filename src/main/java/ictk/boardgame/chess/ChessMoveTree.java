@@ -0,0 +1,317 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess;
+
+import ictk.boardgame.ContinuationList;
+import ictk.boardgame.Move;
+import ictk.boardgame.MoveException;
+
+import java.util.Arrays;
+
+/* ChessMoveTree ************************************************************/
+/** a compact tree of chess moves for holding a great many games at once,
+ *  such as for an opening explorer.  A History keeps a ChessMove and a
+ *  ContinuationList for every move; here each move is a node in five 
+ *  parallel int arrays (parent, first child, next sibling, packed move
+ *  and count) for 20 bytes a move.  Moves are only made into ChessMove
+ *  objects when a position or game is asked for.
+ *  <p>
+ *  Games are merged as they are added: a move already in the tree after
+ *  the same moves is not added again, its count goes up instead.  So the
+ *  count of a node is the number of games added that reached it.  The
+ *  first child of a node is its main line and the siblings after it are
+ *  the variations, in the order they were first added.
+ *  <p>
+ *  Moves are packed as PackedMove ints.  All games start from the default
+ *  position.  Nodes are referred to by their int id; the tree is never 
+ *  shrunk, so ids stay valid.
+ *  <p>
+ *  For example:
+ *  <pre>
+ *  ChessMoveTree tree = new ChessMoveTree();
+ *  while ((game = (ChessGame) reader.readGame()) != null)
+ *     tree.addGame(game);
+ *  for (int n = tree.getFirstChild(ChessMoveTree.ROOT); 
+ *       n != ChessMoveTree.NONE; n = tree.getNextSibling(n))
+ *     System.out.println(tree.getCount(n));
+ *  </pre>
+ */
+public class ChessMoveTree {
+      /** the node of the starting position */
+   public static final int ROOT = 0,
+      /** returned when there is no such node */
+                           NONE = -1;
+      /** the number of nodes a new tree has room for */
+   protected static final int DEFAULT_CAPACITY = 1024;
+
+      /** the node before each node (NONE for the ROOT) */
+   protected int[] parent,
+      /** the main line after each node */
+                   firstChild,
+      /** the next variation after each node's parent */
+                   nextSibling,
+      /** the move that leads to each node, packed */
+                   moves,
+      /** how many games reached each node */
+                   counts;
+      /** how many nodes there are */
+   protected int size;
+
+   //Constructors//////////////////////////////////////////////////////////
+   public ChessMoveTree () {
+      this(DEFAULT_CAPACITY);
+   }
+
+   /** @param capacity how many nodes to make room for at first.
+    */
+   public ChessMoveTree (int capacity) {
+      if (capacity < 1)
+         throw new IllegalArgumentException(
+	    "capacity must be positive: " + capacity);
+      parent      = new int[capacity];
+      firstChild  = new int[capacity];
+      nextSibling = new int[capacity];
+      moves       = new int[capacity];
+      counts      = new int[capacity];
+
+      parent[ROOT] = firstChild[ROOT] = nextSibling[ROOT] = NONE;
+      size = 1;
+   }
+
+   //Accessors/////////////////////////////////////////////////////////////
+   /** the number of nodes, counting the ROOT */
+   public int size () { return size; }
+
+   public int getParent      (int node) { return parent[check(node)]; }
+   public int getFirstChild  (int node) { return firstChild[check(node)]; }
+   public int getNextSibling (int node) { return nextSibling[check(node)]; }
+
+   /* getMove ************************************************************/
+   /** @return the packed move that leads to the node (0 for the ROOT).
+    */
+   public int getMove (int node) { return moves[check(node)]; }
+
+   /* getCount ***********************************************************/
+   /** @return how many games added reached the node.
+    */
+   public int getCount (int node) { return counts[check(node)]; }
+
+   /* getChild ***********************************************************/
+   /** moves are matched on their PackedMove.MOVE_MASK bits, so a move 
+    *  from BitBoard.generateLegalMoves() can be looked up as it is.
+    *
+    *  @return the node reached by playing the packed move after this one
+    *          or NONE if the move isn't in the tree.
+    */
+   public int getChild (int node, int move) {
+      int child = firstChild[check(node)];
+
+         move &= PackedMove.MOVE_MASK;
+         while (child != NONE 
+	        && (moves[child] & PackedMove.MOVE_MASK) != move)
+	    child = nextSibling[child];
+      return child;
+   }
+
+   /* getChildCount ******************************************************/
+   /** the number of continuations (main line plus variations) after the
+    *  node.
+    */
+   public int getChildCount (int node) {
+      int count = 0;
+
+         for (int child = firstChild[check(node)]; child != NONE; 
+	      child = nextSibling[child])
+	    count++;
+      return count;
+   }
+
+   /* getDepth ***********************************************************/
+   /** the number of moves from the ROOT to the node.
+    */
+   public int getDepth (int node) {
+      int depth = 0;
+
+         for (node = parent[check(node)]; node != NONE; node = parent[node])
+	    depth++;
+      return depth;
+   }
+
+   /* getLine ************************************************************/
+   /** the packed moves that lead from the ROOT to the node.
+    */
+   public int[] getLine (int node) {
+      int[] line = new int[getDepth(node)];
+
+         for (int i = line.length - 1; i >= 0; i--, node = parent[node])
+	    line[i] = moves[node];
+      return line;
+   }
+
+   /* getBoard ***********************************************************/
+   /** a new board with the moves leading to the node played on it.
+    */
+   public ChessBoard getBoard (int node) {
+      ChessBoard board = new ChessBoard();
+      int[] line = getLine(node);
+
+	 for (int i=0; i < line.length; i++)
+	    try {
+	       board.playMove(PackedMove.toMove(board, line[i]));
+	    }
+	    catch (MoveException e) {
+	       throw new IllegalStateException(
+		  "tree holds an illegal move at ply " + (i + 1)
+		  + ": " + e.getMessage());
+	    }
+      return board;
+   }
+
+   /* getGame ************************************************************/
+   /** a new game whose main line is the moves leading to the node.
+    */
+   public ChessGame getGame (int node) {
+      ChessGame game = new ChessGame();
+      int[] line = getLine(node);
+
+	 try {
+	    PackedMove.addMoves(game, line);
+	 }
+	 catch (MoveException e) {
+	    throw new IllegalStateException(
+	       "tree holds an illegal move: " + e.getMessage());
+	 }
+      return game;
+   }
+
+   //Mutators//////////////////////////////////////////////////////////////
+   /* add ****************************************************************/
+   /** adds one to the count of the node reached by playing the packed
+    *  move after this one, adding the node if need be.  Moves are matched
+    *  as in getChild(); a new node keeps the move as given.  The move is
+    *  not checked for legality.
+    *
+    *  @return the node for the move.
+    */
+   public int add (int node, int move) {
+      int child = firstChild[check(node)],
+          last  = NONE;
+
+         while (child != NONE && (moves[child] & PackedMove.MOVE_MASK) 
+	                         != (move & PackedMove.MOVE_MASK)) {
+	    last = child;
+	    child = nextSibling[child];
+	 }
+
+	 if (child == NONE) {
+	    if (size == moves.length)
+	       grow();
+	    child = size++;
+	    parent[child] = node;
+	    firstChild[child] = nextSibling[child] = NONE;
+	    moves[child] = move;
+	    counts[child] = 0;
+	    if (last == NONE)
+	       firstChild[node] = child;
+	    else
+	       nextSibling[last] = child;
+	 }
+	 counts[child]++;
+
+      return child;
+   }
+
+   /* addGame ************************************************************/
+   /** adds the game's moves, variations included.  The game must start
+    *  from the default position.  Its History is not moved.
+    *
+    *  @return the node at the end of the game's main line.
+    */
+   public int addGame (ChessGame game) {
+      counts[ROOT]++;
+      return addContinuations(ROOT, game.getHistory().getFirstAll());
+   }
+
+   /* addContinuations ***************************************************/
+   /** adds every move in the list, and the lists after them, under the 
+    *  node.  The main line is followed in a loop so long games don't run
+    *  deep on the stack.
+    *
+    *  @return the node at the end of the main line.
+    */
+   protected int addContinuations (int node, ContinuationList cont) {
+      Move main = null;
+      int next = NONE;
+
+         while (cont.size() > 0) {
+	    main = cont.getMainLine();
+	    for (int i=0; i < cont.size(); i++) {
+	       Move m = cont.get(i);
+	       if (m == null)
+		  continue;
+
+	       int child = add(node, PackedMove.pack((ChessMove) m));
+	       if (i == 0)
+		  next = child;
+	       else
+		  addContinuations(child, m.getContinuationList());
+	    }
+	    if (main == null)
+	       break;
+	    node = next;
+	    cont = main.getContinuationList();
+	 }
+      return node;
+   }
+
+   /* trimToSize *********************************************************/
+   /** drops the room held for nodes not yet added.
+    */
+   public void trimToSize () {
+      resize(size);
+   }
+
+   //Internals/////////////////////////////////////////////////////////////
+   private int check (int node) {
+      if (node < 0 || node >= size)
+         throw new IndexOutOfBoundsException("no such node: " + node);
+      return node;
+   }
+
+   private void grow () {
+      if (size == Integer.MAX_VALUE)
+         throw new IllegalStateException("tree is full");
+      resize((int) Math.min(Integer.MAX_VALUE, (long) size * 2));
+   }
+
+   private void resize (int capacity) {
+      parent      = Arrays.copyOf(parent, capacity);
+      firstChild  = Arrays.copyOf(firstChild, capacity);
+      nextSibling = Arrays.copyOf(nextSibling, capacity);
+      moves       = Arrays.copyOf(moves, capacity);
+      counts      = Arrays.copyOf(counts, capacity);
+   }
+}
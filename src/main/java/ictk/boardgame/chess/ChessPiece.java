@@ -58,6 +58,11 @@ public abstract class ChessPiece extends Piece {
    protected ChessBoard board;
       /** a piece that is pinning this piece */
    protected ChessPiece     pinnedBy;      
+      /** legalDests and guardSquares as BitBoard masks when the board
+       *  last filled them in, or NO_MASK if they were changed since */
+   long destMask  = NO_MASK,
+        guardMask = NO_MASK;
+   static final long NO_MASK = -1L;
 
 
    //Contructors/////////////////////////////////////////////////////////
@@ -117,6 +122,7 @@ public abstract class ChessPiece extends Piece {
    public void setCaptured (boolean t) {
       legalDests.clear();
       guardSquares.clear();
+      destMask = guardMask = NO_MASK;
       captured = t;
    }
 
@@ -151,6 +157,7 @@ public abstract class ChessPiece extends Piece {
          pinnedBy = null;
          legalDests.clear();
          guardSquares.clear();
+         destMask = guardMask = NO_MASK;
       return 0;
    }
 
@@ -169,6 +176,7 @@ public abstract class ChessPiece extends Piece {
       
          //FIXME: do we really want to create a new array here?
          legalDests = new ArrayList<>(3);
+         destMask = NO_MASK;
 	  
 	 while (oldLegals.hasNext()) {
 	    sq = oldLegals.next();
@@ -226,6 +234,7 @@ public abstract class ChessPiece extends Piece {
       pinnedBy = pinner;
       assert !pinner.isCaptured() : "Captured Pinner: " + pinner.dump();
       legalDests.retainAll(lineOfSight);
+      destMask = NO_MASK;
    }
  
    /* isLegalDests *******************************************************/
@@ -238,6 +247,9 @@ public abstract class ChessPiece extends Piece {
     */
    public boolean isLegalDest (Square dest) {
       if (!captured) {
+         //the side to move can be answered without filling in the lists
+         if (isBlack == board.isBlackMove && board.staleLegalDests)
+            return board.isLegalDest(this, dest);
          if (board.staleLegalDests)
 	    board.genLegalDests();
 	 return legalDests.contains(dest);
@@ -271,6 +283,9 @@ public abstract class ChessPiece extends Piece {
    public void removeLegalDests () {
       legalDests.clear();
       guardSquares.clear();
+      destMask = guardMask = NO_MASK;
+      if (board != null && !captured && orig != null && orig.piece == this) 
+         board.removeLegalDests(this);
    }
 
    /* getGuardSquares **************************************************/
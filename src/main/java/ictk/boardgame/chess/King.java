@@ -75,7 +75,8 @@ public class King extends ChessPiece {
    
    /* genLegalDestsFinal **************************************************/
    /** this is used to restrict the moves of the King depending on 
-    *  the attack lines of opposing piece on the board.
+    *  the attack lines of opposing piece on the board.  The King to
+    *  move gets its moves from the board's BitBoard instead.
     */
    protected int genLegalDestsFinal () {
       Square dest;
@@ -86,12 +87,13 @@ public class King extends ChessPiece {
       perlimMoves = tmpLegalDests.iterator();
 
       legalDests = new ArrayList<>(8);
+      destMask = NO_MASK;
 
       // make sure the King doesn't move into a kill
       while (perlimMoves.hasNext()) {
          dest = perlimMoves.next();
 
-         if (!board.isThreatened(dest, !isBlack) && !board.isGuarded(dest, !isBlack))
+         if (!board.isAttacked(dest, !isBlack))
             addLegalDest(dest);
       }
 
@@ -116,11 +118,10 @@ public class King extends ChessPiece {
     * @param castleQueenside true if this is queen-side castling, false otherwise.
     */
    private boolean isCastlingAllowed(boolean castleQueenside) {
-      if (moveCount != 0) {
+      if (moveCount != 0 || board.isAttacked(orig, !isBlack)) {
          return false;
       }
-      
-      
+
       Rook rook = findMyRook(castleQueenside);
       if (rook == null || rook.moveCount > 0) {
          return false;
@@ -157,7 +158,7 @@ public class King extends ChessPiece {
 
             // is king walking in an assassin's sights
             if (!castlingNotAllowed)
-               castlingNotAllowed = board.isThreatened(board.getSquare(f, orig.rank), !isBlack);
+               castlingNotAllowed = board.isAttacked(board.getSquare(f, orig.rank), !isBlack);
          }
          // Verify that the king destination is also empty and non-threatened.
          if (!castlingNotAllowed) {
@@ -165,7 +166,7 @@ public class King extends ChessPiece {
 
             // is king walking in an assassin's sights
             if (!castlingNotAllowed)
-               castlingNotAllowed = board.isThreatened(board.getSquare(kingDest.file, orig.rank), !isBlack);
+               castlingNotAllowed = board.isAttacked(board.getSquare(kingDest.file, orig.rank), !isBlack);
          }
       }
       return !castlingNotAllowed;
@@ -244,6 +245,8 @@ public class King extends ChessPiece {
     */
    public void setCastleableQueenside (boolean t) {
       ChessPiece rook = findMyRook(true);
+      if (board != null)
+         board.staleLegalDests = board.staleMoves = true;
       if (rook == null && t == true) 
          throw new IllegalStateException(
 	 "can't set castleable when there's no rook on that side of the board.");
@@ -253,6 +256,8 @@ public class King extends ChessPiece {
       }
       else if (rook != null && rook.moveCount == 0) 
          rook.moveCount = 1;
+      if (board != null)
+         board.syncCastleRooks();
    }
 
    /* setCastlableKingside ****************************************************/
@@ -263,6 +268,8 @@ public class King extends ChessPiece {
     */
    public void setCastleableKingside (boolean t) {
       ChessPiece rook = findMyRook(false);
+      if (board != null)
+         board.staleLegalDests = board.staleMoves = true;
       if (rook == null && t == true) 
          throw new IllegalStateException(
 	 "can't set castleable when there's no rook on that side of the board.");
@@ -272,6 +279,8 @@ public class King extends ChessPiece {
       }
       else if (rook != null && rook.moveCount == 0) 
          rook.moveCount = 1;
+      if (board != null)
+         board.syncCastleRooks();
    }
 
    /* findMyRook *************************************************************/
@@ -0,0 +1,306 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess;
+
+import ictk.boardgame.AmbiguousMoveException;
+import ictk.boardgame.History;
+import ictk.boardgame.IllegalMoveException;
+import ictk.boardgame.Move;
+
+/* PackedMove ***************************************************************/
+/** packs a chess move into a single int, for keeping and scanning a great
+ *  many moves without a ChessMove object for each.  A ChessMove in a 
+ *  History costs well over a hundred bytes with its ContinuationList;
+ *  a packed move is 4.  A ChessMove is made again with toMove() when the
+ *  move needs to be played.
+ *  <p>
+ *  The low bits are the same as the moves from 
+ *  BitBoard.generateLegalMoves() (see MOVE_MASK):
+ *  <pre>
+ *     bits  0-5   origin square (BitBoard.square())
+ *     bits  6-11  destination square (the King's for castles)
+ *     bits 12-14  INDEX of the promotion piece, 0 if none
+ *     bit  15     Queen-side castle
+ *     bit  16     King-side castle
+ *     bit  17     enpassant capture
+ *     bits 18-20  INDEX of the piece moving
+ *     bits 21-23  INDEX of the piece captured
+ *     bit  24     the move is a capture
+ *     bit  25     the move is check
+ *     bit  26     the move is checkmate
+ *     bit  27     Black is moving
+ *  </pre>
+ *  Check and checkmate are only known once the move has been played.
+ */
+public final class PackedMove {
+      /** the bits made by BitBoard.generateLegalMoves() */
+   public static final int MOVE_MASK     = (1 << 18) - 1,
+      /** where the INDEX of the piece moving is stored */
+                           PIECE_SHIFT   = 18,
+      /** where the INDEX of the piece captured is stored */
+                           CAPTURE_SHIFT = 21,
+      /** the move is a capture */
+                           CAPTURE       = 1 << 24,
+      /** the move is check */
+                           CHECK         = 1 << 25,
+      /** the move is checkmate */
+                           CHECKMATE     = 1 << 26,
+      /** Black is moving */
+                           BLACK         = 1 << 27;
+
+      /** piece letters by INDEX for coordinate notation */
+   private static final String PIECES = "kqrbnp";
+
+   private PackedMove () {
+   }
+
+   //Packing///////////////////////////////////////////////////////////////
+   /* pack ***************************************************************/
+   /** packs the move.  If the move has not been played yet it is taken
+    *  to be on its board's current position, which is used to find the 
+    *  piece moving and the piece captured.
+    *
+    *  @throws IllegalArgumentException if there is no piece to move.
+    */
+   public static int pack (ChessMove m) {
+      ChessPiece piece    = m.piece,
+                 casualty = m.casualty;
+      Square     orig     = m.orig,
+                 dest     = m.dest;
+      boolean    played   = piece != null,
+                 castle   = m.castleKingside || m.castleQueenside;
+      int        move     = 0;
+
+         if (!played && castle) {
+	    King king = (King) m.board.findKingSquare(m.board.isBlackMove)
+	       .piece;
+	    orig = king.orig;
+	    dest = king.findCastlingDestination(m.castleQueenside);
+	 }
+
+	 if (!played) {
+	    piece = orig.piece;
+	    if (piece == null)
+	       throw new IllegalArgumentException("No piece to move on " 
+	          + orig);
+	    if (!castle) {
+	       casualty = dest.piece;
+	       if (casualty == null && piece.isPawn() 
+	           && orig.file != dest.file)
+		  casualty = m.board.getSquare(dest.file, orig.rank).piece;
+	    }
+	 }
+
+	 move = BitBoard.square(orig) 
+	    | (BitBoard.square(dest) << 6) 
+	    | (piece.index << PIECE_SHIFT);
+
+	 if (piece.isBlack)
+	    move |= BLACK;
+
+	 if (m.castleKingside)
+	    move |= BitBoard.MOVE_CASTLE_KINGSIDE;
+	 else if (m.castleQueenside)
+	    move |= BitBoard.MOVE_CASTLE_QUEENSIDE;
+	 else if (casualty != null) {
+	    move |= CAPTURE | (casualty.index << CAPTURE_SHIFT);
+	    //the casualty may have moved since, so for a played move an
+	    //enpassant capture is found by the file that allowed it
+	    if (piece.isPawn() && orig.file != dest.file
+	        && ((played) ? m.prevEnPassantFile == dest.file 
+		                && dest.rank == ((piece.isBlack) ? 3 : 6)
+		             : dest.piece == null))
+	       move |= BitBoard.MOVE_ENPASSANT;
+	 }
+
+	 if (m.promotion != null)
+	    move |= m.promotion.index << BitBoard.MOVE_PROMOTION_SHIFT;
+	 else if (!played && piece.isPawn() 
+	          && Pawn.isPromotionSquare(dest, piece.isBlack))
+	    move |= Queen.INDEX << BitBoard.MOVE_PROMOTION_SHIFT;
+
+	 if (m.checkmate)
+	    move |= CHECK | CHECKMATE;
+	 else if (m.check)
+	    move |= CHECK;
+
+      return move;
+   }
+
+   /* pack ***************************************************************/
+   /** fills in the piece moving, the piece captured and the side moving
+    *  for a move from BitBoard.generateLegalMoves() on this board.
+    */
+   public static int pack (ChessBoard board, int move) {
+      int from = BitBoard.getOrigin(move),
+          to   = BitBoard.getDestination(move);
+      ChessPiece piece = board.toSquare(from).piece,
+                 casualty = null;
+
+         move &= MOVE_MASK;
+	 if (piece == null)
+	    throw new IllegalArgumentException("No piece to move on " 
+	       + board.toSquare(from));
+
+	 move |= piece.index << PIECE_SHIFT;
+	 if (piece.isBlack)
+	    move |= BLACK;
+
+	 if ((move & BitBoard.MOVE_ENPASSANT) != 0)
+	    casualty = board.toSquare((from & ~7) | (to & 7)).piece;
+	 else if ((move & (BitBoard.MOVE_CASTLE_KINGSIDE 
+	                   | BitBoard.MOVE_CASTLE_QUEENSIDE)) == 0)
+	    casualty = board.toSquare(to).piece;
+
+	 if (casualty != null)
+	    move |= CAPTURE | (casualty.index << CAPTURE_SHIFT);
+
+      return move;
+   }
+
+   /* toMove *************************************************************/
+   /** a ChessMove for the packed move on this board.
+    *
+    *  @throws IllegalMoveException if the move isn't legal on the board.
+    */
+   public static ChessMove toMove (ChessBoard board, int move) 
+          throws IllegalMoveException {
+      int from = getOrigin(move),
+          to   = getDestination(move);
+
+         if (isCastleKingside(move))
+	    return new ChessMove(board, ChessMove.CASTLE_KINGSIDE);
+	 if (isCastleQueenside(move))
+	    return new ChessMove(board, ChessMove.CASTLE_QUEENSIDE);
+      return new ChessMove(board, 
+         BitBoard.fileOf(from), BitBoard.rankOf(from),
+         BitBoard.fileOf(to), BitBoard.rankOf(to),
+	 (getPromotion(move) == 0) 
+	    ? ChessPiece.NULL_PIECE : getPromotion(move));
+   }
+
+   //Lines/////////////////////////////////////////////////////////////////
+   /* packMainLine *******************************************************/
+   /** packs the main line of the History from its first move.
+    */
+   public static int[] packMainLine (History history) {
+      int count = 0;
+
+         for (Move m = history.getFirst(); m != null; m = m.getNext())
+	    count++;
+
+      int[] line = new int[count];
+
+         count = 0;
+         for (Move m = history.getFirst(); m != null; m = m.getNext())
+	    line[count++] = pack((ChessMove) m);
+      return line;
+   }
+
+   /* addMoves ***********************************************************/
+   /** adds the packed moves to the game's History after its current 
+    *  move, playing them as they are added.
+    */
+   public static void addMoves (ChessGame game, int[] moves)
+          throws IllegalMoveException,
+		 AmbiguousMoveException {
+      History history = game.getHistory();
+      ChessBoard board = (ChessBoard) game.getBoard();
+
+         for (int i=0; i < moves.length; i++)
+	    history.add(toMove(board, moves[i]));
+   }
+
+   //Accessors/////////////////////////////////////////////////////////////
+   public static int getOrigin (int move) { 
+      return BitBoard.getOrigin(move); 
+   }
+
+   public static int getDestination (int move) { 
+      return BitBoard.getDestination(move); 
+   }
+
+   /** @return the INDEX of the promotion piece or 0 if none */
+   public static int getPromotion (int move) { 
+      return BitBoard.getPromotion(move); 
+   }
+
+   /** @return the INDEX of the piece moving */
+   public static int getPiece (int move) { 
+      return (move >>> PIECE_SHIFT) & 7; 
+   }
+
+   /** @return the INDEX of the piece captured or ChessPiece.NULL_PIECE */
+   public static int getCapture (int move) {
+      return ((move & CAPTURE) == 0) 
+         ? ChessPiece.NULL_PIECE : (move >>> CAPTURE_SHIFT) & 7;
+   }
+
+   public static boolean isCapture (int move) { 
+      return (move & CAPTURE) != 0; 
+   }
+
+   public static boolean isEnPassant (int move) { 
+      return (move & BitBoard.MOVE_ENPASSANT) != 0; 
+   }
+
+   public static boolean isCastleKingside (int move) { 
+      return (move & BitBoard.MOVE_CASTLE_KINGSIDE) != 0; 
+   }
+
+   public static boolean isCastleQueenside (int move) { 
+      return (move & BitBoard.MOVE_CASTLE_QUEENSIDE) != 0; 
+   }
+
+   public static boolean isCheck (int move) { 
+      return (move & CHECK) != 0; 
+   }
+
+   public static boolean isCheckmate (int move) { 
+      return (move & CHECKMATE) != 0; 
+   }
+
+   public static boolean isBlackMove (int move) { 
+      return (move & BLACK) != 0; 
+   }
+
+   /* toString ***********************************************************/
+   /** the move in coordinate notation, such as e2e4, e1g1 or e7e8q.
+    */
+   public static String toString (int move) {
+      int from = getOrigin(move),
+          to   = getDestination(move);
+      StringBuilder sb = new StringBuilder(5);
+
+         sb.append((char) ('a' + (from & 7)))
+	   .append((char) ('1' + (from >>> 3)))
+	   .append((char) ('a' + (to & 7)))
+	   .append((char) ('1' + (to >>> 3)));
+	 if (getPromotion(move) != 0)
+	    sb.append(PIECES.charAt(getPromotion(move)));
+      return sb.toString();
+   }
+}
@@ -0,0 +1,296 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess;
+
+import ictk.boardgame.IllegalMoveException;
+import ictk.boardgame.Move;
+import ictk.boardgame.chess.io.FEN;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Perft ******************************************************************/
+/** counts the leaf nodes of the legal move tree to a given depth.  The
+ *  counts for well known positions are published, so this is the
+ *  standard check of a move generator; and since it does little else
+ *  than generate, execute and unexecute moves, it is also the standard
+ *  measure of its speed.
+ *  <br>
+ *  The moves come from ChessBoard.getLegalMoves(int[]), into a buffer
+ *  kept for each depth, and are played with ChessMove.execute() and
+ *  unexecute(), so the board is left as it was found.
+ *  Promotions are counted once per piece promoted to.  Castling is 
+ *  recognized by the King moving two files, so Chess960 positions are 
+ *  not supported.
+ *  <br>
+ *  From the command line:
+ *  <pre>
+ *    java ictk.boardgame.chess.Perft [-divide] depth [FEN]
+ *  </pre>
+ */
+public class Perft {
+      /** the board being counted */
+   protected ChessBoard board;
+      /** nodes counted by the last call to perft() or divide() */
+   protected long nodes;
+      /** time spent by the last call to perft() or divide() */
+   protected long nanos;
+      /** the legal moves of each depth being counted */
+   protected int[][] buffers = new int[0][];
+
+   public Perft (ChessBoard b) {
+      if (b == null)
+         throw new IllegalArgumentException("board cannot be null");
+      board = b;
+   }
+
+   /* perft ***************************************************************/
+   /** @return the number of leaf nodes depth plies down from the
+    *          current position.
+    */
+   public long perft (int depth) {
+      long start = System.nanoTime();
+         if (depth < 0)
+            throw new IllegalArgumentException("depth cannot be negative");
+         nodes = count(depth);
+         nanos = System.nanoTime() - start;
+      return nodes;
+   }
+
+   /* divide **************************************************************/
+   /** like perft() but broken down by the first move.  The keys are
+    *  the moves in coordinate notation (e.g. "e2e4", "e7e8q", "e1g1").
+    *  Comparing this against the output of another engine is the
+    *  quickest way to find which move is miscounted.
+    */
+   public Map<String, Long> divide (int depth) {
+      Map<String, Long> map = new LinkedHashMap<>();
+      long start = System.nanoTime();
+      List<ChessMove> moves = null;
+      ChessMove move = null;
+      long n = 0;
+
+         if (depth < 1)
+            throw new IllegalArgumentException("depth must be at least 1");
+
+         nodes = 0;
+         moves = getMoves();
+         for (int i=0; i < moves.size(); i++) {
+            move = moves.get(i);
+            execute(move);
+            n = count(depth - 1);
+            move.unexecute();
+            map.put(toCoordinate(move), n);
+            nodes += n;
+         }
+         nanos = System.nanoTime() - start;
+      return map;
+   }
+
+   /* getNodes ************************************************************/
+   /** the node count of the last call to perft() or divide().
+    */
+   public long getNodes () {
+      return nodes;
+   }
+
+   /* getNanos ************************************************************/
+   /** the time taken by the last call to perft() or divide().
+    */
+   public long getNanos () {
+      return nanos;
+   }
+
+   /* getNodesPerSecond ***************************************************/
+   /** the speed of the last call to perft() or divide().
+    */
+   public long getNodesPerSecond () {
+      return (nanos == 0) ? 0 : (long) (nodes * 1000000000.0 / nanos);
+   }
+
+   /* count ***************************************************************/
+   protected long count (int depth) {
+      int[] moves = null;
+      int count = 0;
+      ChessMove move = null;
+      long n = 0;
+
+         if (depth == 0)
+            return 1;
+
+         moves = getBuffer(depth);
+         count = board.getLegalMoves(moves);
+         if (depth == 1)
+            return count;
+
+         for (int i=0; i < count; i++) {
+            move = toMove(moves[i]);
+            execute(move);
+            n += count(depth - 1);
+            move.unexecute();
+         }
+      return n;
+   }
+
+   /* getBuffer ***********************************************************/
+   /** the move buffer for a depth.  Each depth keeps its own so the moves
+    *  of the plies above aren't overwritten while they're being walked.
+    */
+   protected int[] getBuffer (int depth) {
+      if (buffers.length <= depth) {
+         int[][] tmp = new int[depth + 1][];
+         System.arraycopy(buffers, 0, tmp, 0, buffers.length);
+         buffers = tmp;
+      }
+      if (buffers[depth] == null)
+         buffers[depth] = new int[BitBoard.MAX_MOVES];
+      return buffers[depth];
+   }
+
+   /* getMoves ************************************************************/
+   /** the legal moves of the board with each promotion expanded into
+    *  its four pieces and King moves of two files turned into castles.
+    */
+   protected List<ChessMove> getMoves () {
+      List<Move> legal = board.getLegalMoves();
+      List<ChessMove> moves = new ArrayList<>(legal.size() + 8);
+      ChessMove move = null;
+      Square orig = null,
+             dest = null;
+
+         for (int i=0; i < legal.size(); i++) {
+            move = (ChessMove) legal.get(i);
+            orig = move.orig;
+            dest = move.dest;
+
+            if (orig.piece.isPawn() 
+                && Pawn.isPromotionSquare(dest, orig.piece.isBlack)) {
+               moves.add(new ChessMove(orig, dest, new Queen(), board));
+               moves.add(new ChessMove(orig, dest, new Rook(), board));
+               moves.add(new ChessMove(orig, dest, new Bishop(), board));
+               moves.add(new ChessMove(orig, dest, new Knight(), board));
+            }
+            else if (orig.piece.isKing() 
+                     && Math.abs(dest.file - orig.file) == 2) {
+               try {
+                  moves.add(new ChessMove(board, (dest.file > orig.file)
+                     ? ChessMove.CASTLE_KINGSIDE 
+                     : ChessMove.CASTLE_QUEENSIDE));
+               }
+               catch (IllegalMoveException e) {
+                  throw new IllegalStateException(
+                     "generated an illegal castle: " + move, e);
+               }
+            }
+            else 
+               moves.add(move);
+         }
+      return moves;
+   }
+
+   /* toMove **************************************************************/
+   private ChessMove toMove (int move) {
+      try {
+         return PackedMove.toMove(board, move);
+      }
+      catch (IllegalMoveException e) {
+         throw new IllegalStateException(
+            "generated an illegal move: " + PackedMove.toString(move), e);
+      }
+   }
+
+   /* execute *************************************************************/
+   private void execute (ChessMove move) {
+      try {
+         move.execute();
+      }
+      catch (IllegalMoveException e) {
+         throw new IllegalStateException(
+            "generated an illegal move: " + move, e);
+      }
+   }
+
+   /* toCoordinate ********************************************************/
+   /** the move as origin and destination squares, plus the promotion
+    *  piece if any.  Castling gives the King's squares.
+    */
+   public static String toCoordinate (ChessMove move) {
+      StringBuilder sb = new StringBuilder(5);
+      Square dest = move.dest;
+
+         if (move.isCastleKingside() || move.isCastleQueenside())
+            dest = (move.isCastleKingside())
+               ? ((King) move.piece).getKingsideCastleSquare()
+               : ((King) move.piece).getQueensideCastleSquare();
+
+         sb.append(move.orig).append(dest);
+         if (move.promotion != null)
+            sb.append(Character.toLowerCase(
+               ChessBoard.san.pieceToChar(move.promotion.getIndex())));
+      return sb.toString();
+   }
+
+   //Command Line/////////////////////////////////////////////////////////
+   /** prints the perft (or divide) of a position and the nodes per 
+    *  second it ran at.
+    */
+   public static void main (String[] args) throws Exception {
+      boolean divide = false;
+      int arg = 0,
+          depth = 0;
+      ChessBoard board = null;
+      Perft perft = null;
+
+         if (args.length > 0 && args[0].equals("-divide")) {
+            divide = true;
+            arg++;
+         }
+         if (args.length <= arg) {
+            System.err.println(
+               "usage: java ictk.boardgame.chess.Perft [-divide] depth [FEN]");
+            System.exit(1);
+         }
+         depth = Integer.parseInt(args[arg++]);
+         board = (args.length > arg)
+            ? (ChessBoard) new FEN().stringToBoard(args[arg])
+            : new ChessBoard();
+         perft = new Perft(board);
+
+         if (divide) {
+            for (Map.Entry<String, Long> e : perft.divide(depth).entrySet())
+               System.out.println(e.getKey() + ": " + e.getValue());
+            System.out.println();
+         }
+         else
+            perft.perft(depth);
+
+         System.out.println("nodes: " + perft.getNodes()
+            + "  time: " + (perft.getNanos() / 1000000) + "ms"
+            + "  nps: " + perft.getNodesPerSecond());
+   }
+}
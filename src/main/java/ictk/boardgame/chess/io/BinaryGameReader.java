@@ -0,0 +1,418 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+import ictk.util.Log;
+import ictk.boardgame.Game;
+import ictk.boardgame.GameInfo;
+import ictk.boardgame.History;
+import ictk.boardgame.Board;
+import ictk.boardgame.Move;
+import ictk.boardgame.IllegalMoveException;
+import ictk.boardgame.AmbiguousMoveException;
+import ictk.boardgame.io.GameVisitor;
+import ictk.boardgame.io.InvalidGameFormatException;
+import ictk.boardgame.chess.*;
+
+import static ictk.boardgame.chess.io.BinaryGameWriter.*;
+
+/* BinaryGameReader **********************************************************/
+/** BinaryGameReader reads games written by BinaryGameWriter.  See 
+ *  BinaryGameWriter for the format.
+ *  <br>
+ *  Moves are stored by their squares so no notation has to be parsed,
+ *  and with setTrusted(true) they are replayed without the legality
+ *  checks, as with PGNReader.setTrusted().  Tags are set on the
+ *  GameInfo just as PGNReader sets them.
+ */
+public class BinaryGameReader extends ChessReader {
+      /** mask for Log.debug() */
+   public static final long DEBUG = Log.GameReader;
+
+   protected static FEN fen = new FEN();
+
+      /** used for the Result tag */
+   protected ChessMoveNotation notation = new SAN();
+
+   protected ChessGame game;
+   protected ChessGameInfo gameInfo;
+   protected ChessBoard board;
+
+   protected boolean trusted = false;
+
+      /** strings read so far, by dictionary index */
+   protected List<String> dictionary = new ArrayList<>(1024);
+
+   private boolean headerRead = false;
+
+   //constructors//////////////////////////////////////////////////////////////
+   public BinaryGameReader (InputStream _in) {
+      super(new InputStreamReader(_in, StandardCharsets.ISO_8859_1));
+   }
+
+   /* readGame ***************************************************************/
+   /** @return null at the end of the input
+    */
+   public Game readGame () 
+          throws InvalidGameFormatException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+                 IOException {
+
+         gameInfo = (ChessGameInfo) readGameInfo();
+	 if (gameInfo == null)
+	    return null;
+
+	 board = (ChessBoard) readBoard();
+	 if (board == null) 
+	    board = new ChessBoard();
+	 game = new ChessGame(gameInfo, board); 
+
+	 if (trusted) {
+	    board.setTrustedMoves(true);
+	    try {
+	       readHistory();
+	    }
+	    finally {
+	       board.setTrustedMoves(false);
+	    }
+	 }
+	 else
+	    readHistory();
+
+	 return game;
+   }
+
+   /* readGames *************************************************************/
+   /** reads games to the end of the input, handing each to the visitor.
+    *  @return the number of games read
+    */
+   public int readGames (GameVisitor<ChessGame> visitor)
+          throws InvalidGameFormatException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+                 IOException {
+      ChessGame g = null;
+      int count = 0;
+
+         while ((g = (ChessGame) readGame()) != null) {
+	    count++;
+	    if (!visitor.visitGame(g))
+	       break;
+	 }
+      return count;
+   }
+
+   /* getGame ***************************************************************/
+   /** gets the last game read.  This can be used if an exception was
+    *  thrown during the reading, and you still want the game.
+    */
+   public Game getGame () {
+      return game;
+   }
+
+   /* setTrusted ********************************************************/
+   /** if true the moves are taken to be legal and are played without
+    *  being checked.  Only use this on input known to be good, such as
+    *  games this package wrote itself; an illegal move leaves the board
+    *  in an undefined state.
+    */
+   public void setTrusted (boolean t) {
+      trusted = t;
+   }
+
+   /* isTrusted *********************************************************/
+   public boolean isTrusted () {
+      return trusted;
+   }
+
+   /* readGameInfo **********************************************************/
+   /** reads the tags of the next game.  
+    *  @return null at the end of the input
+    */
+   public GameInfo readGameInfo () 
+          throws IOException {
+      ChessGameInfo gi = null;
+      String key = null;
+      int count = 0;
+
+         if (!readHeader() || (count = read()) == -1) 
+	    return null;
+
+         gi = new ChessGameInfo();
+	 count = readNumber(count);
+	 for (int i=0; i < count; i++) {
+	    key = readDictionaryString();
+	    PGNReader.setTag(gi, key, readDictionaryString(), notation);
+	 }
+
+      return gi;
+   }
+
+   /* readBoard *************************************************************/
+   /** reads the position the game starts from.
+    *  @return null if the game starts from the normal position.
+    */
+   public Board readBoard () 
+          throws IOException {
+      String fenStr = readDictionaryString();
+
+      if (fenStr.length() == 0) return null;
+      else return fen.stringToBoard(fenStr);
+   }
+
+   /* readHistory ***********************************************************/
+   /** reads the movetext, up to and including its end word.
+    */
+   public History readHistory () 
+           throws InvalidGameFormatException,
+                  IllegalMoveException,
+		  AmbiguousMoveException,
+	          IOException {
+      History     history  = game.getHistory();
+      boolean     finished = false;
+      ChessMove   move     = null;
+      ChessMove   lastMove = null;
+      Stack<Move> forks    = new Stack<>();
+      ChessAnnotation anno = null;
+      String      prenotation = null;
+      int         count    = 0;
+      int         word     = 0,
+                  kind     = 0,
+		  orig     = 0,
+		  dest     = 0;
+
+         while (!finished) {
+	    word = readWord();
+	    kind = word >>> 12;
+
+	    switch (kind) {
+	       case KIND_CONTROL:
+	          switch ((word >>> 8) & 0x0F) {
+		     case OP_END:
+		        finished = true;
+			break;
+
+		     case OP_NAG:
+		        if (lastMove != null) {
+			   anno = annotationOf(lastMove);
+			   anno.addNAG(word & 0xFF);
+			}
+			break;
+
+		     case OP_COMMENT:
+		        if (lastMove != null)
+			   annotationOf(lastMove).setComment(readString());
+			else
+			   readString();
+			break;
+
+		     case OP_PRENOTATION:
+		        prenotation = readString();
+			break;
+
+                     //same as a RAV in PGNReader
+		     case OP_VARIATION_BEGIN:
+		        history.prev();
+			forks.push(history.getCurrentMove());
+			break;
+
+		     case OP_VARIATION_END:
+		        if (forks.isEmpty())
+			   throw new IOException(
+			      "variation end without a beginning");
+		        history.goTo(forks.pop());
+			history.next();
+			lastMove = (ChessMove) history.getCurrentMove();
+			break;
+
+		     case OP_RESULT:
+			//trusted moves don't look for stalemate on their own
+			if (board.isTrustedMoves())
+			   board.getLegalMoveCount();
+		        if (lastMove != null)
+			   lastMove.setResult(new ChessResult(word & 0xFF));
+			break;
+
+		     default:
+		        throw new IOException("unknown control word: " 
+			   + Integer.toHexString(word));
+		  }
+		  break;
+
+	       case KIND_CASTLE_Q:
+	          move = new ChessMove(board, ChessMove.CASTLE_QUEENSIDE);
+		  break;
+
+	       case KIND_CASTLE_K:
+	          move = new ChessMove(board, ChessMove.CASTLE_KINGSIDE);
+		  break;
+
+	       default:
+	          orig = word & 0x3F;
+		  dest = (word >>> 6) & 0x3F;
+		  move = new ChessMove(board, 
+		                       (orig & 7) + 1, (orig >>> 3) + 1,
+		                       (dest & 7) + 1, (dest >>> 3) + 1,
+				       kind);
+	    }
+
+	    if (move != null) {
+	       history.add(move);
+	       if (prenotation != null) {
+	          move.setPrenotation(new ChessAnnotation(prenotation));
+		  prenotation = null;
+	       }
+	       lastMove = move;
+	       move = null;
+	       count++;
+	    }
+	 }
+
+      history.rewind();
+
+      if (Log.debug && Log.isDebug(DEBUG))
+         Log.debug(DEBUG, "finished reading History: " + count + " moves");
+
+      if (count == 0) return null;
+      else            return history;
+   }
+
+   /* annotationOf **********************************************************/
+   /** the annotation of the move, which is made if it has none.
+    */
+   protected static ChessAnnotation annotationOf (ChessMove m) {
+      ChessAnnotation anno = (ChessAnnotation) m.getAnnotation();
+
+      if (anno == null) {
+         anno = new ChessAnnotation();
+	 m.setAnnotation(anno);
+      }
+      return anno;
+   }
+
+   //decoding/////////////////////////////////////////////////////////////////
+   /* readHeader ************************************************************/
+   /** checks the magic and version the first time it is called.
+    *  @return false if the input is empty
+    */
+   protected boolean readHeader () 
+          throws IOException {
+      int c = 0;
+
+      if (headerRead)
+         return true;
+
+      for (int i=0; i < MAGIC.length(); i++)
+         if ((c = read()) != MAGIC.charAt(i)) {
+	    if (c == -1 && i == 0)
+	       return false;
+	    throw new IOException("not a binary game stream");
+	 }
+      if (read() != VERSION)
+         throw new IOException("unsupported binary game version");
+      headerRead = true;
+      return true;
+   }
+
+   /* readByte **************************************************************/
+   protected int readByte () 
+          throws IOException {
+      int b = read();
+
+      if (b == -1)
+         throw new IOException("unexpected end of input");
+      return b;
+   }
+
+   protected int readWord () 
+          throws IOException {
+      return readByte() << 8 | readByte();
+   }
+
+   /* readNumber ************************************************************/
+   /** reads a varint.
+    */
+   protected int readNumber () 
+          throws IOException {
+      return readNumber(readByte());
+   }
+
+   /** reads a varint whose first byte has already been read.
+    */
+   protected int readNumber (int b) 
+          throws IOException {
+      int n = b & 0x7F,
+          shift = 7;
+
+      while ((b & 0x80) != 0) {
+         if (shift > 28)
+	    throw new IOException("number too long");
+         b = readByte();
+	 n |= (b & 0x7F) << shift;
+	 shift += 7;
+      }
+      return n;
+   }
+
+   /* readString ************************************************************/
+   /** reads the UTF-8 length and bytes of a String.
+    */
+   protected String readString () 
+          throws IOException {
+      byte[] bytes = new byte[readNumber()];
+
+      for (int i=0; i < bytes.length; i++)
+         bytes[i] = (byte) readByte();
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   /* readDictionaryString **************************************************/
+   protected String readDictionaryString () 
+          throws IOException {
+      String s = null;
+      int index = readNumber();
+
+      if (index == 0) {
+         s = readString();
+	 if (dictionary.size() < MAX_DICTIONARY)
+	    dictionary.add(s);
+      }
+      else if (index > dictionary.size())
+         throw new IOException("bad dictionary index: " + index);
+      else
+         s = dictionary.get(index - 1);
+      return s;
+   }
+}
@@ -0,0 +1,355 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ictk.util.Log;
+import ictk.boardgame.Game;
+import ictk.boardgame.GameInfo;
+import ictk.boardgame.History;
+import ictk.boardgame.Board;
+import ictk.boardgame.ContinuationList;
+import ictk.boardgame.io.MoveNotation;
+import ictk.boardgame.chess.*;
+
+/* BinaryGameWriter **********************************************************/
+/** BinaryGameWriter writes games in a compact binary format meant for
+ *  storing large numbers of games.  It is read back by BinaryGameReader.
+ *  <br>
+ *  The stream starts with the bytes "ICTK" and a version byte.  Each
+ *  game after that is made of:
+ *  <ul>
+ *  <li>the tags: a count and then that many key, value pairs.  These are
+ *      the same tags PGNWriter would write.</li>
+ *  <li>the starting position as a FEN string, or an empty string for
+ *      the normal starting position.</li>
+ *  <li>the movetext: a sequence of 16 bit words ending with an end
+ *      word.</li>
+ *  </ul>
+ *  Numbers are unsigned varints (7 bits a byte, low bits first).  Tag
+ *  strings, and the starting position, are dictionary encoded: the
+ *  first time a string is seen it is written as 0, its UTF-8 length and
+ *  its bytes, and is added to a dictionary that lasts for the whole
+ *  stream; after that it is written as its dictionary index plus one.
+ *  So player names, events and sites repeated across games cost a byte
+ *  or two.  The dictionary stops growing at MAX_DICTIONARY entries.
+ *  <br>
+ *  A movetext word (big endian) is a move when bits 12-14 aren't all
+ *  set: bits 0-5 are the origin square, bits 6-11 the destination
+ *  (square index is (rank-1)*8 + file-1), and bits 12-14 are the INDEX
+ *  of the promotion piece, or 0.  Castles are written as KIND_CASTLE_Q
+ *  or KIND_CASTLE_K in bits 12-14 and no squares, so Chess960 castles
+ *  need nothing special.  Otherwise the word is a control word: bits
+ *  8-11 are the OP_* code and bits 0-7 its argument (the NAG or the
+ *  result).  Comments follow their control word as UTF-8 strings.
+ *  Variations are laid out just as they are in PGN.
+ *  <br>
+ *  The bytes are written through the Writer as ISO-8859-1 characters,
+ *  so the Writer must not do any other character conversion.
+ */
+public class BinaryGameWriter extends ChessWriter {
+      /** mask for Log.debug() */
+   public static final long DEBUG = Log.GameWriter;
+
+      /** the first bytes of the stream */
+   static final String MAGIC   = "ICTK";
+      /** version of the format written */
+   static final int    VERSION = 1;
+
+      /** largest number of strings kept in the tag dictionary */
+   public static final int MAX_DICTIONARY = 1 << 16;
+
+      /** bits 12-14 of movetext words */
+   static final int KIND_CASTLE_Q = 5,
+                    KIND_CASTLE_K = 6,
+                    KIND_CONTROL  = 7;
+
+      /** control word codes (bits 8-11) */
+   static final int OP_END             = 0,
+                    OP_NAG             = 1,
+                    OP_VARIATION_BEGIN = 2,
+                    OP_VARIATION_END   = 3,
+                    OP_COMMENT         = 4,
+                    OP_PRENOTATION     = 5,
+                    OP_RESULT          = 6;
+
+   protected static FEN fen = new FEN();
+
+      /** used for the Result tag */
+   protected ChessMoveNotation notation = new SAN();
+
+   protected boolean exportComments   = true,
+                     exportVariations = true;
+
+      /** strings written so far and their dictionary index */
+   protected Map<String,Integer> dictionary = new HashMap<>(1024);
+
+   private boolean headerWritten = false;
+
+   //constructors//////////////////////////////////////////////////////////////
+   public BinaryGameWriter (OutputStream _out) {
+      super(new BufferedWriter(
+         new OutputStreamWriter(_out, StandardCharsets.ISO_8859_1)));
+   }
+
+   /* setMoveNotation *******************************************************/
+   /** moves aren't written in any notation, so this only affects how
+    *  the Result tag is written.
+    */
+   public void setMoveNotation (MoveNotation notation) { 
+      this.notation = (ChessMoveNotation) notation;
+   }
+
+   public MoveNotation getMoveNotation () { return notation; }
+
+   /* setExportComments *****************************************************/
+   /** export comments and prenotations.  NAGs are always exported.
+    */
+   public void setExportComments (boolean t) { exportComments = t; }
+
+   public boolean isExportComments () { return exportComments; }
+
+   /* setExportVariations ***************************************************/
+   public void setExportVariations (boolean t) { exportVariations = t; }
+
+   public boolean isExportVariations () { return exportVariations; }
+
+   //writing//////////////////////////////////////////////////////////////////
+   public void writeGame (Game game) 
+          throws IOException {
+      ChessGame g = (ChessGame) game;
+
+      if (g == null) {
+         if (Log.debug && Log.isDebug(DEBUG))
+	    Log.debug(DEBUG, "can't write a null game");
+         throw new NullPointerException ("can't write null game");
+      }
+
+      g.getHistory().rewind();
+      writeGameInfo(g.getGameInfo());
+      writeBoard(g.getBoard());
+      writeHistory(g.getHistory());
+   }
+
+   /* writeGameInfo *********************************************************/
+   /** writes the tags of the game.  The stream header is written first
+    *  if this is the first game.
+    */
+   public void writeGameInfo (GameInfo gameinfo) 
+          throws IOException {
+      List<String> tags = PGNWriter.getTags((ChessGameInfo) gameinfo, 
+                                            notation);
+
+      writeHeader();
+      writeNumber(tags.size() / 2);
+      for (int i=0; i < tags.size(); i++)
+         writeDictionaryString(tags.get(i));
+   }
+
+   /* writeBoard ************************************************************/
+   /** writes the position the game starts from.  This must follow
+    *  writeGameInfo().
+    */
+   public void writeBoard (Board board)
+          throws IOException {
+      if (board == null || board.isInitialPositionDefault())
+         writeDictionaryString("");
+      else
+         writeDictionaryString(fen.boardToString(board));
+   }
+
+   /* writeHistory **********************************************************/
+   /** writes the movetext of the game.  This must follow writeBoard().
+    */
+   public synchronized void writeHistory (History history) 
+          throws IOException {
+      ChessMove walker = null;
+
+      if (history == null) {
+	 if (Log.debug && Log.isDebug(DEBUG))
+	    Log.debug(DEBUG, "can't write a null history");
+	 throw new NullPointerException ("can't write null history");
+      }
+
+      writeContinuations(history.getFirstAll());
+
+      walker = (ChessMove) history.getFinalMove(true);
+      if (walker != null && walker.getResult() != null)
+         writeControl(OP_RESULT, 
+	              ((ChessResult) walker.getResult()).getIndex());
+
+      writeControl(OP_END, 0);
+   }
+
+   /* writeContinuations ****************************************************/
+   /** writes the moves following a branch in the same order as PGN:
+    *  the mainline move, then each variation with everything after it,
+    *  then whatever follows the mainline move.
+    */
+   protected void writeContinuations (ContinuationList cont)
+          throws IOException {
+      ChessMove m = null;
+
+      while (cont != null && !cont.isTerminal()) {
+         for (int i=0; (i == 0 || exportVariations) && i < cont.size(); i++) {
+	    m = (ChessMove) cont.get(i);
+	    if (m == null) 
+	       continue;
+
+	    if (i > 0)
+	       writeControl(OP_VARIATION_BEGIN, 0);
+
+	    writeMove(m);
+
+	    if (i > 0) {
+	       writeContinuations(m.getContinuationList());
+	       writeControl(OP_VARIATION_END, 0);
+	    }
+	 }
+
+	 m = (ChessMove) cont.get(0);
+	 cont = (m == null) ? null : m.getContinuationList();
+      }
+   }
+
+   /* writeMove *************************************************************/
+   /** writes the move along with its prenotation, NAGs and comment.
+    */
+   protected void writeMove (ChessMove m)
+          throws IOException {
+      ChessAnnotation anno = (ChessAnnotation) m.getPrenotation();
+      ChessPiece promo = null;
+      short[] nags = null;
+      int kind = 0;
+
+      if (exportComments && anno != null && anno.getComment() != null) {
+         writeControl(OP_PRENOTATION, 0);
+	 writeString(anno.getComment());
+      }
+
+      if (m.isCastleQueenside())
+         writeWord(KIND_CASTLE_Q << 12);
+      else if (m.isCastleKingside())
+         writeWord(KIND_CASTLE_K << 12);
+      else {
+         promo = m.getPromotion();
+	 if (promo != null)
+	    kind = promo.getIndex() % ChessPiece.BLACK_OFFSET;
+	 writeWord(kind << 12 
+	           | toIndex(m.getDestination()) << 6
+		   | toIndex(m.getOrigin()));
+      }
+
+      anno = (ChessAnnotation) m.getAnnotation();
+      if (anno == null)
+         return;
+
+      if ((nags = anno.getNAGs()) != null)
+         for (int i=0; i < nags.length; i++) {
+	    if (nags[i] < 0 || nags[i] > NAG.MAX_NAG)
+	       throw new IOException("NAG out of range: " + nags[i]);
+	    writeControl(OP_NAG, nags[i]);
+	 }
+
+      if (exportComments && anno.getComment() != null) {
+         writeControl(OP_COMMENT, 0);
+	 writeString(anno.getComment());
+      }
+   }
+
+   //encoding/////////////////////////////////////////////////////////////////
+   /* writeHeader ***********************************************************/
+   /** writes the magic and version the first time it is called.
+    */
+   protected void writeHeader () {
+      if (headerWritten)
+         return;
+      write(MAGIC);
+      write(VERSION);
+      headerWritten = true;
+   }
+
+   /** square index 0-63 of a Square */
+   protected static int toIndex (Square sq) {
+      return (sq.getRank() - 1) * 8 + sq.getFile() - 1;
+   }
+
+   protected void writeControl (int op, int arg) {
+      writeWord(KIND_CONTROL << 12 | op << 8 | arg);
+   }
+
+   protected void writeWord (int w) {
+      write((w >>> 8) & 0xFF);
+      write(w & 0xFF);
+   }
+
+   /* writeNumber ***********************************************************/
+   /** writes a non-negative int as a varint.
+    */
+   protected void writeNumber (int n) {
+      while ((n & ~0x7F) != 0) {
+         write((n & 0x7F) | 0x80);
+	 n >>>= 7;
+      }
+      write(n);
+   }
+
+   /* writeString ***********************************************************/
+   /** writes the UTF-8 length and bytes of the String.
+    */
+   protected void writeString (String s) {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+      writeNumber(bytes.length);
+      for (int i=0; i < bytes.length; i++)
+         write(bytes[i] & 0xFF);
+   }
+
+   /* writeDictionaryString *************************************************/
+   /** writes the dictionary index of the String, or the String itself if
+    *  it isn't in the dictionary yet.
+    */
+   protected void writeDictionaryString (String s) {
+      Integer index = dictionary.get(s);
+
+      if (index != null)
+         writeNumber(index + 1);
+      else {
+         writeNumber(0);
+	 writeString(s);
+	 if (dictionary.size() < MAX_DICTIONARY)
+	    dictionary.put(s, dictionary.size());
+      }
+   }
+}
@@ -32,6 +32,7 @@ import ictk.boardgame.Board;
 import ictk.boardgame.io.MoveNotation;
 import ictk.boardgame.chess.*;
 import ictk.boardgame.IllegalMoveException;
+import ictk.boardgame.AmbiguousMoveException;
 import ictk.boardgame.Result;
 
 /* ChessMoveNotation *********************************************************/
@@ -181,6 +182,25 @@ public abstract class ChessMoveNotation implements MoveNotation {
       pieceSet = set; 
    }
 
+   /* stringToMove *********************************************************/
+   /** same as stringToMove(Board, String) for a move that isn't in a
+    *  String, such as a token still in a PGNTokenizer's buffer.  Unless
+    *  overridden the CharSequence is simply converted to a String.
+    */
+   public Move stringToMove (Board b, CharSequence s) 
+          throws AmbiguousMoveException,
+	         IllegalMoveException {
+      return stringToMove(b, (s == null) ? null : s.toString());
+   }
+
+   /* appendMove ***********************************************************/
+   /** appends moveToString(Move) to the StringBuilder.  Notations can
+    *  override this to write the move without making a String.
+    */
+   public void appendMove (StringBuilder sb, Move move) {
+      sb.append(moveToString(move));
+   }
+
    //piece translations//////////////////////////////////////////////////////
 
    /* pieceToNum ***********************************************************/
@@ -215,7 +235,7 @@ public abstract class ChessMoveNotation implements MoveNotation {
          p = King.INDEX;
 
       if (p == ChessPiece.NULL_PIECE) {
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "unknown piece: <" + c + ">");
 	    throw new ArrayIndexOutOfBoundsException("Unknown ChessPiece");
       }
@@ -238,7 +258,7 @@ public abstract class ChessMoveNotation implements MoveNotation {
          case Queen.INDEX:  c = pieceSet[4]; break;
          case King.INDEX:   c = pieceSet[5]; break;
 	 default: 
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "unknown piece index: <" + p + ">");
 	    throw new ArrayIndexOutOfBoundsException("Unknown ChessPiece");
       }
@@ -275,7 +295,7 @@ public abstract class ChessMoveNotation implements MoveNotation {
       if (p == ChessBoard.NULL_FILE) {
 	 if (c == '-' || c == ' ') return p;
 
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "unknown file: <" + c + ">");
 	    throw new ArrayIndexOutOfBoundsException(
 	        "file out of range: " + c);
@@ -296,7 +316,7 @@ public abstract class ChessMoveNotation implements MoveNotation {
       if (p == ChessBoard.NULL_RANK) {
 	 if (c == '-' || c == ' ') return p;
 
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "unknown file: <" + c + ">");
 	    throw new ArrayIndexOutOfBoundsException(
 	       "rank out of range: " + c);
@@ -315,7 +335,7 @@ public abstract class ChessMoveNotation implements MoveNotation {
       if (i > 0 && i <= fileSet.length)
          c = fileSet[i-1];
       else {
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "file out of range: <" + i + ">");
 	    throw new ArrayIndexOutOfBoundsException ("file out of range (" 
 	       + i + ")");
@@ -333,7 +353,7 @@ public abstract class ChessMoveNotation implements MoveNotation {
       if (i > 0 && i <= rankSet.length)
          c = rankSet[i-1];
       else {
-	    if (Log.debug)
+	    if (Log.debug && Log.isDebug(DEBUG))
 	       Log.debug(DEBUG, "rank out of range: <" + i + ">");
 	    throw new ArrayIndexOutOfBoundsException ("rank out of range");
       }
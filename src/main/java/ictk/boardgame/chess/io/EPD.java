@@ -0,0 +1,180 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.IOException;
+
+import ictk.boardgame.Board;
+import ictk.boardgame.chess.ChessBoard;
+
+/* EPD *********************************************************************/
+/** EPD (Extended Position Description) is FEN without the ply clock and
+ *  move number fields, followed by operations such as 
+ *  <code>bm Nf3; id "WAC.001";</code>.  The clocks, if present, are
+ *  kept in the hmvc and fmvn operations.  
+ *  <br>
+ *  This class converts between the position fields and boards.  The 
+ *  operations are kept by EPDRecord, and whole files are read and 
+ *  written with EPDReader and EPDWriter.
+ */
+public class EPD extends FEN {
+      /** best move(s) */
+   public static final String BEST_MOVE           = "bm",
+      /** move(s) to avoid */
+                              AVOID_MOVE          = "am",
+      /** position identifier */
+                              ID                  = "id",
+      /** centipawn evaluation */
+                              CENTIPAWN_EVAL      = "ce",
+      /** analysis count: depth */
+                              ANALYSIS_DEPTH      = "acd",
+      /** analysis count: nodes */
+                              ANALYSIS_NODES      = "acn",
+      /** analysis count: seconds */
+                              ANALYSIS_SECONDS    = "acs",
+      /** direct mate fullmove count */
+                              DIRECT_MATE         = "dm",
+      /** predicted variation */
+                              PREDICTED_VARIATION = "pv",
+      /** supplied move */
+                              SUPPLIED_MOVE       = "sm",
+      /** halfmove clock */
+                              HALFMOVE_CLOCK      = "hmvc",
+      /** fullmove number */
+                              FULLMOVE_NUMBER     = "fmvn",
+      /** the first comment, the rest being c1 through c9 */
+                              COMMENT             = "c0";
+
+   public EPD () {
+   }
+
+   /* stringToBoard ********************************************************/
+   /** converts an EPD line into a ChessBoard.  Any operations other than
+    *  hmvc and fmvn are ignored.
+    *
+    * @throws IOException if the position is malformed
+    */
+   public Board stringToBoard (String str) 
+          throws IOException {
+      ChessBoard board = new ChessBoard(false);
+      return stringToBoard(str, board);
+   }
+
+   /* stringToBoard ********************************************************/
+   /** reads an EPD line into an existing board.  Any operations other 
+    *  than hmvc and fmvn are ignored.
+    *
+    * @return the board passed in
+    * @throws IOException if the position is malformed
+    */
+   public ChessBoard stringToBoard (CharSequence str, ChessBoard board)
+          throws IOException {
+      Scratch pos = scratch.get();
+      int i = readPosition(str, pos);
+      int plyCount = readClock(str, i, HALFMOVE_CLOCK, 0);
+      int moveNumber = readClock(str, i, FULLMOVE_NUMBER, 1);
+
+      return pos.setBoard(board, plyCount, moveNumber);
+   }
+
+   /* stringToBoard ********************************************************/
+   /** reads only the four position fields into an existing board, with
+    *  the clocks given separately.  Anything after the position fields
+    *  is ignored.
+    *
+    * @return the board passed in
+    * @throws IOException if the position is malformed
+    */
+   public ChessBoard stringToBoard (CharSequence position, ChessBoard board,
+                                    int plyCount, int moveNumber)
+          throws IOException {
+      Scratch pos = scratch.get();
+      readPosition(position, pos);
+      return pos.setBoard(board, plyCount, moveNumber);
+   }
+
+   /* boardToChars ********************************************************/
+   /** writes the four position fields of the board.  The clocks are 
+    *  left out; put them in the hmvc and fmvn operations if wanted.
+    *
+    * @return the number of chars written
+    */
+   public int boardToChars (ChessBoard board, char[] buff, int offset) {
+      return positionToChars(board, buff, offset);
+   }
+
+   /* readClock *************************************************************/
+   /** looks for a numeric operation after the position fields.
+    *
+    * @param i the index after the position fields
+    * @return the value of the operation or def if it isn't there
+    * @throws IOException if the operand isn't a number
+    */
+   protected static int readClock (CharSequence str, int i, String opcode,
+                                   int def) 
+             throws IOException {
+      int len = str.length();
+      int start = 0;
+      int value = 0;
+      char c;
+
+      while (i < len) {
+         while (i < len && str.charAt(i) == ' ') 
+	    i++;
+
+	 //the opcode
+	 start = i;
+	 while (i < len && (c = str.charAt(i)) != ' ' && c != ';')
+	    i++;
+	 if (i - start == opcode.length() 
+	     && regionMatches(str, start, opcode)) {
+	    while (i < len && str.charAt(i) == ' ') 
+	       i++;
+	    if ((value = parseInt(str, i)) < 0)
+	       throw new IOException("Unsupported character found in EPD at:"
+	          + i + " expecting a number for " + opcode);
+	    return value;
+	 }
+
+	 //skip the operands, minding quoted strings
+	 boolean quoted = false;
+	 for (; i < len && ((c = str.charAt(i)) != ';' || quoted); i++)
+	    if (c == '"')
+	       quoted = !quoted;
+	 i++; //semicolon
+      }
+      return def;
+   }
+
+   /* regionMatches *******************************************************/
+   private static boolean regionMatches (CharSequence str, int start, 
+                                         String s) {
+      for (int j=0; j < s.length(); j++)
+         if (str.charAt(start + j) != s.charAt(j))
+	    return false;
+      return true;
+   }
+}
@@ -0,0 +1,197 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import ictk.util.Log;
+
+/* EPDReader ****************************************************************/
+/** EPDReader reads EPD files a line at a time into EPDRecords.  No board
+ *  is built while reading (see EPDRecord.getBoard()), and a record can
+ *  be handed back in to be reused, so large test suites can be run
+ *  through quickly:
+ *  <pre>
+ *  EPDReader reader = new EPDReader(new FileReader("wac.epd"));
+ *  EPDRecord rec = new EPDRecord();
+ *  ChessBoard board = new ChessBoard();
+ *  while (reader.readRecord(rec) != null) {
+ *     rec.getBoard(board);
+ *     ...
+ *  }
+ *  </pre>
+ *  Blank lines are skipped.
+ */
+public class EPDReader implements Closeable {
+      /** mask for Log.debug() */
+   public static final long DEBUG = Log.GameReader;
+
+   protected BufferedReader in;
+      /** the number of the last line read */
+   protected int lineNumber = 0;
+
+      /** operands of the operation being read */
+   private List<String> operands = new ArrayList<>(8);
+
+   public EPDReader (Reader _in) {
+      if (_in instanceof BufferedReader)
+         in = (BufferedReader) _in;
+      else
+         in = new BufferedReader(_in);
+   }
+
+   /* readRecord ************************************************************/
+   /** @return null at the end of the input
+    *  @throws IOException if the line isn't EPD
+    */
+   public EPDRecord readRecord () 
+          throws IOException {
+      return readRecord(new EPDRecord());
+   }
+
+   /* readRecord ************************************************************/
+   /** reads the next line into the record, replacing what it held.
+    *
+    *  @return the record passed in, or null at the end of the input
+    *  @throws IOException if the line isn't EPD
+    */
+   public EPDRecord readRecord (EPDRecord record) 
+          throws IOException {
+      String line = null;
+
+         do {
+	    if ((line = in.readLine()) == null)
+	       return null;
+	    lineNumber++;
+	 } while (line.trim().length() == 0);
+
+	 record.clear();
+	 parse(line, record);
+      return record;
+   }
+
+   /* readRecords ***********************************************************/
+   /** reads every record to the end of the input.
+    */
+   public List<EPDRecord> readRecords () 
+          throws IOException {
+      List<EPDRecord> records = new ArrayList<>();
+      EPDRecord rec = null;
+
+         while ((rec = readRecord()) != null)
+	    records.add(rec);
+      return records;
+   }
+
+   /* getLineNumber *********************************************************/
+   /** the line number of the last record read, counting from 1.
+    */
+   public int getLineNumber () {
+      return lineNumber;
+   }
+
+   /* close *****************************************************************/
+   public void close () 
+          throws IOException {
+      in.close();
+   }
+
+   //parsing/////////////////////////////////////////////////////////////////
+
+   /* parse *****************************************************************/
+   /** splits the line into the position fields and the operations.
+    */
+   protected void parse (String line, EPDRecord record) 
+             throws IOException {
+      int len = line.length();
+      int i = 0, start = 0;
+      String opcode = null;
+      char c;
+
+         //position: placement, who's move, castling and enpassant
+         while (i < len && line.charAt(i) == ' ')
+	    i++;
+	 start = i;
+         for (int field=0; field < 4; field++) {
+	    while (i < len && line.charAt(i) == ' ')
+	       i++;
+	    if (i == len)
+	       throw new IOException(
+	          "EPD line " + lineNumber + " has too few position fields");
+	    while (i < len && line.charAt(i) != ' ')
+	       i++;
+	 }
+	 record.setPosition(line.substring(start, i));
+
+	 //operations
+         while (i < len) {
+	    while (i < len && ((c = line.charAt(i)) == ' ' || c == '\t'))
+	       i++;
+	    if (i == len)
+	       break;
+
+	    start = i;
+	    while (i < len && (c = line.charAt(i)) != ' ' && c != ';')
+	       i++;
+	    opcode = line.substring(start, i);
+	    operands.clear();
+
+	    while (i < len && (c = line.charAt(i)) != ';') {
+	       if (c == ' ' || c == '\t') 
+	          i++;
+	       else if (c == '"') {
+	          start = ++i;
+		  while (i < len && line.charAt(i) != '"')
+		     i++;
+		  if (i == len)
+		     throw new IOException("EPD line " + lineNumber 
+		        + " has an unterminated string for " + opcode);
+		  operands.add(line.substring(start, i++));
+	       }
+	       else {
+	          start = i;
+		  while (i < len && (c = line.charAt(i)) != ' ' && c != ';')
+		     i++;
+		  operands.add(line.substring(start, i));
+	       }
+	    }
+	    i++; //semicolon
+
+	    if (opcode.length() == 0)
+	       throw new IOException(
+	          "EPD line " + lineNumber + " has an empty operation");
+	    if (Log.debug && Log.isDebug(DEBUG))
+	       Log.debug(DEBUG, "EPD " + opcode + " " + operands);
+	    record.operations.put(opcode, 
+	       operands.toArray(new String[operands.size()]));
+	 }
+   }
+}
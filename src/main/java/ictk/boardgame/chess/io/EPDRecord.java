@@ -0,0 +1,296 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ictk.boardgame.AmbiguousMoveException;
+import ictk.boardgame.IllegalMoveException;
+import ictk.boardgame.chess.ChessBoard;
+import ictk.boardgame.chess.ChessMove;
+
+/* EPDRecord ****************************************************************/
+/** one line of an EPD file: the four position fields and the operations
+ *  that follow them.  The position is kept as text and only made into a
+ *  board when asked for, so a whole test suite can be loaded without
+ *  building a board per line.
+ *  <br>
+ *  Operands are kept as read, less the quotes around strings.  The
+ *  operations keep the order they were read or set in.
+ */
+public class EPDRecord {
+   protected static EPD epd = new EPD();
+      /** for the move operands */
+   protected static SAN san = new SAN();
+
+      /** the position fields */
+   protected String position;
+      /** operands by opcode */
+   protected Map<String, String[]> operations = new LinkedHashMap<>();
+
+   public EPDRecord () {
+   }
+
+   /** 
+    * @param position the four position fields of an EPD line
+    */
+   public EPDRecord (String position) {
+      setPosition(position);
+   }
+
+   /** 
+    * @param board takes the position of this board
+    */
+   public EPDRecord (ChessBoard board) {
+      setPosition(board);
+   }
+
+   //position//////////////////////////////////////////////////////////////
+
+   /* getPosition **********************************************************/
+   /** the four position fields, without the operations.
+    */
+   public String getPosition () {
+      return position;
+   }
+
+   /* setPosition **********************************************************/
+   public void setPosition (String position) {
+      this.position = position;
+   }
+
+   /* setPosition **********************************************************/
+   /** takes the position of the board.  The clocks are not recorded, 
+    *  set the hmvc and fmvn operations for those.
+    */
+   public void setPosition (ChessBoard board) {
+      position = epd.boardToString(board);
+   }
+
+   /* getBoard *************************************************************/
+   /** makes a new board in this position, with the clocks taken from
+    *  the hmvc and fmvn operations if they're present.
+    *
+    * @throws IOException if the position is malformed
+    */
+   public ChessBoard getBoard () 
+          throws IOException {
+      return getBoard(new ChessBoard(false));
+   }
+
+   /* getBoard *************************************************************/
+   /** sets up an existing board in this position, forgetting any moves
+    *  played on it.
+    *
+    * @return the board passed in
+    * @throws IOException if the position is malformed
+    */
+   public ChessBoard getBoard (ChessBoard board) 
+          throws IOException {
+      try {
+         return epd.stringToBoard(position, board, 
+                                  getInt(EPD.HALFMOVE_CLOCK, 0),
+                                  getInt(EPD.FULLMOVE_NUMBER, 1));
+      }
+      catch (NumberFormatException e) {
+         throw new IOException("EPD clock is not a number: " + this);
+      }
+   }
+
+   //operations////////////////////////////////////////////////////////////
+
+   /* getOpcodes ***********************************************************/
+   /** the opcodes of the operations, in order.
+    */
+   public Set<String> getOpcodes () {
+      return Collections.unmodifiableSet(operations.keySet());
+   }
+
+   /* hasOperation *********************************************************/
+   public boolean hasOperation (String opcode) {
+      return operations.containsKey(opcode);
+   }
+
+   /* getOperands **********************************************************/
+   /** @return null if there's no such operation
+    */
+   public String[] getOperands (String opcode) {
+      String[] operands = operations.get(opcode);
+      return (operands == null) ? null : operands.clone();
+   }
+
+   /* getOperand ***********************************************************/
+   /** the first operand of the operation.
+    *
+    * @return null if there's no such operation or it has no operands
+    */
+   public String getOperand (String opcode) {
+      String[] operands = operations.get(opcode);
+      return (operands == null || operands.length == 0) 
+         ? null : operands[0];
+   }
+
+   /* getInt ***************************************************************/
+   /** the first operand of the operation as a number, such as for
+    *  ce, acd, dm, hmvc or fmvn.
+    *
+    * @return def if there's no such operation
+    * @throws NumberFormatException if the operand isn't a number
+    */
+   public int getInt (String opcode, int def) {
+      String operand = getOperand(opcode);
+      return (operand == null) ? def : Integer.parseInt(operand);
+   }
+
+   /* getId ****************************************************************/
+   /** @return null if there is no id operation
+    */
+   public String getId () {
+      return getOperand(EPD.ID);
+   }
+
+   /* getMoves *************************************************************/
+   /** the operands of a move operation, such as bm or am, as moves on 
+    *  the board.  The board must be in this record's position (see 
+    *  getBoard()).  The moves are not played.
+    *
+    * @return an empty list if there's no such operation
+    */
+   public List<ChessMove> getMoves (String opcode, ChessBoard board)
+          throws IllegalMoveException, 
+	         AmbiguousMoveException {
+      String[] operands = operations.get(opcode);
+      List<ChessMove> moves = null;
+
+         if (operands == null)
+	    return new ArrayList<>(0);
+
+         moves = new ArrayList<>(operands.length);
+         for (int i=0; i < operands.length; i++)
+	    moves.add((ChessMove) san.stringToMove(board, operands[i]));
+      return moves;
+   }
+
+   /* setOperation *********************************************************/
+   /** sets the operation, replacing any with the same opcode.
+    */
+   public void setOperation (String opcode, String... operands) {
+      if (opcode == null || opcode.length() == 0)
+         throw new IllegalArgumentException("EPD opcode can't be empty");
+      operations.put(opcode, operands.clone());
+   }
+
+   /* setOperation *********************************************************/
+   /** sets a numeric operation such as ce, acd, hmvc or fmvn.
+    */
+   public void setOperation (String opcode, int operand) {
+      setOperation(opcode, String.valueOf(operand));
+   }
+
+   /* removeOperation ******************************************************/
+   /** @return the operands of the removed operation, or null
+    */
+   public String[] removeOperation (String opcode) {
+      return operations.remove(opcode);
+   }
+
+   /* clear ****************************************************************/
+   /** forgets the position and operations so the record can be reused.
+    */
+   public void clear () {
+      position = null;
+      operations.clear();
+   }
+
+   //output////////////////////////////////////////////////////////////////
+
+   /* appendTo *************************************************************/
+   /** appends the record as an EPD line, without a line terminator.
+    *
+    * @return the StringBuilder passed in
+    */
+   public StringBuilder appendTo (StringBuilder sb) {
+      String[] operands = null;
+
+         sb.append(position);
+         for (Map.Entry<String, String[]> op : operations.entrySet()) {
+	    sb.append(' ').append(op.getKey());
+	    operands = op.getValue();
+	    for (int i=0; i < operands.length; i++) {
+	       sb.append(' ');
+	       if (isStringOpcode(op.getKey()) || needsQuotes(operands[i]))
+	          sb.append('"').append(operands[i]).append('"');
+	       else
+	          sb.append(operands[i]);
+	    }
+	    sb.append(';');
+	 }
+      return sb;
+   }
+
+   /* toString *************************************************************/
+   /** the record as an EPD line.
+    */
+   public String toString () {
+      return appendTo(new StringBuilder(128)).toString();
+   }
+
+   /* isStringOpcode *******************************************************/
+   /** the opcodes whose operands are always quoted: id, eco, nic, 
+    *  c0-c9 and v0-v9.
+    */
+   protected static boolean isStringOpcode (String opcode) {
+      char c;
+
+         if (opcode.length() == 2 
+	     && ((c = opcode.charAt(0)) == 'c' || c == 'v')
+	     && Character.isDigit(opcode.charAt(1)))
+	    return true;
+      return opcode.equals(EPD.ID) 
+          || opcode.equals("eco") 
+	  || opcode.equals("nic");
+   }
+
+   /* needsQuotes **********************************************************/
+   private static boolean needsQuotes (String operand) {
+      if (operand.length() == 0)
+         return true;
+      for (int i=0; i < operand.length(); i++)
+         switch (operand.charAt(i)) {
+	    case ' ':
+	    case ';':
+	    case '"':
+	       return true;
+	 }
+      return false;
+   }
+}
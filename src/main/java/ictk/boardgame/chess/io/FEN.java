@@ -25,6 +25,7 @@
 package ictk.boardgame.chess.io;
 
 
+import java.util.Arrays;
 import java.util.Locale;
 import java.io.IOException;
 import java.io.BufferedReader;
@@ -45,6 +46,22 @@ public class FEN implements ChessBoardNotation {
      /** for translation from PNBRQK to Pieces */
    protected static SAN san = new SAN();
 
+     /** the longest FEN boardToChars() will write */
+   public static final int MAX_LENGTH = 105;
+
+     /** FEN letters by piece INDEX */
+   protected static final char[] WHITE_PIECES = {'K', 'Q', 'R', 'B', 'N', 'P'},
+                                 BLACK_PIECES = {'k', 'q', 'r', 'b', 'n', 'p'};
+
+     /** per-thread work space so a shared FEN allocates nothing but
+      *  the Strings it returns */
+   static final ThreadLocal<Scratch> scratch = 
+      new ThreadLocal<Scratch>() {
+         protected Scratch initialValue () {
+	    return new Scratch();
+	 }
+      };
+
    Locale locale;
 
    public FEN () {
@@ -70,38 +87,90 @@ public class FEN implements ChessBoardNotation {
     */
    public Board stringToBoard (String str) 
           throws IOException {
-      ChessBoard board = null;
-      char[][] matrix = new char[ChessBoard.MAX_FILE][ChessBoard.MAX_RANK];
-      char[]   strArray = null;
+      ChessBoard board = new ChessBoard(false);
+      return stringToBoard(str, board);
+   }
+
+   /* stringToBoard ********************************************************/
+   /** reads the FEN into an existing board rather than building a new
+    *  one.  Any moves played on the board are forgotten (see 
+    *  ChessBoard.reset()).  Nothing is allocated for the parse itself,
+    *  which matters when positions are read by the million.
+    *
+    * @return the board passed in
+    * @throws IOException if the FEN is malformed
+    */
+   public ChessBoard stringToBoard (CharSequence str, ChessBoard board)
+          throws IOException {
+      Scratch pos = scratch.get();
+      int len = str.length();
+      int plyCount = 0, moveNumber = 1;
+      int i = readPosition(str, pos);
+
+      i++; //space
+
+      //ply count
+      plyCount = parseInt(str, i);
+      if (plyCount < 0)
+	 throw new IOException("Unsupported character found in FEN at:"
+	    + i + " expecting ply count");
+      while (i < len && str.charAt(i) != ' ')
+         i++;
+
+      i++; //space
+
+      //full move number
+      moveNumber = parseInt(str, i);
+      if (moveNumber < 0)
+	 throw new IOException("Unsupported character found in FEN at:"
+	    + i + " expecting move number");
+
+      return pos.setBoard(board, plyCount, moveNumber);
+   }
+
+   /* readPosition ********************************************************/
+   /** reads the first four fields (placement, who's move, castling and
+    *  enpassant) into the work space.  These are shared with EPD.
+    *
+    * @return the index just past the enpassant field
+    * @throws IOException if the fields are malformed
+    */
+   int readPosition (CharSequence str, Scratch pos) 
+       throws IOException {
+      char[][] matrix = pos.matrix;
+      int len = str.length();
       int rank = ChessBoard.MAX_RANK-1;
       int file = 0;
-      boolean isBlackMove = false;
-      boolean canWhiteCastleKingside = false,
-              canWhiteCastleQueenside = false,
-              canBlackCastleKingside = false,
-              canBlackCastleQueenside = false;
-      char    enpassantFile = '-';
-      int plyCount = 0, moveNumber = 1;
-      
-      str.trim();
-      strArray = str.toCharArray();
+      char c;
+      int i = 0;
+
+      for (int f=0; f < matrix.length; f++)
+         Arrays.fill(matrix[f], ' ');
+      pos.canWhiteCastleKingside = pos.canWhiteCastleQueenside = false;
+      pos.canBlackCastleKingside = pos.canBlackCastleQueenside = false;
+      pos.enpassantFile = ChessBoard.NO_ENPASSANT;
+
+      while (i < len && str.charAt(i) == ' ')
+         i++;
 
       //read board
-      int i;
-      for (i=0; i < strArray.length; i++) {
+      for (; i < len; i++) {
+         c = str.charAt(i);
          //if rank terminator
-	 if (strArray[i] == '/') {
+	 if (c == '/') {
 	    rank--;
 	    file = 0;
 	 }
          //if space indicator
-         else if (Character.isDigit(strArray[i])) {
-	    file += Character.digit(strArray[i], 10);
+         else if (c >= '1' && c <= '8') {
+	    file += c - '0';
 	 }
-	 else if (isPieceChar(strArray[i])) {
-	    matrix[file++][rank] = strArray[i];
+	 else if (isPieceChar(c)) {
+	    if (file >= ChessBoard.MAX_FILE || rank < 0)
+	       throw new IOException("Square off the board in FEN at:" + i);
+	    matrix[file++][rank] = c;
 	 }
-	 else if (strArray[i] == ' ') {
+	 else if (c == ' ') {
 	    break;
          }
 	 else {
@@ -113,162 +182,223 @@ public class FEN implements ChessBoardNotation {
       i++; //space
 
       //who's move it is
-      if (strArray[i] == 'w')
-         isBlackMove = false;
-      else if (strArray[i] == 'b')
-         isBlackMove = true;
+      c = (i < len) ? str.charAt(i) : ' ';
+      if (c == 'w')
+         pos.isBlackMove = false;
+      else if (c == 'b')
+         pos.isBlackMove = true;
       else
 	 throw new IOException("Unsupported character found in FEN at:"
-	    + i + "(" + strArray[i] + ") expecting who to move");
+	    + i + "(" + c + ") expecting who to move");
       i++; //pass who's move
 
       i++; //space
 
       //castling block KQkq or -
-      for (;i<strArray.length && strArray[i] != ' ';i++) {
-         switch (strArray[i]) {
-	    case 'K': canWhiteCastleKingside = true; break;
-	    case 'Q': canWhiteCastleQueenside = true; break;
-	    case 'k': canBlackCastleKingside = true; break;
-	    case 'q': canBlackCastleQueenside = true; break;
+      for (; i < len && (c = str.charAt(i)) != ' '; i++) {
+         switch (c) {
+	    case 'K': pos.canWhiteCastleKingside = true; break;
+	    case 'Q': pos.canWhiteCastleQueenside = true; break;
+	    case 'k': pos.canBlackCastleKingside = true; break;
+	    case 'q': pos.canBlackCastleQueenside = true; break;
 	 }
       }
 
       i++; //space
 
       //enpassant square
-      if (strArray[i] != '-') {
-         enpassantFile = strArray[i];
+      c = (i < len) ? str.charAt(i) : ' ';
+      if (c >= 'a' && c <= 'h') {
+         pos.enpassantFile = c - 'a' + 1;
 	 i++; //this is the rank, which isn't necessary
       }
+      else if (c != '-') 
+	 throw new IOException("Unsupported character found in FEN at:"
+	    + i + " (" + c + ") expecting enpassant square");
       i++; //pass enpassant block
 
-      i++; //space
+      return i;
+   }
 
-      //ply count
-      int j;
-      String strPly = str.substring(i, j = str.indexOf(" ", i));
-      try {
-         plyCount = Integer.parseInt(strPly);
-      }
-      catch (NumberFormatException e) {
-	 throw new IOException("Unsupported character found in FEN at:"
-	    + i + " (" + strPly + ") expecting ply count");
-      }
-      i = j;
+   /* boardToString() *****************************************************/
+   /** converts board objects into string format
+    */
+   public String boardToString (Board b) {
+      char[] buff = scratch.get().chars;
+      return new String(buff, 0, boardToChars((ChessBoard) b, buff, 0));
+   }
+
+   /* appendBoard *********************************************************/
+   /** appends the FEN of the board to the StringBuilder.
+    *
+    * @return the StringBuilder passed in
+    */
+   public StringBuilder appendBoard (StringBuilder sb, ChessBoard board) {
+      char[] buff = scratch.get().chars;
+      return sb.append(buff, 0, boardToChars(board, buff, 0));
+   }
 
+   /* boardToChars ********************************************************/
+   /** writes the FEN of the board into the array starting at offset.
+    *  The array needs MAX_LENGTH chars free to be safe.
+    *
+    * @return the number of chars written
+    * @throws ArrayIndexOutOfBoundsException if the FEN doesn't fit
+    */
+   public int boardToChars (ChessBoard board, char[] buff, int offset) {
+      int i = offset + positionToChars(board, buff, offset);
 
-      i++; //space
+      buff[i++] = ' '; //space
 
-      //full move number
-      String strMoves = str.substring(i, str.length());
-      try {
-         moveNumber = Integer.parseInt(strMoves);
-      }
-      catch (NumberFormatException e) {
-	 throw new IOException("Unsupported character found in FEN at:"
-	    + i + " (" + strMoves + ") expecting move number");
+      //ply clock
+      i = putInt(board.get50MoveRulePlyCount(), buff, i);
+
+      buff[i++] = ' '; //space
+
+      //move number
+      i = putInt(board.getCurrentMoveNumber(), buff, i);
+
+      return i - offset;
+   }
+
+   /* positionToChars *****************************************************/
+   /** writes the first four fields (placement, who's move, castling and
+    *  enpassant), which are shared with EPD.
+    *
+    * @return the number of chars written
+    */
+   int positionToChars (ChessBoard board, char[] buff, int offset) {
+      int i = offset + placementToChars(board, buff, offset);
+
+      buff[i++] = ' '; //space
+
+      //who's move
+      buff[i++] = (board.isBlackMove()) ? 'b' : 'w';
+
+      buff[i++] = ' '; //space
+
+      //castling block
+      int castle = i;
+      if (board.isWhiteCastleableKingside())  buff[i++] = 'K';
+      if (board.isWhiteCastleableQueenside()) buff[i++] = 'Q';
+      if (board.isBlackCastleableKingside())  buff[i++] = 'k';
+      if (board.isBlackCastleableQueenside()) buff[i++] = 'q';
+      if (i == castle)
+         buff[i++] = '-';
+
+      buff[i++] = ' '; //space
+
+      //enpassant file
+      if (board.getEnPassantFile() != ChessBoard.NO_ENPASSANT) {
+         buff[i++] = san.fileToChar(board.getEnPassantFile());
+	 //the rank (silly I know -- but standard)
+	 buff[i++] = (board.isBlackMove()) ? '3' : '6';
       }
+      else
+         buff[i++] = '-';
 
-      board = new ChessBoard(matrix, 
-                        isBlackMove,
-                        canWhiteCastleKingside, 
-                        canWhiteCastleQueenside,
-			canBlackCastleKingside,
-			canBlackCastleQueenside,
-			enpassantFile,
-			plyCount,
-			moveNumber);
-
-      return board; 
+      return i - offset;
    }
 
+   /* placementToString ***************************************************/
+   /** returns only the piece placement field of the FEN, which is 
+    *  handy as a key for the position when the side to move, castling
+    *  and the clocks aren't wanted.
+    */
+   public String placementToString (ChessBoard board) {
+      char[] buff = scratch.get().chars;
+      return new String(buff, 0, placementToChars(board, buff, 0));
+   }
 
-   /* boardToString() *****************************************************/
-   /** converts board objects into string format
+   /* appendPlacement *****************************************************/
+   /** appends only the piece placement field of the FEN.
+    *
+    * @return the StringBuilder passed in
     */
-   public String boardToString (Board b) {
-      ChessBoard board = (ChessBoard) b;
-      char[][] ray = board.toCharArray();
-      StringBuffer buff = new StringBuffer();
-      
+   public StringBuilder appendPlacement (StringBuilder sb, 
+                                         ChessBoard board) {
+      char[] buff = scratch.get().chars;
+      return sb.append(buff, 0, placementToChars(board, buff, 0));
+   }
 
-      //board
+   /* placementToChars ****************************************************/
+   /** writes only the piece placement field of the FEN into the array
+    *  starting at offset.  This is never more than 71 chars.
+    *
+    * @return the number of chars written
+    * @throws ArrayIndexOutOfBoundsException if the placement doesn't fit
+    */
+   public int placementToChars (ChessBoard board, char[] buff, int offset) {
+      ChessPiece piece;
+      int index;
+      int i = offset;
       int count = 0;
-      for (int r=ChessBoard.MAX_RANK-1; r >= 0; r--) {
-         if (r != ChessBoard.MAX_RANK-1) buff.append("/");
+
+      for (int r=ChessBoard.MAX_RANK; r > 0; r--) {
+         if (r != ChessBoard.MAX_RANK) buff[i++] = '/';
 	 
 	 count = 0;
-         for (int f=0; f < ChessBoard.MAX_FILE; f++) {
-	    if (Character.isLetter(ray[f][r])) {
+         for (int f=1; f <= ChessBoard.MAX_FILE; f++) {
+	    piece = board.getSquare(f, r).getOccupant();
+	    if (piece != null) {
 	       if (count > 0) {
-	          buff.append(count);
+	          buff[i++] = (char) ('0' + count);
 		  count = 0;
 	       }
-	       buff.append(ray[f][r]);
+	       index = piece.getIndex();
+	       buff[i++] = (index >= ChessPiece.BLACK_OFFSET)
+	          ? BLACK_PIECES[index - ChessPiece.BLACK_OFFSET]
+	          : WHITE_PIECES[index];
 	    }
 	    else count++;
 	 }
 	 if (count > 0)
-	    buff.append(count);
+	    buff[i++] = (char) ('0' + count);
       }
+      return i - offset;
+   }
 
-      buff.append(" "); //space
-
-      //who's move
-      buff.append( ((board.isBlackMove()) ? 'b' : 'w'));
-
-      buff.append(" "); //space
+   //Utilities///////////////////////////////////////////////////////////
 
-      //castling block
-      boolean castle = false;
-      if (board.isWhiteCastleableKingside()) {
-         castle = true;
-	 buff.append("K");
-      }
-      if (board.isWhiteCastleableQueenside()) {
-         castle = true;
-	 buff.append("Q");
-      }
-      if (board.isBlackCastleableKingside()) {
-         castle = true;
-	 buff.append("k");
-      }
-      if (board.isBlackCastleableQueenside()) {
-         castle = true;
-	 buff.append("q");
+   /* parseInt **********************************************************/
+   /** reads the unsigned number starting at i up to the next space,
+    *  semicolon or the end of the string.
+    *
+    * @return -1 if there isn't a number there
+    */
+   protected static int parseInt (CharSequence str, int i) {
+      int len = str.length();
+      int n = 0;
+      int start = i;
+      char c;
+
+      for (; i < len && (c = str.charAt(i)) != ' ' && c != ';'; i++) {
+         if (c < '0' || c > '9' || n > (Integer.MAX_VALUE - 9) / 10)
+	    return -1;
+	 n = n * 10 + (c - '0');
       }
-      if (!castle)
-         buff.append("-");
-
-      buff.append(" "); //space
+      return (i == start) ? -1 : n;
+   }
 
-      //enpassant file
-      if (board.getEnPassantFile() != ChessBoard.NO_ENPASSANT) {
-         buff.append(san.fileToChar(board.getEnPassantFile()));
-	 if (board.isBlackMove())
-	    buff.append("3"); //the rank (silly I know -- but standard)
-	 else
-	    buff.append("6");
+   /* putInt ************************************************************/
+   /** writes the number in decimal into the array at i.
+    *
+    * @return the index after the last char written
+    */
+   protected static int putInt (int num, char[] buff, int i) {
+      long n = num;
+      if (n < 0) {
+         buff[i++] = '-';
+	 n = -n;
       }
-      else
-         buff.append("-");
-      
-      buff.append(" "); //space
-
-      //ply clock
-      buff.append(board.get50MoveRulePlyCount()); 
-
-      buff.append(" "); //space
-
-      //move number
-      buff.append(board.getCurrentMoveNumber());
-
-      return buff.toString();
+      int end = i;
+      for (long m = n; m >= 10; m /= 10)
+         end++;
+      for (int j = end; j >= i; j--, n /= 10)
+         buff[j] = (char) ('0' + n % 10);
+      return end + 1;
    }
 
-   //Utilities///////////////////////////////////////////////////////////
-
    /* isPieceChar *******************************************************/
    /** FEN is not Locale specifc yet.
      * @return true if the character entered is a legal piece in FEN
@@ -295,4 +425,32 @@ public class FEN implements ChessBoardNotation {
 	    return false;
       }
    }
+
+   /* Scratch ***********************************************************/
+   /** the fields read by readPosition() and a buffer to write into.
+    */
+   static final class Scratch {
+      final char[][] matrix = new char[ChessBoard.MAX_FILE][ChessBoard.MAX_RANK];
+      final char[] chars = new char[MAX_LENGTH];
+      boolean isBlackMove,
+              canWhiteCastleKingside,
+              canWhiteCastleQueenside,
+              canBlackCastleKingside,
+              canBlackCastleQueenside;
+      int enpassantFile;
+
+      /* setBoard *******************************************************/
+      ChessBoard setBoard (ChessBoard board, int plyCount, int moveNumber) {
+         board.reset(matrix, 
+                     isBlackMove,
+                     canWhiteCastleKingside, 
+                     canWhiteCastleQueenside,
+                     canBlackCastleKingside,
+                     canBlackCastleQueenside,
+                     enpassantFile,
+                     plyCount,
+                     moveNumber);
+         return board;
+      }
+   }
 }
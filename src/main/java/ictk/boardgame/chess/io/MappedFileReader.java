@@ -0,0 +1,261 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/* MappedFileReader *********************************************************/
+/** MappedFileReader reads characters straight out of a memory-mapped file,
+ *  or any ByteBuffer, without the copying and decoding of an
+ *  InputStreamReader.  It is meant to be handed to a PGNReader,
+ *  ParallelPGNReader or anything else reading large PGN archives:
+ *  <pre>
+ *  PGNReader reader = new PGNReader(new MappedFileReader(file));
+ *  </pre>
+ *  ISO-8859-1 (the PGN standard) and US-ASCII are read a byte to a
+ *  character with no decoder at all; with US-ASCII bytes over 127 come
+ *  through as ISO-8859-1.  UTF-8 is read the same way for as long as
+ *  the bytes are ASCII, falling back to a CharsetDecoder for the rest.
+ *  Other charsets always go through a decoder.  Malformed input is
+ *  replaced, not reported.
+ *  <br>
+ *  Files are mapped a window at a time, so files larger than 2GB can be
+ *  read.  The mappings are released by the garbage collector, not by
+ *  close(), which only closes the channel.
+ */
+public class MappedFileReader extends Reader {
+      /** largest part of the file mapped at once */
+   public static final int DEFAULT_WINDOW = 1 << 30;
+
+   protected FileChannel channel;
+   protected ByteBuffer  buffer;
+      /** position of the buffer in the file, and the size of the file */
+   protected long        bufferStart,
+                         fileSize;
+   protected int         window = DEFAULT_WINDOW;
+
+      /** each byte is its own character */
+   protected boolean        latin1;
+      /** ASCII bytes are their own character, the rest is decoded */
+   protected boolean        asciiFirst;
+   protected CharsetDecoder decoder;
+
+      /** the second half of a surrogate pair that didn't fit */
+   private int pending = -1;
+
+   //constructors//////////////////////////////////////////////////////////////
+   /** maps an ISO-8859-1 file.
+    */
+   public MappedFileReader (File file) 
+          throws IOException {
+      this(file, StandardCharsets.ISO_8859_1);
+   }
+
+   public MappedFileReader (File file, Charset cs) 
+          throws IOException {
+      this(new FileInputStream(file).getChannel(), cs);
+   }
+
+   /** maps the channel from its current position to its end.  Closing
+    *  the reader closes the channel.
+    */
+   public MappedFileReader (FileChannel ch, Charset cs) 
+          throws IOException {
+      this(ch, cs, DEFAULT_WINDOW);
+   }
+
+   /** @param window the largest part of the file mapped at once, at
+    *         least 16 bytes
+    */
+   protected MappedFileReader (FileChannel ch, Charset cs, int window) 
+          throws IOException {
+      if (window < 16)
+         throw new IllegalArgumentException("window too small: " + window);
+      this.window = window;
+      channel = ch;
+      fileSize = ch.size();
+      setCharset(cs);
+      map(ch.position());
+   }
+
+   /** reads the remaining bytes of the buffer.
+    */
+   public MappedFileReader (ByteBuffer buff, Charset cs) {
+      buffer = buff;
+      setCharset(cs);
+   }
+
+   private void setCharset (Charset cs) {
+      latin1 = cs.equals(StandardCharsets.ISO_8859_1)
+               || cs.equals(StandardCharsets.US_ASCII);
+      asciiFirst = cs.equals(StandardCharsets.UTF_8);
+      if (!latin1)
+         decoder = cs.newDecoder()
+                     .onMalformedInput(CodingErrorAction.REPLACE)
+		     .onUnmappableCharacter(CodingErrorAction.REPLACE);
+   }
+
+   //mapping//////////////////////////////////////////////////////////////////
+   /* map *******************************************************************/
+   /** maps the window of the file starting at pos.
+    */
+   protected void map (long pos) 
+          throws IOException {
+      bufferStart = pos;
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                           Math.min(window, fileSize - pos));
+   }
+
+   /* isLastBuffer **********************************************************/
+   /** is the current buffer the end of the input */
+   protected boolean isLastBuffer () {
+      return channel == null || bufferStart + buffer.limit() >= fileSize;
+   }
+
+   /* nextBuffer ************************************************************/
+   /** maps the next window, starting with any bytes of the current one
+    *  that haven't been read.
+    *  @return false at the end of the input
+    */
+   protected boolean nextBuffer () 
+          throws IOException {
+      if (isLastBuffer())
+         return false;
+      map(bufferStart + buffer.position());
+      return true;
+   }
+
+   //reading//////////////////////////////////////////////////////////////////
+   public int read (char[] cbuf, int off, int len) 
+          throws IOException {
+      int n = 0,
+          count = 0,
+          pos = 0;
+      byte b = 0;
+
+      if (buffer == null)
+         throw new IOException("reader closed");
+      if (len == 0)
+         return 0;
+
+      if (pending != -1) {
+         cbuf[off + n++] = (char) pending;
+	 pending = -1;
+      }
+
+      while (n < len) {
+         if (!buffer.hasRemaining() && !nextBuffer())
+	    break;
+
+         //one byte, one char
+	 if (latin1) {
+	    count = Math.min(len - n, buffer.remaining());
+	    for (int i=0; i < count; i++)
+	       cbuf[off + n++] = (char) (buffer.get() & 0xFF);
+	    continue;
+	 }
+
+         //as long as it's ASCII
+	 if (asciiFirst) {
+	    pos = buffer.position();
+	    count = Math.min(len - n, buffer.remaining());
+	    for (int i=0; i < count && (b = buffer.get(pos)) >= 0; i++) {
+	       cbuf[off + n++] = (char) b;
+	       pos++;
+	    }
+	    buffer.position(pos);
+	    if (n == len || !buffer.hasRemaining())
+	       continue;
+	 }
+
+	 count = decode(cbuf, off + n, len - n);
+	 if (count < 0)
+	    break;
+	 n += count;
+      }
+
+      return (n == 0) ? -1 : n;
+   }
+
+   /* decode ****************************************************************/
+   /** decodes into cbuf until it's full or the buffer runs out.
+    *  @return the number of chars decoded, -1 at the end of the input
+    */
+   protected int decode (char[] cbuf, int off, int len) 
+          throws IOException {
+      CharBuffer cb = CharBuffer.wrap(cbuf, off, len);
+      CharBuffer pair = null;
+      CoderResult r = null;
+
+      while (true) {
+	 r = decoder.decode(buffer, cb, isLastBuffer());
+	 if (cb.position() > off)
+	    return cb.position() - off;
+
+         //a character made of two chars with room for one
+	 if (r.isOverflow()) {
+	    pair = CharBuffer.allocate(2);
+	    decoder.decode(buffer, pair, isLastBuffer());
+	    cbuf[off] = pair.get(0);
+	    pending = pair.get(1);
+	    return 1;
+	 }
+
+         //a character split across windows
+	 if (!nextBuffer()) {
+	    decoder.flush(cb);
+	    return (cb.position() > off) ? cb.position() - off : -1;
+	 }
+      }
+   }
+
+   public boolean ready () {
+      return pending != -1 
+             || (buffer != null && buffer.hasRemaining())
+	     || (buffer != null && !isLastBuffer());
+   }
+
+   /* close *****************************************************************/
+   /** closes the channel, if there is one.
+    */
+   public void close () 
+          throws IOException {
+      buffer = null;
+      if (channel != null)
+         channel.close();
+   }
+}
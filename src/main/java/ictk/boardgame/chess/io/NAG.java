@@ -43,6 +43,24 @@ import java.util.StringTokenizer;
 public class NAG {
    //static //////////////////////////////////////////////////////////////
    public static short MAX_NAG = 255;
+
+      /** the recognized symbols and their NAG values */
+   private static final String[] SYMBOLS = {
+      "!", "?", "!!", "??", "!?", "?!",
+      "=",
+      "~", "+=", "=+", "+/-", "-/+", "+-", "-+",
+      //proposed NAG from Chess informant
+      "RR", "N",
+      //scid specific
+      "D"
+   };
+   private static final short[] SYMBOL_NAGS = {
+      1, 2, 3, 4, 5, 6,
+      10,
+      13, 14, 15, 16, 17, 18, 19,
+      145, 146,
+      201
+   };
    //public static final String[][] NAG_TEXT;
 
    //instance/////////////////////////////////////////////////////////////
@@ -202,32 +220,31 @@ public class NAG {
     *  For all other NAGs and non-symbols zero is returned.
     */
    public static short symbolToNumber (String str) {
-      short nag = 0;
-         if ("!".equals(str))        nag = 1;
-	 else if ("?".equals(str))   nag = 2;
-	 else if ("!!".equals(str))  nag = 3;
-	 else if ("??".equals(str))  nag = 4;
-	 else if ("!?".equals(str))  nag = 5;
-	 else if ("?!".equals(str))  nag = 6;
-
-	 else if ("=".equals(str))   nag = 10;
-
-	 else if ("~".equals(str))   nag = 13;
-	 else if ("+=".equals(str))  nag = 14;
-	 else if ("=+".equals(str))  nag = 15;
-	 else if ("+/-".equals(str)) nag = 16;
-	 else if ("-/+".equals(str)) nag = 17;
-	 else if ("+-".equals(str))  nag = 18;
-	 else if ("-+".equals(str))  nag = 19;
-
-         //proposed NAG from Chess informant
-	 else if ("RR".equals(str))  nag = 145;
-	 else if ("N".equals(str))   nag = 146;
-
-         //scid specific
-	 else if ("D".equals(str))   nag = 201;
-
-	 return nag;
+      if (str == null) return 0;
+      return symbolToNumber((CharSequence) str);
+   }
+
+   /* symbolToNumber *********************************************************/
+   /** same as symbolToNumber(String) but works on any CharSequence, such
+    *  as a token still in a reader's buffer, so no String is needed.
+    */
+   public static short symbolToNumber (CharSequence str) {
+      int len = str.length();
+         if (len == 0 || len > 3) return 0;
+
+	 for (int i=0; i < SYMBOLS.length; i++) 
+	    if (contentEquals(SYMBOLS[i], str))
+	       return SYMBOL_NAGS[i];
+      return 0;
+   }
+
+   /* contentEquals *******************************************************/
+   private static boolean contentEquals (String s, CharSequence cs) {
+      if (s.length() != cs.length()) return false;
+      for (int i=0; i < s.length(); i++)
+         if (s.charAt(i) != cs.charAt(i)) 
+	    return false;
+      return true;
    }
 
    /* numberToString ******************************************************/
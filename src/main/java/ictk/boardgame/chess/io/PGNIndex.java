@@ -0,0 +1,463 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ictk.util.Log;
+import ictk.boardgame.IllegalMoveException;
+import ictk.boardgame.AmbiguousMoveException;
+import ictk.boardgame.io.InvalidGameFormatException;
+
+import ictk.boardgame.chess.ChessGame;
+
+/* PGNIndex *****************************************************************/
+/** PGNIndex records where each game of a PGN file starts, along with the
+ *  values of a few chosen tags, so a game can be read without parsing
+ *  every game before it.  The index can be saved to a sidecar file and
+ *  loaded again later.
+ *  <br>
+ *  A game starts at a tag line (a line beginning with '[') that follows
+ *  movetext or the start of the file; lines inside {comments} don't
+ *  count.  Offsets are in bytes, so the file must be in an encoding that
+ *  is a superset of ASCII, such as ISO-8859-1 (the PGN standard) or
+ *  UTF-8.
+ *  <br>
+ *  <pre>
+ *  PGNIndex index = PGNIndex.build(file, "White", "Black");
+ *  index.save(indexFile);
+ *  ...
+ *  PGNIndex index = PGNIndex.load(indexFile);
+ *  FileChannel ch = FileChannel.open(file.toPath());
+ *  ChessGame g = index.readGame(ch, index.find("White", "Carlsen, M.", 0));
+ *  </pre>
+ */
+public class PGNIndex {
+      /** mask for Log.debug() */
+   public static final long DEBUG = Log.GameReader;
+
+      /** the first bytes of the sidecar file */
+   protected static final int MAGIC   = 0x50474e49, //"PGNI"
+                              VERSION = 1;
+
+      /** the tags whose values are kept */
+   protected String[] tags;
+      /** byte offset of each game */
+   protected long[] offsets = new long[1024];
+      /** values of the tags for each game, null if the game lacks one */
+   protected List<String[]> values = new ArrayList<>(1024);
+   protected int size = 0;
+
+      /** charset used to read tag values and games */
+   protected Charset charset = StandardCharsets.ISO_8859_1;
+
+      /** game ordinals by tag value, built on the first find() per tag */
+   protected Map<String,Map<String,List<Integer>>> lookup = new HashMap<>();
+
+   //constructors//////////////////////////////////////////////////////////////
+   /** an empty index that keeps the values of these tags.
+    */
+   public PGNIndex (String... tags) {
+      this.tags = tags.clone();
+   }
+
+   /* build *****************************************************************/
+   /** indexes the PGN file, keeping the values of the tags given.
+    */
+   public static PGNIndex build (File file, String... tags)
+          throws IOException {
+      PGNIndex index = new PGNIndex(tags);
+      FileChannel channel = new FileInputStream(file).getChannel();
+
+      try {
+         index.scan(channel);
+      }
+      finally {
+         channel.close();
+      }
+      return index;
+   }
+
+   /* setCharset ************************************************************/
+   /** the charset of the PGN file, ISO-8859-1 by default.  This is
+    *  used for the tag values and by readGame().  It isn't saved with
+    *  the index.
+    */
+   public void setCharset (Charset cs) {
+      charset = cs;
+   }
+
+   public Charset getCharset () {
+      return charset;
+   }
+
+   //scanning/////////////////////////////////////////////////////////////////
+   /* scan ******************************************************************/
+   /** adds the games found from the channel's current position to the
+    *  end of the channel.  The file is memory-mapped a window at a time
+    *  rather than copied into a buffer.
+    */
+   public void scan (FileChannel channel)
+          throws IOException {
+      ByteBuffer buff = null;
+      byte[] line = new byte[256];
+      int lineLength = 0;
+      long pos = channel.position(),
+           end = channel.size();
+      boolean lineStart = true,
+              tagLine   = false,
+	      blankLine = true,
+	      inTags    = false,
+	      inComment = false,
+	      skipLine  = false;
+      String[] row = null;
+      byte b = 0;
+
+      while (pos < end) {
+         buff = channel.map(FileChannel.MapMode.READ_ONLY, pos, 
+	                    Math.min(MappedFileReader.DEFAULT_WINDOW, end - pos));
+	 while (buff.hasRemaining()) {
+	    b = buff.get();
+
+	    if (b == '\n') {
+	       if (tagLine) {
+		  if (row != null)
+		     addTag(row, line, lineLength);
+	       }
+	       else if (!blankLine)
+	          inTags = false;
+	       lineStart = true;
+	       tagLine = skipLine = false;
+	       blankLine = true;
+	       lineLength = 0;
+	    }
+
+	    else if (lineStart && !inComment && (b == '[' || b == '%')) {
+	       lineStart = false;
+	       if (b == '%')
+	          skipLine = true;
+	       else {
+	          tagLine = true;
+		  if (!inTags) {
+		     inTags = true;
+		     row = addGame(pos);
+		  }
+	       }
+	    }
+
+	    else if (tagLine) {
+	       if (lineLength == line.length)
+	          line = Arrays.copyOf(line, line.length * 2);
+	       line[lineLength++] = b;
+	    }
+
+	    else if (!skipLine) {
+	       lineStart = false;
+	       if (b > ' ')
+	          blankLine = false;
+
+	       if (inComment) {
+	          if (b == '}')
+		     inComment = false;
+	       }
+	       else if (b == '{')
+	          inComment = true;
+	       else if (b == ';')
+	          skipLine = true;
+	    }
+	    pos++;
+	 }
+      }
+      channel.position(end);
+
+      //last line without a line break
+      if (tagLine && row != null)
+         addTag(row, line, lineLength);
+
+      if (Log.debug && Log.isDebug(DEBUG))
+         Log.debug(DEBUG, "indexed " + size + " games");
+   }
+
+   /* addGame ***************************************************************/
+   /** records the start of a game.
+    *  @return the array for its tag values
+    */
+   protected String[] addGame (long offset) {
+      String[] row = new String[tags.length];
+
+      if (size == offsets.length)
+         offsets = Arrays.copyOf(offsets, size * 2);
+      offsets[size++] = offset;
+      values.add(row);
+      lookup.clear();
+      return row;
+   }
+
+   /* addTag ****************************************************************/
+   /** keeps the value of a tag line (without its '[') if it is one of
+    *  the tags indexed.
+    */
+   protected void addTag (String[] row, byte[] line, int len) {
+      int i = 0, 
+          keyEnd = 0,
+          start = 0,
+	  end = 0;
+
+      while (i < len && line[i] <= ' ') i++;
+      start = i;
+      while (i < len && line[i] > ' ' && line[i] != '"') i++;
+      keyEnd = i;
+
+      for (int t=0; t < tags.length; t++) {
+         if (matches(tags[t], line, start, keyEnd)) {
+	    while (i < len && line[i] != '"') i++;
+	    start = ++i;
+	    end = len;
+	    while (end > start && line[end - 1] != '"') end--;
+	    if (end > start)
+	       row[t] = new String(line, start, end - start - 1, charset);
+	    else
+	       row[t] = "";
+	    return;
+	 }
+      }
+   }
+
+   /** is the ASCII tag name in line[start, end) */
+   private static boolean matches (String tag, byte[] line, int start, 
+                                   int end) {
+      if (end - start != tag.length())
+         return false;
+      for (int i=0; i < tag.length(); i++)
+         if (line[start + i] != tag.charAt(i))
+	    return false;
+      return true;
+   }
+
+   //access///////////////////////////////////////////////////////////////////
+   /** the number of games indexed */
+   public int size () {
+      return size;
+   }
+
+   /** the tags whose values are kept */
+   public String[] getTags () {
+      return tags.clone();
+   }
+
+   /* getOffset *************************************************************/
+   /** the byte offset of a game in the file.
+    *  @param game ordinal of the game, starting at 0
+    */
+   public long getOffset (int game) {
+      if (game < 0 || game >= size)
+         throw new IndexOutOfBoundsException("no game " + game);
+      return offsets[game];
+   }
+
+   /* getTag ****************************************************************/
+   /** the value of the tag for a game.
+    *  @return null if the game doesn't have the tag
+    *  @throws IllegalArgumentException if the tag isn't indexed
+    */
+   public String getTag (int game, String tag) {
+      getOffset(game);
+      return values.get(game)[tagIndex(tag)];
+   }
+
+   /* find ******************************************************************/
+   /** the first game at or after from whose tag has this value.
+    *  @return -1 if there is none
+    *  @throws IllegalArgumentException if the tag isn't indexed
+    */
+   public int find (String tag, String value, int from) {
+      List<Integer> games = findAll(tag, value);
+
+      for (int i=0; i < games.size(); i++)
+         if (games.get(i) >= from)
+	    return games.get(i);
+      return -1;
+   }
+
+   /* findAll ***************************************************************/
+   /** the games whose tag has this value, in file order.
+    *  The first search on a tag builds a table for it, after that
+    *  searches are a lookup.
+    *  @throws IllegalArgumentException if the tag isn't indexed
+    */
+   public List<Integer> findAll (String tag, String value) {
+      Map<String,List<Integer>> table = lookup.get(tag);
+      List<Integer> games = null;
+      String v = null;
+      int t = tagIndex(tag);
+
+      if (table == null) {
+         table = new HashMap<>();
+	 for (int i=0; i < size; i++) {
+	    if ((v = values.get(i)[t]) == null)
+	       continue;
+	    if ((games = table.get(v)) == null) {
+	       games = new ArrayList<>(2);
+	       table.put(v, games);
+	    }
+	    games.add(i);
+	 }
+	 lookup.put(tag, table);
+      }
+
+      games = table.get(value);
+      if (games == null)
+         return Collections.emptyList();
+      return Collections.unmodifiableList(games);
+   }
+
+   protected int tagIndex (String tag) {
+      for (int i=0; i < tags.length; i++)
+         if (tags[i].equals(tag))
+	    return i;
+      throw new IllegalArgumentException("tag not indexed: " + tag);
+   }
+
+   //reading//////////////////////////////////////////////////////////////////
+   /* getReader *************************************************************/
+   /** positions the channel at the start of a game and returns a
+    *  PGNReader that reads from there.  The reader can go on to read the
+    *  games that follow.  It reads ahead in blocks, so the channel's
+    *  position afterwards is somewhere past the game; and since the
+    *  position is shared, a channel shouldn't be used by two threads
+    *  at once.
+    *  @param channel the PGN file that was indexed
+    *  @param game ordinal of the game, starting at 0
+    */
+   public PGNReader getReader (FileChannel channel, int game)
+          throws IOException {
+      channel.position(getOffset(game));
+      return new PGNReader(
+         Channels.newReader(channel, charset.newDecoder(), -1));
+   }
+
+   /* readGame **************************************************************/
+   /** reads a single game from the PGN file.  The channel is left at 
+    *  an undefined position, as with getReader().
+    *  @param channel the PGN file that was indexed
+    *  @param game ordinal of the game, starting at 0
+    */
+   public ChessGame readGame (FileChannel channel, int game)
+          throws InvalidGameFormatException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+                 IOException {
+      return (ChessGame) getReader(channel, game).readGame();
+   }
+
+   //sidecar file/////////////////////////////////////////////////////////////
+   /* save ******************************************************************/
+   /** writes the index to a file.
+    */
+   public void save (File file) 
+          throws IOException {
+      DataOutputStream out = new DataOutputStream(
+         new BufferedOutputStream(new FileOutputStream(file)));
+      String[] row = null;
+
+      try {
+         out.writeInt(MAGIC);
+	 out.writeInt(VERSION);
+	 out.writeInt(tags.length);
+	 for (int i=0; i < tags.length; i++)
+	    out.writeUTF(tags[i]);
+
+	 out.writeInt(size);
+	 for (int i=0; i < size; i++) {
+	    out.writeLong(offsets[i]);
+	    row = values.get(i);
+	    for (int t=0; t < tags.length; t++) {
+	       out.writeBoolean(row[t] != null);
+	       if (row[t] != null)
+		  out.writeUTF(row[t]);
+	    }
+	 }
+      }
+      finally {
+         out.close();
+      }
+   }
+
+   /* load ******************************************************************/
+   /** reads an index written by save().
+    */
+   public static PGNIndex load (File file) 
+          throws IOException {
+      DataInputStream in = new DataInputStream(
+         new BufferedInputStream(new FileInputStream(file)));
+      PGNIndex index = null;
+      String[] tags = null,
+               row = null;
+      int count = 0;
+
+      try {
+         if (in.readInt() != MAGIC)
+	    throw new IOException("not a PGN index: " + file);
+	 if (in.readInt() != VERSION)
+	    throw new IOException("unsupported PGN index version: " + file);
+
+	 tags = new String[in.readInt()];
+	 for (int i=0; i < tags.length; i++)
+	    tags[i] = in.readUTF();
+	 index = new PGNIndex(tags);
+
+	 count = in.readInt();
+	 for (int i=0; i < count; i++) {
+	    row = index.addGame(in.readLong());
+	    for (int t=0; t < tags.length; t++)
+	       if (in.readBoolean())
+		  row[t] = in.readUTF();
+	 }
+      }
+      finally {
+         in.close();
+      }
+      return index;
+   }
+}
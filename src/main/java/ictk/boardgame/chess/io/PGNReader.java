@@ -29,10 +29,11 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.BufferedReader;
 import java.io.*;
-import java.io.StreamTokenizer;
 import java.util.Calendar;
 import java.util.StringTokenizer;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.regex.*;
 import java.util.Stack;
 
@@ -45,14 +46,25 @@ import ictk.boardgame.Move;
 import ictk.boardgame.IllegalMoveException;
 import ictk.boardgame.AmbiguousMoveException;
 import ictk.boardgame.OutOfTurnException;
+import ictk.boardgame.io.GameVisitor;
 import ictk.boardgame.io.InvalidGameFormatException;
 
 import ictk.boardgame.chess.*;
 
 /* PGNReader *****************************************************************/
-/** PGNReader reads PGN formated files
+/** PGNReader reads PGN formated files.
+ *  <br>
+ *  Games can be read one at a time with readGame(), walked with an
+ *  Iterator (PGNReader is Iterable) or handed to a GameVisitor by 
+ *  readGames().  For large files setRecycleGames(true) makes the reader
+ *  reuse one ChessGame, with its ChessBoard and History, for every game
+ *  read, so memory use stays the same however many games there are.
+ *  <br>
+ *  When only the tags are wanted setHeaderOnly(true) (or readGameInfo()
+ *  followed by skipHistory()) passes over the movetext without parsing
+ *  or playing the moves.
  */
-public class PGNReader extends ChessReader {
+public class PGNReader extends ChessReader implements Iterable<ChessGame> {
       /** mask for Log.debug() */
    public static final long DEBUG = Log.GameReader;
 
@@ -70,6 +82,18 @@ public class PGNReader extends ChessReader {
      /** used for error recovery */
    protected ChessGameInfo gameInfo;
    protected ChessBoard board;
+     /** reuse the last game's objects for the next game */
+   protected boolean recycle = false;
+     /** skip the movetext instead of reading the History */
+   protected boolean headerOnly = false;
+     /** the board given to every headerOnly game */
+   protected ChessBoard placeholder;
+     /** play the moves without checking them; see setTrusted() */
+   protected boolean trusted = false;
+     /** a line read by skipHistory() that belongs to the next game */
+   protected String pendingLine;
+     /** breaks up the movetext; kept for the next game's History */
+   protected PGNTokenizer tokens;
 
 
    //static constructor////////////////////////////////////////////////////////
@@ -93,17 +117,122 @@ public class PGNReader extends ChessReader {
 
          gameInfo = (ChessGameInfo) readGameInfo();
 	 board    = (ChessBoard) readBoard();
-	 if (board == null) 
-	    board = new ChessBoard();
-         game     = new ChessGame(gameInfo, board); 
 
-	 history = readHistory();
+	 //skipHistory() never touches the board, so one will do for all
+	 if (board == null && headerOnly && !recycle) {
+	    if (placeholder == null)
+	       placeholder = new ChessBoard();
+	    board = placeholder;
+	 }
+
+	 //a FEN position needs its own board
+	 if (board == null && recycle && game != null) {
+	    board = (ChessBoard) game.getBoard();
+	    board.reset();
+	    game.getHistory().clear();
+	    game.setGameInfo(gameInfo);
+	 }
+	 else {
+	    if (board == null) 
+	       board = new ChessBoard();
+	    game = new ChessGame(gameInfo, board); 
+	 }
+
+	 if (headerOnly)
+	    skipHistory();
+	 else if (trusted) {
+	    board.setTrustedMoves(true);
+	    try {
+	       history = readHistory();
+	    }
+	    finally {
+	       board.setTrustedMoves(false);
+	    }
+	 }
+	 else
+	    history = readHistory();
 
 	 if (gameInfo == null && history == null) return null;
 
 	 return game;
    }
 
+   /* readGames *************************************************************/
+   /** reads games to the end of the input, handing each to the visitor.
+    *  @return the number of games read
+    */
+   public int readGames (GameVisitor<ChessGame> visitor)
+          throws InvalidGameFormatException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+                 IOException {
+      ChessGame g = null;
+      int count = 0;
+
+         while ((g = (ChessGame) readGame()) != null) {
+	    count++;
+	    if (!visitor.visitGame(g))
+	       break;
+	 }
+      return count;
+   }
+
+   /* iterator **************************************************************/
+   /** the games remaining in the input.  Since an Iterator can't throw
+    *  the reader's exceptions, they are wrapped in an
+    *  IllegalStateException by hasNext() and next().  If games are
+    *  recycled each call to next() invalidates the game it returned last.
+    */
+   public Iterator<ChessGame> iterator () {
+      return new Iterator<ChessGame>() {
+         ChessGame nextGame = null;
+	 boolean done = false;
+
+	 public boolean hasNext () {
+	    if (nextGame == null && !done) {
+	       try {
+	          nextGame = (ChessGame) readGame();
+	       }
+	       catch (Exception e) {
+	          done = true;
+		  throw new IllegalStateException(
+		     "couldn't read game: " + e.getMessage(), e);
+	       }
+	       done = nextGame == null;
+	    }
+	    return nextGame != null;
+	 }
+
+	 public ChessGame next () {
+	    ChessGame g = null;
+	    if (!hasNext())
+	       throw new NoSuchElementException();
+	    g = nextGame;
+	    nextGame = null;
+	    return g;
+	 }
+
+	 public void remove () {
+	    throw new UnsupportedOperationException();
+	 }
+      };
+   }
+
+   /* setRecycleGames *******************************************************/
+   /** if true each game read reuses the ChessGame, ChessBoard and History
+    *  of the game before it (unless the game has its own FEN position).
+    *  The game returned by readGame() is then only good until the next
+    *  call.
+    */
+   public void setRecycleGames (boolean t) {
+      recycle = t;
+   }
+
+   /* isRecycleGames ********************************************************/
+   public boolean isRecycleGames () {
+      return recycle;
+   }
+
    /* getGame ***************************************************************/
    /** gets the last game read.  This can be used if an exception was
     *  thrown during the reading, and you still want the game.
@@ -125,7 +254,7 @@ public class PGNReader extends ChessReader {
                     headerDone = false;
       String        key = null, value = null;
 
-         while (!headerDone && (line = readLine()) != null) {
+         while (!headerDone && (line = nextLine()) != null) {
 	    if (line.startsWith("%")) continue;  //PGN line comment
 	    if (headerFound && line.equals("")) {
 	       headerDone = true;
@@ -135,7 +264,7 @@ public class PGNReader extends ChessReader {
 	       if (result.find()) {
 	          headerFound = true;
 
-		  if (Log.debug) 
+		  if (Log.debug && Log.isDebug(DEBUG)) 
 		     Log.debug(DEBUG, "GameInfo header", result);
 
 		  key = result.group(1);
@@ -158,15 +287,11 @@ public class PGNReader extends ChessReader {
 		  AmbiguousMoveException,
 	          IOException {
       History     history  = game.getHistory();
-      boolean     finished = false,
-                  done     = false;
-      String      line     = null;
-      String      tok      = null,
-                  tok2     = null;
+      boolean     finished = false;
       ChessMove   move     = null;
       ChessMove   lastMove = null;
       int         count    = 0;  //move count
-      int i = 0;  //used for temp
+      int         ttype    = 0;
       ChessResult res      = null;
       Stack<Move> forks    = new Stack<>(); //fork for variations to return to
       ChessAnnotation anno = null;
@@ -176,61 +301,32 @@ public class PGNReader extends ChessReader {
 		   * the next move (if there are exactly 2).
 		   * This is only true for { } annotations. */
       String       savedComment = null;
-      short        nag     = 0;
-      StreamTokenizer st   = new StreamTokenizer(this);
-      StringBuffer sb      = new StringBuffer();  //for storing comments
+      String       comment = null;
 
-      if (Log.debug)
+      if (Log.debug && Log.isDebug(DEBUG))
          Log.debug(DEBUG, "reading History");
 
-      //number parsing is on by default.  turn it off
-      st.ordinaryChars(33, 255);
-      st.wordChars(33,255);
-
-      //delimeters
-      st.ordinaryChar('.');  
-      st.ordinaryChar('(');  //RAV begin
-      st.ordinaryChar(')');  //RAV end
-      st.ordinaryChar('{');  //comment
-      st.ordinaryChar('}');  //comment end
-      st.ordinaryChar(';');  //comment to end of line
-      st.ordinaryChar('*');  //undefined result
-
-      st.ordinaryChar('\t'); //eat these
-      st.eolIsSignificant(true); //just to eat them
-
-
-      //loop until we hit a result or see the EOF
-      while (!finished && st.nextToken() != StreamTokenizer.TT_EOF) {
-         tok = st.sval;
-
-         if (Log.debug)
-	    Log.debug(DEBUG, "token: " + tok);
-
-         //delimeter token
-	 if (tok == null) {
-	    switch (st.ttype) {
-	       case StreamTokenizer.TT_EOL:
-	       case '.':
-	          continue;
-		  
+      if (tokens == null)
+         tokens = new PGNTokenizer(this);
+
+      try {
+	 //loop until we hit a result or see the EOF
+	 while (!finished && (ttype = tokens.nextToken()) != PGNTokenizer.TT_EOF) {
+
+	    if (Log.debug && Log.isDebug(DEBUG))
+	       Log.debug(DEBUG, "token: " + tokens);
+
+	    switch (ttype) {
+	       //move numbers are skipped
+	       case PGNTokenizer.TT_NUMBER:
+		  break;
+
 	       //comment until eol
-	       case ';':
-		  sb = new StringBuffer();
-
-                  st.ordinaryChar(' ');
-		  while (st.nextToken() != StreamTokenizer.TT_EOL) {
-		     tok2 = st.sval;
-		     if (st.ttype != '\t')
-		        if (tok2 != null)
-			   sb.append(tok2);
-			else
-			   sb.append((char) st.ttype);
-		  }
-		  st.whitespaceChars(' ', ' ');
+	       case PGNTokenizer.TT_LINE_COMMENT:
+		  comment = tokens.toString();
 
-		  if (Log.debug)
-		     Log.debug(DEBUG, "eol comment: {" + sb.toString() + "}");
+		  if (Log.debug && Log.isDebug(DEBUG))
+		     Log.debug(DEBUG, "eol comment: {" + comment + "}");
 
 		  //set as annotation of last move
 		  //if lastMove != history.getCurrentMove() then we just started
@@ -243,51 +339,31 @@ public class PGNReader extends ChessReader {
 		     if (anno == null || anno.getComment() == null) {
 			if (anno == null)
 			   anno = new ChessAnnotation();
-			anno.setComment(sb.toString());
+			anno.setComment(comment);
 			lastMove.setAnnotation(anno);
-			if (Log.debug)
+			if (Log.debug && Log.isDebug(DEBUG))
 			   Log.debug(DEBUG, 
 			      "eol comment for (" +  lastMove + "): "
 			      + lastMove.getAnnotation().getComment());
 		     }
 		     else
-			anno.appendComment(" " + sb.toString());
+			anno.appendComment(" " + comment);
 
 		     anno = null;
 		  }
 
 		  //keep for prenotation of next move
 		  else {
-		     savedComment = sb.toString();
+		     savedComment = comment;
 		  }
 		  break;
 
-               //internal {anno} Annotation
-	       case '{':
-		  sb = new StringBuffer();
-		  done = false;
-
-                  st.ordinaryChar(' ');
-		  while (!done && st.nextToken() != StreamTokenizer.TT_EOF) {
-		     tok2 = st.sval;
-		     switch (st.ttype) {
-			case '}': 
-			   done = true; 
-			   break;
-			case StreamTokenizer.TT_EOL:
-			case '\t':
-			   break;
-			default:
-			   if (tok2 != null)
-			      sb.append(tok2);
-			   else
-			      sb.append((char) st.ttype);
-		     }
-		  }
-		  st.whitespaceChars(' ', ' ');
+	       //internal {anno} Annotation
+	       case PGNTokenizer.TT_COMMENT:
+		  comment = tokens.toString();
 
-		  if (Log.debug)
-		     Log.debug(DEBUG, "comment: {" + sb.toString() + "}");
+		  if (Log.debug && Log.isDebug(DEBUG))
+		     Log.debug(DEBUG, "comment: {" + comment + "}");
 
 		  //if lastMove != history.getCurrentMove() then we just started
 		  //a variation, and the comment needs to be a prenotation of
@@ -301,7 +377,7 @@ public class PGNReader extends ChessReader {
 		     if (anno == null || anno.getComment() == null) {
 			if (anno == null) 
 			   anno = new ChessAnnotation();
-			anno.setComment(sb.toString());
+			anno.setComment(comment);
 			lastMove.setAnnotation(anno);
 			anno = null;
 		     }
@@ -314,24 +390,24 @@ public class PGNReader extends ChessReader {
 			if (savedComment != null)
 			   lastMove.getAnnotation().appendComment(" "
 			      + savedComment);
-			savedComment = sb.toString();
+			savedComment = comment;
 		     }
 		  }
 		  //if there's no lastMove this must be the game comment.
 		  //It should be attached as a preNotation to the first move.
 		  else {
-		     savedComment = sb.toString();
+		     savedComment = comment;
 		  }
 		  break;
 
 	       //RAV: start of a variation
-	       case '(':
+	       case PGNTokenizer.TT_RAV_BEGIN:
 		  //go back one move so the next history.add() will add
 		  //a variation
 		  history.prev();  
 		  forks.push(history.getCurrentMove());
 
-		  if (Log.debug)
+		  if (Log.debug && Log.isDebug(DEBUG))
 		     Log.debug(DEBUG, "starting variation from " 
 			+ history.getCurrentMove());
 
@@ -352,11 +428,11 @@ public class PGNReader extends ChessReader {
 		  break;
 
 	       //RAV: end of a variation
-	       case ')':
+	       case PGNTokenizer.TT_RAV_END:
 		  ChessMove fork = (ChessMove) forks.pop();
 		  history.goTo(fork);
 
-		  if (Log.debug)
+		  if (Log.debug && Log.isDebug(DEBUG))
 		     Log.debug(DEBUG, "ending variation from " 
 			+ fork);
 
@@ -381,126 +457,120 @@ public class PGNReader extends ChessReader {
 		  lastMove = (ChessMove) history.getCurrentMove();
 		  break;
 
-	       //undecided result of game
-	       case '*':
-		  if (Log.debug)
-		     Log.debug(DEBUG, "Result token: " + tok);
-		  if (lastMove != null)
-		     lastMove.setResult(new ChessResult(ChessResult.UNDECIDED));
+	       //Result, including the undecided *
+	       case PGNTokenizer.TT_RESULT:
+		  res = new ChessResult(tokens.getResult());
 		  finished = true;
-		  break;
-
-	    } //end switch
 
-	 } //end null tok
+		  //trusted moves don't look for stalemate on their own
+		  if (board.isTrustedMoves())
+		     board.getLegalMoveCount();
+
+		  if (Log.debug && Log.isDebug(DEBUG))
+		     Log.debug(DEBUG, "Result token: " + tokens);
+		  if (lastMove != null) {
+		     lastMove.setResult(res);
+		     if (Log.debug && Log.isDebug(DEBUG)) {
+			Log.debug(DEBUG, "Result set(" + lastMove + "): " + res);
+			ChessMove prevTmp = (ChessMove) lastMove.getPrev();
+			if (prevTmp != null)
+			Log.debug(DEBUG, "Result set(" + lastMove + "): " 
+			   + res + " prev move: " + lastMove.getPrev().dump());
 
-         //NAG - numeric of symbol
-	 else if ((nag = NAG.stringToNumber(tok)) != 0) {
-	    if (Log.debug)
-	       Log.debug(DEBUG, "NAG symbol(nag): " + tok);
+		     }
+		  }
+		  else
+		     if (Log.debug && Log.isDebug(DEBUG))
+			Log.debug(DEBUG, "Result not set; no last move");
+		  break;
 
-	    if (lastMove != null) {
-	       anno = (ChessAnnotation) lastMove.getAnnotation();
-	       if (anno == null)
-		  anno = new ChessAnnotation();
-	       anno.addNAG(nag);
-	       lastMove.setAnnotation(anno);
-	    }
-	    //else skip this since it's not really legal.
-	 }
+	       //NAG - numeric of symbol
+	       case PGNTokenizer.TT_NAG:
+		  if (Log.debug && Log.isDebug(DEBUG))
+		     Log.debug(DEBUG, "NAG symbol(nag): " + tokens);
 
-         //move number or Result
-	 else if (Character.isDigit(tok.charAt(0))) {
-	    if ((res = (ChessResult) notation.stringToResult(tok)) != null) {
+		  if (lastMove != null) {
+		     anno = (ChessAnnotation) lastMove.getAnnotation();
+		     if (anno == null)
+			anno = new ChessAnnotation();
+		     anno.addNAG(tokens.getNAG());
+		     lastMove.setAnnotation(anno);
+		  }
+		  //else skip this since it's not really legal.
+		  break;
 
-	       finished = true;
+	       //actual move
+	       case PGNTokenizer.TT_MOVE:
+		  try {
+		     //read from the tokenizer's buffer, no String needed
+		     move = (ChessMove) notation.stringToMove(board, tokens);
+		     if (move != null) {
+			history.add(move);
+
+			//if there is a comment in the hopper
+			//we need to apply it to this move's
+			//pre-notation member.
+			if (savedComment != null) {
+			   anno = new ChessAnnotation();
+			   anno.setComment(savedComment);
+			   move.setPrenotation(anno);
+			   if (Log.debug && Log.isDebug(DEBUG))
+			      Log.debug(DEBUG, "prenotation set: " 
+				 + move.getPrenotation().getComment());
+			   savedComment = null;
+			}
 
-	       if (Log.debug)
-	          Log.debug(DEBUG, "Result token: " + tok);
-	       if (lastMove != null) {
-		  lastMove.setResult(res);
-		  if (Log.debug) {
-		     Log.debug(DEBUG, "Result set(" + lastMove + "): " + res);
-		     ChessMove prevTmp = (ChessMove) lastMove.getPrev();
-		     if (prevTmp != null)
-		     Log.debug(DEBUG, "Result set(" + lastMove + "): " 
-		        + res + " prev move: " + lastMove.getPrev().dump());
+			lastMove = move;
 
+			count++; //just to see if we found any moves in the history
+		     }
+		     else {
+			if (Log.debug && Log.isDebug(DEBUG))
+			   Log.debug(DEBUG, "Thought this was a move: " + tokens);
+			throw new IOException("Thought this was a move: " + tokens);
+		     }
 		  }
-	       }
-	       else
-	          if (Log.debug)
-		     Log.debug(DEBUG, "Result not set; no last move");
-	    }
-	    //if it's not a result we don't do anything with the move number
-	 }
-
-	 //actual move
-	 else if (Character.isLetter(tok.charAt(0))) {
-	    try {
-	       move = (ChessMove) notation.stringToMove(board, tok);
-	       if (move != null) {
-		  history.add(move);
-
-		  //if there is a comment in the hopper
-		  //we need to apply it to this move's
-		  //pre-notation member.
-		  if (savedComment != null) {
-		     anno = new ChessAnnotation();
-		     anno.setComment(savedComment);
-		     move.setPrenotation(anno);
-		     Log.debug(DEBUG, "prenotation set: " 
-		        + move.getPrenotation().getComment());
-		     savedComment = null;
+		  catch (OutOfTurnException e) {
+		     if (Log.debug && Log.isDebug(DEBUG)) {
+			Log.debug(DEBUG, e);
+			Log.debug2(DEBUG,"From Token: " + tokens);
+			Log.debug2(DEBUG,"Board: \n" + board);
+		     }
+		     throw e;
 		  }
+		  catch (AmbiguousMoveException e) {
+		     if (Log.debug && Log.isDebug(DEBUG)) {
+			Log.debug(DEBUG, e);
+			Log.debug2(DEBUG,"From Token: " + tokens);
+			Log.debug2(DEBUG,"Board: \n" + board);
+		     }
+		     throw e;
+		  }
+		  catch (IllegalMoveException e) {
+		     if (Log.debug && Log.isDebug(DEBUG)) {
+			Log.debug(DEBUG, e);
+			Log.debug2(DEBUG,"From Token: " + tokens);
+			Log.debug2(DEBUG,"Board: \n" + board);
+		     }
+		     //history.rewind();
+			throw e;
+		  } 
+		  break;
 
-		  lastMove = move;
-
-		  count++; //just to see if we found any moves in the history
-	       }
-	       else {
-	          if (Log.debug)
-		     Log.debug(DEBUG, "Thought this was a move: " + tok);
-		  throw new IOException("Thought this was a move: " + tok);
-	       }
-	    }
-	    catch (OutOfTurnException e) {
-	       if (Log.debug) {
-	          Log.debug(DEBUG, e);
-		  Log.debug2(DEBUG,"From Token: " + tok);
-		  Log.debug2(DEBUG,"Board: \n" + board);
-	       }
-	       throw e;
-	    }
-	    catch (AmbiguousMoveException e) {
-	       if (Log.debug) {
-	          Log.debug(DEBUG, e);
-		  Log.debug2(DEBUG,"From Token: " + tok);
-		  Log.debug2(DEBUG,"Board: \n" + board);
-	       }
-	       throw e;
+	       //unknown
+	       default:
+		  //no idea what this is
+		  if (Log.debug && Log.isDebug(DEBUG)) 
+		     Log.debug(DEBUG, "No idea what this is: <" + tokens + ">");
 	    }
-	    catch (IllegalMoveException e) {
-	       if (Log.debug) {
-	          Log.debug(DEBUG, e);
-		  Log.debug2(DEBUG,"From Token: " + tok);
-		  Log.debug2(DEBUG,"Board: \n" + board);
-	       }
-	       //history.rewind();
-		  throw e;
-	    } 
 	 }
-
-	 //unknown
-	 else {
-	    //no idea what this is
-	    if (Log.debug) 
-	       Log.debug(DEBUG, "No idea what this is: <" + tok + ">");
-	 }
-
+      }
+      finally {
+         //whatever follows the movetext belongs to the next game
+         tokens.unread();
       }
 
-      if (Log.debug) {
+      if (Log.debug && Log.isDebug(DEBUG)) {
          history.goToEnd();
 	 if (history.getCurrentMove() != null) {
             Log.debug(DEBUG, "final result is: " 
@@ -511,17 +581,139 @@ public class PGNReader extends ChessReader {
       history.rewind();
 
       if (count == 0) {
-         if (Log.debug)
+         if (Log.debug && Log.isDebug(DEBUG))
 	    Log.debug(DEBUG, "finished reading History: empty");
          return null;
       }
       else {
-         if (Log.debug)
+         if (Log.debug && Log.isDebug(DEBUG))
 	    Log.debug(DEBUG, "finished reading History");
          return history;
       }
    }
 
+   /* skipHistory *******************************************************/
+   /** passes over the movetext of the current game without tokenizing
+    *  or playing the moves.  The movetext ends at the result at the top
+    *  level (outside of comments and variations), or, if the result is
+    *  missing, at the tags of the next game.
+    */
+   public void skipHistory () 
+          throws IOException {
+      String line = null;
+      boolean inComment = false;
+      int depth = 0,
+          len = 0,
+          start = 0,
+          i = 0;
+      char c = ' ';
+
+         while ((line = nextLine()) != null) {
+	    len = line.length();
+	    if (!inComment && len > 0) {
+	       if (line.charAt(0) == '%') 
+	          continue;  //PGN line escape
+	       if (line.charAt(0) == '[') {
+	          pendingLine = line;  //no result before the next game
+		  return;
+	       }
+	    }
+
+	    for (i=0; i < len; i++) {
+	       c = line.charAt(i);
+
+	       if (inComment) {
+	          if (c == '}') 
+		     inComment = false;
+	       }
+	       else if (c == '{')
+	          inComment = true;
+	       else if (c == ';')
+	          break;  //comment to end of line
+	       else if (c == '(')
+	          depth++;
+	       else if (c == ')')
+	          depth--;
+	       else if (depth == 0 && (c == '*' || c == '0' || c == '1')) {
+	          start = i;
+		  while (i < len && !isMoveTextDelimiter(line.charAt(i)))
+		     i++;
+		  if (isResult(line, start, i))
+		     return;
+		  i--;
+	       }
+	       else if (!isMoveTextDelimiter(c)) {
+	          //skip the rest of the token so "e1" isn't a result
+		  while (i + 1 < len && !isMoveTextDelimiter(line.charAt(i+1)))
+		     i++;
+	       }
+	    }
+	 }
+   }
+
+   /* isMoveTextDelimiter ***********************************************/
+   private static boolean isMoveTextDelimiter (char c) {
+      return c == ' ' || c == '\t' || c == '{' || c == '}' || c == '(' 
+          || c == ')' || c == ';';
+   }
+
+   /* isResult **********************************************************/
+   /** is line[start, end) one of the four game termination markers? */
+   private static boolean isResult (String line, int start, int end) {
+      int len = end - start;
+      return (len == 1 && line.charAt(start) == '*')
+          || (len == 3 && (line.startsWith("1-0", start) 
+	                   || line.startsWith("0-1", start)))
+          || (len == 7 && line.startsWith("1/2-1/2", start));
+   }
+
+   /* nextLine **********************************************************/
+   /** the next line of input, starting with any line skipHistory() read
+    *  too far.
+    */
+   protected String nextLine () 
+          throws IOException {
+      String line = pendingLine;
+
+         if (line == null)
+	    return readLine();
+	 pendingLine = null;
+      return line;
+   }
+
+   /* setHeaderOnly *****************************************************/
+   /** if true readGame() reads only the tags of each game and skips the
+    *  movetext.  The games returned have an empty History.  Unless the
+    *  game has a FEN tag its board is only a placeholder: one board in
+    *  the starting position, shared by every game read this way, which
+    *  shouldn't be played on.
+    */
+   public void setHeaderOnly (boolean t) {
+      headerOnly = t;
+   }
+
+   /* isHeaderOnly ******************************************************/
+   public boolean isHeaderOnly () {
+      return headerOnly;
+   }
+
+   /* setTrusted ********************************************************/
+   /** if true the moves of each game are played without being checked
+    *  for legality, which is much faster.  Only use this for PGN known 
+    *  to be legal, such as a database that has been read before; an
+    *  illegal move may not be caught and would leave the game in a
+    *  nonsense position.  The boards are returned in the normal mode.
+    *  @see ChessBoard#setTrustedMoves(boolean)
+    */
+   public void setTrusted (boolean t) {
+      trusted = t;
+   }
+
+   /* isTrusted *********************************************************/
+   public boolean isTrusted () {
+      return trusted;
+   }
+
    /* readBoard *********************************************************/
    /** looks for a readable board notation (FEN) in the GameInfo header
     *  @return null if there is no particular position associated with
@@ -541,6 +733,15 @@ public class PGNReader extends ChessReader {
 
    /* _setGameInfo *******************************************************/
    protected void _setGameInfo (ChessGameInfo gi, String key, String value) {
+      setTag(gi, key, value, notation);
+   }
+
+   /* setTag *************************************************************/
+   /** sets the GameInfo field named by a PGN tag.  Tags that aren't
+    *  recognized are kept as properties of the GameInfo.
+    */
+   static void setTag (ChessGameInfo gi, String key, String value,
+                       ChessMoveNotation notation) {
       StringTokenizer st = null;
       String tok = null;
       ChessPlayer p = null;
@@ -0,0 +1,376 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import ictk.boardgame.chess.ChessResult;
+
+/* PGNTokenizer **************************************************************/
+/** PGNTokenizer breaks PGN movetext into tokens.  It replaces the
+ *  StreamTokenizer PGNReader used to use, and is built for speed: the
+ *  characters are read into a buffer and a token is only a range of
+ *  that buffer, so no String is made for a token unless toString() is
+ *  called.  The tokenizer is itself a CharSequence of the current token.
+ *  <br>
+ *  The tokens are moves, move numbers, NAGs, {comments}, ;comments,
+ *  the start and end of RAVs and results.  Move number periods and
+ *  whitespace are skipped.  The text of a comment doesn't include its
+ *  delimiters, and control characters (tabs and line breaks) are
+ *  dropped from it.
+ *  <br>
+ *  The buffer is overwritten by the next call to nextToken(), so the
+ *  current token must be used, or copied, before then.
+ *  <br>
+ *  When reading from a Reader that supports mark() the characters read
+ *  ahead of the current token can be given back to the Reader with
+ *  unread(), so the Reader can be handed on at the end of the movetext.
+ */
+public class PGNTokenizer implements CharSequence {
+      /** the end of the input */
+   public static final int TT_EOF          = -1,
+      /** a token starting with a letter, that isn't a NAG symbol */
+                           TT_MOVE         = 1,
+      /** a token starting with a digit that isn't a result */
+                           TT_NUMBER       = 2,
+      /** $n or one of the NAG symbols such as !? or += */
+                           TT_NAG          = 3,
+      /** a {comment} */
+                           TT_COMMENT      = 4,
+      /** a ;comment to the end of the line */
+                           TT_LINE_COMMENT = 5,
+      /** ( */
+                           TT_RAV_BEGIN    = 6,
+      /** ) */
+                           TT_RAV_END      = 7,
+      /** 1-0, 0-1, 1/2-1/2 or * */
+                           TT_RESULT       = 8,
+      /** anything else */
+                           TT_UNKNOWN      = 9;
+
+   public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+   protected Reader in;
+   protected char[] buf;
+      /** next character to read */
+   protected int    pos;
+      /** end of the characters in the buffer */
+   protected int    limit;
+      /** where the last read from the Reader went in the buffer */
+   protected int    fillStart;
+      /** the Reader is marked at fillStart */
+   protected boolean marked;
+
+   protected int    type = TT_EOF;
+   protected int    start,
+                    end;
+   protected short  nag;
+   protected int    result;
+
+   //constructors//////////////////////////////////////////////////////////////
+   public PGNTokenizer (Reader _in) {
+      this(_in, DEFAULT_BUFFER_SIZE);
+   }
+
+   public PGNTokenizer (Reader _in, int size) {
+      if (_in == null)
+         throw new IllegalArgumentException("reader can't be null");
+      if (size < 1)
+         throw new IllegalArgumentException("buffer size must be positive");
+      in = _in;
+      buf = new char[size];
+   }
+
+   /** tokenizes the characters in an array, which will be written over
+    *  (comments are compacted in place).
+    */
+   public PGNTokenizer (char[] chars, int off, int len) {
+      if (off < 0 || len < 0 || off + len > chars.length)
+         throw new IllegalArgumentException("range outside of the array");
+      buf   = chars;
+      pos   = off;
+      limit = off + len;
+   }
+
+   /* nextToken *************************************************************/
+   /** reads the next token.
+    *  @return the type of the token, TT_EOF at the end of the input.
+    */
+   public int nextToken () 
+          throws IOException {
+      char c = 0;
+
+         for (;;) {
+	    //nothing before pos needs to be kept by fill()
+	    start = end = pos;
+	    if (pos >= limit && fill() < 0) 
+	       return type = TT_EOF;
+
+	    c = buf[pos];
+	    if (c <= ' ' || c == '.') {
+	       pos++;
+	       continue;
+	    }
+
+	    start = pos++;
+	    end = pos;
+	    switch (c) {
+	       case '(': 
+	          return type = TT_RAV_BEGIN;
+	       case ')': 
+	          return type = TT_RAV_END;
+	       case '*': 
+	          result = ChessResult.UNDECIDED;
+	          return type = TT_RESULT;
+	       case '{': 
+	          readComment(false);
+	          return type = TT_COMMENT;
+	       case ';': 
+	          readComment(true);
+	          return type = TT_LINE_COMMENT;
+	       default:
+	          return type = readWord();
+	    }
+	 }
+   }
+
+   /* readComment ***********************************************************/
+   /** moves the text of the comment to the front of its range, without
+    *  the control characters.  The closing delimiter is consumed.
+    */
+   protected void readComment (boolean toEOL) 
+          throws IOException {
+      char c = 0;
+
+         start = end = pos;
+         for (;;) {
+	    if (pos >= limit && fill() < 0) 
+	       break;
+	    c = buf[pos++];
+	    if (toEOL ? (c == '\n' || c == '\r') : c == '}')
+	       break;
+	    if (c >= ' ')
+	       buf[end++] = c;
+	 }
+   }
+
+   /* readWord **************************************************************/
+   protected int readWord () 
+          throws IOException {
+      char c = buf[start];
+
+         while ((pos < limit || fill() >= 0) && isWordChar(buf[pos]))
+	    pos++;
+	 end = pos;
+
+	 if (Character.isDigit(c)) {
+	    if (startsWith("1-0"))
+	       result = ChessResult.WHITE_WIN;
+	    else if (startsWith("0-1"))
+	       result = ChessResult.BLACK_WIN;
+	    else if (startsWith("1/2-1/2"))
+	       result = ChessResult.DRAW;
+	    else
+	       return TT_NUMBER;
+	    return TT_RESULT;
+	 }
+
+	 if (c == '$') {
+	    if ((nag = parseNAG()) != 0)
+	       return TT_NAG;
+	 }
+	 else if ((nag = NAG.symbolToNumber(this)) != 0)
+	    return TT_NAG;
+
+	 if (Character.isLetter(c))
+	    return TT_MOVE;
+
+      return TT_UNKNOWN;
+   }
+
+   /* isWordChar ************************************************************/
+   protected static boolean isWordChar (char c) {
+      if (c <= ' ') 
+         return false;
+      switch (c) {
+         case '.': case '(': case ')': case '{': case '}': case ';': case '*':
+	    return false;
+      }
+      return true;
+   }
+
+   /* parseNAG **************************************************************/
+   /** the number of a $n token.
+    *  @return 0 if it isn't a number that fits in a short
+    */
+   private short parseNAG () {
+      int n = 0;
+      char c = 0;
+
+         if (end - start < 2) return 0;
+         for (int i = start + 1; i < end; i++) {
+	    c = buf[i];
+	    if (c < '0' || c > '9') return 0;
+	    n = n * 10 + (c - '0');
+	    if (n > Short.MAX_VALUE) return 0;
+	 }
+      return (short) n;
+   }
+
+   /* startsWith ************************************************************/
+   private boolean startsWith (String s) {
+      if (end - start < s.length()) return false;
+      for (int i=0; i < s.length(); i++)
+         if (buf[start + i] != s.charAt(i))
+	    return false;
+      return true;
+   }
+
+   /* fill ******************************************************************/
+   /** reads more characters into the buffer, keeping the current token.
+    *  @return the number of characters read, -1 at the end of the input
+    */
+   protected int fill () 
+          throws IOException {
+      int shift = 0,
+          n     = 0;
+      char[] tmp = null;
+
+         if (in == null)
+	    return -1;
+
+	 //move the current token to the front of the buffer
+	 shift = start;
+	 if (shift > 0) {
+	    System.arraycopy(buf, shift, buf, 0, limit - shift);
+	    limit -= shift;
+	    pos   -= shift;
+	    start -= shift;
+	    end   -= shift;
+	 }
+
+	 //a token as big as the buffer
+	 if (limit == buf.length) {
+	    tmp = new char[buf.length * 2];
+	    System.arraycopy(buf, 0, tmp, 0, limit);
+	    buf = tmp;
+	 }
+
+	 fillStart = limit;
+	 marked = in.markSupported();
+	 if (marked)
+	    in.mark(buf.length - limit);
+
+	 n = in.read(buf, limit, buf.length - limit);
+	 if (n > 0)
+	    limit += n;
+      return n;
+   }
+
+   /* unread ****************************************************************/
+   /** gives the characters read ahead of the current position back to
+    *  the Reader, if it supports mark(), and empties the buffer.  The
+    *  next token will be read from the Reader's position.
+    */
+   public void unread () 
+          throws IOException {
+         if (marked) {
+	    in.reset();
+	    in.skip(pos - fillStart);
+	    marked = false;
+	 }
+	 if (in != null)
+	    pos = limit = start = end = fillStart = 0;
+	 type = TT_EOF;
+   }
+
+   //Token/////////////////////////////////////////////////////////////////////
+
+   /* getType ***************************************************************/
+   /** the type of the current token */
+   public int getType () {
+      return type;
+   }
+
+   /* getNAG ****************************************************************/
+   /** the NAG value of a TT_NAG token */
+   public short getNAG () {
+      return nag;
+   }
+
+   /* getResult *************************************************************/
+   /** the ChessResult value of a TT_RESULT token, such as 
+    *  ChessResult.WHITE_WIN.
+    */
+   public int getResult () {
+      return result;
+   }
+
+   /* getBuffer *************************************************************/
+   /** the buffer the current token is in, from getStart() to getEnd().
+    */
+   public char[] getBuffer () {
+      return buf;
+   }
+
+   /* getStart **************************************************************/
+   public int getStart () {
+      return start;
+   }
+
+   /* getEnd ****************************************************************/
+   /** the index after the last character of the current token */
+   public int getEnd () {
+      return end;
+   }
+
+   /* length ****************************************************************/
+   public int length () {
+      return end - start;
+   }
+
+   /* charAt ****************************************************************/
+   public char charAt (int i) {
+      if (i < 0 || i >= end - start)
+         throw new IndexOutOfBoundsException("index " + i);
+      return buf[start + i];
+   }
+
+   /* subSequence ***********************************************************/
+   /** a copy of part of the current token. */
+   public CharSequence subSequence (int from, int to) {
+      if (from < 0 || to > end - start || from > to)
+         throw new IndexOutOfBoundsException(from + ", " + to);
+      return new String(buf, start + from, to - from);
+   }
+
+   /* toString **************************************************************/
+   /** the current token as a String. */
+   public String toString () {
+      return new String(buf, start, end - start);
+   }
+}
@@ -83,8 +83,12 @@ public class PGNWriter extends ChessWriter {
 			      _RESULT           = 7,
                               _MISC             = 8;
 
-      /** output held for formatting */
-   protected StringBuffer buffer = null;
+      /** length of the line being written */
+   protected int lineLength = 0;
+      /** the token being formatted, reused for every token */
+   protected StringBuilder token = new StringBuilder(64);
+      /** for writing tokens that aren't Strings */
+   private char[] chars = new char[64];
      
       /** maximum column for output */
    protected int     colWidth         = 80,
@@ -214,12 +218,12 @@ public class PGNWriter extends ChessWriter {
       ChessGame g = (ChessGame) game;
 
       if (g == null) {
-         if (Log.debug)
+         if (Log.debug && Log.isDebug(DEBUG))
 	    Log.debug(DEBUG, "can't write a null game");
          throw new NullPointerException ("can't write null game");
       }
 
-      if (Log.debug)
+      if (Log.debug && Log.isDebug(DEBUG))
          Log.debug(DEBUG, "Writing game");
 
       g.getHistory().rewind();
@@ -235,15 +239,38 @@ public class PGNWriter extends ChessWriter {
    public void writeGameInfo (GameInfo gameinfo) 
           throws IOException {
       ChessGameInfo gi = (ChessGameInfo) gameinfo;
-      StringBuffer sb = new StringBuffer();
-      String event, site, date, round, white, black, result;
-
-      event = site = date = round = white = black = result = null;
+      List<String> tags = null;
 
-      if (Log.debug)
+      if (Log.debug && Log.isDebug(DEBUG))
          if (gi == null)
 	    Log.debug(DEBUG, "gameInfo is null, so writing default header");
 
+      tags = getTags(gi, notation);
+
+      if (Log.debug && Log.isDebug(DEBUG))
+         Log.debug(DEBUG, "writing gameInfo block to stream");
+
+      //no extra \n (might add FEN)
+      for (int i=0; i < tags.size(); i += 2) {
+	 write("[");
+	 write(tags.get(i));
+	 write(" \"");
+	 write(tags.get(i+1));
+	 write("\"]\n");
+      }
+   }
+
+   /* getTags ************************************************************/
+   /** returns the tags written for the GameInfo as a flat list of
+    *  key, value pairs.  The Seven Tag Roster always comes first, with
+    *  the PGN placeholders standing in for anything the GameInfo lacks.
+    */
+   static List<String> getTags (ChessGameInfo gi, ChessMoveNotation notation) {
+      List<String> tags = new ArrayList<>(24);
+      String event, site, date, round, white, black, result;
+
+      event = site = date = round = white = black = result = null;
+
       if (gi != null) {
          event = gi.getEvent();
 	 site = gi.getSite();
@@ -279,49 +306,46 @@ public class PGNWriter extends ChessWriter {
          result = "*"; //continuing
 
       //required
-      sb.append("[Event \"").append(event).append("\"]\n");
-      sb.append("[Site \"").append(site).append("\"]\n");
-      sb.append("[Date \"").append(date).append("\"]\n");
-      sb.append("[Round \"").append(round).append("\"]\n");
+      addTag(tags, "Event", event);
+      addTag(tags, "Site", site);
+      addTag(tags, "Date", date);
+      addTag(tags, "Round", round);
       if (gi != null
          && gi.getSubRound() != null 
 	 && !gi.getSubRound().equals(""))
-         sb.append("[SubRound \"").append(gi.getSubRound()).append("\"]\n");
-      sb.append("[White \"").append(white).append("\"]\n");
-      sb.append("[Black \"").append(black).append("\"]\n");
-      sb.append("[Result \"").append(result).append("\"]\n");
+         addTag(tags, "SubRound", gi.getSubRound());
+      addTag(tags, "White", white);
+      addTag(tags, "Black", black);
+      addTag(tags, "Result", result);
 
       //optional 
       if (gi != null) {
          if (gi.getWhiteRating() > 0)
-	    sb.append("[WhiteElo \"")
-	      .append(gi.getWhiteRating()).append("\"]\n");
+	    addTag(tags, "WhiteElo", String.valueOf(gi.getWhiteRating()));
 
          if (gi.getBlackRating() > 0)
-	    sb.append("[BlackElo \"")
-	      .append(gi.getBlackRating()).append("\"]\n");
+	    addTag(tags, "BlackElo", String.valueOf(gi.getBlackRating()));
 
 	 if (gi.getECO() != null)
-	    sb.append("[ECO \"").append(gi.getECO()).append("\"]\n");
+	    addTag(tags, "ECO", gi.getECO());
 
 	 if (gi.getTimeControlInitial() > 0)
-	    sb.append("[TimeControl \"").append(gi.getTimeControlInitial())
-	    .append("+").append(gi.getTimeControlIncrement())
-	    .append("\"]\n");
+	    addTag(tags, "TimeControl", gi.getTimeControlInitial()
+	       + "+" + gi.getTimeControlIncrement());
 
          Enumeration<?> keys = gi.props.propertyNames();
-	 String key = null, value = null;
+	 String key = null;
 	 while (keys.hasMoreElements()) {
 	    key = (String) keys.nextElement();
-	    value = gi.props.getProperty(key);
-	    sb.append("[").append(key).append(" \"")
-	      .append(value).append("\"]\n");
+	    addTag(tags, key, gi.props.getProperty(key));
 	 }
       }
+      return tags;
+   }
 
-      if (Log.debug)
-         Log.debug(DEBUG, "writing gameInfo block to stream");
-      print(sb); //no extra \n (might add FEN)
+   private static void addTag (List<String> tags, String key, String value) {
+      tags.add(key);
+      tags.add(value);
    }
 
    /* writeHistory ********************************************************/
@@ -336,25 +360,29 @@ public class PGNWriter extends ChessWriter {
     *  adding Prenotations to PGN will make the output incompadible with
     *  other readers)</i>.
     *  <br>
+    *  <p>The movetext is written to the output as it is formatted; only
+    *  the length of the current line is kept, so no String is built for
+    *  the movetext, a line, or (with SAN) a move.
+    *  <br>
     */
-   /* it's synchronized because buffer and variationsDeep are by instance */
+   /* it's synchronized because lineLength, token and variationsDeep 
+    * are by instance */
    public synchronized void writeHistory (History history) 
           throws IOException {
-      Move currMove = null,
-           lastMove = null,
-	   walker = null;
+      Move walker = null;
       ChessResult result = null;
-      int  num  = history.getInitialMoveNumber(); 
+      int  num  = 0;
 
          if (history == null) {
-	     if (Log.debug)
+	     if (Log.debug && Log.isDebug(DEBUG))
 	        Log.debug(DEBUG, "can't write a null history");
              throw new NullPointerException ("can't write null history");
 	 }
 
-         buffer = new StringBuffer(colWidth);
+         num = history.getInitialMoveNumber(); 
+         lineLength = 0;
 
-         if (Log.debug)
+         if (Log.debug && Log.isDebug(DEBUG))
 	    Log.debug(DEBUG, "walking the History move tree");
 
 	 walkMoveTreeBreadthFirst(history.getFirstAll(), num);
@@ -369,17 +397,13 @@ public class PGNWriter extends ChessWriter {
 	 else
 	    formatOutput(notation.resultToString(result), _RESULT);
 
-         //empty buffer
-         if (buffer.length() != 0)
-            print(buffer.toString());
-
-      println();  // \n pgn formatting
+      newLine();  // \n pgn formatting
    }
 
    /* walkMoveTreeBeadthFirst ********************************************/
    /** walks down the move branches in a breadth first manner decending
     *  the last node first.  The String representations of the moves will
-    *  be added to the StirngBuffer object.
+    *  be sent to formatOutput().
     *
     *  @param cont all moves at this branch level
     *  @param num  current move number count
@@ -390,12 +414,9 @@ public class PGNWriter extends ChessWriter {
       boolean isBlackMove = true;
       short[] nags = null;
 
-      //11...cxd4=Q+!! (longest)
-      StringBuffer sbtmp = new StringBuffer(12);
-
       ChessAnnotation anno = null;
 
-         if (Log.debug)
+         if (Log.debug && Log.isDebug(DEBUG))
 	    Log.debug(DEBUG, "continuations(" + cont.size() + ")"
 	       + ((cont.isTerminal()) ? " is " : " is not ") 
 	       + "terminal");
@@ -426,23 +447,28 @@ public class PGNWriter extends ChessWriter {
 	          && m.getPrenotation() != null
 	          && (m.getPrenotation().getComment() 
 		       != null)) {
-		  formatOutput(" {" 
-			       + m.getPrenotation().getComment()
-		               + "} ",
-			       _COMMENT);
+		  token.setLength(0);
+		  token.append(" {")
+		       .append(m.getPrenotation().getComment())
+		       .append("} ");
+		  formatOutput(token, _COMMENT);
 	       }
 
+	       //the token is free again once it's been output,
+	       //so it can be reused for the move (11...cxd4=Q+!! longest)
+	       token.setLength(0);
+
                //add numbers
 	       if (!isBlackMove)
-		  sbtmp.append(num).append(".");
+		  token.append(num).append(".");
 
 	       if ((i > 0 || needNumber) && isBlackMove)
-	          sbtmp.append(num).append("...");
+	          token.append(num).append("...");
 
 	       needNumber = false;
 
 	       //add move
-	       sbtmp.append(notation.moveToString(m));
+	       notation.appendMove(token, m);
 
                anno = (ChessAnnotation) m.getAnnotation();
 
@@ -451,15 +477,11 @@ public class PGNWriter extends ChessWriter {
 		   && glyphStyle != NO_GLYPH 
 		   && glyphStyle != NUMERIC_GLYPH
 		   && anno.getSuffix() != 0) {
-		  sbtmp.append(NAG.numberToString(anno.getSuffix()));
+		  token.append(NAG.numberToString(anno.getSuffix()));
 	       }
 
 	       //send move chunk to output
-	       formatOutput(sbtmp.toString(), 
-	                    ((isBlackMove) ? _MOVE_B : _MOVE_W));
-
-               //empty move buffer
-	       sbtmp.delete(0, sbtmp.length());
+	       formatOutput(token, ((isBlackMove) ? _MOVE_B : _MOVE_W));
 
 	       //add NAG
 	       if (anno != null
@@ -499,16 +521,15 @@ public class PGNWriter extends ChessWriter {
 	       if (exportComments
 	           && anno != null
 	           && anno.getComment() != null) {
-		   formatOutput("{"
-				+ anno.getComment()
-				+ "}",
-				_COMMENT);
+		   token.setLength(0);
+		   token.append('{').append(anno.getComment()).append('}');
+		   formatOutput(token, _COMMENT);
 	           needNumber = true;
 	       }
 
                //decend for all variations (non-mainline)
 	       if (m != null && exportVariations && i > 0) {
-	          if (Log.debug)
+	          if (Log.debug && Log.isDebug(DEBUG))
 		     Log.debug(DEBUG, m + " descending variation");
 	          walkMoveTreeBreadthFirst(m.getContinuationList(), 
 		     num + ((isBlackMove) ? 1 : 0));
@@ -522,7 +543,7 @@ public class PGNWriter extends ChessWriter {
             //now do main-line
 	    m = (ChessMove) cont.get(0);
 	    if (m != null) {
-	       if (Log.debug)
+	       if (Log.debug && Log.isDebug(DEBUG))
 		  Log.debug(DEBUG, m + " descending mainline");
 	       walkMoveTreeBreadthFirst(m.getContinuationList(), 
 		  num + ((isBlackMove) ? 1 : 0));
@@ -540,27 +561,26 @@ public class PGNWriter extends ChessWriter {
    }
 
    /* formatOutput ********************************************************/
-   /** formats output to colWidth length before putting it to the output
-    *  stream.  Data is held in the StringBuffer until colWidth is reached
-    *  in which case the data is put on the output stream.  If String
-    *  puts the StringBuffer over colWidth then the data in the String
-    *  will be tolkenized and split into pieces.  If the StringBuffer
-    *  does not reach colWidth then data is added to the buffer for
-    *  later.
+   /** formats output to colWidth length as it is written to the output
+    *  stream.  If the token fits on the current line it is written
+    *  after a space, otherwise a new line is started (or, for a
+    *  comment, the comment is split into words and wrapped).  Only the
+    *  length of the current line is kept, the output itself is never
+    *  held.
     *
-    *  @param str data that has yet to be put on the buffer
+    *  @param str data that has yet to be written
     *  @param type the type of token
     */
-   protected void formatOutput (String str, int type) {
-      boolean spacer = buffer.length() != 0;
-      int length = buffer.length() 
+   protected void formatOutput (CharSequence str, int type) {
+      boolean spacer = lineLength != 0;
+      int length = lineLength 
                    + str.length() 
                    + ((spacer) ? 1 : 0);
 
-      if (Log.debug)
+      if (Log.debug && Log.isDebug(DEBUG))
          Log.debug(DEBUG, 
 	    "[" + length + "/" + colWidth + "] "
-	    + "buffer(" + buffer.length() 
+	    + "line(" + lineLength 
 	    + ") + \"" + str + "\"(" + str.length() + ")"
 	    );
 
@@ -568,15 +588,13 @@ public class PGNWriter extends ChessWriter {
       if (indentVariations 
           && type == _VARIATION_BEGIN 
 	  && variationsDeep > 0) {
-         println(buffer.toString());
-	 buffer.delete(0, buffer.length());
+         newLine();
 
-	 if (variationsDeep == 1)
-	    buffer.append(this.indentStr);
-	 else
-	    buffer.append(indentStr).append(indentStr);
+	 emit(indentStr);
+	 if (variationsDeep != 1)
+	    emit(indentStr);
 
-	 buffer.append(str);
+	 emit(str);
       }
 
       //ending a variation with indents
@@ -584,64 +602,61 @@ public class PGNWriter extends ChessWriter {
                && type == _VARIATION_END
 	       && variationsDeep > 0) {
 
-         if (buffer.length() == 0) {
+         if (lineLength == 0) {
 	    if (variationsDeep == 1) {
-	       print(indentStr);
-	       println(str);
+	       emit(indentStr);
+	       emit(str);
+	       newLine();
 	    }
 	    else {
-	       print(indentStr);
-	       print(indentStr);
-	       println(str);
-	       if (variationsDeep == 2)
-	          buffer.append(indentStr);
-	       else
-	          buffer.append(indentStr).append(indentStr);
+	       emit(indentStr);
+	       emit(indentStr);
+	       emit(str);
+	       newLine();
+	       emit(indentStr);
+	       if (variationsDeep != 2)
+	          emit(indentStr);
 	    }
 	 }
 	 else {
-	    print(buffer.toString());
-	    print(" ");
-	    println(str);
-	    buffer.delete(0, buffer.length());
+	    emit(" ");
+	    emit(str);
+	    newLine();
 	 }
       }
 
       else if (indentComments && type == _COMMENT && variationsDeep == 0) {
-         println(buffer.toString());
-	 buffer.delete(0, buffer.length());
+         newLine();
 
 	 if (indentStr.length() + str.length() > colWidth)
 	    formatLongComment(str);
-	 else
-	    println(indentStr + str);
+	 else {
+	    emit(indentStr);
+	    emit(str);
+	    newLine();
+	 }
       }
 
-      //buffer not yet full
+      //line not yet full
       else if (length <= colWidth) {
          if (spacer)
-            buffer.append(" ");
-         buffer.append(str);
-	 if (Log.debug)
-	    Log.debug(DEBUG, "appending: " + str);
+            emit(" ");
+         emit(str);
       }
 
-      //buffer doth spillith over
+      //line doth spillith over
       else {
          if (type != _COMMENT) {
-	    println(buffer.toString());
-	    if (Log.debug)
-	       Log.debug(DEBUG, "writing: " + buffer.toString());
-	    buffer.delete(0, buffer.length());
+	    newLine();
 
 	    if (indentVariations) {
 	       if (variationsDeep > 0)
-	          buffer.append(this.indentStr);
+	          emit(indentStr);
 	       if (variationsDeep > 1)
-	          buffer.append(this.indentStr);
+	          emit(indentStr);
 	    }
 
-	    buffer.append(str);
+	    emit(str);
          }
 	 //if it's a comment
 	 else 
@@ -650,58 +665,96 @@ public class PGNWriter extends ChessWriter {
    }
 
    /* formatLongComment ******************************************************/
-   protected void formatLongComment (String str) {
-      int len = buffer.length();
-      String tok = null;
-      StringTokenizer st = new StringTokenizer (str, " ", false);
-
-      while (st.hasMoreTokens()) {
-	 tok = st.nextToken();
+   /** writes a comment a word at a time, wrapping it at colWidth.
+    */
+   protected void formatLongComment (CharSequence str) {
+      int len = lineLength,
+          start = 0,
+	  end = 0,
+	  size = str.length();
+
+      while (start < size) {
+         //words are split on spaces only, as StringTokenizer did
+	 while (start < size && str.charAt(start) == ' ') 
+	    start++;
+	 if (start == size)
+	    break;
+	 end = start;
+	 while (end < size && str.charAt(end) != ' ') 
+	    end++;
 
 	 //less, so add
-	 if (len + 1 + tok.length() <= colWidth) {
+	 if (len + 1 + (end - start) <= colWidth) {
 
-	    if (buffer.length() == 0) {
+	    if (lineLength == 0) {
 	       if (indentComments && variationsDeep == 0)
-	          buffer.append(indentStr);
+	          emit(indentStr);
 	    } 
 	    else
-	       buffer.append(" ");
+	       emit(" ");
 
-	    buffer.append(tok);
-	    len = buffer.length();
+	    emit(str, start, end);
+	    len = lineLength;
 	 }
 
 	 //more so write and append
 	 else {
-	    if (Log.debug)
-	       Log.debug(DEBUG, "writing: " + buffer.toString());
-
-	    println(buffer.toString());
-
-	    buffer.delete(0, buffer.length());
+	    newLine();
 
 	    if (indentComments) {
 	       if (variationsDeep == 0)
-	          buffer.append(indentStr);
+	          emit(indentStr);
 	       else if (indentVariations && variationsDeep > 0) {
-	          if (variationsDeep == 1)
-		     buffer.append(indentStr);
-		  else
-		     buffer.append(indentStr).append(indentStr);
+	          emit(indentStr);
+		  if (variationsDeep != 1)
+		     emit(indentStr);
 	       }
 	    }
 
-	    buffer.append(tok);
-	    len = buffer.length();
+	    emit(str, start, end);
+	    len = lineLength;
 	 }
+	 start = end;
       }
 
-      if (indentComments && variationsDeep == 0 && buffer.length() > 0) {
-         println(buffer.toString());
-	 buffer.delete(0, buffer.length());
+      if (indentComments && variationsDeep == 0 && lineLength > 0)
+         newLine();
+   }
+
+   //output///////////////////////////////////////////////////////////////////
+   /* emit ******************************************************************/
+   /** writes to the current line.
+    */
+   protected void emit (CharSequence str) {
+      emit(str, 0, str.length());
+   }
+
+   /** writes str[start, end) to the current line without making a String.
+    */
+   protected void emit (CharSequence str, int start, int end) {
+      int len = end - start;
+
+      if (str instanceof String)
+         write((String) str, start, len);
+      else {
+         if (chars.length < len)
+	    chars = new char[Math.max(len, chars.length * 2)];
+	 if (str instanceof StringBuilder)
+	    ((StringBuilder) str).getChars(start, end, chars, 0);
+	 else
+	    for (int i=0; i < len; i++)
+	       chars[i] = str.charAt(start + i);
+	 write(chars, 0, len);
       }
+      lineLength += len;
+   }
 
+   /* newLine ***************************************************************/
+   /** ends the current line.
+    */
+   protected void newLine () {
+      println();
+      lineLength = 0;
    }
 
    /* writeBoard *************************************************************/
@@ -0,0 +1,368 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ictk.util.Log;
+import ictk.boardgame.IllegalMoveException;
+import ictk.boardgame.AmbiguousMoveException;
+import ictk.boardgame.io.GameVisitor;
+import ictk.boardgame.io.InvalidGameFormatException;
+
+import ictk.boardgame.chess.ChessGame;
+
+/* ParallelPGNReader *********************************************************/
+/** ParallelPGNReader reads a PGN file on several cores at once.
+ *  <br>
+ *  The input is cut into chunks of whole games, each chunk starting on a
+ *  line beginning with "[Event", and every chunk is parsed on a
+ *  ForkJoinPool by its own PGNReader (and so its own SAN, ChessBoard and
+ *  ChessGame objects).  Only a few chunks per worker are read ahead so
+ *  memory use stays bounded for large files.
+ *  <br>
+ *  Games can be delivered in file order on the calling thread, or
+ *  unordered on the worker threads as soon as they are read; in the
+ *  latter case the GameVisitor must be thread-safe.
+ *  <br>
+ *  Since chunks are cut on "[Event" lines, a game without an Event tag
+ *  simply stays in the chunk of the game before it.  Recycling games is
+ *  not possible here, every game read is a new ChessGame.
+ */
+public class ParallelPGNReader implements Closeable {
+      /** mask for Log.debug() */
+   public static final long DEBUG = Log.GameReader;
+
+      /** default number of characters of PGN given to each worker */
+   public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+      /** how many chunks per worker are read ahead of the games delivered */
+   protected static final int READ_AHEAD = 2;
+
+   protected BufferedReader in;
+      /** the pool the chunks are parsed on */
+   protected ForkJoinPool pool;
+   protected int chunkSize = DEFAULT_CHUNK_SIZE;
+   protected boolean headerOnly = false;
+   protected boolean trusted = false;
+      /** the "[Event" line that starts the next chunk */
+   protected String pendingLine;
+   protected int chunkCount;
+
+   //constructors//////////////////////////////////////////////////////////////
+   /** reads on a new pool with one worker per available processor.
+    *  The pool is shut down once the input has been read.
+    */
+   public ParallelPGNReader (Reader _ir) {
+      this(_ir, null);
+   }
+
+   /** reads on the given pool, which is left running afterwards.
+    *  A null pool is the same as using ParallelPGNReader(Reader).
+    */
+   public ParallelPGNReader (Reader _ir, ForkJoinPool _pool) {
+      if (_ir instanceof BufferedReader)
+         in = (BufferedReader) _ir;
+      else
+         in = new BufferedReader(_ir);
+      pool = _pool;
+   }
+
+   /* readGames *************************************************************/
+   /** reads all the games in the input.
+    *  @return the games in the order they are in the file
+    */
+   public List<ChessGame> readGames () 
+          throws InvalidGameFormatException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+                 IOException {
+      final List<ChessGame> games = new ArrayList<ChessGame>();
+
+         readGames(new GameVisitor<ChessGame>() {
+	    public boolean visitGame (ChessGame g) {
+	       games.add(g);
+	       return true;
+	    }
+	 }, true);
+      return games;
+   }
+
+   /* readGames *************************************************************/
+   /** reads games to the end of the input, handing each to the visitor.
+    *  <br>
+    *  If <i>ordered</i> the visitor is called on this thread with the
+    *  games in the order they are in the file.  Otherwise it is called
+    *  from the pool's worker threads, possibly at the same time, in
+    *  whatever order the games are finished.  Returning false from the
+    *  visitor stops the reading, though unordered a few games already
+    *  being read by other workers may still be visited.
+    *  <br>
+    *  An error in any chunk stops the reading and is thrown here.
+    *
+    *  @return the number of games visited
+    */
+   public int readGames (GameVisitor<ChessGame> visitor, boolean ordered)
+          throws InvalidGameFormatException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+                 IOException {
+      LinkedList<ChunkTask> pending = new LinkedList<ChunkTask>();
+      AtomicBoolean stop = new AtomicBoolean(false);
+      AtomicInteger count = new AtomicInteger(0);
+      ForkJoinPool fjp = pool;
+      ChunkTask task = null;
+      String chunk = null;
+      int readAhead = 0;
+
+         if (visitor == null)
+	    throw new IllegalArgumentException("visitor can't be null");
+
+         if (fjp == null) 
+	    fjp = new ForkJoinPool();
+	 readAhead = READ_AHEAD * fjp.getParallelism();
+	 chunkCount = 0;
+
+	 try {
+	    while (!stop.get() && (chunk = readChunk()) != null) {
+	       task = new ChunkTask(chunk, (ordered) ? null : visitor,
+	                            stop, count);
+	       fjp.execute(task);
+	       pending.add(task);
+
+	       if (pending.size() >= readAhead)
+	          finish(pending.removeFirst(), visitor, stop, count);
+	    }
+
+	    while (!pending.isEmpty())
+	       finish(pending.removeFirst(), visitor, stop, count);
+	 }
+	 finally {
+	    stop.set(true);
+	    for (ChunkTask t : pending)
+	       t.cancel(false);
+	    if (fjp != pool)
+	       fjp.shutdown();
+	 }
+
+	 if (Log.debug && Log.isDebug(DEBUG))
+	    Log.debug(DEBUG, "read " + count.get() + " games in "
+	       + chunkCount + " chunks on " + fjp.getParallelism() + " workers");
+
+      return count.get();
+   }
+
+   /* finish ****************************************************************/
+   /** waits for the task, rethrows its error and, if the games are to be
+    *  delivered in order, hands them to the visitor.
+    */
+   protected void finish (ChunkTask task, GameVisitor<ChessGame> visitor,
+                          AtomicBoolean stop, AtomicInteger count)
+          throws InvalidGameFormatException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+                 IOException {
+      List<ChessGame> games = task.join();
+
+         if (task.error != null)
+	    rethrow(task.error);
+
+	 if (task.visitor == null)
+	    for (ChessGame g : games) {
+	       if (stop.get())
+	          break;
+	       count.incrementAndGet();
+	       if (!visitor.visitGame(g))
+	          stop.set(true);
+	    }
+   }
+
+   /* rethrow ***************************************************************/
+   private static void rethrow (Exception e)
+          throws InvalidGameFormatException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+                 IOException {
+      if (e instanceof InvalidGameFormatException)
+         throw (InvalidGameFormatException) e;
+      if (e instanceof IllegalMoveException)
+         throw (IllegalMoveException) e;
+      if (e instanceof AmbiguousMoveException)
+         throw (AmbiguousMoveException) e;
+      if (e instanceof IOException)
+         throw (IOException) e;
+      if (e instanceof RuntimeException)
+         throw (RuntimeException) e;
+      throw new IllegalStateException(e.getMessage(), e);
+   }
+
+   /* readChunk *************************************************************/
+   /** reads whole games until at least chunkSize characters have been
+    *  read.
+    *  @return null at the end of the input
+    */
+   protected String readChunk () 
+          throws IOException {
+      StringBuilder sb = new StringBuilder(chunkSize + 4096);
+      String line = pendingLine;
+
+         pendingLine = null;
+	 if (line == null)
+	    line = in.readLine();
+
+	 while (line != null) {
+	    if (sb.length() >= chunkSize && isEventTag(line)) {
+	       pendingLine = line;
+	       break;
+	    }
+	    sb.append(line).append('\n');
+	    line = in.readLine();
+	 }
+
+	 if (sb.length() == 0) 
+	    return null;
+	 chunkCount++;
+      return sb.toString();
+   }
+
+   /* isEventTag *********************************************************/
+   /** true if the line starts with the Event tag (and not EventDate).
+    */
+   protected static boolean isEventTag (String line) {
+      return line.startsWith("[Event") 
+             && line.length() > 6
+             && (Character.isWhitespace(line.charAt(6)) 
+	         || line.charAt(6) == '"');
+   }
+
+   /* setChunkSize **********************************************************/
+   /** the number of characters of PGN (rounded up to the end of a game)
+    *  each worker is given at a time.  Smaller chunks spread small files
+    *  over more workers, larger ones have less overhead.
+    */
+   public void setChunkSize (int size) {
+      if (size < 1)
+         throw new IllegalArgumentException("chunk size must be positive");
+      chunkSize = size;
+   }
+
+   /* getChunkSize **********************************************************/
+   public int getChunkSize () {
+      return chunkSize;
+   }
+
+   /* setHeaderOnly *********************************************************/
+   /** only read the tags of each game.
+    *  @see PGNReader#setHeaderOnly(boolean)
+    */
+   public void setHeaderOnly (boolean t) {
+      headerOnly = t;
+   }
+
+   /* isHeaderOnly **********************************************************/
+   public boolean isHeaderOnly () {
+      return headerOnly;
+   }
+
+   /* setTrusted ************************************************************/
+   /** play the moves without checking them.
+    *  @see PGNReader#setTrusted(boolean)
+    */
+   public void setTrusted (boolean t) {
+      trusted = t;
+   }
+
+   /* isTrusted *************************************************************/
+   public boolean isTrusted () {
+      return trusted;
+   }
+
+   /* close ****************************************************************/
+   /** closes the input.  A pool given to the constructor is left running.
+    */
+   public void close () 
+          throws IOException {
+      in.close();
+   }
+
+   /* ChunkTask *************************************************************/
+   /** parses one chunk with a PGNReader of its own.  Errors are kept
+    *  for the reading thread rather than thrown on the worker.
+    */
+   protected class ChunkTask extends RecursiveTask<List<ChessGame>> {
+      private static final long serialVersionUID = 1L;
+      String chunk;
+         /** set if the games are visited on the worker */
+      GameVisitor<ChessGame> visitor;
+      AtomicBoolean stop;
+      AtomicInteger count;
+      Exception error;
+
+      ChunkTask (String _chunk, GameVisitor<ChessGame> _visitor,
+                 AtomicBoolean _stop, AtomicInteger _count) {
+         chunk   = _chunk;
+	 visitor = _visitor;
+	 stop    = _stop;
+	 count   = _count;
+      }
+
+      protected List<ChessGame> compute () {
+         List<ChessGame> games = new ArrayList<ChessGame>();
+	 PGNReader reader = new PGNReader(new StringReader(chunk));
+	 ChessGame g = null;
+
+	    reader.setHeaderOnly(headerOnly);
+	    reader.setTrusted(trusted);
+	    chunk = null;
+	    try {
+	       while (!stop.get() && (g = (ChessGame) reader.readGame()) != null) {
+	          if (visitor == null)
+		     games.add(g);
+		  else {
+		     count.incrementAndGet();
+		     if (!visitor.visitGame(g))
+		        stop.set(true);
+		  }
+	       }
+	    }
+	    catch (Exception e) {
+	       error = e;
+	    }
+	 return games;
+      }
+   }
+}
@@ -0,0 +1,265 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import ictk.util.Log;
+import ictk.boardgame.Game;
+
+/* ParallelPGNWriter *********************************************************/
+/** ParallelPGNWriter writes PGN on several cores at once.
+ *  <br>
+ *  The games are cut into batches and each batch is formatted on a
+ *  ForkJoinPool by a PGNWriter (and so a SAN) of its own into a
+ *  buffer.  The calling thread writes the buffers to the output in the
+ *  order the games were given, so the output is the same as writing
+ *  the games one after another with a single PGNWriter.  Only a few
+ *  batches per worker are formatted ahead of the output, so memory use
+ *  stays bounded and a slow output holds the workers back.
+ *  <br>
+ *  Writing a game rewinds its History, so a game must not be in use
+ *  elsewhere while it's written, and the games can't be recycled (see
+ *  PGNReader.setRecycleGames()).  The PGNWriter of each batch is made by
+ *  newWriter(), which can be overridden for options not set here.
+ */
+public class ParallelPGNWriter implements Closeable, Flushable {
+      /** mask for Log.debug() */
+   public static final long DEBUG = Log.GameWriter;
+
+      /** default number of games given to each worker */
+   public static final int DEFAULT_BATCH_SIZE = 64;
+
+      /** how many batches per worker are formatted ahead of the output */
+   protected static final int WRITE_AHEAD = 2;
+
+   protected Writer out;
+      /** the pool the batches are formatted on */
+   protected ForkJoinPool pool;
+   protected int batchSize = DEFAULT_BATCH_SIZE;
+
+   protected int     colWidth         = 80,
+                     glyphStyle       = PGNWriter.SYMBOLIC_AND_NUMERIC_GLYPH;
+   protected boolean exportComments   = true,
+                     exportVariations = true;
+
+   //constructors//////////////////////////////////////////////////////////////
+   /** writes on a new pool with one worker per available processor.
+    *  The pool is shut down after each call to writeGames().
+    */
+   public ParallelPGNWriter (Writer _out) {
+      this(_out, null);
+   }
+
+   /** writes on the given pool, which is left running afterwards.
+    *  A null pool is the same as using ParallelPGNWriter(Writer).
+    */
+   public ParallelPGNWriter (Writer _out, ForkJoinPool _pool) {
+      if (_out instanceof BufferedWriter)
+         out = _out;
+      else
+         out = new BufferedWriter(_out);
+      pool = _pool;
+   }
+
+   /* writeGames ************************************************************/
+   /** writes the games in the order given.  An error formatting any 
+    *  batch stops the writing and is thrown here; the games before it
+    *  have been written by then.
+    *
+    *  @return the number of games written
+    */
+   public int writeGames (Iterable<? extends Game> games)
+          throws IOException {
+      LinkedList<BatchTask> pending = new LinkedList<BatchTask>();
+      Iterator<? extends Game> it = null;
+      ForkJoinPool fjp = pool;
+      BatchTask task = null;
+      List<Game> batch = null;
+      int writeAhead = 0,
+          count = 0,
+          batches = 0;
+
+         if (games == null)
+	    throw new IllegalArgumentException("games can't be null");
+
+         if (fjp == null) 
+	    fjp = new ForkJoinPool();
+	 writeAhead = WRITE_AHEAD * fjp.getParallelism();
+
+	 try {
+	    it = games.iterator();
+	    while (it.hasNext()) {
+	       batch = new ArrayList<Game>(batchSize);
+	       while (batch.size() < batchSize && it.hasNext())
+	          batch.add(it.next());
+	       count += batch.size();
+	       batches++;
+
+	       task = new BatchTask(batch);
+	       fjp.execute(task);
+	       pending.add(task);
+
+	       if (pending.size() >= writeAhead)
+	          finish(pending.removeFirst());
+	    }
+
+	    while (!pending.isEmpty())
+	       finish(pending.removeFirst());
+	    out.flush();
+	 }
+	 finally {
+	    for (BatchTask t : pending)
+	       t.cancel(false);
+	    if (fjp != pool)
+	       fjp.shutdown();
+	 }
+
+	 if (Log.debug && Log.isDebug(DEBUG))
+	    Log.debug(DEBUG, "wrote " + count + " games in "
+	       + batches + " batches on " + fjp.getParallelism() + " workers");
+
+      return count;
+   }
+
+   /* finish ****************************************************************/
+   /** waits for the task, rethrows its error and writes its output.
+    */
+   protected void finish (BatchTask task)
+          throws IOException {
+      String pgn = task.join();
+
+         if (task.error != null) {
+	    if (task.error instanceof IOException)
+	       throw (IOException) task.error;
+	    if (task.error instanceof RuntimeException)
+	       throw (RuntimeException) task.error;
+	    throw new IllegalStateException(task.error.getMessage(), 
+	                                    task.error);
+	 }
+	 out.write(pgn);
+   }
+
+   /* newWriter *************************************************************/
+   /** makes the PGNWriter for a batch, with the options set here.
+    */
+   protected PGNWriter newWriter (Writer _out) {
+      PGNWriter writer = new PGNWriter(_out);
+
+         writer.setColumnWidth(colWidth);
+	 writer.setAnnotationGlyphStyle(glyphStyle);
+	 writer.setExportComments(exportComments);
+	 writer.setExportVariations(exportVariations);
+      return writer;
+   }
+
+   //options//////////////////////////////////////////////////////////////////
+   /* setBatchSize **********************************************************/
+   /** the number of games each worker is given at a time.
+    */
+   public void setBatchSize (int size) {
+      if (size < 1)
+         throw new IllegalArgumentException("batch size must be positive");
+      batchSize = size;
+   }
+
+   public int getBatchSize () { return batchSize; }
+
+   /** @see PGNWriter#setColumnWidth(int) */
+   public void setColumnWidth (int col) { colWidth = col; }
+
+   public int getColumnWidth () { return colWidth; }
+
+   /** @see PGNWriter#setAnnotationGlyphStyle(int) */
+   public void setAnnotationGlyphStyle (int style) { glyphStyle = style; }
+
+   public int getAnnotationGlyphStyle () { return glyphStyle; }
+
+   /** @see PGNWriter#setExportComments(boolean) */
+   public void setExportComments (boolean t) { exportComments = t; }
+
+   public boolean isExportComments () { return exportComments; }
+
+   /** @see PGNWriter#setExportVariations(boolean) */
+   public void setExportVariations (boolean t) { exportVariations = t; }
+
+   public boolean isExportVariations () { return exportVariations; }
+
+   /* flush *****************************************************************/
+   public void flush () 
+          throws IOException {
+      out.flush();
+   }
+
+   /* close *****************************************************************/
+   /** closes the output.  A pool given to the constructor is left running.
+    */
+   public void close () 
+          throws IOException {
+      out.close();
+   }
+
+   /* BatchTask *************************************************************/
+   /** formats one batch with a PGNWriter of its own.  Errors are kept
+    *  for the writing thread rather than thrown on the worker.
+    */
+   protected class BatchTask extends RecursiveTask<String> {
+      private static final long serialVersionUID = 1L;
+      List<Game> games;
+      Exception error;
+
+      BatchTask (List<Game> _games) {
+         games = _games;
+      }
+
+      protected String compute () {
+         StringWriter sw = new StringWriter(games.size() * 1024);
+	 PGNWriter writer = newWriter(sw);
+
+	    try {
+	       for (int i=0; i < games.size(); i++)
+	          writer.writeGame(games.get(i));
+	       writer.flush();
+	    }
+	    catch (Exception e) {
+	       error = e;
+	    }
+	    games = null;
+	 return sw.toString();
+      }
+   }
+}
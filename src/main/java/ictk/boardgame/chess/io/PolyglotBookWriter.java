@@ -0,0 +1,259 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ictk.boardgame.AmbiguousMoveException;
+import ictk.boardgame.History;
+import ictk.boardgame.IllegalMoveException;
+import ictk.boardgame.Move;
+import ictk.boardgame.Result;
+import ictk.boardgame.io.InvalidGameFormatException;
+import ictk.boardgame.chess.*;
+
+/* PolyglotBookWriter *******************************************************/
+/** PolyglotBookWriter builds a Polyglot opening book from games.  Each
+ *  move of the main line, up to the maximum ply, is scored for the side
+ *  that played it: 2 for a win, 1 for a draw and 0 for a loss or an 
+ *  unfinished game.  The book weight of a move is its total score, 
+ *  scaled down if need be to fit in 16 bits.  Moves that scored nothing
+ *  are left out of the book.
+ *  <pre>
+ *  PolyglotBookWriter book = new PolyglotBookWriter();
+ *  book.addGames(new PGNReader(new FileReader("games.pgn")));
+ *  book.write(new File("book.bin"));
+ *  </pre>
+ *  See PolyglotBook for the format and the keys.
+ */
+public class PolyglotBookWriter {
+   public static final int DEFAULT_MAX_PLY = 40;
+
+   protected int maxPly = DEFAULT_MAX_PLY;
+   protected int minGames = 1;
+
+      /** by position key, the [score, games] of each Polyglot move */
+   protected Map<Long, Map<Integer, int[]>> positions = new HashMap<>();
+
+   public PolyglotBookWriter () {
+   }
+
+   /* setMaxPly *************************************************************/
+   /** how many ply of each game go into the book.
+    */
+   public void setMaxPly (int ply) {
+      if (ply < 0)
+         throw new IllegalArgumentException("max ply can't be negative");
+      maxPly = ply;
+   }
+
+   public int getMaxPly () { return maxPly; }
+
+   /* setMinGames ***********************************************************/
+   /** moves played in fewer games than this are left out of the book.
+    */
+   public void setMinGames (int games) {
+      minGames = games;
+   }
+
+   public int getMinGames () { return minGames; }
+
+   /* addGame ***************************************************************/
+   /** adds the main line of the game.  The game is left at the move it
+    *  was at.
+    */
+   public void addGame (ChessGame game) {
+      ChessBoard board = (ChessBoard) game.getBoard();
+      History history = game.getHistory();
+      Move current = history.getCurrentMove();
+      ChessResult result = getResult(game);
+      int ply = 0;
+
+         history.rewind();
+	 try {
+	    for (Move m = history.getFirst(); 
+	         m != null && ply < maxPly; 
+		 m = m.getNext(), ply++) {
+	       add(PolyglotBook.getKey(board),
+	           PolyglotBook.toPolyglot(board, (ChessMove) m),
+		   score(result, board.isBlackMove()));
+	       history.next();
+	    }
+	 }
+	 finally {
+	    history.goTo(current);
+	 }
+   }
+
+   /* addGames **************************************************************/
+   /** reads and adds every game from the reader.
+    *
+    *  @return the number of games added
+    */
+   public int addGames (PGNReader reader) 
+          throws InvalidGameFormatException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+                 IOException {
+      ChessGame game = null;
+      int count = 0;
+
+         while ((game = (ChessGame) reader.readGame()) != null) {
+	    addGame(game);
+	    count++;
+	 }
+      return count;
+   }
+
+   /* size ******************************************************************/
+   /** the number of positions added so far.
+    */
+   public int size () {
+      return positions.size();
+   }
+
+   /* write *****************************************************************/
+   public void write (File file) 
+          throws IOException {
+      OutputStream out = new FileOutputStream(file);
+	 try {
+	    write(out);
+	 }
+	 finally {
+	    out.close();
+	 }
+   }
+
+   /* write *****************************************************************/
+   /** writes the book, sorted by key and heaviest move first.  The stream
+    *  is flushed but not closed.
+    *
+    *  @return the number of entries written
+    */
+   public int write (OutputStream _out) 
+          throws IOException {
+      DataOutputStream out = 
+         new DataOutputStream(new BufferedOutputStream(_out));
+      List<PolyglotBook.Entry> entries = getEntries();
+      PolyglotBook.Entry e = null;
+
+         for (int i=0; i < entries.size(); i++) {
+	    e = entries.get(i);
+	    out.writeLong(e.getKey());
+	    out.writeShort(e.getMove());
+	    out.writeShort(e.getWeight());
+	    out.writeInt(e.getLearn());
+	 }
+	 out.flush();
+      return entries.size();
+   }
+
+   /* getEntries ************************************************************/
+   /** the book entries in book order.
+    */
+   public List<PolyglotBook.Entry> getEntries () {
+      List<PolyglotBook.Entry> entries = new ArrayList<>();
+      long max = 0;
+      int[] stats = null;
+
+         for (Map<Integer, int[]> moves : positions.values())
+	    for (int[] s : moves.values())
+	       if (s[1] >= minGames && s[0] > max)
+	          max = s[0];
+
+         for (Map.Entry<Long, Map<Integer, int[]>> pos 
+	         : positions.entrySet())
+	    for (Map.Entry<Integer, int[]> move : pos.getValue().entrySet()) {
+	       stats = move.getValue();
+	       if (stats[1] < minGames || stats[0] == 0)
+	          continue;
+	       entries.add(new PolyglotBook.Entry(pos.getKey(), move.getKey(),
+	          (max <= 0xFFFF) 
+		     ? stats[0] 
+		     : (int) Math.max(1, stats[0] * 0xFFFFL / max),
+		  0));
+	    }
+
+	 Collections.sort(entries, BOOK_ORDER);
+      return entries;
+   }
+
+   /* add *******************************************************************/
+   protected void add (long key, int move, int score) {
+      Map<Integer, int[]> moves = positions.get(key);
+      int[] stats = null;
+
+         if (moves == null)
+	    positions.put(key, moves = new HashMap<>(4));
+	 if ((stats = moves.get(move)) == null)
+	    moves.put(move, stats = new int[2]);
+	 stats[0] += score;
+	 stats[1]++;
+   }
+
+   /* score *****************************************************************/
+   protected int score (ChessResult result, boolean isBlack) {
+      if (result == null || result.isUndecided())
+         return 0;
+      if (result.isDraw())
+         return 1;
+      return (result.isBlackWin() == isBlack) ? 2 : 0;
+   }
+
+   /* getResult *************************************************************/
+   private static ChessResult getResult (ChessGame game) {
+      Result r = null;
+
+         if (game.getGameInfo() != null)
+	    r = game.getGameInfo().getResult();
+	 if (r == null || ((ChessResult) r).isUndecided())
+	    r = game.getResult();
+      return (ChessResult) r;
+   }
+
+      /** by unsigned key, then heaviest first */
+   protected static final Comparator<PolyglotBook.Entry> BOOK_ORDER =
+      new Comparator<PolyglotBook.Entry>() {
+         public int compare (PolyglotBook.Entry a, PolyglotBook.Entry b) {
+	    long ka = a.getKey() + Long.MIN_VALUE,
+	         kb = b.getKey() + Long.MIN_VALUE;
+	    if (ka != kb)
+	       return (ka < kb) ? -1 : 1;
+	    return b.getWeight() - a.getWeight();
+	 }
+      };
+}
@@ -120,13 +120,13 @@ public class SAN extends ChessMoveNotation {
           throws AmbiguousChessMoveException, 
 	         IllegalMoveException  {
       if (b == null) {
-         if (Log.debug)
+         if (Log.debug && Log.isDebug(DEBUG))
 	    Log.debug(DEBUG, "cannot associate a move with a null ChessBoard");
 	 throw new IllegalArgumentException(
 	    "Cannot associate a move with a null ChessBoard");
       }
       if (!(b instanceof ChessBoard)) {
-         if (Log.debug)
+         if (Log.debug && Log.isDebug(DEBUG))
 	    Log.debug(DEBUG, "non ChessBoard send to stringToMove");
 	 return null;
       }
@@ -145,6 +145,10 @@ public class SAN extends ChessMoveNotation {
          throw new IllegalArgumentException(
 	    "can't make a move out of a null string");
 
+      //the common forms are read without the regex
+      if ((move = decode(board, s)) != null)
+         return move;
+
       byte piece = ChessPiece.NULL_PIECE,
            promo = ChessPiece.NULL_PIECE,
            orig_f = 0,
@@ -158,7 +162,7 @@ public class SAN extends ChessMoveNotation {
       if (result.find()) {
 
          //debug
-	 if (Log.debug) {
+	 if (Log.debug && Log.isDebug(DEBUG)) {
 	    Log.debug(DEBUG, "regex result for: " + s, result);
 	 }
 
@@ -225,6 +229,197 @@ public class SAN extends ChessMoveNotation {
       return move;
    }
 
+   /* stringToMove ********************************************************/
+   /** same as stringToMove(Board, String) but the move can be any
+    *  CharSequence.  The common forms of a move are decoded straight from
+    *  the characters, so no String is made for them.
+    */
+   public Move stringToMove (Board b, CharSequence s) 
+          throws AmbiguousChessMoveException, 
+	         IllegalMoveException  {
+      Move move = null;
+
+         if (b instanceof ChessBoard && s != null)
+	    move = decode((ChessBoard) b, s);
+	 if (move == null)
+	    move = stringToMove(b, (s == null) ? null : s.toString());
+      return move;
+   }
+
+   /* decode **************************************************************/
+   /** reads a move by scanning its characters rather than matching the
+    *  regex.  This handles English SAN in the forms found in PGN:
+    *  castles, [piece][file][rank][x]dest[=promotion], then any check
+    *  or mate marks and NAG suffixes.  The origin is found with
+    *  ChessBoard.getOrigin().
+    *
+    *  @return null if the move isn't in one of these forms, in which case
+    *          the regex should be tried.
+    */
+   protected ChessMove decode (ChessBoard board, CharSequence s) 
+          throws AmbiguousChessMoveException, 
+	         IllegalMoveException  {
+      int  len   = s.length(),
+           i     = 0,
+           end   = 0,
+	   castle = 0;
+      byte piece  = ChessPiece.NULL_PIECE,
+           promo  = ChessPiece.NULL_PIECE,
+           orig_f = 0,
+	   orig_r = 0,
+	   dest_f = 0,
+	   dest_r = 0;
+      char c = 0;
+      Square orig = null,
+             dest = null;
+      ChessMove move = null;
+      ChessAnnotation anno = null;
+      short[] nags = null;
+
+         if (len < 2 
+	     || pieceSet != PIECE_SETS[0] 
+	     || movePattern != defaultMovePattern)
+	    return null;
+
+	 c = s.charAt(0);
+
+	 //castles: O-O-O is tried first as the regex does
+	 if (c == 'O' || c == '0') {
+	    if (len >= 5 && s.charAt(1) == '-' && isCastleChar(s.charAt(2))
+	        && s.charAt(3) == '-' && isCastleChar(s.charAt(4))) {
+	       castle = ChessMove.CASTLE_QUEENSIDE;
+	       i = 5;
+	    }
+	    else if (len >= 3 && s.charAt(1) == '-' 
+	             && isCastleChar(s.charAt(2))) {
+	       castle = ChessMove.CASTLE_KINGSIDE;
+	       i = 3;
+	    }
+	    else
+	       return null;
+	 }
+	 else {
+	    if (Character.isUpperCase(c)) {
+	       if (!isPieceChar(c))
+	          return null;
+	       piece = pieceToNum(c);
+	       i = 1;
+	    }
+
+	    //[file][rank][x]dest
+	    end = i;
+	    while (end < len && isCoordinateChar(s.charAt(end)))
+	       end++;
+	    if (end - i < 2 
+	        || (dest_f = toFile(s.charAt(end - 2))) == 0
+	        || (dest_r = toRank(s.charAt(end - 1))) == 0)
+	       return null;
+
+	    int j = end - 2;
+	    if (j > i && s.charAt(j - 1) == 'x')
+	       j--;
+	    switch (j - i) {
+	       case 0:
+	          break;
+	       case 1:
+	          c = s.charAt(i);
+		  if ((orig_f = toFile(c)) == 0 && (orig_r = toRank(c)) == 0)
+		     return null;
+		  break;
+	       case 2:
+	          if ((orig_f = toFile(s.charAt(i))) == 0 
+		      || (orig_r = toRank(s.charAt(i + 1))) == 0)
+		     return null;
+		  break;
+	       default:
+	          return null;
+	    }
+	    i = end;
+
+	    //promotion
+	    if (i < len && s.charAt(i) == '=') {
+	       if (i + 1 >= len || !isPieceChar(c = s.charAt(i + 1)))
+	          return null;
+	       promo = pieceToNum(c);
+	       if (promo != Queen.INDEX && promo != Rook.INDEX
+	           && promo != Bishop.INDEX && promo != Knight.INDEX)
+		  return null;
+	       i += 2;
+	    }
+	 }
+
+	 //check, double check and mate
+	 if (i < len && s.charAt(i) == '+') i++;
+	 if (i < len && s.charAt(i) == '+') i++;
+	 if (i < len && s.charAt(i) == '#') i++;
+
+	 //the regex would look for a castle in what follows
+	 for (int k = i; k < len; k++)
+	    if (isCastleChar(s.charAt(k)))
+	       return null;
+
+	 if (castle != 0)
+	    move = new ChessMove(board, castle);
+	 else {
+	    dest = board.getSquare(dest_f, dest_r);
+	    if (orig_f < 1 || orig_r < 1) {
+	       if (piece == ChessPiece.NULL_PIECE) piece = Pawn.INDEX;
+	       try {
+	          orig = board.getOrigin(piece, orig_f, orig_r, dest);
+	       }
+	       catch (IllegalMoveException e) {
+	          e.setMoveString(s.toString());
+	          throw e;
+	       }
+	    }
+	    else 
+	       orig = board.getSquare(orig_f, orig_r);
+
+            if (promo == ChessPiece.NULL_PIECE)
+	       move = new ChessMove(board, orig, dest);
+	    else
+	       move = new ChessMove(board, orig, dest, 
+	                     ChessPiece.toChessPiece(promo));
+	 }
+
+         //any annotations that trailed the move
+	 if (i < len) {
+	    nags = NAG.stringToNumbers(s.subSequence(i, len).toString());
+	    if (nags != null) {
+	       anno = new ChessAnnotation();
+	       for (int k=0; k < nags.length; k++)
+	          anno.addNAG(nags[k]);
+	    }
+	    move.setAnnotation(anno);
+	 }
+      return move;
+   }
+
+   private boolean isPieceChar (char c) {
+      for (int k=0; k < pieceSet.length; k++)
+         if (pieceSet[k] == c)
+	    return true;
+      return false;
+   }
+
+   private static boolean isCastleChar (char c) {
+      return c == 'O' || c == '0';
+   }
+
+   private static boolean isCoordinateChar (char c) {
+      return (c >= 'a' && c <= 'h') || (c >= '1' && c <= '8') || c == 'x';
+   }
+
+   /** @return 1-8 or 0 if c isn't a file */
+   private static byte toFile (char c) {
+      return (c >= 'a' && c <= 'h') ? (byte) (c - 'a' + 1) : 0;
+   }
+
+   /** @return 1-8 or 0 if c isn't a rank */
+   private static byte toRank (char c) {
+      return (c >= '1' && c <= '8') ? (byte) (c - '1' + 1) : 0;
+   }
+
    /* stringToResult *********************************************************/
    /** converts a string into a result number
     *  the default return value if the string cannot be read is null
@@ -268,54 +463,12 @@ public class SAN extends ChessMoveNotation {
           throw new NullPointerException ("can't convert null move to string");
 
 
-      if (Log.debug)
+      if (Log.debug && Log.isDebug(DEBUG))
          Log.debug(DEBUG, "move: " + move + " showSuffix?: " + showSuffix);
 
-      StringBuffer sb = new StringBuffer();
-      char piece = pieceToChar(m.getChessPiece());
-      int[] coords = m.getCoordinates();
-      char take = (m.getCasualty() == null) ? '-' : 'x';
-      char promo = (m.getPromotion() == null) ? ' '
-                   : pieceToChar(m.getPromotion());
-       
-         if (m.isCastleKingside())
-	    sb.append("O-O");
-	 else if (m.isCastleQueenside())
-	    sb.append("O-O-O");
-	 else {
-	    if (piece == pieceSet[0]) {  //pawn
-	       if (pawnSpace) sb.append(' ');
-	    }
-	    else
-	       sb.append(piece);
-	       
-	    //short form 
-	    if (!m.isRankUnique())  //if rank not unique then need file
-	          sb.append(fileToChar(coords[0]));
-	    if (!m.isFileUnique())  //if file not unique then need rank
-	       sb.append(rankToChar(coords[1]));
-
-            //take only on capture
-            if (m.getCasualty() != null) {
-	       if (piece == pieceSet[0] //pawn
-	           && m.isFileUnique()
-		   && m.isRankUnique())
-		  sb.append(fileToChar(coords[0]));  //still need file
-	       sb.append(take);
-	    }
-
-	    sb.append(fileToChar(coords[2]))
-	      .append(rankToChar(coords[3]));
+      StringBuilder sb = new StringBuilder(8);
 
-	    if (promo != ' ') 
-	       sb.append("=").append(promo);
-
-	    if (m.isCheckmate())
-	       sb.append('#');
-	    else if (m.isCheck()) {
-	       sb.append('+');
-	    }
-	 }
+         appendMove(sb, m);
 
 	 //annotation suffix
 	 if (showSuffix) {
@@ -331,6 +484,62 @@ public class SAN extends ChessMoveNotation {
       return sb.toString();
    }
 
+   /* appendMove *************************************************************/
+   /** appends the move, without its suffix, to the StringBuilder.  This
+    *  is moveToString(Move) without the String.
+    */
+   public void appendMove (StringBuilder sb, Move move) {
+      ChessMove m = (ChessMove) move;
+      char piece = 0;
+      Square orig = null,
+             dest = null;
+
+         if (m.isCastleKingside()) {
+	    sb.append("O-O");
+	    return;
+	 }
+	 if (m.isCastleQueenside()) {
+	    sb.append("O-O-O");
+	    return;
+	 }
+
+         piece = pieceToChar(m.getChessPiece());
+	 orig = m.getOrigin();
+	 dest = m.getDestination();
+
+	 if (piece == pieceSet[0]) {  //pawn
+	    if (pawnSpace) sb.append(' ');
+	 }
+	 else
+	    sb.append(piece);
+	    
+	 //short form 
+	 if (!m.isRankUnique())  //if rank not unique then need file
+	    sb.append(fileToChar(orig.getFile()));
+	 if (!m.isFileUnique())  //if file not unique then need rank
+	    sb.append(rankToChar(orig.getRank()));
+
+	 //take only on capture
+	 if (m.getCasualty() != null) {
+	    if (piece == pieceSet[0] //pawn
+		&& m.isFileUnique()
+		&& m.isRankUnique())
+	       sb.append(fileToChar(orig.getFile()));  //still need file
+	    sb.append('x');
+	 }
+
+	 sb.append(fileToChar(dest.getFile()))
+	   .append(rankToChar(dest.getRank()));
+
+	 if (m.getPromotion() != null) 
+	    sb.append('=').append(pieceToChar(m.getPromotion()));
+
+	 if (m.isCheckmate())
+	    sb.append('#');
+	 else if (m.isCheck())
+	    sb.append('+');
+   }
+
    public String moveToString (ChessMove m) {
       return moveToString(m, true);
    }
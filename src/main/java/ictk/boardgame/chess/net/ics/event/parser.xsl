@@ -285,7 +285,7 @@ public class <xsl:value-of select="$classname"/> extends <xsl:value-of select="@
             + " of " + m.group(0));
          evt.setEventType(ICSEvent.UNKNOWN_EVENT);
          evt.setMessage(m.group(0));
-	 if (Log.debug)
+	 if (Log.debug &amp;&amp; Log.isDebug(ICSEventParser.DEBUG))
 	    Log.debug(ICSEventParser.DEBUG, "regex", m);
          return;
       }<!-- -->
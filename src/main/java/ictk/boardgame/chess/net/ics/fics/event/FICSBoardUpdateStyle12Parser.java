@@ -214,7 +214,7 @@ public class FICSBoardUpdateStyle12Parser extends ICSEventParser {
 	   + "for(" + i + "): " + m.group(i));
 	 evt.setEventType(ICSEvent.UNKNOWN_EVENT);
 	 evt.setMessage(m.group(0));
-	 if (Log.debug)
+	 if (Log.debug && Log.isDebug(ICSEventParser.DEBUG))
 	    Log.debug(ICSEventParser.DEBUG, "regex", m);
 	 return;
       }
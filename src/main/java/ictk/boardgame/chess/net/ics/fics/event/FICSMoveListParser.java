@@ -261,7 +261,7 @@ black to move first (rare case)
 		 + " of " + mvMatch.group(0));
 	       evt.setEventType(ICSEvent.UNKNOWN_EVENT);
 	       evt.setMessage(m.group(0));
-	       if (Log.debug)
+	       if (Log.debug && Log.isDebug(ICSEventParser.DEBUG))
 		  Log.debug(ICSEventParser.DEBUG, "regex", mvMatch);
 	       return;
 	    }
@@ -287,7 +287,7 @@ black to move first (rare case)
 		 + " of " + mvMatch.group(0));
 	       evt.setEventType(ICSEvent.UNKNOWN_EVENT);
 	       evt.setMessage(m.group(0));
-	       if (Log.debug)
+	       if (Log.debug && Log.isDebug(ICSEventParser.DEBUG))
 		  Log.debug(ICSEventParser.DEBUG, "regex", mvMatch);
 	       return;
 	    }
@@ -32,7 +32,16 @@ import java.util.regex.Matcher;
  * Log - a static class with useful global debugging routines.  This
  *         can be used to manage Debug level output and route output
  *	   to log files or what have you. <br>
- *
+ *  <br>
+ *  Debug messages are often built by concatenation, so callers should
+ *  check the mask before building them:
+ *  <pre>
+ *     if (Log.debug && Log.isDebug(DEBUG))
+ *        Log.debug(DEBUG, "token: " + tok);
+ *  </pre>
+ *  With the mask off this costs a field read and a compare.  With 
+ *  <code>debug</code> set to false the whole statement is dropped by
+ *  the compiler.
  */
 public class Log {
       /** to remove all debugging from bytecode set to false */
@@ -133,7 +142,8 @@ public class Log {
    }
 
    /* isDebug ***********************************************************/
-   /** are we debugging this mask?
+   /** are we debugging this mask?  Use this to guard building a
+    *  message so nothing is built when the mask is off.
     */
    public static boolean isDebug (long mask) {
       return (mask_level & mask) == mask;
@@ -65,8 +65,7 @@ public class RepCheck {
 
          while (!found && history.hasNext()) {
 	    history.next();
-	    fenStr = fen.boardToString(board);
-	    fenStr = fenStr.substring(0, fenStr.indexOf(' '));
+	    fenStr = fen.placementToString(board);
 	    if (!hash.containsKey(fenStr)) {
 	       tmp = new Move[3];
 	       tmp[0] = history.getCurrentMove();
@@ -707,4 +707,191 @@ public class HistoryTest extends TestCase {
       history.add(san.stringToMove(game.getBoard(), "Nc6"));
       assert(history.size() == 4);
    }
+
+   //////////////////////////////////////////////////////////////////////
+   /** goTo() only plays the moves after the fork */
+   public void testGotoFromFork () throws IllegalMoveException,
+                      OutOfTurnException,
+		      AmbiguousMoveException {
+      String[] line = {"e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6",
+                       "O-O", "Be7", "Re1", "b5", "Bb3", "d6", "c3", "O-O"};
+      final int[] events = new int[2];
+      Move main, variation;
+
+      game = new ChessGame();
+      history = game.getHistory();
+      for (int i=0; i < line.length; i++)
+         history.add(san.stringToMove(game.getBoard(), line[i]));
+      main = history.getCurrentMove();
+      board = new ChessBoard();
+      for (int i=0; i < line.length; i++)
+         board.playMove(san.stringToMove(board, line[i]));
+
+      //12...d6 instead of 12...b5 13.Bb3 d6 14.c3 O-O
+      history.goTo(main.prev.prev.prev.prev.prev);
+      history.add(san.stringToMove(game.getBoard(), "d6"));
+      history.add(variation = san.stringToMove(game.getBoard(), "c3"));
+      board2 = new ChessBoard();
+      for (int i=0; i < 11; i++)
+         board2.playMove(san.stringToMove(board2, line[i]));
+      board2.playMove(san.stringToMove(board2, "d6"));
+      board2.playMove(san.stringToMove(board2, "c3"));
+
+      game.getBoard().addBoardListener(new BoardListener() {
+         public void boardUpdate (Board b, int event) {
+	    if (event == BoardEvent.MOVE)   events[0]++;
+	    if (event == BoardEvent.UNMOVE) events[1]++;
+	 }
+      });
+
+      history.goTo(main);
+      assertTrue(board.equals(game.getBoard()));
+      assertEquals(2, events[1]);
+      assertEquals(5, events[0]);
+      assertEquals(17, history.getCurrentMoveNumber());
+
+      events[0] = events[1] = 0;
+      history.goTo(variation);
+      assertTrue(board2.equals(game.getBoard()));
+      assertEquals(5, events[1]);
+      assertEquals(2, events[0]);
+      assertEquals(14, history.getCurrentMoveNumber());
+
+      //to a move on the same line
+      events[0] = events[1] = 0;
+      history.goTo(variation.prev.prev);
+      assertEquals(2, events[1]);
+      assertEquals(0, events[0]);
+      history.goTo(variation.prev.prev);
+      assertEquals(2, events[1]);
+      history.goTo(variation);
+      assertEquals(2, events[0]);
+      assertTrue(board2.equals(game.getBoard()));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** goTo() restores the nearest snapshot and plays only the rest */
+   public void testSnapshotCache () throws IllegalMoveException,
+                      OutOfTurnException,
+		      AmbiguousMoveException {
+      String[] line = {"e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6",
+                       "O-O", "Be7", "Re1", "b5", "Bb3", "d6", "c3", "O-O"};
+      final int[] events = new int[2];
+      SnapshotCache cache = new SnapshotCache(4, 1 << 16);
+      Move main, variation;
+
+      game = new ChessGame();
+      history = game.getHistory();
+      history.setSnapshotCache(cache);
+      for (int i=0; i < line.length; i++)
+         history.add(san.stringToMove(game.getBoard(), line[i]));
+      main = history.getCurrentMove();
+      board = new ChessBoard();
+      for (int i=0; i < line.length; i++)
+         board.playMove(san.stringToMove(board, line[i]));
+      assertEquals(4, cache.size());
+
+      //12...d6 instead of 12...b5 13.Bb3 d6 14.c3 O-O
+      history.goTo(main.prev.prev.prev.prev.prev);
+      history.add(san.stringToMove(game.getBoard(), "d6"));
+      history.add(variation = san.stringToMove(game.getBoard(), "c3"));
+      board2 = new ChessBoard();
+      for (int i=0; i < 11; i++)
+         board2.playMove(san.stringToMove(board2, line[i]));
+      board2.playMove(san.stringToMove(board2, "d6"));
+      board2.playMove(san.stringToMove(board2, "c3"));
+      assertTrue(cache.contains(main.prev.prev.prev.prev.prev));
+
+      game.getBoard().addBoardListener(new BoardListener() {
+         public void boardUpdate (Board b, int event) {
+	    if (event == BoardEvent.MOVE)     events[0]++;
+	    if (event == BoardEvent.POSITION) events[1]++;
+	 }
+      });
+
+      //restored from the snapshot at 16 plies
+      history.goTo(main);
+      assertTrue(board.equals(game.getBoard()));
+      assertEquals(1, events[1]);
+      assertEquals(0, events[0]);
+      assertEquals(17, history.getCurrentMoveNumber());
+      assertFalse(variation.isExecuted());
+      assertTrue(main.prev.prev.prev.isExecuted());
+
+      //restored from 12...d6 (12 plies), then 13.c3 played
+      events[0] = events[1] = 0;
+      history.goTo(variation);
+      assertTrue(board2.equals(game.getBoard()));
+      assertEquals(1, events[1]);
+      assertEquals(1, events[0]);
+      assertEquals(14, history.getCurrentMoveNumber());
+      assertFalse(main.isExecuted());
+
+      //backing out by unexecuting still works
+      history.rewind();
+      assertTrue(new ChessBoard().equals(game.getBoard()));
+      history.goToEnd();
+      assertTrue(board.equals(game.getBoard()));
+      assertEquals(17, history.getCurrentMoveNumber());
+      history.rewind();
+      assertEquals(8, history.fastforward(8));
+      history.prev();
+      history.next();
+      assertTrue(history.getCurrentMove() 
+         == main.prev.prev.prev.prev.prev.prev.prev.prev);
+
+      //removed moves take their snapshots with them
+      Move fork = main.prev.prev.prev.prev.prev,
+           b5 = main.prev.prev.prev.prev,
+           d6 = fork.getContinuationList().get(1);
+      history.goTo(main);
+      assertTrue(cache.contains(main));
+      history.removeLastMove();
+      assertFalse(cache.contains(main));
+      assertTrue(cache.contains(b5));
+      assertTrue(cache.contains(d6));
+      history.goTo(fork);
+      history.truncate();
+      assertFalse(cache.contains(b5));
+      assertFalse(cache.contains(d6));
+      assertTrue(cache.contains(fork));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** the least recently used snapshots are dropped to fit the budget */
+   public void testSnapshotCacheBudget () throws IllegalMoveException,
+                      OutOfTurnException,
+		      AmbiguousMoveException {
+      String[] line = {"e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6"};
+      BoardSnapshot snapshot;
+      SnapshotCache cache;
+      Move first;
+
+      game = new ChessGame();
+      history = game.getHistory();
+      history.add(san.stringToMove(game.getBoard(), line[0]));
+      first = history.getCurrentMove();
+      snapshot = ((ChessBoard) game.getBoard()).createSnapshot();
+
+      cache = new SnapshotCache(1, snapshot.getFootprint() * 3);
+      history.setSnapshotCache(cache);
+      for (int i=1; i < line.length; i++)
+         history.add(san.stringToMove(game.getBoard(), line[i]));
+      assertEquals(3, cache.size());
+      assertFalse(cache.contains(first));
+      assertTrue(cache.contains(history.getCurrentMove()));
+      assertTrue(cache.getFootprint() <= cache.getBudget());
+
+      //only the move's own board can use the snapshot
+      try {
+         new ChessBoard().restoreSnapshot(snapshot);
+	 fail("restored another board's snapshot");
+      }
+      catch (IllegalArgumentException e) {
+      }
+
+      history.clear();
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.getFootprint());
+   }
 }
@@ -44,6 +44,10 @@ public class AllTests {
       suite.addTest(new TestSuite(RookTest.class));
       suite.addTest(new TestSuite(QueenTest.class));
       suite.addTest(new TestSuite(KingTest.class));
+      suite.addTest(new TestSuite(BitBoardTest.class));
+      suite.addTest(new TestSuite(PerftTest.class));
+      suite.addTest(new TestSuite(ChessMoveTreeTest.class));
+      suite.addTest(new TestSuite(PackedMoveTest.class));
       return suite;
    }
 }
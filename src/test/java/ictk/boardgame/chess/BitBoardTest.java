@@ -0,0 +1,204 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess;
+
+import junit.framework.*;
+import ictk.boardgame.chess.io.FEN;
+
+public class BitBoardTest extends TestCase {
+   ChessBoard board;
+   BitBoard bits;
+   FEN fen;
+   int[] moves;
+
+   public BitBoardTest (String name) {
+      super(name);
+   }
+
+   public void setUp () {
+      board = new ChessBoard();
+      bits = board.getBitBoard();
+      fen = new FEN();
+      moves = new int[BitBoard.MAX_MOVES];
+   }
+
+   public void tearDown () {
+      board = null;
+      bits = null;
+      fen = null;
+      moves = null;
+   }
+
+   /** loads the FEN and returns the number of legal moves */
+   int load (String pos) throws Exception {
+      board = (ChessBoard) fen.stringToBoard(pos);
+      bits = board.getBitBoard();
+      board.syncBitBoardState();
+      return bits.generateLegalMoves(moves);
+   }
+
+   /** checks the masks against what stands on the Squares */
+   void assertInSync () {
+      for (int f=1; f <= 8; f++)
+         for (int r=1; r <= 8; r++) {
+            ChessPiece p = board.getSquare(f, r).piece;
+            assertEquals("square " + board.getSquare(f, r),
+               (p == null) ? ChessPiece.NULL_PIECE : p.getIndex(),
+               bits.getPiece(BitBoard.square(f, r)));
+         }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testSquareIndex () {
+      assertEquals(0, BitBoard.square(1, 1));
+      assertEquals(7, BitBoard.square(8, 1));
+      assertEquals(63, BitBoard.square(8, 8));
+      assertEquals(28, BitBoard.square(board.getSquare('e', '4')));
+      assertEquals(5, BitBoard.fileOf(28));
+      assertEquals(4, BitBoard.rankOf(28));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testDefaultPosition () {
+      assertEquals(0xFFFFL, bits.getOccupied(false));
+      assertEquals(0xFFFF000000000000L, bits.getOccupied(true));
+      assertEquals(0xFF00L, bits.getPieces(Pawn.INDEX, false));
+      assertEquals(BitBoard.square(5, 8), bits.getKingSquare(true));
+      assertInSync();
+      assertEquals(20, bits.generateLegalMoves(moves));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testAttackTables () {
+      //knight in the corner and in the center
+      assertEquals(2, Long.bitCount(BitBoard.knightAttacks(0)));
+      assertEquals(8, Long.bitCount(BitBoard.knightAttacks(28)));
+      assertEquals(3, Long.bitCount(BitBoard.kingAttacks(63)));
+      assertEquals(1, Long.bitCount(BitBoard.pawnAttacks(8, false)));
+      //rook on a1 blocked on a3 and c1
+      long occ = (1L << 16) | (1L << 2);
+      assertEquals((1L << 8) | (1L << 16) | (1L << 1) | (1L << 2),
+                   BitBoard.rookAttacks(0, occ));
+      assertEquals(7, Long.bitCount(BitBoard.bishopAttacks(0, 0L)));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testStaysInSyncThroughMoves () throws Exception {
+      ChessMove m1 = new ChessMove(board, 5, 2, 5, 4),
+                m2,
+                m3;
+      board.playMove(m1);
+      m2 = new ChessMove(board, 4, 7, 4, 5);
+      board.playMove(m2);
+      m3 = new ChessMove(board, 5, 4, 4, 5);
+      board.playMove(m3);
+      assertInSync();
+      assertEquals(15, Long.bitCount(bits.getOccupied(true)));
+
+      m3.unexecute();
+      m2.unexecute();
+      m1.unexecute();
+      assertInSync();
+      assertEquals(0xFFFFL, bits.getOccupied(false));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testCastleAndPromotionInSync () throws Exception {
+      load("r3k2r/1P6/8/8/8/8/8/R3K2R w KQkq - 0 1");
+      ChessMove castle = new ChessMove(board, ChessMove.CASTLE_KINGSIDE);
+      board.playMove(castle);
+      assertInSync();
+      assertEquals(BitBoard.square(7, 1), bits.getKingSquare(false));
+
+      ChessMove reply = new ChessMove(board, 5, 8, 4, 8);
+      board.playMove(reply);
+      ChessMove promo = new ChessMove(board, 2, 7, 1, 8, Knight.INDEX);
+      board.playMove(promo);
+      assertInSync();
+      assertEquals(1L << 56, bits.getPieces(Knight.INDEX, false));
+
+      promo.unexecute();
+      reply.unexecute();
+      castle.unexecute();
+      assertInSync();
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** the pawn may not take enpassant since both pawns leave the rank
+    *  the King shares with the enemy Rook.
+    */
+   public void testEnPassantDiscoveredCheck () throws Exception {
+      load("8/8/8/KPp4r/8/8/8/4k3 w - c6 0 2");
+      for (int i=0, n = bits.generateLegalMoves(moves); i < n; i++)
+         assertEquals(0, moves[i] & BitBoard.MOVE_ENPASSANT);
+
+      load("8/8/8/1Pp4r/K7/8/8/4k3 w - c6 0 2");
+      boolean found = false;
+      for (int i=0, n = bits.generateLegalMoves(moves); i < n; i++)
+         found |= (moves[i] & BitBoard.MOVE_ENPASSANT) != 0;
+      assertTrue(found);
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testPinnedPiece () throws Exception {
+      load("4k3/4r3/8/8/8/8/4B3/4K3 w - - 0 1");
+      assertEquals(1L << BitBoard.square(5, 2), bits.getPinned());
+      assertEquals(BitBoard.square(5, 7), 
+                   bits.getPinner(BitBoard.square(5, 2)));
+      Bishop bishop = (Bishop) board.getSquare('e', '2').getOccupant();
+      assertEquals(0, bishop.getLegalDests().size());
+      assertTrue(bishop.getPinnedBy() 
+                 == board.getSquare('e', '7').getOccupant());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testDoubleCheck () throws Exception {
+      //the Knight could take either checker, but only the King may move
+      int n = load("4k3/8/8/8/1b6/8/2N5/r3K3 w - - 0 1");
+      assertEquals(2, Long.bitCount(bits.getCheckers()));
+      for (int i=0; i < n; i++)
+         assertEquals(bits.getKingSquare(false), BitBoard.getOrigin(moves[i]));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testNoCastleOutOfCheck () throws Exception {
+      load("4k3/8/8/8/8/8/4r3/R3K2R w KQ - 0 1");
+      King king = (King) board.getSquare('e', '1').getOccupant();
+      assertFalse(king.getLegalDests().contains(board.getSquare('g', '1')));
+      assertFalse(king.getLegalDests().contains(board.getSquare('c', '1')));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testThreatsOfSideNotToMove () throws Exception {
+      load("4k3/8/8/8/8/8/8/R3K2r w - - 0 1");
+      //the Rook on h1 checks the King and sees through it to d1
+      ChessPiece[] threats = board.getThreats(board.getSquare('d', '1'), true);
+      assertEquals(1, threats.length);
+      assertTrue(threats[0] == board.getSquare('h', '1').getOccupant());
+      assertTrue(board.isCheck());
+      assertNull(board.getThreats(board.getSquare('h', '2'), false));
+   }
+}
@@ -29,6 +29,10 @@ import junit.framework.*;
 import ictk.util.Log;
 import ictk.boardgame.*;
 import ictk.boardgame.io.*;
+import ictk.boardgame.chess.io.FEN;
+
+import java.util.HashSet;
+import java.util.ConcurrentModificationException;
 
 public class ChessBoardTest extends TestCase {
    ChessBoard board, board2;
@@ -415,4 +419,200 @@ public class ChessBoardTest extends TestCase {
 
       assertTrue( board.getBoardListeners()[0] == bl2);
    }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testLazyLegalDests () throws Exception {
+      board.setLazyLegalDests(true);
+      board.playMove(new ChessMove(board, 6, 2, 6, 3));
+      board.playMove(new ChessMove(board, 5, 7, 5, 5));
+      board.playMove(new ChessMove(board, 7, 2, 7, 4));
+      assertTrue(board.staleLegalDests);
+      move = new ChessMove(board, 4, 8, 8, 4);
+      board.playMove(move);
+
+      //the move knows it mates without the lists being filled in
+      assertTrue(board.staleLegalDests);
+      assertTrue(move.isCheckmate());
+      assertEquals(0, board.getLegalMoveCount());
+      assertTrue(board.staleLegalDests);
+
+      assertEquals(0, board.getSquare('e', '1').getOccupant()
+                         .getLegalDests().size());
+      assertFalse(board.staleLegalDests);
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** the lists kept from move to move must match those of a board
+    *  set up fresh on the same position.
+    */
+   public void testIncrementalLegalDests () throws Exception {
+      FEN fen = new FEN();
+      int[][] moves = {{5,2,5,4}, {4,7,4,5}, {5,4,4,5}, {4,8,4,5}, 
+                       {2,1,3,3}, {4,5,1,5}, {6,1,2,5}, {3,7,3,6}};
+
+      for (int i=0; i < moves.length; i++) {
+         board.playMove(new ChessMove(board, moves[i][0], moves[i][1],
+                                             moves[i][2], moves[i][3]));
+         board2 = (ChessBoard) fen.stringToBoard(fen.boardToString(board));
+
+         for (int f=1; f <= 8; f++)
+            for (int r=1; r <= 8; r++) {
+               ChessPiece p  = board.getSquare(f, r).getOccupant(),
+                          p2 = board2.getSquare(f, r).getOccupant();
+               if (p == null) 
+                  continue;
+               assertEquals("dests of " + p + " on " + p.getSquare(),
+                  new HashSet<Square>(p2.getLegalDests()),
+                  new HashSet<Square>(p.getLegalDests()));
+               assertEquals("guards of " + p + " on " + p.getSquare(),
+                  new HashSet<Square>(p2.getGuardSquares()),
+                  new HashSet<Square>(p.getGuardSquares()));
+            }
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** the key kept from move to move must match that of a board set up
+    *  fresh on the same position, and come back when moves are undone.
+    */
+   public void testPositionKey () throws Exception {
+      FEN fen = new FEN();
+      int[][] moves = {{5,2,5,4}, {4,7,4,5}, {5,4,5,5}, {6,7,6,5}, 
+                       {5,5,6,6}, {7,7,6,6}, {7,1,6,3}, {7,8,8,6},
+                       {6,1,5,2}, {6,8,7,7}, {ChessMove.CASTLE_KINGSIDE},
+                       {8,8,7,8}};
+      ChessMove[] played = new ChessMove[moves.length];
+      long[] keys = new long[moves.length + 1];
+
+      keys[0] = board.getPositionKey();
+      for (int i=0; i < moves.length; i++) {
+         played[i] = (moves[i].length == 1)
+            ? new ChessMove(board, moves[i][0])
+            : new ChessMove(board, moves[i][0], moves[i][1],
+                                   moves[i][2], moves[i][3]);
+         board.playMove(played[i]);
+         keys[i+1] = board.getPositionKey();
+         assertFalse(keys[i] == keys[i+1]);
+
+         board2 = (ChessBoard) fen.stringToBoard(fen.boardToString(board));
+         assertEquals("after " + played[i], board2, board);
+         assertEquals("after " + played[i], 
+            board2.getPositionKey(), board.getPositionKey());
+         assertEquals(board2.hashCode(), board.hashCode());
+      }
+
+      for (int i=moves.length - 1; i >= 0; i--) {
+         played[i].unexecute();
+         assertEquals("undoing " + played[i], 
+            keys[i], board.getPositionKey());
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testPositionKeyState () throws Exception {
+      board2 = new ChessBoard();
+
+      //transposition back to the start
+      board.playMove(new ChessMove(board, 7, 1, 6, 3));
+      board.playMove(new ChessMove(board, 7, 8, 6, 6));
+      board.playMove(new ChessMove(board, 6, 3, 7, 1));
+      board.playMove(new ChessMove(board, 6, 6, 7, 8));
+      assertEquals(board2, board);
+      assertEquals(board2.getPositionKey(), board.getPositionKey());
+
+      //same squares, different state
+      long key = board2.getPositionKey();
+      board2.setBlackMove(true);
+      assertFalse(key == board2.getPositionKey());
+      board2.setBlackMove(false);
+      assertEquals(key, board2.getPositionKey());
+
+      board2.setWhiteCastleableKingside(false);
+      assertFalse(key == board2.getPositionKey());
+      board2.setWhiteCastleableKingside(true);
+      assertEquals(key, board2.getPositionKey());
+
+      board2.setEnPassantFile('e');
+      assertFalse(key == board2.getPositionKey());
+      board2.setEnPassantFile('-');
+      assertEquals(key, board2.getPositionKey());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testLegalMovesBuffer () throws Exception {
+      int[] moves = new int[BitBoard.MAX_MOVES];
+      int count = board.getLegalMoves(moves);
+
+      assertEquals(20, count);
+      assertEquals(board.getLegalMoves().size(), count);
+      for (int i=0; i < count; i++) {
+         move = PackedMove.toMove(board, moves[i]);
+         move.execute();
+         move.unexecute();
+      }
+      assertEquals(new ChessBoard(), board);
+
+      try {
+         board.getLegalMoves(new int[19]);
+         fail("20 moves fit in 19");
+      }
+      catch (IllegalArgumentException e) {
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** the visitor can walk the moves below each move it's handed */
+   public void testVisitLegalMoves () throws Exception {
+      final long[] nodes = {0};
+      final LegalMoveVisitor leaf = new LegalMoveVisitor() {
+         public boolean visit (ChessBoard b, int move) {
+	    nodes[0]++;
+	    return true;
+	 }
+      };
+
+      int count = board.visitLegalMoves(new LegalMoveVisitor() {
+         public boolean visit (ChessBoard b, int move) {
+	    try {
+	       ChessMove m = PackedMove.toMove(b, move);
+	       m.execute();
+	       b.visitLegalMoves(leaf);
+	       m.unexecute();
+	    }
+	    catch (Exception e) {
+	       throw new IllegalStateException(e);
+	    }
+	    return true;
+	 }
+      });
+      assertEquals(20, count);
+      assertEquals(400, nodes[0]);
+      assertEquals(new ChessBoard(), board);
+
+      //stopping early
+      count = board.visitLegalMoves(new LegalMoveVisitor() {
+         public boolean visit (ChessBoard b, int move) {
+	    return PackedMove.getPiece(move) != Knight.INDEX;
+	 }
+      });
+      assertTrue(count < 20);
+
+      //leaving the board moved
+      try {
+         board.visitLegalMoves(new LegalMoveVisitor() {
+            public boolean visit (ChessBoard b, int move) {
+	       try {
+	          b.playMove(PackedMove.toMove(b, move));
+	       }
+	       catch (Exception e) {
+	          throw new IllegalStateException(e);
+	       }
+	       return true;
+	    }
+	 });
+	 fail("the board moved under the visitor");
+      }
+      catch (ConcurrentModificationException e) {
+      }
+   }
 }
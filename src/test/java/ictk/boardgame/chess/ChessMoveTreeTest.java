@@ -0,0 +1,154 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess;
+
+import junit.framework.*;
+import ictk.boardgame.History;
+import ictk.boardgame.chess.io.FEN;
+import ictk.boardgame.chess.io.SAN;
+
+/** games merged into a ChessMoveTree come back out move for move */
+public class ChessMoveTreeTest extends TestCase {
+   SAN san;
+   FEN fen;
+   ChessMoveTree tree;
+
+   public ChessMoveTreeTest (String name) {
+      super(name);
+   }
+
+   public void setUp () {
+      san = new SAN();
+      fen = new FEN();
+      tree = new ChessMoveTree(2);
+   }
+
+   public void tearDown () {
+      san = null;
+      fen = null;
+      tree = null;
+   }
+
+   protected ChessGame play (String[] line) throws Exception {
+      ChessGame game = new ChessGame();
+      History history = game.getHistory();
+
+      for (int i=0; i < line.length; i++)
+         history.add(san.stringToMove(game.getBoard(), line[i]));
+      return game;
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** games with the same opening share its nodes */
+   public void testMerge () throws Exception {
+      int ruy, italian, e4;
+
+      ruy = tree.addGame(play(new String[] {"e4", "e5", "Nf3", "Nc6", "Bb5"}));
+      italian = tree.addGame(play(new String[] {"e4", "e5", "Nf3", "Nc6", 
+                                                "Bc4"}));
+      tree.addGame(play(new String[] {"d4", "d5"}));
+
+      assertEquals(9, tree.size());
+      assertEquals(3, tree.getCount(ChessMoveTree.ROOT));
+      assertEquals(2, tree.getChildCount(ChessMoveTree.ROOT));
+
+      e4 = tree.getFirstChild(ChessMoveTree.ROOT);
+      assertEquals(2, tree.getCount(e4));
+      assertEquals("e2e4", PackedMove.toString(tree.getMove(e4)));
+      assertEquals(Pawn.INDEX, PackedMove.getPiece(tree.getMove(e4)));
+      assertEquals(e4, tree.getChild(ChessMoveTree.ROOT, 
+         BitBoard.square(5, 2) | (BitBoard.square(5, 4) << 6)));
+      assertEquals(1, tree.getCount(tree.getNextSibling(e4)));
+
+      assertEquals(5, tree.getDepth(ruy));
+      assertEquals(tree.getParent(ruy), tree.getParent(italian));
+      assertEquals(italian, tree.getNextSibling(ruy));
+      assertEquals(2, tree.getCount(tree.getParent(ruy)));
+      assertEquals(ChessMoveTree.NONE, tree.getFirstChild(ruy));
+      assertEquals(ChessMoveTree.NONE, 
+         tree.getChild(ruy, tree.getMove(italian)));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** variations are kept after the main line */
+   public void testVariations () throws Exception {
+      ChessGame game = play(new String[] {"e4", "c5", "Nf3", "d6"});
+      History history = game.getHistory();
+      String variation = null;
+      int end, sicilian, node;
+
+      history.prev();
+      history.prev();
+      history.add(san.stringToMove(game.getBoard(), "Nc3"));
+      history.add(san.stringToMove(game.getBoard(), "Nc6"));
+      variation = fen.boardToString(game.getBoard());
+      history.rewind();
+
+      end = tree.addGame(game);
+      assertEquals(7, tree.size());
+      assertEquals(4, tree.getDepth(end));
+
+      sicilian = tree.getFirstChild(tree.getFirstChild(ChessMoveTree.ROOT));
+      assertEquals(2, tree.getChildCount(sicilian));
+      node = tree.getFirstChild(tree.getNextSibling(
+                tree.getFirstChild(sicilian)));
+      assertEquals(variation, fen.boardToString(tree.getBoard(node)));
+
+      history.goToEnd();
+      assertEquals(fen.boardToString(game.getBoard()),
+                   fen.boardToString(tree.getBoard(end)));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** castling, enpassant and under-promotion survive being packed */
+   public void testSpecialMoves () throws Exception {
+      String[] line = {"e4", "Nf6", "e5", "d5", "exd6", "Bg4", "Nf3", "Nc6",
+                       "Be2", "Qd7", "O-O", "O-O-O", "dxe7", "Kb8", 
+                       "exf8=N", "Rhxf8"};
+      ChessGame game = play(line), 
+                copy;
+      int end = tree.addGame(game);
+
+      assertEquals(line.length, tree.getDepth(end));
+      assertEquals(fen.boardToString(game.getBoard()),
+                   fen.boardToString(tree.getBoard(end)));
+
+      copy = tree.getGame(end);
+      assertEquals(fen.boardToString(game.getBoard()),
+                   fen.boardToString(copy.getBoard()));
+      assertTrue(game.getHistory().equals(copy.getHistory()));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testBadNode () {
+      try {
+         tree.getCount(1);
+	 fail("found a node that wasn't added");
+      }
+      catch (IndexOutOfBoundsException e) {
+      }
+   }
+}
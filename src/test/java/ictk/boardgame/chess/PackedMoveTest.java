@@ -0,0 +1,154 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess;
+
+import junit.framework.*;
+import ictk.boardgame.History;
+import ictk.boardgame.chess.io.FEN;
+import ictk.boardgame.chess.io.SAN;
+
+/** moves packed into an int keep everything needed to play them again */
+public class PackedMoveTest extends TestCase {
+   SAN san;
+   FEN fen;
+   ChessGame game;
+
+   public PackedMoveTest (String name) {
+      super(name);
+   }
+
+   public void setUp () {
+      san = new SAN();
+      fen = new FEN();
+   }
+
+   public void tearDown () {
+      san = null;
+      fen = null;
+      game = null;
+   }
+
+   protected int[] play (String[] line) throws Exception {
+      game = new ChessGame();
+      History history = game.getHistory();
+
+      for (int i=0; i < line.length; i++)
+         history.add(san.stringToMove(game.getBoard(), line[i]));
+      return PackedMove.packMainLine(history);
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testPack () throws Exception {
+      ChessBoard board = new ChessBoard();
+      int move = PackedMove.pack(new ChessMove(board, 7, 1, 6, 3));
+
+      assertEquals("g1f3", PackedMove.toString(move));
+      assertEquals(BitBoard.square(7, 1), PackedMove.getOrigin(move));
+      assertEquals(BitBoard.square(6, 3), PackedMove.getDestination(move));
+      assertEquals(Knight.INDEX, PackedMove.getPiece(move));
+      assertEquals(ChessPiece.NULL_PIECE, PackedMove.getCapture(move));
+      assertEquals(0, PackedMove.getPromotion(move));
+      assertFalse(PackedMove.isBlackMove(move));
+      assertFalse(PackedMove.isCheck(move));
+      assertEquals(new ChessMove(board, 7, 1, 6, 3), 
+                   PackedMove.toMove(board, move));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** castling, enpassant, captures, promotion and mate */
+   public void testSpecialMoves () throws Exception {
+      int[] line = play(new String[] {
+         "e4", "d5", "e5", "f5", "exf6", "Nc6", "Nf3", "Bg4", "Bc4", "Qd7", 
+         "O-O", "O-O-O", "fxg7", "Kb8", "gxh8=R", "Bxf3", "Qxf3"});
+
+      assertTrue(PackedMove.isCastleKingside(line[10]));
+      assertEquals("e1g1", PackedMove.toString(line[10]));
+      assertTrue(PackedMove.isCastleQueenside(line[11]));
+      assertEquals("e8c8", PackedMove.toString(line[11]));
+      assertEquals(King.INDEX, PackedMove.getPiece(line[11]));
+
+      assertTrue(PackedMove.isEnPassant(line[4]));
+      assertEquals(Pawn.INDEX, PackedMove.getCapture(line[4]));
+      assertFalse(PackedMove.isEnPassant(line[12]));
+      assertTrue(PackedMove.isCapture(line[12]));
+
+      assertEquals("g7h8r", PackedMove.toString(line[14]));
+      assertEquals(Rook.INDEX, PackedMove.getPromotion(line[14]));
+      assertEquals(Rook.INDEX, PackedMove.getCapture(line[14]));
+
+      assertTrue(PackedMove.isBlackMove(line[15]));
+      assertEquals(Knight.INDEX, PackedMove.getCapture(line[15]));
+      assertEquals(Queen.INDEX, PackedMove.getPiece(line[16]));
+      assertEquals(Bishop.INDEX, PackedMove.getCapture(line[16]));
+      assertFalse(PackedMove.isCheck(line[16]));
+
+      line = play(new String[] {"e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6", 
+                                "Qxf7#"});
+      assertTrue(PackedMove.isCheck(line[6]));
+      assertTrue(PackedMove.isCheckmate(line[6]));
+      assertFalse(PackedMove.isCheckmate(line[4]));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** the moves from the BitBoard pack the same, less check */
+   public void testGenerated () throws Exception {
+      int[] line = play(new String[] {"e4", "d5", "exd5", "c5", "dxc6", 
+                                      "Qa5", "cxb7", "Qb4", "bxa8=N"});
+      int[] moves = new int[BitBoard.MAX_MOVES];
+      ChessBoard board = new ChessBoard();
+      int count = 0, 
+          found = 0;
+
+      for (int i=0; i < line.length; i++) {
+         board.getLegalMoveCount();
+         count = board.getBitBoard().generateLegalMoves(moves);
+	 found = 0;
+	 for (int j=0; j < count; j++)
+	    if ((moves[j] & PackedMove.MOVE_MASK) 
+	        == (line[i] & PackedMove.MOVE_MASK)) {
+	       assertEquals(line[i] & ~PackedMove.CHECK, 
+	                    PackedMove.pack(board, moves[j]));
+	       found++;
+	    }
+	 assertEquals(1, found);
+	 board.playMove(PackedMove.toMove(board, line[i]));
+      }
+      assertEquals(fen.boardToString(game.getBoard()), 
+                   fen.boardToString(board));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testAddMoves () throws Exception {
+      int[] line = play(new String[] {"d4", "Nf6", "c4", "e6", "Nc3", "Bb4",
+                                      "Qc2", "O-O", "a3", "Bxc3+", "Qxc3"});
+      ChessGame copy = new ChessGame();
+
+      PackedMove.addMoves(copy, line);
+      assertTrue(game.getHistory().equals(copy.getHistory()));
+      assertEquals(fen.boardToString(game.getBoard()), 
+                   fen.boardToString(copy.getBoard()));
+   }
+}
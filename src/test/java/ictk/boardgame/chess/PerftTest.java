@@ -0,0 +1,123 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess;
+
+import junit.framework.*;
+import ictk.boardgame.chess.io.FEN;
+
+import java.util.Map;
+
+/** node counts of the standard perft positions.  Each one stresses a
+ *  different corner of the move generator: castling, enpassant,
+ *  promotion and discovered checks.
+ */
+public class PerftTest extends TestCase {
+   FEN fen;
+   ChessBoard board;
+   Perft perft;
+
+   public PerftTest (String name) {
+      super(name);
+   }
+
+   public void setUp () {
+      fen = new FEN();
+   }
+
+   public void tearDown () {
+      fen = null;
+      board = null;
+      perft = null;
+   }
+
+   protected long perft (String position, int depth) throws Exception {
+      board = (ChessBoard) fen.stringToBoard(position);
+      perft = new Perft(board);
+      return perft.perft(depth);
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testInitialPosition () throws Exception {
+      perft = new Perft(board = new ChessBoard());
+      assertEquals(1, perft.perft(0));
+      assertEquals(20, perft.perft(1));
+      assertEquals(400, perft.perft(2));
+      assertEquals(8902, perft.perft(3));
+      assertEquals(new ChessBoard(), board);
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** castling of both sides, pins and promotions in the middlegame */
+   public void testKiwipete () throws Exception {
+      assertEquals(48, perft(
+         "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+         1));
+      assertEquals(97862, perft(
+         "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+         3));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** enpassant captures that uncover a check along the rank */
+   public void testEnPassantPins () throws Exception {
+      assertEquals(43238, perft("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 4));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** promotions and castling rights lost by capture */
+   public void testPromotions () throws Exception {
+      assertEquals(9467, perft(
+         "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+         3));
+      assertEquals(62379, perft(
+         "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 3));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testDivide () throws Exception {
+      Map<String, Long> divide = null;
+      long sum = 0;
+
+      board = (ChessBoard) fen.stringToBoard(
+         "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8");
+      perft = new Perft(board);
+      divide = perft.divide(2);
+
+      assertEquals(44, divide.size());
+      for (Long n : divide.values())
+         sum += n;
+      assertEquals(1486, sum);
+      assertEquals(1486, perft.getNodes());
+
+      assertEquals(Long.valueOf(31), divide.get("d7c8q"));
+      assertEquals(Long.valueOf(41), divide.get("d7c8n"));
+      assertTrue(divide.containsKey("e1g1"));
+
+      //the board comes back as it was
+      assertEquals(fen.stringToBoard(
+         "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"), board);
+   }
+}
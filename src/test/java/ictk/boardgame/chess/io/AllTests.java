@@ -38,8 +38,14 @@ public class AllTests {
       suite.addTest(new TestSuite(ChessAnnotationTest.class));
       suite.addTest(new TestSuite(SANTest.class));
       suite.addTest(new TestSuite(FENTest.class));
+      suite.addTest(new TestSuite(PGNTokenizerTest.class));
       suite.addTest(new TestSuite(PGNReaderTest.class));
       suite.addTest(new TestSuite(PGNWriterTest.class));
+      suite.addTest(new TestSuite(BinaryGameTest.class));
+      suite.addTest(new TestSuite(PGNIndexTest.class));
+      suite.addTest(new TestSuite(MappedFileReaderTest.class));
+      suite.addTest(new TestSuite(EPDTest.class));
+      suite.addTest(new TestSuite(PolyglotBookTest.class));
       return suite;
    }
 }
@@ -0,0 +1,169 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import ictk.boardgame.chess.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryGameTest extends AbstractPGNTest {
+   String[] files = {"test_nonvariation.pgn",
+                     "test_variation.pgn",
+                     "test_annotation.pgn",
+                     "test_chess960.pgn"};
+
+   public BinaryGameTest (String name) {
+      super(name);
+   }
+
+   /** reads all the games of the PGN file */
+   List<ChessGame> readPGN (File file, boolean trusted) 
+          throws Exception {
+      List<ChessGame> list = new ArrayList<>();
+      PGNReader reader = new PGNReader(new FileReader(file));
+      ChessGame g = null;
+
+      reader.setTrusted(trusted);
+      while ((g = (ChessGame) reader.readGame()) != null)
+         list.add(g);
+      reader.close();
+      return list;
+   }
+
+   /** writes the games in the binary format */
+   byte[] toBinary (List<ChessGame> list) 
+          throws Exception {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryGameWriter writer = new BinaryGameWriter(out);
+
+      for (int i=0; i < list.size(); i++)
+         writer.writeGame(list.get(i));
+      writer.close();
+      return out.toByteArray();
+   }
+
+   /** the games written as PGN */
+   String toPGN (List<ChessGame> list) 
+          throws Exception {
+      StringWriter sw = new StringWriter();
+      PGNWriter writer = new PGNWriter(sw);
+
+      for (int i=0; i < list.size(); i++)
+         writer.writeGame(list.get(i));
+      writer.flush();
+      return sw.toString();
+   }
+
+   /** reads the games back from the binary format */
+   List<ChessGame> fromBinary (byte[] bytes, boolean trusted) 
+          throws Exception {
+      List<ChessGame> list = new ArrayList<>();
+      BinaryGameReader reader = 
+         new BinaryGameReader(new ByteArrayInputStream(bytes));
+      ChessGame g = null;
+
+      reader.setTrusted(trusted);
+      while ((g = (ChessGame) reader.readGame()) != null)
+         list.add(g);
+      reader.close();
+      return list;
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** games, variations, NAGs and comments come back the same */
+   public void testRoundTrip () 
+          throws Exception {
+      List<ChessGame> games = null;
+      byte[] bytes = null;
+      String pgn = null;
+
+      for (int i=0; i < files.length; i++) {
+         games = readPGN(getTestFile(files[i]), false);
+	 pgn = toPGN(games);
+	 bytes = toBinary(games);
+
+	 assertEquals(files[i], pgn, toPGN(fromBinary(bytes, false)));
+	 assertEquals(files[i], 
+	    toPGN(readPGN(getTestFile(files[i]), true)),
+	    toPGN(fromBinary(bytes, true)));
+	 assertTrue(files[i] + " " + bytes.length + " bytes",
+	    bytes.length < pgn.length() / 2);
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testEmpty () 
+          throws Exception {
+      BinaryGameReader reader = 
+         new BinaryGameReader(new ByteArrayInputStream(new byte[0]));
+      assertNull(reader.readGame());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testBadMagic () 
+          throws Exception {
+      BinaryGameReader reader = new BinaryGameReader(
+         new ByteArrayInputStream("[Event \"?\"]".getBytes("US-ASCII")));
+      try {
+         reader.readGame();
+	 fail("read a game from PGN");
+      }
+      catch (IOException e) {
+         //good
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** repeated tag values are written once */
+   public void testDictionary () 
+          throws Exception {
+      List<ChessGame> games = new ArrayList<>();
+      ChessGameInfo gi = null;
+      byte[] one = null,
+             two = null;
+
+      gi = new ChessGameInfo(new ChessPlayer("Fischer, Robert J."),
+                             new ChessPlayer("Spassky, Boris V."));
+      gi.setEvent("World Championship 28th");
+      gi.setResult(new ChessResult(ChessResult.UNDECIDED));
+      games.add(new ChessGame(gi));
+      one = toBinary(games);
+
+      games.add(new ChessGame(gi));
+      two = toBinary(games);
+
+      //count, 7 tags by reference, no board and an end word
+      assertEquals(1 + 14 + 1 + 2, two.length - one.length);
+      assertEquals(toPGN(games), toPGN(fromBinary(two, false)));
+   }
+}
@@ -0,0 +1,196 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import junit.framework.*;
+import ictk.boardgame.chess.*;
+
+public class EPDTest extends TestCase {
+   static final String SUITE = 
+        "2rr3k/pp3pp1/1nnqbN1p/3pN3/2pP4/2P3Q1/PPB4P/R4RK1 w - - "
+      + "bm Qg6; id \"WAC.001\";\n"
+      + "\n"
+      + "r1b1k2r/ppppnppp/2n2q2/2b5/3NP3/2P1B3/PP3PPP/RN1QKB1R w KQkq - "
+      + "bm Nf5 Nxc6; am Bd3; ce 35; acd 12; c0 \"two; moves\"; hmvc 3; fmvn 7;\n"
+      + "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 "
+      + "id \"open sicilian\"; pv Nf3 d6 d4\n";
+
+   EPD epd;
+   ChessBoard board;
+
+   public EPDTest (String name) {
+      super(name);
+   }
+
+   public void setUp () {
+      epd = new EPD();
+   }
+
+   public void tearDown () {
+      epd = null;
+      board = null;
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testBoard () 
+          throws IOException {
+      String fen = 
+         "r1b1k2r/ppppnppp/2n2q2/2b5/3NP3/2P1B3/PP3PPP/RN1QKB1R w KQkq - 3 7";
+
+      board = (ChessBoard) epd.stringToBoard(
+         "r1b1k2r/ppppnppp/2n2q2/2b5/3NP3/2P1B3/PP3PPP/RN1QKB1R w KQkq - "
+	 + "id \"x; hmvc 9\"; hmvc 3; fmvn 7;");
+      assertEquals(fen, new FEN().boardToString(board));
+      assertEquals(
+         "r1b1k2r/ppppnppp/2n2q2/2b5/3NP3/2P1B3/PP3PPP/RN1QKB1R w KQkq -",
+	 epd.boardToString(board));
+
+      //without clocks
+      board = (ChessBoard) epd.stringToBoard(
+         "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -");
+      assertTrue(board.equals(new ChessBoard()));
+      assertEquals(0, board.get50MoveRulePlyCount());
+      assertEquals(1, board.getCurrentMoveNumber());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testRead () 
+          throws Exception {
+      EPDReader reader = new EPDReader(new StringReader(SUITE));
+      List<EPDRecord> recs = reader.readRecords();
+
+      assertEquals(3, recs.size());
+      assertEquals(4, reader.getLineNumber());
+
+      EPDRecord rec = recs.get(0);
+      assertEquals(
+         "2rr3k/pp3pp1/1nnqbN1p/3pN3/2pP4/2P3Q1/PPB4P/R4RK1 w - -",
+         rec.getPosition());
+      assertEquals("WAC.001", rec.getId());
+      assertEquals("Qg6", rec.getOperand(EPD.BEST_MOVE));
+
+      rec = recs.get(1);
+      assertEquals(7, rec.getOpcodes().size());
+      assertEquals(2, rec.getOperands(EPD.BEST_MOVE).length);
+      assertEquals("Nxc6", rec.getOperands(EPD.BEST_MOVE)[1]);
+      assertEquals(35, rec.getInt(EPD.CENTIPAWN_EVAL, 0));
+      assertEquals(12, rec.getInt(EPD.ANALYSIS_DEPTH, 0));
+      assertEquals(-1, rec.getInt(EPD.DIRECT_MATE, -1));
+      assertEquals("two; moves", rec.getOperand(EPD.COMMENT));
+
+      board = rec.getBoard();
+      assertEquals(3, board.get50MoveRulePlyCount());
+      assertEquals(7, board.getCurrentMoveNumber());
+
+      List<ChessMove> moves = rec.getMoves(EPD.BEST_MOVE, board);
+      assertEquals(2, moves.size());
+      assertEquals("d4", moves.get(0).getOrigin().toString());
+      assertEquals("f5", moves.get(0).getDestination().toString());
+      assertEquals("c6", moves.get(1).getDestination().toString());
+      assertEquals(1, rec.getMoves(EPD.AVOID_MOVE, board).size());
+      assertEquals(0, rec.getMoves(EPD.SUPPLIED_MOVE, board).size());
+
+      //last operation has no semicolon
+      rec = recs.get(2);
+      assertEquals("open sicilian", rec.getId());
+      assertEquals(3, rec.getOperands(EPD.PREDICTED_VARIATION).length);
+      assertEquals(3, rec.getBoard().getEnPassantFile());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testReuseRecord () 
+          throws Exception {
+      EPDReader reader = new EPDReader(new StringReader(SUITE));
+      EPDRecord rec = new EPDRecord();
+      int count = 0;
+
+      board = new ChessBoard();
+      while (reader.readRecord(rec) != null) {
+         assertSame(board, rec.getBoard(board));
+         assertTrue(rec.getId() != null || count == 1);
+	 count++;
+      }
+      assertEquals(3, count);
+      assertNull(reader.readRecord(rec));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testWrite () 
+          throws Exception {
+      EPDReader reader = new EPDReader(new StringReader(SUITE));
+      StringWriter sw = new StringWriter();
+      EPDWriter writer = new EPDWriter(sw);
+
+      assertEquals(3, writer.writeRecords(reader.readRecords()));
+      writer.flush();
+
+      String[] lines = sw.toString().split("\n");
+      assertEquals(3, lines.length);
+      assertEquals(
+         "r1b1k2r/ppppnppp/2n2q2/2b5/3NP3/2P1B3/PP3PPP/RN1QKB1R w KQkq - "
+      + "bm Nf5 Nxc6; am Bd3; ce 35; acd 12; c0 \"two; moves\"; "
+      + "hmvc 3; fmvn 7;", lines[1]);
+      assertEquals(
+         "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 "
+      + "id \"open sicilian\"; pv Nf3 d6 d4;", lines[2]);
+
+      //and reads back the same
+      List<EPDRecord> again = 
+         new EPDReader(new StringReader(sw.toString())).readRecords();
+      assertEquals(lines[0], again.get(0).toString());
+      assertEquals(lines[1], again.get(1).toString());
+
+      //from a board
+      EPDRecord rec = new EPDRecord(new ChessBoard());
+      rec.setOperation(EPD.ID, "start");
+      rec.setOperation(EPD.ANALYSIS_DEPTH, 20);
+      assertEquals(
+         "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - "
+      + "id \"start\"; acd 20;", rec.toString());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testMalformed () {
+      String[] bad = {
+         "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq\n",
+         "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - id \"x;\n",
+      };
+
+      for (int i=0; i < bad.length; i++) {
+         try {
+            new EPDReader(new StringReader(bad[i])).readRecord();
+            fail("should have rejected: " + bad[i]);
+         }
+         catch (IOException e) {
+         }
+      }
+   }
+}
@@ -244,4 +244,91 @@ public class FENTest extends TestCase {
 
       assertTrue (board.equals(board2));
    }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testRoundTrip () 
+          throws IOException {
+      String[] fens = {
+         "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+         "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 0 2",
+         "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b Kq - 3 17",
+         "8/8/8/8/8/8/8/K6k w - - 99 1234567"
+      };
+      char[] buff = new char[FEN.MAX_LENGTH + 3];
+      StringBuilder sb = new StringBuilder("x");
+
+      for (int i=0; i < fens.length; i++) {
+         board = (ChessBoard) fen.stringToBoard(fens[i]);
+         assertEquals(fens[i], fen.boardToString(board));
+
+         int len = fen.boardToChars(board, buff, 3);
+         assertEquals(fens[i], new String(buff, 3, len));
+
+         sb.setLength(1);
+         fen.appendBoard(sb, board);
+         assertEquals("x" + fens[i], sb.toString());
+
+         String placement = fens[i].substring(0, fens[i].indexOf(' '));
+         assertEquals(placement, fen.placementToString(board));
+         sb.setLength(1);
+         fen.appendPlacement(sb, board);
+         assertEquals("x" + placement, sb.toString());
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testReadIntoBoard () 
+          throws IOException,
+	         IllegalMoveException,
+		 AmbiguousMoveException,
+		 OutOfTurnException {
+      String str = 
+         "rnbqkbnr/pp1ppppp/8/2p5/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2";
+
+      //a board with moves on it gets reused
+      board = new ChessBoard();
+      board.playMove((ChessMove) san.stringToMove(board, "d4"));
+      board.playMove((ChessMove) san.stringToMove(board, "d5"));
+
+      assertSame(board, fen.stringToBoard(new StringBuilder(str), board));
+      board2 = (ChessBoard) fen.stringToBoard(str);
+
+      assertTrue(board.equals(board2));
+      assertEquals(str, fen.boardToString(board));
+      assertEquals(board2.getPositionKey(), board.getPositionKey());
+      assertEquals(2, board.getCurrentMoveNumber());
+
+      //and can go on from there
+      board.playMove((ChessMove) san.stringToMove(board, "d6"));
+      assertEquals(
+         "rnbqkbnr/pp2pppp/3p4/2p5/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 0 2",
+         fen.boardToString(board));
+
+      //and reused again for something smaller
+      fen.stringToBoard("7k/4P3/8/8/8/8/8/7K w - - 0 1", board);
+      assertEquals("7k/4P3/8/8/8/8/8/7K w - - 0 1", 
+         fen.boardToString(board));
+      assertEquals(4, board.getLegalMoveCount());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testMalformed () {
+      String[] bad = {
+         "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+         "rnbqkbnrr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+         "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+         "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq z3 0 1",
+         "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1",
+         "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0",
+      };
+
+      for (int i=0; i < bad.length; i++) {
+         try {
+            fen.stringToBoard(bad[i]);
+            fail("should have rejected: " + bad[i]);
+         }
+         catch (IOException e) {
+         }
+      }
+   }
 }
@@ -0,0 +1,161 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import ictk.boardgame.chess.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+public class MappedFileReaderTest extends AbstractPGNTest {
+   String[] files = {"test_nonvariation.pgn",
+                     "test_variation.pgn",
+                     "test_annotation.pgn"};
+   File tmp;
+
+   public MappedFileReaderTest (String name) {
+      super(name);
+   }
+
+   public void tearDown () {
+      if (tmp != null)
+         tmp.delete();
+      tmp = null;
+   }
+
+   /** all the games of the reader written as PGN */
+   String toPGN (PGNReader reader) 
+          throws Exception {
+      StringWriter sw = new StringWriter();
+      PGNWriter writer = new PGNWriter(sw);
+      ChessGame g = null;
+
+      while ((g = (ChessGame) reader.readGame()) != null)
+         writer.writeGame(g);
+      writer.flush();
+      reader.close();
+      return sw.toString();
+   }
+
+   /** reads everything, n chars at a time */
+   String readAll (Reader in, int n) 
+          throws Exception {
+      StringBuilder sb = new StringBuilder();
+      char[] cbuf = new char[n];
+      int len = 0;
+
+      while ((len = in.read(cbuf, 0, n)) != -1)
+         sb.append(cbuf, 0, len);
+      in.close();
+      return sb.toString();
+   }
+
+   File writeTemp (byte[] bytes) 
+          throws Exception {
+      FileOutputStream out = null;
+
+      tmp = File.createTempFile("ictk", ".pgn");
+      out = new FileOutputStream(tmp);
+      out.write(bytes);
+      out.close();
+      return tmp;
+   }
+
+   FileChannel channel () 
+          throws Exception {
+      return new FileInputStream(tmp).getChannel();
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testPGN () 
+          throws Exception {
+      File file = null;
+
+      for (int i=0; i < files.length; i++) {
+         file = getTestFile(files[i]);
+	 assertEquals(files[i], 
+	    toPGN(new PGNReader(new FileReader(file))),
+	    toPGN(new PGNReader(new MappedFileReader(file))));
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testParallel () 
+          throws Exception {
+      File file = getTestFile(files[1]);
+      ParallelPGNReader reader = 
+         new ParallelPGNReader(new MappedFileReader(file));
+
+      reader.setChunkSize(512);
+      assertEquals(10, reader.readGames().size());
+      reader.close();
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testLatin1 () 
+          throws Exception {
+      byte[] bytes = new byte[256];
+      StringBuilder sb = new StringBuilder();
+
+      for (int i=0; i < bytes.length; i++) {
+         bytes[i] = (byte) i;
+	 sb.append((char) i);
+      }
+      writeTemp(bytes);
+
+      assertEquals(sb.toString(), readAll(
+         new MappedFileReader(channel(), StandardCharsets.ISO_8859_1, 16), 7));
+      assertEquals(sb.toString(), readAll(new MappedFileReader(
+         ByteBuffer.wrap(bytes), StandardCharsets.ISO_8859_1), 100));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** multi-byte characters split across reads and mapped windows */
+   public void testUTF8 () 
+          throws Exception {
+      StringBuilder sb = new StringBuilder();
+      String s = null;
+
+      for (int i=0; i < 40; i++)
+         sb.append("[White \"Réti\"] € 𝄞 ");
+      s = sb.toString();
+      writeTemp(s.getBytes(StandardCharsets.UTF_8));
+
+      for (int n=1; n < 40; n += 3) {
+         assertEquals("read " + n, s, readAll(
+	    new MappedFileReader(channel(), StandardCharsets.UTF_8, 16), n));
+         assertEquals("read " + n, s, readAll(
+	    new MappedFileReader(channel(), StandardCharsets.UTF_8, 1000), n));
+      }
+   }
+}
@@ -0,0 +1,146 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import ictk.boardgame.chess.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PGNIndexTest extends AbstractPGNTest {
+   String[] files = {"test_nonvariation.pgn",
+                     "test_variation.pgn",
+                     "test_annotation.pgn",
+                     "test_chess960.pgn"};
+
+   public PGNIndexTest (String name) {
+      super(name);
+   }
+
+   /** all the games of the file, read in order */
+   List<ChessGame> readAll (File file) 
+          throws Exception {
+      List<ChessGame> list = new ArrayList<>();
+      PGNReader reader = new PGNReader(new FileReader(file));
+      ChessGame g = null;
+
+      while ((g = (ChessGame) reader.readGame()) != null)
+         list.add(g);
+      reader.close();
+      return list;
+   }
+
+   String toPGN (ChessGame g) 
+          throws Exception {
+      StringWriter sw = new StringWriter();
+      PGNWriter writer = new PGNWriter(sw);
+
+      writer.writeGame(g);
+      writer.flush();
+      return sw.toString();
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** every game read through the index is the game read in order */
+   public void testReadGame () 
+          throws Exception {
+      List<ChessGame> games = null;
+      PGNIndex index = null;
+      FileChannel ch = null;
+      File file = null;
+
+      for (int i=0; i < files.length; i++) {
+         file = getTestFile(files[i]);
+         games = readAll(file);
+	 index = PGNIndex.build(file, "White");
+	 assertEquals(files[i], games.size(), index.size());
+
+	 ch = new FileInputStream(file).getChannel();
+	 //backwards, so each read really seeks
+	 for (int j=games.size() - 1; j >= 0; j--)
+	    assertEquals(files[i] + " game " + j, 
+	       toPGN(games.get(j)), toPGN(index.readGame(ch, j)));
+	 ch.close();
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testFind () 
+          throws Exception {
+      File file = getTestFile(files[0]);
+      PGNIndex index = PGNIndex.build(file, "White", "Black", "Nothing");
+
+      assertEquals(6, index.size());
+      assertEquals("Aleksandrov, A.", index.getTag(0, "White"));
+      assertEquals("Milos, G.", index.getTag(1, "Black"));
+      assertEquals("Gurevich,M", index.getTag(2, "White"));
+      assertNull(index.getTag(2, "Nothing"));
+      assertEquals(3, index.findAll("White", "A").size());
+
+      assertEquals(0, index.find("White", "Aleksandrov, A.", 0));
+      assertEquals(1, index.find("White", "Aleksandrov, A.", 1));
+      assertEquals(-1, index.find("White", "Aleksandrov, A.", 2));
+      assertEquals(2, index.findAll("White", "Aleksandrov, A.").size());
+      assertEquals(2, index.find("Black", "Ivanchuk,V", 0));
+      assertEquals(-1, index.find("White", "No Such Player", 0));
+      try {
+         index.find("Event", "?", 0);
+	 fail("found a tag that isn't indexed");
+      }
+      catch (IllegalArgumentException e) {
+         //good
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testSaveLoad () 
+          throws Exception {
+      File file = getTestFile(files[1]);
+      PGNIndex index = PGNIndex.build(file, "White", "Result"),
+               loaded = null;
+      File sidecar = File.createTempFile("ictk", ".pgni");
+
+      try {
+         index.save(sidecar);
+	 loaded = PGNIndex.load(sidecar);
+      }
+      finally {
+         sidecar.delete();
+      }
+
+      assertEquals(index.size(), loaded.size());
+      for (int i=0; i < index.size(); i++) {
+         assertEquals(index.getOffset(i), loaded.getOffset(i));
+	 assertEquals(index.getTag(i, "White"), loaded.getTag(i, "White"));
+	 assertEquals(index.getTag(i, "Result"), loaded.getTag(i, "Result"));
+      }
+   }
+}
@@ -33,6 +33,8 @@ import java.io.*;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PGNReaderTest extends AbstractPGNTest {
    String pgn_nonvariation = "test_nonvariation.pgn",
@@ -632,7 +634,142 @@ public class PGNReaderTest extends AbstractPGNTest {
      }
    }
 
-   
+
+   //STREAMING SECTION////////////////////////////////////////////////////////
+
+   ///////////////////////////////////////////////////////////////////////////
+   public void testIterator () 
+          throws Exception {
+      int i = 0;
+
+      games = loadGames(getTestFile(pgn_variation), false, -1);
+      for (ChessGame g : new PGNReader(
+              new FileReader(getTestFile(pgn_variation)))) {
+         assertEquals(
+	    ((ChessGameInfo) games.get(i).getGameInfo()).getWhite().getName(),
+	    ((ChessGameInfo) g.getGameInfo()).getWhite().getName());
+         assertEquals(games.get(i).getHistory().size(), 
+                      g.getHistory().size());
+	 i++;
+      }
+      assertEquals(games.size(), i);
+   }
+
+   ///////////////////////////////////////////////////////////////////////////
+   /** a recycled game must read the same as a fresh one */
+   public void testRecycleGames () 
+          throws Exception {
+      final List<String> finals = new LinkedList<>();
+      final List<ChessGame> seen = new LinkedList<>();
+      final FEN fen = new FEN();
+      PGNReader reader = new PGNReader(
+                            new FileReader(getTestFile(pgn_variation)));
+
+      games = loadGames(getTestFile(pgn_variation), false, -1);
+      reader.setRecycleGames(true);
+      assertEquals(games.size(), reader.readGames(
+         new GameVisitor<ChessGame>() {
+	    public boolean visitGame (ChessGame g) {
+	       g.getHistory().goToEnd();
+	       finals.add(fen.boardToString(g.getBoard()));
+	       seen.add(g);
+	       return true;
+	    }
+	 }));
+
+      for (int i=0; i < games.size(); i++) {
+         games.get(i).getHistory().goToEnd();
+	 assertEquals("game " + i, 
+	    fen.boardToString(games.get(i).getBoard()), finals.get(i));
+	 assertSame(seen.get(0), seen.get(i));
+      }
+   }
+
+   ///////////////////////////////////////////////////////////////////////////
+   public void testReadGamesStops () 
+          throws Exception {
+      PGNReader reader = new PGNReader(
+                            new FileReader(getTestFile(pgn_nonvariation)));
+
+      assertEquals(2, reader.readGames(
+         new GameVisitor<ChessGame>() {
+	    int count = 0;
+	    public boolean visitGame (ChessGame g) {
+	       return ++count < 2;
+	    }
+	 }));
+      //the rest are still there to be read
+      assertNotNull(reader.readGame());
+   }
+
+   ///////////////////////////////////////////////////////////////////////////
+   /** the tags read with the movetext skipped must match a full read */
+   public void testHeaderOnly () 
+          throws Exception {
+      String[] files = {pgn_nonvariation, pgn_variation, pgn_annotation,
+                        pgn_chess960};
+      PGNReader reader = null;
+      ChessGameInfo full = null,
+                    tags = null;
+
+      for (int f=0; f < files.length; f++) {
+         games = loadGames(getTestFile(files[f]), false, -1);
+	 reader = new PGNReader(new FileReader(getTestFile(files[f])));
+	 reader.setHeaderOnly(true);
+	 reader.setRecycleGames(true);
+
+	 for (int i=0; i < games.size(); i++) {
+	    game = reader.readGame();
+	    assertNotNull(files[f] + " game " + i, game);
+	    assertEquals(0, game.getHistory().size());
+
+	    full = (ChessGameInfo) games.get(i).getGameInfo();
+	    tags = (ChessGameInfo) game.getGameInfo();
+	    assertEquals(files[f] + " game " + i, 
+	       nameOf(full.getWhite()), nameOf(tags.getWhite()));
+	    assertEquals(nameOf(full.getBlack()), nameOf(tags.getBlack()));
+	    assertEquals(full.getResult(), tags.getResult());
+	    assertEquals(full.getECO(), tags.getECO());
+	 }
+	 assertNull(reader.readGame());
+      }
+
+      //without recycling the games are new but share a placeholder board
+      reader = new PGNReader(new FileReader(getTestFile(pgn_nonvariation)));
+      reader.setHeaderOnly(true);
+      ChessGame first = (ChessGame) reader.readGame(),
+                second = (ChessGame) reader.readGame();
+      assertNotSame(first, second);
+      assertNotSame(first.getGameInfo(), second.getGameInfo());
+      assertSame(first.getBoard(), second.getBoard());
+   }
+
+   ///////////////////////////////////////////////////////////////////////////
+   /** results in comments and variations don't end the game, and a
+    *  game without a result ends at the next tags.
+    */
+   public void testSkipHistory () 
+          throws Exception {
+      String pgn = 
+           "[Event \"one\"]\n\n"
+	 + "1. e4 {1-0 was agreed? [no]} e5 (1... c5 2. Nf3 0-1) 2. Nf3\n"
+	 + "; 1/2-1/2 here too\n"
+	 + "{ a comment\n[Event \"not a tag\"]\n} Nc6 1-0\n\n"
+	 + "[Event \"two\"]\n\n"
+	 + "1. d4 d5\n\n"
+	 + "[Event \"three\"]\n\n"
+	 + "1. c4 *\n";
+      PGNReader reader = new PGNReader(new StringReader(pgn));
+
+      assertEquals("one", reader.readGameInfo().getEvent());
+      reader.skipHistory();
+      assertEquals("two", reader.readGameInfo().getEvent());
+      reader.skipHistory();
+      assertEquals("three", reader.readGameInfo().getEvent());
+      reader.skipHistory();
+      assertNull(reader.readGameInfo());
+   }
+
    //BAD PGNs SECTION/////////////////////////////////////////////////////////
 
    ///////////////////////////////////////////////////////////////////////////
@@ -669,6 +806,115 @@ public class PGNReaderTest extends AbstractPGNTest {
 
    //Helper///////////////////////////////////////////////////////////////////
 
+   protected static String nameOf (Player p) {
+      return (p == null) ? null : p.getName();
+   }
+
+   ///////////////////////////////////////////////////////////////////////////
+   /** games read in parallel must match a sequential read, in order */
+   public void testParallelOrdered () 
+          throws Exception {
+      final FEN fen = new FEN();
+      List<ChessGame> parallel = null;
+      ForkJoinPool pool = new ForkJoinPool(4);
+
+      games = loadGames(getTestFile(pgn_variation), false, -1);
+      try (ParallelPGNReader reader = new ParallelPGNReader(
+                             new FileReader(getTestFile(pgn_variation)), 
+			     pool)) {
+         //one game per chunk
+	 reader.setChunkSize(1);
+         parallel = reader.readGames();
+      }
+      finally {
+         pool.shutdown();
+      }
+
+      assertEquals(games.size(), parallel.size());
+      for (int i=0; i < games.size(); i++) {
+         assertEquals("game " + i, 
+	    nameOf(((ChessGameInfo) games.get(i).getGameInfo()).getWhite()),
+	    nameOf(((ChessGameInfo) parallel.get(i).getGameInfo()).getWhite()));
+         games.get(i).getHistory().goToEnd();
+         parallel.get(i).getHistory().goToEnd();
+	 assertEquals("game " + i, 
+	    fen.boardToString(games.get(i).getBoard()),
+	    fen.boardToString(parallel.get(i).getBoard()));
+      }
+   }
+
+   ///////////////////////////////////////////////////////////////////////////
+   public void testParallelUnordered () 
+          throws Exception {
+      final AtomicInteger visited = new AtomicInteger();
+      int count = 0;
+
+      games = loadGames(getTestFile(pgn_nonvariation), false, -1);
+      try (ParallelPGNReader reader = new ParallelPGNReader(
+                            new FileReader(getTestFile(pgn_nonvariation)))) {
+	 reader.setChunkSize(1);
+         count = reader.readGames(new GameVisitor<ChessGame>() {
+	    public boolean visitGame (ChessGame g) {
+	       visited.incrementAndGet();
+	       return true;
+	    }
+	 }, false);
+      }
+
+      assertEquals(games.size(), count);
+      assertEquals(games.size(), visited.get());
+   }
+
+   ///////////////////////////////////////////////////////////////////////////
+   /** an error on a worker is thrown to the reading thread */
+   public void testParallelError () 
+          throws Exception {
+      try (ParallelPGNReader reader = new ParallelPGNReader(
+                            new FileReader(getTestFile(pgn_bad)))) {
+	 reader.setChunkSize(1);
+         reader.readGames();
+	 fail("read in bad game but no error?");
+      }
+      catch (IOException e) {
+      }
+   }
+
+   ///////////////////////////////////////////////////////////////////////////
+   /** trusted games must write out just as the checked ones do, with the
+    *  same disambiguation, check and mate marks.
+    */
+   public void testTrusted () 
+          throws Exception {
+      String[] files = {pgn_nonvariation, pgn_variation, pgn_annotation};
+      StringWriter checked = null,
+                   trusted = null;
+      PGNReader reader = null;
+      PGNWriter writer = null;
+      ChessGame g = null;
+
+      for (int i=0; i < files.length; i++) {
+         games = loadGames(getTestFile(files[i]), false, -1);
+	 checked = new StringWriter();
+	 writer = new PGNWriter(checked);
+	 for (int j=0; j < games.size(); j++)
+	    writer.writeGame(games.get(j));
+	 writer.flush();
+
+	 trusted = new StringWriter();
+	 writer = new PGNWriter(trusted);
+         reader = new PGNReader(new FileReader(getTestFile(files[i])));
+	 reader.setTrusted(true);
+	 while ((g = (ChessGame) reader.readGame()) != null) {
+	    assertFalse(((ChessBoard) g.getBoard()).isTrustedMoves());
+	    writer.writeGame(g);
+	 }
+	 writer.flush();
+	 reader.close();
+
+	 assertEquals(files[i], checked.toString(), trusted.toString());
+      }
+   }
+
    /** loads the games into a list so aspects of the games can be tested */
    protected static List<ChessGame> loadGames (File file, boolean debug, int gameToDebug)
           throws FileNotFoundException,
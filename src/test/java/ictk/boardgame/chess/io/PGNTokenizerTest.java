@@ -0,0 +1,128 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import ictk.boardgame.chess.ChessResult;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import junit.framework.*;
+
+public class PGNTokenizerTest extends TestCase {
+   PGNTokenizer tok;
+
+   public PGNTokenizerTest (String name) {
+      super(name);
+   }
+
+   public void tearDown () {
+      tok = null;
+   }
+
+   /** checks the next token's type and text */
+   void assertToken (int type, String text) 
+        throws Exception {
+      assertEquals(text, type, tok.nextToken());
+      assertEquals(text, tok.toString());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testTokens () 
+          throws Exception {
+      tok = new PGNTokenizer(new StringReader(
+         "1. e4 e5!? 2.Nf3 $14 (2. f4 {King's\n\tGambit} exf4) "
+	 + "2... Nc6 ;a comment\r\n3. Bb5 N 1/2-1/2"));
+
+      assertToken(PGNTokenizer.TT_NUMBER, "1");
+      assertToken(PGNTokenizer.TT_MOVE, "e4");
+      assertToken(PGNTokenizer.TT_MOVE, "e5!?");
+      assertToken(PGNTokenizer.TT_NUMBER, "2");
+      assertToken(PGNTokenizer.TT_MOVE, "Nf3");
+      assertToken(PGNTokenizer.TT_NAG, "$14");
+      assertEquals(14, tok.getNAG());
+      assertToken(PGNTokenizer.TT_RAV_BEGIN, "(");
+      assertToken(PGNTokenizer.TT_NUMBER, "2");
+      assertToken(PGNTokenizer.TT_MOVE, "f4");
+      assertToken(PGNTokenizer.TT_COMMENT, "King'sGambit");
+      assertToken(PGNTokenizer.TT_MOVE, "exf4");
+      assertToken(PGNTokenizer.TT_RAV_END, ")");
+      assertToken(PGNTokenizer.TT_NUMBER, "2");
+      assertToken(PGNTokenizer.TT_MOVE, "Nc6");
+      assertToken(PGNTokenizer.TT_LINE_COMMENT, "a comment");
+      assertToken(PGNTokenizer.TT_NUMBER, "3");
+      assertToken(PGNTokenizer.TT_MOVE, "Bb5");
+      assertToken(PGNTokenizer.TT_NAG, "N");
+      assertEquals(146, tok.getNAG());
+      assertToken(PGNTokenizer.TT_RESULT, "1/2-1/2");
+      assertEquals(ChessResult.DRAW, tok.getResult());
+      assertEquals(PGNTokenizer.TT_EOF, tok.nextToken());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** tokens and comments longer than the buffer */
+   public void testSmallBuffer () 
+          throws Exception {
+      tok = new PGNTokenizer(new StringReader(
+         "{a long comment that won't fit} Nbd7 *"), 4);
+
+      assertToken(PGNTokenizer.TT_COMMENT, "a long comment that won't fit");
+      assertToken(PGNTokenizer.TT_MOVE, "Nbd7");
+      assertToken(PGNTokenizer.TT_RESULT, "*");
+      assertEquals(ChessResult.UNDECIDED, tok.getResult());
+      assertEquals(PGNTokenizer.TT_EOF, tok.nextToken());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testCharArray () 
+          throws Exception {
+      char[] chars = "xx e4 0-1 xx".toCharArray();
+      tok = new PGNTokenizer(chars, 3, 6);
+
+      assertToken(PGNTokenizer.TT_MOVE, "e4");
+      assertEquals(chars, tok.getBuffer());
+      assertEquals(3, tok.getStart());
+      assertEquals(5, tok.getEnd());
+      assertToken(PGNTokenizer.TT_RESULT, "0-1");
+      assertEquals(PGNTokenizer.TT_EOF, tok.nextToken());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** the text after the result is given back to the reader */
+   public void testUnread () 
+          throws Exception {
+      BufferedReader in = new BufferedReader(new StringReader(
+         "1. d4 d5 1-0\n\n[Event \"next\"]\n"));
+      tok = new PGNTokenizer(in);
+
+      while (tok.nextToken() != PGNTokenizer.TT_RESULT)
+         ;
+      tok.unread();
+      assertEquals("", in.readLine());
+      assertEquals("", in.readLine());
+      assertEquals("[Event \"next\"]", in.readLine());
+   }
+}
@@ -32,6 +32,7 @@ import ictk.boardgame.chess.*;
 
 import java.io.*;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.net.URL;
 import java.net.URISyntaxException;
 
@@ -499,4 +500,53 @@ public class PGNWriterTest extends AbstractPGNTest {
 
       Log.removeMask(PGNWriter.DEBUG);
    }
+
+   ///////////////////////////////////////////////////////////////////////////
+   /** the parallel writer's output is the same as writing the games in
+    *  order with one PGNWriter.
+    */
+   public void testParallel () 
+          throws Exception {
+      String[] files = {pgn_nonvariation, pgn_variation, pgn_annotation};
+      ForkJoinPool pool = new ForkJoinPool(4);
+      ParallelPGNWriter pwriter = null;
+      String expected = null;
+
+      try {
+	 for (int i=0; i < files.length; i++) {
+	    list = PGNReaderTest.loadGames(getTestFile(files[i]), false, -1);
+
+	    writer = new PGNWriter(sw = new StringWriter());
+	    writer.setColumnWidth(60);
+	    for (int j=0; j < list.size(); j++)
+	       writer.writeGame(list.get(j));
+	    writer.flush();
+	    expected = sw.toString();
+
+	    for (int batch=1; batch <= 3; batch++) {
+	       pwriter = new ParallelPGNWriter(sw = new StringWriter(), pool);
+	       pwriter.setColumnWidth(60);
+	       pwriter.setBatchSize(batch);
+	       assertEquals(list.size(), pwriter.writeGames(list));
+	       assertEquals(files[i] + " batch " + batch, 
+	                    expected, sw.toString());
+	    }
+	 }
+
+	 //an error stops the writing and is thrown here
+	 list.add(1, null);
+	 pwriter = new ParallelPGNWriter(sw = new StringWriter(), pool);
+	 pwriter.setBatchSize(1);
+	 try {
+	    pwriter.writeGames(list);
+	    fail("wrote a null game");
+	 }
+	 catch (NullPointerException e) {
+	    //good
+	 }
+      }
+      finally {
+         pool.shutdown();
+      }
+   }
 }
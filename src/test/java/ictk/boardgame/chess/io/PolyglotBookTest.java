@@ -0,0 +1,312 @@
+/*
+ * ictk - Internet Chess ToolKit
+ * More information is available at http://jvarsoke.github.io/ictk
+ * Copyright (c) 1997-2014 J. Varsoke <ictk.jvarsoke [at] neverbox.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package ictk.boardgame.chess.io;
+
+import ictk.boardgame.chess.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+public class PolyglotBookTest extends AbstractPGNTest {
+   FEN fen = new FEN();
+   SAN san = new SAN();
+      /** a stand-in for the published numbers */
+   long[] random;
+
+   public PolyglotBookTest (String name) {
+      super(name);
+   }
+
+   public void setUp () {
+      Random rnd = new Random(781);
+      random = new long[PolyglotBook.RANDOM_SIZE];
+      for (int i=0; i < random.length; i++)
+         random[i] = rnd.nextLong();
+      PolyglotBook.setRandom64(random);
+   }
+
+   public void tearDown () {
+      PolyglotBook.setRandom64(null);
+   }
+
+   ChessBoard play (String... moves) 
+          throws Exception {
+      ChessBoard board = new ChessBoard();
+      for (int i=0; i < moves.length; i++)
+         board.playMove(san.stringToMove(board, moves[i]));
+      return board;
+   }
+
+   long key (String str) 
+          throws Exception {
+      return PolyglotBook.getKey((ChessBoard) fen.stringToBoard(str));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** the key changes by the right Random64 numbers */
+   public void testKey () 
+          throws Exception {
+      long start = PolyglotBook.getKey(new ChessBoard());
+
+      //white pawn is kind 1; e2 and e4; and the turn
+      assertEquals(random[64 + 8 + 4] ^ random[64 + 24 + 4] ^ random[780],
+         start ^ PolyglotBook.getKey(play("e4")));
+
+      //no black pawn can take on e3 so the file doesn't count
+      assertEquals(
+         key("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1"),
+         key("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"));
+
+      //but the pawn on e5 can take on f6
+      assertEquals(random[772 + 5],
+         PolyglotBook.getKey(play("e4", "d5", "e5", "f5"))
+         ^ key("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq - 0 3"));
+
+      //castling
+      assertEquals(random[768] ^ random[769] ^ random[770] ^ random[771],
+         key("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1")
+         ^ key("r3k2r/8/8/8/8/8/8/R3K2R w - - 0 1"));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** the test positions of the Polyglot book format */
+   public void testReferenceKeys () 
+          throws Exception {
+      PolyglotBook.setRandom64(null);
+
+      assertEquals(0x463b96181691fc9cL, 
+         PolyglotBook.getKey(play()));
+      assertEquals(0x823c9b50fd114196L, 
+         PolyglotBook.getKey(play("e4")));
+      assertEquals(0x0756b94461c50fb0L, 
+         PolyglotBook.getKey(play("e4", "d5")));
+      assertEquals(0x662fafb965db29d4L, 
+         PolyglotBook.getKey(play("e4", "d5", "e5")));
+      assertEquals(0x22a48b5a8e47ff78L, 
+         PolyglotBook.getKey(play("e4", "d5", "e5", "f5")));
+      assertEquals(0x652a607ca3f242c1L, 
+         PolyglotBook.getKey(play("e4", "d5", "e5", "f5", "Ke2")));
+      assertEquals(0x00fdd303c946bdd9L, 
+         PolyglotBook.getKey(play("e4", "d5", "e5", "f5", "Ke2", "Kf7")));
+      assertEquals(0x3c8123ea7b067637L, 
+         PolyglotBook.getKey(play("a4", "b5", "h4", "b4", "c4")));
+      assertEquals(0x5c3f9b829b279560L, 
+         PolyglotBook.getKey(
+            play("a4", "b5", "h4", "b4", "c4", "bxc3", "Ra3")));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testMoves () 
+          throws Exception {
+      ChessBoard board = 
+         (ChessBoard) fen.stringToBoard("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+      ChessMove move = null;
+
+      //castles are the king taking its own rook
+      move = new ChessMove(board, ChessMove.CASTLE_KINGSIDE);
+      assertEquals(0x107, PolyglotBook.toPolyglot(board, move));
+      move = new ChessMove(board, ChessMove.CASTLE_QUEENSIDE);
+      assertEquals(0x100, PolyglotBook.toPolyglot(board, move));
+      assertTrue(PolyglotBook.toMove(board, 0x107).isCastleKingside());
+      assertTrue(PolyglotBook.toMove(board, 0x100).isCastleQueenside());
+
+      board.setBlackMove(true);
+      move = new ChessMove(board, ChessMove.CASTLE_KINGSIDE);
+      assertEquals(0xF3F, PolyglotBook.toPolyglot(board, move));
+      assertTrue(PolyglotBook.toMove(board, 0xF3F).isCastleKingside());
+
+      //a rook move is still a rook move
+      move = PolyglotBook.toMove(board, 0xFFE);
+      assertFalse(move.isCastleKingside());
+      assertEquals("g8", move.getDestination().toString());
+
+      //promotion
+      board = (ChessBoard) fen.stringToBoard("8/4P3/8/8/8/8/8/K6k w - - 0 1");
+      move = (ChessMove) san.stringToMove(board, "e8=N");
+      assertEquals(0x1D3C, PolyglotBook.toPolyglot(board, move));
+      move = PolyglotBook.toMove(board, 0x4D3C);
+      assertTrue(move.getPromotion().isQueen());
+
+      //not legal
+      assertNull(PolyglotBook.toMove(board, 0x49A));   //c3c4, nothing on c3
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   /** entries as another program writes them: e2e4 and d2d4 from the
+    *  start, and e7e5 after e2e4 */
+   public void testStandardEntries () 
+          throws Exception {
+      PolyglotBook.setRandom64(null);
+      ByteBuffer buff = ByteBuffer.allocate(3 * PolyglotBook.ENTRY_SIZE);
+      buff.putLong(0x463b96181691fc9cL).putShort((short) 0x031C)
+          .putShort((short) 20).putInt(0);
+      buff.putLong(0x463b96181691fc9cL).putShort((short) 0x02DB)
+          .putShort((short) 10).putInt(0);
+      buff.putLong(0x823c9b50fd114196L).putShort((short) 0x0D24)
+          .putShort((short) 5).putInt(0);
+      buff.flip();
+
+      PolyglotBook book = new PolyglotBook(buff);
+      ChessBoard board = new ChessBoard();
+      assertEquals(2, book.getMoves(board).size());
+      assertEquals("e4", 
+         book.getBestMove(board).getDestination().toString());
+
+      board = play("e4");
+      assertEquals("e5", 
+         book.getBestMove(board).getDestination().toString());
+
+      //and written back the same
+      PolyglotBookWriter writer = new PolyglotBookWriter();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ChessGame game = new ChessGame();
+      game.getHistory().add(san.stringToMove(game.getBoard(), "e4"));
+      game.getHistory().add(san.stringToMove(game.getBoard(), "e5"));
+      game.setResult(new ChessResult(ChessResult.DRAW));
+      writer.addGame(game);
+      writer.write(out);
+
+      List<PolyglotBook.Entry> entries = 
+         new PolyglotBook(ByteBuffer.wrap(out.toByteArray()))
+	    .getEntries(0x823c9b50fd114196L);
+      assertEquals(1, entries.size());
+      assertEquals(0x0D24, entries.get(0).getMove());
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testWriteRead () 
+          throws Exception {
+      PolyglotBookWriter writer = new PolyglotBookWriter();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      File file = getTestFile("test_nonvariation.pgn");
+      PGNReader reader = new PGNReader(new FileReader(file));
+
+      writer.setMaxPly(10);
+      assertEquals(6, writer.addGames(reader));
+      reader.close();
+
+      int entries = writer.write(out);
+      assertTrue(entries > 0);
+      assertEquals(entries * PolyglotBook.ENTRY_SIZE, out.size());
+
+      PolyglotBook book = new PolyglotBook(ByteBuffer.wrap(out.toByteArray()));
+      assertEquals(entries, book.size());
+
+      //every entry can be found by its key
+      List<PolyglotBook.Entry> all = writer.getEntries();
+      for (int i=0; i < all.size(); i++) 
+         assertTrue(book.getEntries(all.get(i).getKey()).size() > 0);
+
+      //every game that white didn't lose starts with a book move
+      reader = new PGNReader(new FileReader(file));
+      ChessGame game = null;
+      ChessBoard start = new ChessBoard();
+      List<ChessMove> moves = book.getMoves(start);
+      List<PolyglotBook.Entry> list = book.getEntries(start);
+      assertEquals(list.size(), moves.size());
+      for (int i=1; i < list.size(); i++)
+         assertTrue(list.get(i-1).getWeight() >= list.get(i).getWeight());
+
+      while ((game = (ChessGame) reader.readGame()) != null) {
+         ChessResult r = (ChessResult) game.getGameInfo().getResult();
+         if (r.isBlackWin() || r.isUndecided())
+	    continue;
+         ChessMove first = (ChessMove) game.getHistory().getFirst();
+	 boolean found = false;
+	 for (int i=0; i < moves.size(); i++)
+	    found |= moves.get(i).getDestination().equals(
+	                first.getDestination());
+         assertTrue(found);
+      }
+      reader.close();
+
+      assertNotNull(book.getBestMove(start));
+      assertNotNull(book.getWeightedMove(start, new Random(1)));
+      assertNull(book.getBestMove(play("a3", "h6")));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testMapped () 
+          throws Exception {
+      PolyglotBookWriter writer = new PolyglotBookWriter();
+      File book = File.createTempFile("ictk", ".bin");
+      book.deleteOnExit();
+
+      PGNReader reader = new PGNReader(
+         new FileReader(getTestFile("test_variation.pgn")));
+      writer.addGames(reader);
+      reader.close();
+      writer.write(book);
+
+      PolyglotBook mapped = new PolyglotBook(book);
+      try {
+         assertEquals(book.length() / PolyglotBook.ENTRY_SIZE, mapped.size());
+	 List<PolyglotBook.Entry> all = writer.getEntries();
+         for (int i=0; i < all.size(); i++) {
+	    List<PolyglotBook.Entry> found = 
+	       mapped.getEntries(all.get(i).getKey());
+	    assertTrue(found.size() > 0);
+	    assertEquals(all.get(i).getKey(), found.get(0).getKey());
+	 }
+      }
+      finally {
+         mapped.close();
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testReadRandom64 () 
+          throws Exception {
+      StringBuilder sb = new StringBuilder("# test table\n");
+      for (int i=0; i < PolyglotBook.RANDOM_SIZE; i++) {
+         sb.append("0x").append(Long.toHexString(random[i]).toUpperCase());
+	 sb.append((i % 4 == 3) ? "L,\n" : ", ");
+      }
+      long[] table = PolyglotBook.readRandom64(new StringReader(sb.toString()));
+      for (int i=0; i < table.length; i++)
+         assertEquals(random[i], table[i]);
+
+      try {
+         PolyglotBook.readRandom64(new StringReader("0x1234 0x5678"));
+	 fail("too few numbers");
+      }
+      catch (IOException e) {
+      }
+
+      try {
+         PolyglotBook.setRandom64(new long[3]);
+	 fail("too few numbers");
+      }
+      catch (IllegalArgumentException e) {
+      }
+   }
+}
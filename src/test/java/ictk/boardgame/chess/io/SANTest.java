@@ -30,6 +30,8 @@ import ictk.boardgame.*;
 import ictk.boardgame.io.*;
 import ictk.boardgame.chess.*;
 
+import java.util.List;
+
 public class SANTest extends TestCase {
    SAN san;
    ChessBoard board;
@@ -314,4 +316,68 @@ public class SANTest extends TestCase {
       catch (ArrayIndexOutOfBoundsException e) {
       }
    }
+   //////////////////////////////////////////////////////////////////////
+   /** the hand written decoder must read every legal move the same way
+    *  as the regex, including disambiguation, promotion and castling.
+    */
+   public void testDecodeMatchesRegex () 
+          throws Exception {
+      String[] fens = {
+         "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+	 "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+	 "4k3/8/8/8/8/8/8/1N2KN1R w K - 0 1"
+      };
+      SAN regex = new SAN() {
+         protected ChessMove decode (ChessBoard b, CharSequence s) {
+	    return null;
+	 }
+      };
+      FEN fen = new FEN();
+      List<Move> legal = null;
+      ChessMove fast = null,
+                slow = null;
+      String str = null;
+
+      for (int i=0; i < fens.length; i++) {
+         board = (ChessBoard) fen.stringToBoard(fens[i]);
+	 legal = board.getLegalMoves();
+	 assertTrue(legal.size() > 0);
+	 for (int j=0; j < legal.size(); j++) {
+	    //the move has to be played to be written
+	    ChessBoard played = (ChessBoard) fen.stringToBoard(fens[i]);
+	    move = (ChessMove) played.getLegalMoves().get(j);
+	    played.playMove(move);
+	    str = san.moveToString(move);
+
+	    fast = (ChessMove) san.stringToMove(board, new StringBuilder(str));
+	    slow = (ChessMove) regex.stringToMove(board, str);
+	    assertEquals(str, Perft.toCoordinate(move), Perft.toCoordinate(fast));
+	    assertEquals(str, Perft.toCoordinate(slow), Perft.toCoordinate(fast));
+	 }
+      }
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testDecodeSuffix () 
+          throws Exception {
+      board = new ChessBoard();
+      move = (ChessMove) san.stringToMove(board, new StringBuilder("Nf3!?"));
+      assertEquals("g1f3", Perft.toCoordinate(move));
+      assertEquals(5, ((ChessAnnotation) move.getAnnotation()).getNAG(0));
+   }
+
+   //////////////////////////////////////////////////////////////////////
+   public void testDecodeAmbiguous () 
+          throws Exception {
+      board = (ChessBoard) new FEN().stringToBoard(
+                 "4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1");
+      try {
+         san.stringToMove(board, "Nd2");
+	 fail("Nd2 is ambiguous");
+      }
+      catch (AmbiguousChessMoveException e) {
+      }
+      move = (ChessMove) san.stringToMove(board, "Nbd2");
+      assertEquals("b1d2", Perft.toCoordinate(move));
+   }
 }